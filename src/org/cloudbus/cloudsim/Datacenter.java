@@ -12,6 +12,7 @@ import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeSet;
 
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
@@ -53,6 +54,12 @@ public class Datacenter extends SimEntity {
 	/** The scheduling interval. */
 	private double schedulingInterval;
 
+	/** The pending event triggering the next processing of cloudlets, null if there is none. */
+	private SimEvent processingEvent;
+
+	/** Later processing deadlines, the earliest of them is sent when the pending event fires. */
+	private TreeSet<Double> laterProcessingTimes;
+
 	/**
 	 * Allocates a new PowerDatacenter object.
 	 * 
@@ -245,6 +252,14 @@ public class Datacenter extends SimEntity {
 				break;
 
 			case CloudSimTags.VM_DATACENTER_EVENT:
+				if (ev == processingEvent) {
+					processingEvent = null;
+					if (laterProcessingTimes != null && !laterProcessingTimes.isEmpty()) {
+						double next = laterProcessingTimes.pollFirst();
+						processingEvent = CloudSim.sendCancellable(getId(), getId(), next - CloudSim.clock(),
+								CloudSimTags.VM_DATACENTER_EVENT, null);
+					}
+				}
 				updateCloudletProcessing();
 				checkCloudletCompletion();
 				break;
@@ -726,8 +741,7 @@ public class Datacenter extends SimEntity {
 				/*	edited by HARSHIT	*/
 				//if(getName().equals("gateway-3"))
 				//System.out.println(getName()+" : ESTIMATED FINISH TIME ON "+((StreamOperator)vm).getName()+": "+estimatedFinishTime);
-				send(getId(), CloudSim.getMinTimeBetweenEvents()
-						+estimatedFinishTime, CloudSimTags.VM_DATACENTER_EVENT);
+				scheduleProcessing(CloudSim.getMinTimeBetweenEvents() + estimatedFinishTime);
 				/*	edit done	*/
 			}
 
@@ -794,7 +808,8 @@ public class Datacenter extends SimEntity {
 		if (eventTime > 0.0) { // if this cloudlet is in the exec queue
 			status = true;
 			if (eventTime > CloudSim.clock()) {
-				schedule(getId(), eventTime, CloudSimTags.VM_DATACENTER_EVENT);
+				// through the processing timer, so that rescheduling the processing cancels it
+				scheduleProcessing(eventTime);
 			}
 		}
 
@@ -884,12 +899,63 @@ public class Datacenter extends SimEntity {
 				smallerTime = CloudSim.clock() + CloudSim.getMinTimeBetweenEvents() + 0.01;
 			}
 			if (smallerTime != Double.MAX_VALUE) {
-				schedule(getId(), (smallerTime - CloudSim.clock()), CloudSimTags.VM_DATACENTER_EVENT);
+				scheduleProcessing(smallerTime - CloudSim.clock());
 			}
 			setLastProcessTime(CloudSim.clock());
 		}
 	}
 
+	/**
+	 * Schedules cloudlet processing after the given delay. Every datacenter keeps a single pending
+	 * processing event for its earliest deadline; an earlier deadline moves it, later deadlines are
+	 * kept aside until it fires, and deadlines at the same time are processed once.
+	 * 
+	 * @param delay the delay from now
+	 */
+	protected void scheduleProcessing(double delay) {
+		double time = CloudSim.clock() + delay;
+		if (processingEvent != null) {
+			double pending = processingEvent.eventTime();
+			if (pending == time) {
+				return;
+			}
+			if (laterProcessingTimes == null) {
+				laterProcessingTimes = new TreeSet<Double>();
+			}
+			if (pending < time) {
+				laterProcessingTimes.add(time);
+				return;
+			}
+			laterProcessingTimes.add(pending);
+			CloudSim.cancelEvent(processingEvent);
+		}
+		processingEvent = CloudSim.sendCancellable(getId(), getId(), delay, CloudSimTags.VM_DATACENTER_EVENT, null);
+	}
+
+	/**
+	 * Replaces all scheduled cloudlet processing by a single one after the given delay.
+	 * 
+	 * @param delay the delay from now
+	 */
+	protected void rescheduleProcessing(double delay) {
+		if (processingEvent != null) {
+			CloudSim.cancelEvent(processingEvent);
+		}
+		if (laterProcessingTimes != null) {
+			laterProcessingTimes.clear();
+		}
+		processingEvent = CloudSim.sendCancellable(getId(), getId(), delay, CloudSimTags.VM_DATACENTER_EVENT, null);
+	}
+
+	/**
+	 * Gets the time of the pending processing event.
+	 * 
+	 * @return the time, or a negative value if no processing is scheduled
+	 */
+	protected double getNextProcessingTime() {
+		return processingEvent == null ? -1 : processingEvent.eventTime();
+	}
+
 	/**
 	 * Verifies if some cloudlet inside this PowerDatacenter already finished. If yes, send it to
 	 * the User/Broker
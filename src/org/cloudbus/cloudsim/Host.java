@@ -44,6 +44,9 @@ public class Host {
 	/** The vm list. */
 	private final List<? extends Vm> vmList = new ArrayList<Vm>();
 
+	/** The vms of vmList by user and vm id, the first of the list for equal ids. */
+	private final VmRegistry<Vm> vmRegistry = new VmRegistry<Vm>();
+
 	/** The pe list. */
 	private List<? extends Pe> peList;
 
@@ -142,6 +145,7 @@ public class Host {
 
 			getVmsMigratingIn().add(vm);
 			getVmList().add(vm);
+			registerVm(vm);
 			updateVmsProcessing(CloudSim.clock());
 			vm.getHost().updateVmsProcessing(CloudSim.clock());
 		}
@@ -156,6 +160,7 @@ public class Host {
 		vmDeallocate(vm);
 		getVmsMigratingIn().remove(vm);
 		getVmList().remove(vm);
+		unregisterVm(vm);
 		getVmScheduler().getVmsMigratingIn().remove(vm.getUid());
 		vm.setInMigration(false);
 	}
@@ -167,6 +172,7 @@ public class Host {
 		for (Vm vm : getVmsMigratingIn()) {
 			if (!getVmList().contains(vm)) {
 				getVmList().add(vm);
+				registerVm(vm);
 			}
 			if (!getVmScheduler().getVmsMigratingIn().contains(vm.getUid())) {
 				getVmScheduler().getVmsMigratingIn().add(vm.getUid());
@@ -229,6 +235,7 @@ public class Host {
 
 		setStorage(getStorage() - vm.getSize());
 		getVmList().add(vm);
+		registerVm(vm);
 		vm.setHost(this);
 		return true;
 	}
@@ -244,6 +251,7 @@ public class Host {
 		if (vm != null) {
 			vmDeallocate(vm);
 			getVmList().remove(vm);
+			unregisterVm(vm);
 			vm.setHost(null);
 		}
 	}
@@ -261,6 +269,37 @@ public class Host {
 			setStorage(getStorage() + vm.getSize());
 		}
 		getVmList().clear();
+		vmRegistry.clear();
+	}
+
+	/**
+	 * Adds a VM just added to the vm list to the registry, unless a VM with the same ids is before it.
+	 * 
+	 * @param vm the VM
+	 */
+	private void registerVm(Vm vm) {
+		if (vmRegistry.get(vm.getUserId(), vm.getId()) == null) {
+			vmRegistry.put(vm.getUserId(), vm.getId(), vm);
+		}
+	}
+
+	/**
+	 * Removes a VM just removed from the vm list from the registry, registering the next VM with the
+	 * same ids, if any.
+	 * 
+	 * @param vm the VM
+	 */
+	private void unregisterVm(Vm vm) {
+		if (vmRegistry.get(vm.getUserId(), vm.getId()) != vm) {
+			return;
+		}
+		vmRegistry.remove(vm.getUserId(), vm.getId());
+		for (Vm other : getVmList()) {
+			if (other.getId() == vm.getId() && other.getUserId() == vm.getUserId()) {
+				vmRegistry.put(other.getUserId(), other.getId(), other);
+				return;
+			}
+		}
 	}
 
 	/**
@@ -294,12 +333,7 @@ public class Host {
 	 * @post $none
 	 */
 	public Vm getVm(int vmId, int userId) {
-		for (Vm vm : getVmList()) {
-			if (vm.getId() == vmId && vm.getUserId() == userId) {
-				return vm;
-			}
-		}
-		return null;
+		return vmRegistry.get(userId, vmId);
 	}
 
 	/**
@@ -8,8 +8,8 @@
 
 package org.cloudbus.cloudsim;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 
 import org.cloudbus.cloudsim.core.CloudSim;
@@ -32,7 +32,25 @@ public class HostDynamicWorkload extends Host {
 	private double previousUtilizationMips;
 
 	/** The state history. */
-	private final List<HostStateHistoryEntry> stateHistory = new LinkedList<HostStateHistoryEntry>();
+	private final StateHistory stateHistory = new StateHistory();
+
+	/** Read-only view of the state history. */
+	private final List<HostStateHistoryEntry> stateHistoryView = new AbstractList<HostStateHistoryEntry>() {
+
+		@Override
+		public HostStateHistoryEntry get(int index) {
+			return new HostStateHistoryEntry(
+					stateHistory.getTime(index),
+					stateHistory.getFirstValue(index),
+					stateHistory.getSecondValue(index),
+					stateHistory.getFlag(index));
+		}
+
+		@Override
+		public int size() {
+			return stateHistory.size();
+		}
+	};
 
 	/**
 	 * Instantiates a new host.
@@ -266,11 +284,20 @@ public class HostDynamicWorkload extends Host {
 	}
 
 	/**
-	 * Gets the state history.
+	 * Gets the state history, as a read-only view of the recorder.
 	 * 
 	 * @return the state history
 	 */
 	public List<HostStateHistoryEntry> getStateHistory() {
+		return stateHistoryView;
+	}
+
+	/**
+	 * Gets the recorder of the state history, to change its mode.
+	 * 
+	 * @return the state history recorder
+	 */
+	public StateHistory getStateHistoryRecorder() {
 		return stateHistory;
 	}
 
@@ -286,19 +313,7 @@ public class HostDynamicWorkload extends Host {
 			void
 			addStateHistoryEntry(double time, double allocatedMips, double requestedMips, boolean isActive) {
 
-		HostStateHistoryEntry newState = new HostStateHistoryEntry(
-				time,
-				allocatedMips,
-				requestedMips,
-				isActive);
-		if (!getStateHistory().isEmpty()) {
-			HostStateHistoryEntry previousState = getStateHistory().get(getStateHistory().size() - 1);
-			if (previousState.getTime() == time) {
-				getStateHistory().set(getStateHistory().size() - 1, newState);
-				return;
-			}
-		}
-		getStateHistory().add(newState);
+		stateHistory.add(time, allocatedMips, requestedMips, isActive);
 	}
 
 }
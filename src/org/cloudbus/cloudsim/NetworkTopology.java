@@ -15,6 +15,7 @@ import java.util.Map;
 
 import org.cloudbus.cloudsim.network.DelayMatrix_Float;
 import org.cloudbus.cloudsim.network.GraphReaderBrite;
+import org.cloudbus.cloudsim.network.SparseDelayMatrix_Float;
 import org.cloudbus.cloudsim.network.TopologicalGraph;
 import org.cloudbus.cloudsim.network.TopologicalLink;
 import org.cloudbus.cloudsim.network.TopologicalNode;
@@ -29,6 +30,10 @@ import org.cloudbus.cloudsim.network.TopologicalNode;
  * Nevertheless, each CloudSim entity must be mapped to one (and only one) BRITE node to allow
  * proper work of the network simulation. Each BRITE node can be mapped to only one entity at a
  * time.
+ * <p>
+ * Topologies of more than {@link #DENSE_MATRIX_MAX_NODES} nodes use a {@link SparseDelayMatrix_Float},
+ * which computes the delays from a node when first asked, and no bandwidth matrix, so that their
+ * memory grows with the number of links rather than with the square of the number of nodes.
  * 
  * @author Rodrigo N. Calheiros
  * @author Anton Beloglazov
@@ -36,6 +41,9 @@ import org.cloudbus.cloudsim.network.TopologicalNode;
  */
 public class NetworkTopology {
 
+	/** Largest number of nodes for which delays and bandwidths are kept in dense matrices. */
+	public static final int DENSE_MATRIX_MAX_NODES = 1024;
+
 	protected static int nextIdx = 0;
 
 	private static boolean networkEnabled = false;
@@ -78,11 +86,16 @@ public class NetworkTopology {
 	 * Generates the matrices used internally to set latency and bandwidth between elements
 	 */
 	private static void generateMatrices() {
-		// creates the delay matrix
-		delayMatrix = new DelayMatrix_Float(graph, false);
-
-		// creates the bw matrix
-		bwMatrix = createBwMatrix(graph, false);
+		if (graph.getNumberOfNodes() > DENSE_MATRIX_MAX_NODES) {
+			delayMatrix = new SparseDelayMatrix_Float(graph, false);
+			bwMatrix = null;
+		} else {
+			// creates the delay matrix
+			delayMatrix = new DelayMatrix_Float(graph, false);
+
+			// creates the bw matrix
+			bwMatrix = createBwMatrix(graph, false);
+		}
 
 		networkEnabled = true;
 	}
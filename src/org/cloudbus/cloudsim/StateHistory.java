@@ -0,0 +1,301 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Append-only history of timed states, each made of two values and a flag, as recorded by hosts,
+ * VMs and VM schedulers. The states are stored in columns of primitive chunks instead of one object
+ * per state. A state recorded at the time of the last state replaces it.
+ * <p>
+ * The history has three modes:
+ * <ul>
+ * <li>{@link Mode#OFF} records nothing;</li>
+ * <li>{@link Mode#DOWNSAMPLED} keeps only the last state of each interval of the resolution;</li>
+ * <li>{@link Mode#FULL} keeps every state, and can spill the older ones to a file with
+ * {@link #setSpillFile(File)} so that only the last chunk stays on the heap.</li>
+ * </ul>
+ * Histories created afterwards take the mode set with {@link #setDefaultMode(Mode, double)}, which is
+ * {@link Mode#FULL} unless changed.
+ */
+public class StateHistory {
+
+	/** What a history records. */
+	public enum Mode {
+		OFF, DOWNSAMPLED, FULL
+	}
+
+	private static final int CHUNK_SIZE = 1024;
+
+	/** Size of a state in the spill file: time, two values and the flag. */
+	private static final int RECORD_SIZE = 3 * 8 + 1;
+
+	private static Mode defaultMode = Mode.FULL;
+
+	private static double defaultResolution;
+
+	private Mode mode;
+
+	private double resolution;
+
+	private final List<double[]> times = new ArrayList<double[]>();
+
+	private final List<double[]> firstValues = new ArrayList<double[]>();
+
+	private final List<double[]> secondValues = new ArrayList<double[]>();
+
+	private final List<boolean[]> flags = new ArrayList<boolean[]>();
+
+	/** Number of states, including the spilled ones. */
+	private int size;
+
+	/** Number of chunks written to the spill file, their slots in the lists are null. */
+	private int spilledChunks;
+
+	private RandomAccessFile spillFile;
+
+	/** Buffer of the last spilled state read */
+	private ByteBuffer record;
+
+	/**
+	 * Creates a history in the default mode.
+	 */
+	public StateHistory() {
+		setMode(defaultMode, defaultResolution);
+	}
+
+	/**
+	 * Sets the mode of the histories created afterwards.
+	 *
+	 * @param mode the mode
+	 * @param resolution the length of the intervals in {@link Mode#DOWNSAMPLED} mode, ignored otherwise
+	 */
+	public static void setDefaultMode(Mode mode, double resolution) {
+		checkMode(mode, resolution);
+		defaultMode = mode;
+		defaultResolution = resolution;
+	}
+
+	public static Mode getDefaultMode() {
+		return defaultMode;
+	}
+
+	private static void checkMode(Mode mode, double resolution) {
+		if (mode == Mode.DOWNSAMPLED && !(resolution > 0)) {
+			throw new IllegalArgumentException("The resolution of a downsampled history must be positive");
+		}
+	}
+
+	/**
+	 * Sets the mode of this history, the states already recorded are kept.
+	 *
+	 * @param mode the mode
+	 * @param resolution the length of the intervals in {@link Mode#DOWNSAMPLED} mode, ignored otherwise
+	 */
+	public void setMode(Mode mode, double resolution) {
+		checkMode(mode, resolution);
+		this.mode = mode;
+		this.resolution = resolution;
+	}
+
+	public Mode getMode() {
+		return mode;
+	}
+
+	/**
+	 * Makes the history write its full chunks to a file instead of keeping them on the heap. The
+	 * spilled states remain readable.
+	 *
+	 * @param file the file, overwritten
+	 */
+	public void setSpillFile(File file) {
+		if (spillFile != null) {
+			throw new IllegalStateException("The history already spills to a file");
+		}
+		if (spilledChunks > 0) {
+			throw new IllegalStateException("The history spilled to a file that was closed");
+		}
+		try {
+			spillFile = new RandomAccessFile(file, "rw");
+			spillFile.setLength(0);
+			for (int chunk = 0; chunk < times.size() - 1; chunk++) {
+				spillChunk(chunk);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Closes the spill file. The spilled states are no longer readable, and the history keeps the
+	 * states recorded afterwards on the heap.
+	 */
+	public void closeSpillFile() {
+		if (spillFile == null) {
+			return;
+		}
+		try {
+			spillFile.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		} finally {
+			spillFile = null;
+		}
+	}
+
+	/**
+	 * Records a state.
+	 *
+	 * @param time the time of the state
+	 * @param firstValue the first value of the state
+	 * @param secondValue the second value of the state
+	 * @param flag the flag of the state
+	 */
+	public void add(double time, double firstValue, double secondValue, boolean flag) {
+		if (mode == Mode.OFF) {
+			return;
+		}
+		if (size > 0 && isSameSlot(getTime(size - 1), time)) {
+			set(size - 1, time, firstValue, secondValue, flag);
+			return;
+		}
+		if (size % CHUNK_SIZE == 0) {
+			if (spillFile != null && size > 0) {
+				spillChunk(times.size() - 1);
+			}
+			times.add(new double[CHUNK_SIZE]);
+			firstValues.add(new double[CHUNK_SIZE]);
+			secondValues.add(new double[CHUNK_SIZE]);
+			flags.add(new boolean[CHUNK_SIZE]);
+		}
+		size++;
+		set(size - 1, time, firstValue, secondValue, flag);
+	}
+
+	private boolean isSameSlot(double previousTime, double time) {
+		if (previousTime == time) {
+			return true;
+		}
+		return mode == Mode.DOWNSAMPLED && Math.floor(previousTime / resolution) == Math.floor(time / resolution);
+	}
+
+	private void set(int index, double time, double firstValue, double secondValue, boolean flag) {
+		int chunk = index / CHUNK_SIZE;
+		int offset = index % CHUNK_SIZE;
+		times.get(chunk)[offset] = time;
+		firstValues.get(chunk)[offset] = firstValue;
+		secondValues.get(chunk)[offset] = secondValue;
+		flags.get(chunk)[offset] = flag;
+	}
+
+	private void spillChunk(int chunk) {
+		ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SIZE * RECORD_SIZE);
+		for (int i = 0; i < CHUNK_SIZE; i++) {
+			buffer.putDouble(times.get(chunk)[i]);
+			buffer.putDouble(firstValues.get(chunk)[i]);
+			buffer.putDouble(secondValues.get(chunk)[i]);
+			buffer.put((byte) (flags.get(chunk)[i] ? 1 : 0));
+		}
+		try {
+			spillFile.seek((long) chunk * CHUNK_SIZE * RECORD_SIZE);
+			spillFile.write(buffer.array());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		times.set(chunk, null);
+		firstValues.set(chunk, null);
+		secondValues.set(chunk, null);
+		flags.set(chunk, null);
+		spilledChunks = chunk + 1;
+	}
+
+	/**
+	 * Reads a spilled state into {@link #record}.
+	 */
+	private void readRecord(int index) {
+		if (spillFile == null) {
+			throw new IllegalStateException("State " + index + " was spilled to a file that was closed");
+		}
+		if (record == null) {
+			record = ByteBuffer.allocate(RECORD_SIZE);
+		}
+		try {
+			spillFile.seek((long) index * RECORD_SIZE);
+			spillFile.readFully(record.array());
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		record.rewind();
+	}
+
+	private boolean isSpilled(int index) {
+		return index / CHUNK_SIZE < spilledChunks;
+	}
+
+	private void checkIndex(int index) {
+		if (index < 0 || index >= size) {
+			throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+		}
+	}
+
+	/**
+	 * @return the number of states recorded
+	 */
+	public int size() {
+		return size;
+	}
+
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	public double getTime(int index) {
+		checkIndex(index);
+		if (isSpilled(index)) {
+			readRecord(index);
+			return record.getDouble(0);
+		}
+		return times.get(index / CHUNK_SIZE)[index % CHUNK_SIZE];
+	}
+
+	public double getFirstValue(int index) {
+		checkIndex(index);
+		if (isSpilled(index)) {
+			readRecord(index);
+			return record.getDouble(8);
+		}
+		return firstValues.get(index / CHUNK_SIZE)[index % CHUNK_SIZE];
+	}
+
+	public double getSecondValue(int index) {
+		checkIndex(index);
+		if (isSpilled(index)) {
+			readRecord(index);
+			return record.getDouble(16);
+		}
+		return secondValues.get(index / CHUNK_SIZE)[index % CHUNK_SIZE];
+	}
+
+	public boolean getFlag(int index) {
+		checkIndex(index);
+		if (isSpilled(index)) {
+			readRecord(index);
+			return record.get(24) != 0;
+		}
+		return flags.get(index / CHUNK_SIZE)[index % CHUNK_SIZE];
+	}
+
+}
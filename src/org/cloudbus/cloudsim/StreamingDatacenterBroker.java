@@ -0,0 +1,112 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.CloudSimTags;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.cloudbus.cloudsim.util.WorkloadFileReader;
+
+/**
+ * A broker submitting the jobs of a workload trace as simulated time reaches their submit times,
+ * instead of all of them at once. Jobs are only created when submitted, so the whole workload is
+ * never held in memory. Jobs are sent to the created VMs in turn; a job whose submit time is earlier
+ * than the one of a job before it in the trace is submitted with that job. Cloudlets of
+ * {@link #submitCloudletList(java.util.List)} are submitted as by {@link DatacenterBroker}.
+ *
+ * @see WorkloadFileReader#streamWorkload()
+ */
+public class StreamingDatacenterBroker extends DatacenterBroker {
+
+	/** The jobs not submitted yet. */
+	private final WorkloadFileReader.Stream workload;
+
+	/** Whether the arrival of the first job has been scheduled. */
+	private boolean started;
+
+	/** The VM receiving the next job. */
+	private int vmIndex;
+
+	/**
+	 * Creates a broker.
+	 *
+	 * @param name the name of the broker
+	 * @param workload the jobs to submit
+	 * @throws Exception if the name contains spaces
+	 */
+	public StreamingDatacenterBroker(String name, WorkloadFileReader.Stream workload) throws Exception {
+		super(name);
+		this.workload = workload;
+	}
+
+	@Override
+	protected void submitCloudlets() {
+		super.submitCloudlets();
+		if (!started) {
+			started = true;
+			scheduleNextArrival();
+		}
+	}
+
+	/**
+	 * Schedules the submission of the next jobs of the workload, if any.
+	 */
+	protected void scheduleNextArrival() {
+		if (workload.hasNext()) {
+			schedule(getId(), Math.max(0, workload.peekSubmitTime() - CloudSim.clock()), CloudSimTags.VM_BROKER_EVENT);
+		}
+	}
+
+	/**
+	 * Submits the jobs of the workload whose submit time is reached.
+	 */
+	protected void submitArrivedJobs() {
+		if (getVmsCreatedList().isEmpty()) {
+			Log.printLine(CloudSim.clock() + ": " + getName() + ": No VM to run the workload");
+			return;
+		}
+		do {
+			Cloudlet cloudlet = workload.next();
+			cloudlet.setUserId(getId());
+			Vm vm = getVmsCreatedList().get(vmIndex);
+			Log.printLine(CloudSim.clock() + ": " + getName() + ": Sending cloudlet "
+					+ cloudlet.getCloudletId() + " to VM #" + vm.getId());
+			cloudlet.setVmId(vm.getId());
+			sendNow(getVmsToDatacentersMap().get(vm.getId()), CloudSimTags.CLOUDLET_SUBMIT, cloudlet);
+			cloudletsSubmitted++;
+			vmIndex = (vmIndex + 1) % getVmsCreatedList().size();
+			getCloudletSubmittedList().add(cloudlet);
+		} while (workload.hasNext() && workload.peekSubmitTime() <= CloudSim.clock());
+		scheduleNextArrival();
+	}
+
+	@Override
+	protected void processCloudletReturn(SimEvent ev) {
+		if (workload.hasNext()) {
+			// more jobs are to come, the broker can't finish yet
+			Cloudlet cloudlet = (Cloudlet) ev.getData();
+			getCloudletReceivedList().add(cloudlet);
+			Log.printLine(CloudSim.clock() + ": " + getName() + ": Cloudlet " + cloudlet.getCloudletId()
+					+ " received");
+			cloudletsSubmitted--;
+			return;
+		}
+		super.processCloudletReturn(ev);
+	}
+
+	@Override
+	protected void processOtherEvent(SimEvent ev) {
+		if (ev != null && ev.getTag() == CloudSimTags.VM_BROKER_EVENT) {
+			submitArrivedJobs();
+			return;
+		}
+		super.processOtherEvent(ev);
+	}
+
+}
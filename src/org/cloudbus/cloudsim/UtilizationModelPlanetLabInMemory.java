@@ -1,19 +1,23 @@
 package org.cloudbus.cloudsim;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
 
+import org.cloudbus.cloudsim.util.TraceStore;
+
 /**
- * The Class UtilizationModelPlanetLab.
+ * The Class UtilizationModelPlanetLab. The samples are read from the trace mapped by the
+ * {@link TraceStore}, so every model of the same file shares them.
  */
 public class UtilizationModelPlanetLabInMemory implements UtilizationModel {
 	
 	/** The scheduling interval. */
 	private double schedulingInterval;
 
-	/** The data (5 min * 288 = 24 hours). */
-	private final double[] data; 
+	/** The trace of percentages (5 min * 288 = 24 hours). */
+	private final TraceStore.Trace trace;
+
+	/** The number of samples, the last one repeating the one before. */
+	private final int dataSamples;
 	
 	/**
 	 * Instantiates a new utilization model PlanetLab.
@@ -25,15 +29,7 @@ public class UtilizationModelPlanetLabInMemory implements UtilizationModel {
 	public UtilizationModelPlanetLabInMemory(String inputPath, double schedulingInterval)
 			throws NumberFormatException,
 			IOException {
-		data = new double[289];
-		setSchedulingInterval(schedulingInterval);
-		BufferedReader input = new BufferedReader(new FileReader(inputPath));
-		int n = data.length;
-		for (int i = 0; i < n - 1; i++) {
-			data[i] = Integer.valueOf(input.readLine()) / 100.0;
-		}
-		data[n - 1] = data[n - 2];
-		input.close();
+		this(inputPath, schedulingInterval, 289);
 	}
 	
 	/**
@@ -48,14 +44,25 @@ public class UtilizationModelPlanetLabInMemory implements UtilizationModel {
 			throws NumberFormatException,
 			IOException {
 		setSchedulingInterval(schedulingInterval);
-		data = new double[dataSamples];
-		BufferedReader input = new BufferedReader(new FileReader(inputPath));
-		int n = data.length;
-		for (int i = 0; i < n - 1; i++) {
-			data[i] = Integer.valueOf(input.readLine()) / 100.0;
+		trace = TraceStore.getDefault().getPlanetLabTrace(inputPath);
+		if (trace.getRows() < dataSamples - 1) {
+			throw new NumberFormatException("Trace " + inputPath + " has less than " + (dataSamples - 1)
+					+ " samples");
+		}
+		this.dataSamples = dataSamples;
+	}
+
+	/**
+	 * Gets a sample.
+	 * 
+	 * @param index the index of the sample
+	 * @return the utilization
+	 */
+	private double getData(int index) {
+		if (index < 0 || index >= dataSamples) {
+			throw new ArrayIndexOutOfBoundsException(index);
 		}
-		data[n - 1] = data[n - 2];
-		input.close();
+		return trace.get(0, Math.min(index, dataSamples - 2)) / 100.0;
 	}
 
 	/*
@@ -65,12 +72,12 @@ public class UtilizationModelPlanetLabInMemory implements UtilizationModel {
 	@Override
 	public double getUtilization(double time) {
 		if (time % getSchedulingInterval() == 0) {
-			return data[(int) time / (int) getSchedulingInterval()];
+			return getData((int) time / (int) getSchedulingInterval());
 		}
 		int time1 = (int) Math.floor(time / getSchedulingInterval());
 		int time2 = (int) Math.ceil(time / getSchedulingInterval());
-		double utilization1 = data[time1];
-		double utilization2 = data[time2];
+		double utilization1 = getData(time1);
+		double utilization2 = getData(time2);
 		double delta = (utilization2 - utilization1) / ((time2 - time1) * getSchedulingInterval());
 		double utilization = utilization1 + delta * (time - time1 * getSchedulingInterval());
 		return utilization;
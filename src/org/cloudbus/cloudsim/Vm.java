@@ -7,8 +7,8 @@
 
 package org.cloudbus.cloudsim;
 
+import java.util.AbstractList;
 import java.util.ArrayList;
-import java.util.LinkedList;
 import java.util.List;
 
 /**
@@ -31,6 +31,9 @@ public class Vm {
 	/** The uid. */
 	private String uid;
 
+	/** The uids built by {@link #getUid(int, int)} during the current simulation. */
+	private static final VmRegistry<String> uids = new VmRegistry<String>();
+
 	/** The size. */
 	private long size;
 
@@ -74,7 +77,25 @@ public class Vm {
 	private boolean beingInstantiated;
 
 	/** The mips allocation history. */
-	private final List<VmStateHistoryEntry> stateHistory = new LinkedList<VmStateHistoryEntry>();
+	private final StateHistory stateHistory = new StateHistory();
+
+	/** Read-only view of the state history. */
+	private final List<VmStateHistoryEntry> stateHistoryView = new AbstractList<VmStateHistoryEntry>() {
+
+		@Override
+		public VmStateHistoryEntry get(int index) {
+			return new VmStateHistoryEntry(
+					stateHistory.getTime(index),
+					stateHistory.getFirstValue(index),
+					stateHistory.getSecondValue(index),
+					stateHistory.getFlag(index));
+		}
+
+		@Override
+		public int size() {
+			return stateHistory.size();
+		}
+	};
 
 	/**
 	 * Creates a new VMCharacteristics object.
@@ -252,14 +273,33 @@ public class Vm {
 	}
 
 	/**
-	 * Generate unique string identificator of the VM.
+	 * Generate unique string identificator of the VM. The string of given ids is built once per
+	 * simulation and shared, so that looking up maps keyed by uids allocates nothing and compares the
+	 * strings by reference.
 	 * 
 	 * @param userId the user id
 	 * @param vmId the vm id
 	 * @return string uid
 	 */
 	public static String getUid(int userId, int vmId) {
-		return userId + "-" + vmId;
+		synchronized (uids) {
+			String uid = uids.get(userId, vmId);
+			if (uid == null) {
+				uid = userId + "-" + vmId;
+				uids.put(userId, vmId, uid);
+			}
+			return uid;
+		}
+	}
+
+	/**
+	 * Forgets the uids built by {@link #getUid(int, int)}, so that they don't outlive the simulation
+	 * of their VMs. Called when CloudSim is initialised.
+	 */
+	public static void clearUids() {
+		synchronized (uids) {
+			uids.clear();
+		}
 	}
 
 	/**
@@ -570,11 +610,20 @@ public class Vm {
 	}
 
 	/**
-	 * Gets the state history.
+	 * Gets the state history, as a read-only view of the recorder.
 	 * 
 	 * @return the state history
 	 */
 	public List<VmStateHistoryEntry> getStateHistory() {
+		return stateHistoryView;
+	}
+
+	/**
+	 * Gets the recorder of the state history, to change its mode.
+	 * 
+	 * @return the state history recorder
+	 */
+	public StateHistory getStateHistoryRecorder() {
 		return stateHistory;
 	}
 
@@ -591,19 +640,7 @@ public class Vm {
 			double allocatedMips,
 			double requestedMips,
 			boolean isInMigration) {
-		VmStateHistoryEntry newState = new VmStateHistoryEntry(
-				time,
-				allocatedMips,
-				requestedMips,
-				isInMigration);
-		if (!getStateHistory().isEmpty()) {
-			VmStateHistoryEntry previousState = getStateHistory().get(getStateHistory().size() - 1);
-			if (previousState.getTime() == time) {
-				getStateHistory().set(getStateHistory().size() - 1, newState);
-				return;
-			}
-		}
-		getStateHistory().add(newState);
+		stateHistory.add(time, allocatedMips, requestedMips, isInMigration);
 	}
 
 }
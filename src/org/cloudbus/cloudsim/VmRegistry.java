@@ -0,0 +1,158 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim;
+
+import java.util.Arrays;
+
+/**
+ * Map from the pair of a user id and a VM id, which identifies a VM, to a value. The pair is packed in
+ * a long key of an open addressing table, so that looking a VM up takes constant time and allocates
+ * nothing, unlike maps keyed by {@link Vm#getUid()} strings or boxed ids. Null values are not
+ * allowed. The registry is not synchronized.
+ *
+ * @param <T> the type of the values
+ */
+public class VmRegistry<T> {
+
+	/** Keys of the slots. */
+	private long[] keys = new long[16];
+
+	/** Values of the slots, null for an empty slot. */
+	private Object[] values = new Object[16];
+
+	/** Number of values. */
+	private int size;
+
+	private static long key(int userId, int vmId) {
+		return ((long) userId << 32) | (vmId & 0xffffffffL);
+	}
+
+	private int slotOf(long key) {
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return (int) (hash >>> 40) & (keys.length - 1);
+	}
+
+	/**
+	 * Gets the value of a VM.
+	 *
+	 * @param userId ID of VM's owner
+	 * @param vmId the vm id
+	 * @return the value, $null if none
+	 */
+	@SuppressWarnings("unchecked")
+	public T get(int userId, int vmId) {
+		long key = key(userId, vmId);
+		for (int slot = slotOf(key);; slot = (slot + 1) & (keys.length - 1)) {
+			if (values[slot] == null) {
+				return null;
+			}
+			if (keys[slot] == key) {
+				return (T) values[slot];
+			}
+		}
+	}
+
+	/**
+	 * Sets the value of a VM.
+	 *
+	 * @param userId ID of VM's owner
+	 * @param vmId the vm id
+	 * @param value the value, not null
+	 * @return the previous value, $null if none
+	 */
+	@SuppressWarnings("unchecked")
+	public T put(int userId, int vmId, T value) {
+		if (value == null) {
+			throw new IllegalArgumentException("Null values are not allowed.");
+		}
+		long key = key(userId, vmId);
+		int slot = slotOf(key);
+		while (values[slot] != null) {
+			if (keys[slot] == key) {
+				T previous = (T) values[slot];
+				values[slot] = value;
+				return previous;
+			}
+			slot = (slot + 1) & (keys.length - 1);
+		}
+		keys[slot] = key;
+		values[slot] = value;
+		if (++size * 2 > keys.length) {
+			resize();
+		}
+		return null;
+	}
+
+	/**
+	 * Removes the value of a VM.
+	 *
+	 * @param userId ID of VM's owner
+	 * @param vmId the vm id
+	 * @return the removed value, $null if none
+	 */
+	@SuppressWarnings("unchecked")
+	public T remove(int userId, int vmId) {
+		long key = key(userId, vmId);
+		int mask = keys.length - 1;
+		int slot = slotOf(key);
+		while (values[slot] != null && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		if (values[slot] == null) {
+			return null;
+		}
+		T removed = (T) values[slot];
+		// shift back the following values which would not be found past the emptied slot
+		int hole = slot;
+		for (int next = (hole + 1) & mask; values[next] != null; next = (next + 1) & mask) {
+			int home = slotOf(keys[next]);
+			if (((next - home) & mask) >= ((next - hole) & mask)) {
+				keys[hole] = keys[next];
+				values[hole] = values[next];
+				hole = next;
+			}
+		}
+		values[hole] = null;
+		size--;
+		return removed;
+	}
+
+	private void resize() {
+		long[] oldKeys = keys;
+		Object[] oldValues = values;
+		keys = new long[oldKeys.length * 2];
+		values = new Object[oldValues.length * 2];
+		for (int i = 0; i < oldKeys.length; i++) {
+			if (oldValues[i] != null) {
+				int slot = slotOf(oldKeys[i]);
+				while (values[slot] != null) {
+					slot = (slot + 1) & (keys.length - 1);
+				}
+				keys[slot] = oldKeys[i];
+				values[slot] = oldValues[i];
+			}
+		}
+	}
+
+	/**
+	 * Removes every value.
+	 */
+	public void clear() {
+		Arrays.fill(values, null);
+		size = 0;
+	}
+
+	/**
+	 * @return the number of values
+	 */
+	public int size() {
+		return size;
+	}
+
+}
@@ -16,8 +16,10 @@ import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
 
 import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.core.predicates.Predicate;
 import org.cloudbus.cloudsim.core.predicates.PredicateAny;
 import org.cloudbus.cloudsim.core.predicates.PredicateNone;
@@ -64,6 +66,18 @@ public class CloudSim {
 
 	/** The minimal time between events. Events within shorter periods after the last event are discarded. */
 	private static double minTimeBetweenEvents = 0.1;
+
+	/** The event tracer, or null when events are not traced. */
+	private static EventTracer eventTracer = null;
+
+	/** Partitioning used by the parallel kernel, null for sequential execution */
+	private static EntityPartitioning partitioning = null;
+
+	/** Number of threads of the parallel kernel */
+	private static int parallelThreads = 1;
+
+	/** The parallel kernel while it runs the simulation */
+	private static ParallelKernel activeKernel = null;
 	
 	/**
 	 * Initialises all the common attributes.
@@ -250,6 +264,82 @@ public class CloudSim {
 	}
 
 	
+	/**
+	 * Installs a tracer that is notified of every scheduled and processed event. The tracer is closed
+	 * and removed when the simulation finishes.
+	 * 
+	 * @param tracer the tracer, or null to stop tracing
+	 */
+	public static void setEventTracer(EventTracer tracer) {
+		eventTracer = tracer;
+	}
+
+	/**
+	 * Gets the installed event tracer.
+	 * 
+	 * @return the event tracer, or null if events are not traced
+	 */
+	public static EventTracer getEventTracer() {
+		return eventTracer;
+	}
+
+	/**
+	 * Runs the next simulations with the conservative parallel kernel. Entities are assigned to
+	 * partitions by the given partitioning; partitions other than the synchronous one process their
+	 * events concurrently on the given number of threads. Every entity handles its events in the
+	 * same order as with the sequential kernel. Entities update state shared across partitions with
+	 * {@link #updateShared(Runnable)} and draw ids from an {@link IdSequence}, so that the results
+	 * are those of the sequential kernel.
+	 * <p>
+	 * The parallel kernel does not support entities that wait, hold or pause, entities created while
+	 * the simulation runs, or pausing the simulation.
+	 * 
+	 * @param partitioning the partitioning, or null to run sequentially
+	 * @param threads number of worker threads
+	 */
+	public static void setParallelExecution(EntityPartitioning partitioning, int threads) {
+		if (partitioning != null && threads < 1) {
+			throw new IllegalArgumentException("The parallel kernel needs at least one thread.");
+		}
+		CloudSim.partitioning = partitioning;
+		parallelThreads = threads;
+	}
+
+	/**
+	 * Gets the partitioning used by the parallel kernel.
+	 * 
+	 * @return the partitioning, or null if simulations run sequentially
+	 */
+	public static EntityPartitioning getParallelExecution() {
+		return partitioning;
+	}
+
+	/**
+	 * Gets the parallel kernel running the simulation.
+	 *
+	 * @return the kernel, or null if the simulation does not run in parallel
+	 */
+	static ParallelKernel getActiveKernel() {
+		return activeKernel;
+	}
+
+	/**
+	 * Applies an update of state shared by entities of several partitions, such as statistics of the
+	 * whole simulation. The sequential kernel applies it at once. The parallel kernel applies the
+	 * updates of concurrent partitions when their time window ends, in the order in which the
+	 * sequential kernel would have applied them and with {@link #clock()} returning the time of the
+	 * event they were made for, so that shared results do not depend on how the partitions
+	 * interleave. Entities must therefore not rely on reading the effect of the update themselves
+	 * before the window ends.
+	 *
+	 * @param update the update of the shared state
+	 */
+	public static void updateShared(Runnable update) {
+		if (activeKernel == null || !activeKernel.defer(update)) {
+			update.run();
+		}
+	}
+
 	/**
 	 * Returns the minimum time between events. Events within shorter periods after the last event are discarded. 
 	 * @return the minimum time between events.
@@ -317,7 +407,7 @@ public class CloudSim {
 	protected static DeferredQueue deferred;
 
 	/** The simulation clock. */
-	private static double clock;
+	protected static double clock;
 
 	/** Flag for checking if the simulation is running. */
 	private static boolean running;
@@ -351,6 +441,7 @@ public class CloudSim {
 		waitPredicates = new HashMap<Integer, Predicate>();
 		clock = 0;
 		running = false;
+		Vm.clearUids();
 	}
 
 	// The two standard predicates
@@ -369,6 +460,9 @@ public class CloudSim {
 	 * @return the simulation time
 	 */
 	public static double clock() {
+		if (activeKernel != null) {
+			return activeKernel.clock();
+		}
 		return clock;
 	}
 
@@ -449,16 +543,76 @@ public class CloudSim {
 		return null;
 	}
 
+	/**
+	 * Returns the number of events processed by the entities since the simulation started.
+	 * 
+	 * @return the number of processed events
+	 */
+	public static long getProcessedEventCount() {
+		long total = 0;
+		for (SimEntity ent : entities) {
+			total += ent.getEventCounters().total(EventCounters.PROCESSED);
+		}
+		return total;
+	}
+
+	/**
+	 * Returns the number of events waiting in the future queue.
+	 * 
+	 * @return the size of the future queue, or -1 while the parallel kernel runs, its partitions
+	 *         having their own queues
+	 */
+	public static int getFutureQueueSize() {
+		return activeKernel != null ? -1 : future.size();
+	}
+
+	/**
+	 * Returns the number of delivered events not yet processed by their destinations.
+	 * 
+	 * @return the size of the deferred queue, or -1 while the parallel kernel runs
+	 */
+	public static int getDeferredQueueSize() {
+		return activeKernel != null ? -1 : deferred.size();
+	}
+
+	/**
+	 * Returns the delivery statistics of the events sent during the simulation, per class of the
+	 * destination entity and tag, sorted by class name and tag.
+	 * 
+	 * @return the event statistics
+	 */
+	public static List<EventStatistics> getEventStatistics() {
+		Map<String, Map<Integer, long[]>> totals = new TreeMap<String, Map<Integer, long[]>>();
+		for (SimEntity ent : entities) {
+			String entityClass = ent.getClass().getName();
+			Map<Integer, long[]> classTotals = totals.get(entityClass);
+			if (classTotals == null) {
+				classTotals = new TreeMap<Integer, long[]>();
+				totals.put(entityClass, classTotals);
+			}
+			ent.getEventCounters().addTo(classTotals);
+		}
+		List<EventStatistics> statistics = new ArrayList<EventStatistics>();
+		for (Map.Entry<String, Map<Integer, long[]>> classTotals : totals.entrySet()) {
+			for (Map.Entry<Integer, long[]> total : classTotals.getValue().entrySet()) {
+				statistics.add(new EventStatistics(classTotals.getKey(), total.getKey(), total.getValue()));
+			}
+		}
+		return statistics;
+	}
+
 	/**
 	 * Returns a list of entities created for the simulation.
 	 * 
-	 * @return the entity iterator
+	 * @return the entity iterator, empty once the simulation has finished
 	 */
 	public static List<SimEntity> getEntityList() {
 		// create a new list to prevent the user from changing
 		// the list of entities used by Simulation
 		List<SimEntity> list = new LinkedList<SimEntity>();
-		list.addAll(entities);
+		if (entities != null) {
+			list.addAll(entities);
+		}
 		return list;
 	}
 
@@ -473,6 +627,9 @@ public class CloudSim {
 	public static void addEntity(SimEntity e) {
 		SimEvent evt;
 		if (running) {
+			if (activeKernel != null) {
+				throw new UnsupportedOperationException("Entities can't be added while the parallel kernel runs.");
+			}
 			// Post an event to make this entity
 			evt = new SimEvent(SimEvent.CREATE, clock, 1, 0, 0, e);
 			future.addEvent(evt);
@@ -524,13 +681,13 @@ public class CloudSim {
 		// If there are more future events then deal with them
 		if (future.size() > 0) {
 			List<SimEvent> toRemove = new ArrayList<SimEvent>();
-			Iterator<SimEvent> fit = future.iterator();
+			Iterator<SimEvent> fit = future.dueIterator();
 			queue_empty = false;
 			SimEvent first = fit.next();
 			processEvent(first);
 			future.remove(first);
 
-			fit = future.iterator();
+			fit = future.dueIterator();
 
 			// Check if next events are at same time...
 			boolean trymore = fit.hasNext();
@@ -570,6 +727,7 @@ public class CloudSim {
 	 * @param delay the delay
 	 */
 	public static void hold(int src, long delay) {
+		checkBlockingAllowed();
 		SimEvent e = new SimEvent(SimEvent.HOLD_DONE, clock + delay, src);
 		future.addEvent(e);
 		entities.get(src).setState(SimEntity.HOLDING);
@@ -582,6 +740,7 @@ public class CloudSim {
 	 * @param delay the delay
 	 */
 	public static void pause(int src, double delay) {
+		checkBlockingAllowed();
 		SimEvent e = new SimEvent(SimEvent.HOLD_DONE, clock + delay, src);
 		future.addEvent(e);
 		entities.get(src).setState(SimEntity.HOLDING);
@@ -600,9 +759,52 @@ public class CloudSim {
 		if (delay < 0) {
 			throw new IllegalArgumentException("Send delay can't be negative.");
 		}
+		if (isDropped(dest, tag)) {
+			return;
+		}
+
+		if (activeKernel != null) {
+			activeKernel.send(src, dest, delay, tag, data, false, false);
+			return;
+		}
+
+		SimEvent e = new SimEvent(SimEvent.SEND, clock + delay, src, dest, tag, data);
+		future.addEvent(e);
+		if (eventTracer != null) {
+			eventTracer.eventScheduled(clock, e);
+		}
+	}
+
+	/**
+	 * Sends an event like {@link #send(int, int, double, int, Object)} and returns it, so that the
+	 * sender can remove it from the future queue with {@link #cancelEvent(SimEvent)} without
+	 * scanning the queue.
+	 * 
+	 * @param src the src
+	 * @param dest the dest
+	 * @param delay the delay
+	 * @param tag the tag
+	 * @param data the data
+	 * @return the event, null if the destination doesn't consume it
+	 */
+	public static SimEvent sendCancellable(int src, int dest, double delay, int tag, Object data) {
+		if (delay < 0) {
+			throw new IllegalArgumentException("Send delay can't be negative.");
+		}
+		if (isDropped(dest, tag)) {
+			return null;
+		}
+
+		if (activeKernel != null) {
+			return activeKernel.send(src, dest, delay, tag, data, false, true);
+		}
 
 		SimEvent e = new SimEvent(SimEvent.SEND, clock + delay, src, dest, tag, data);
 		future.addEvent(e);
+		if (eventTracer != null) {
+			eventTracer.eventScheduled(clock, e);
+		}
+		return e;
 	}
 
 	/**
@@ -618,9 +820,20 @@ public class CloudSim {
 		if (delay < 0) {
 			throw new IllegalArgumentException("Send delay can't be negative.");
 		}
+		if (isDropped(dest, tag)) {
+			return;
+		}
+
+		if (activeKernel != null) {
+			activeKernel.send(src, dest, delay, tag, data, true, false);
+			return;
+		}
 
 		SimEvent e = new SimEvent(SimEvent.SEND, clock + delay, src, dest, tag, data);
 		future.addEventFirst(e);
+		if (eventTracer != null) {
+			eventTracer.eventScheduled(clock, e);
+		}
 	}
 
 	/**
@@ -632,6 +845,7 @@ public class CloudSim {
 	 * @param p the p
 	 */
 	public static void wait(int src, Predicate p) {
+		checkBlockingAllowed();
 		entities.get(src).setState(SimEntity.WAITING);
 		if (p != SIM_ANY) {
 			// If a predicate has been used store it in order to check it
@@ -647,6 +861,9 @@ public class CloudSim {
 	 * @return the int
 	 */
 	public static int waiting(int d, Predicate p) {
+		if (activeKernel != null) {
+			return activeKernel.waiting(d, p);
+		}
 		int count = 0;
 		SimEvent event;
 		Iterator<SimEvent> iterator = deferred.iterator();
@@ -667,6 +884,9 @@ public class CloudSim {
 	 * @return the sim event
 	 */
 	public static SimEvent select(int src, Predicate p) {
+		if (activeKernel != null) {
+			return activeKernel.select(src, p);
+		}
 		SimEvent ev = null;
 		Iterator<SimEvent> iterator = deferred.iterator();
 		while (iterator.hasNext()) {
@@ -687,6 +907,9 @@ public class CloudSim {
 	 * @return the sim event
 	 */
 	public static SimEvent findFirstDeferred(int src, Predicate p) {
+		if (activeKernel != null) {
+			return activeKernel.findFirstDeferred(src, p);
+		}
 		SimEvent ev = null;
 		Iterator<SimEvent> iterator = deferred.iterator();
 		while (iterator.hasNext()) {
@@ -706,6 +929,9 @@ public class CloudSim {
 	 * @return the sim event
 	 */
 	public static SimEvent cancel(int src, Predicate p) {
+		if (activeKernel != null) {
+			return activeKernel.cancel(src, p);
+		}
 		SimEvent ev = null;
 		Iterator<SimEvent> iter = future.iterator();
 		while (iter.hasNext()) {
@@ -719,6 +945,20 @@ public class CloudSim {
 		return ev;
 	}
 
+	/**
+	 * Removes an event sent with {@link #sendCancellable(int, int, double, int, Object)} from the
+	 * future event queue.
+	 * 
+	 * @param e the event
+	 * @return true if the event was still in the future queue
+	 */
+	public static boolean cancelEvent(SimEvent e) {
+		if (activeKernel != null) {
+			return activeKernel.cancelEvent(e);
+		}
+		return future.remove(e);
+	}
+
 	/**
 	 * Removes all events that match a given predicate from the future event queue returns true if
 	 * at least one event has been cancelled; false otherwise.
@@ -728,6 +968,9 @@ public class CloudSim {
 	 * @return true, if successful
 	 */
 	public static boolean cancelAll(int src, Predicate p) {
+		if (activeKernel != null) {
+			return activeKernel.cancelAll(src, p);
+		}
 		SimEvent ev = null;
 		int previousSize = future.size();
 		Iterator<SimEvent> iter = future.iterator();
@@ -744,6 +987,34 @@ public class CloudSim {
 	// Private internal methods
 	//
 
+	/**
+	 * Drops events whose destination doesn't consume their tag.
+	 * 
+	 * @param dest the destination
+	 * @param tag the tag
+	 * @return true if the event must not be sent
+	 */
+	private static boolean isDropped(int dest, int tag) {
+		if (dest < 0 || dest >= entities.size()) {
+			return false;
+		}
+		SimEntity ent = entities.get(dest);
+		if (ent.consumesEvent(tag)) {
+			return false;
+		}
+		ent.getEventCounters().count(tag, EventCounters.DROPPED);
+		return true;
+	}
+
+	/**
+	 * Rejects blocking calls while the parallel kernel runs.
+	 */
+	private static void checkBlockingAllowed() {
+		if (activeKernel != null) {
+			throw new UnsupportedOperationException("Entities can't wait, hold or pause with the parallel kernel.");
+		}
+	}
+
 	/**
 	 * Processes an event.
 	 * 
@@ -757,6 +1028,9 @@ public class CloudSim {
 			throw new IllegalArgumentException("Past event detected.");
 		}
 		clock = e.eventTime();
+		if (eventTracer != null) {
+			eventTracer.eventProcessed(e, future.size() + deferred.size());
+		}
 
 		// Ok now process it
 		switch (e.getType()) {
@@ -776,6 +1050,7 @@ public class CloudSim {
 				} else {
 					int tag = e.getTag();
 					dest_ent = entities.get(dest);
+					dest_ent.getEventCounters().count(tag, EventCounters.DELIVERED);
 					if (dest_ent.getState() == SimEntity.WAITING) {
 						Integer destObj = Integer.valueOf(dest);
 						Predicate p = waitPredicates.get(destObj);
@@ -881,30 +1156,39 @@ public class CloudSim {
 		if (!running) {
 			runStart();
 		}
-		while (true) {
-			if (runClockTick() || abruptTerminate) {
-				break;
+		if (partitioning != null) {
+			activeKernel = new ParallelKernel(partitioning, parallelThreads);
+			try {
+				activeKernel.run();
+			} finally {
+				activeKernel = null;
 			}
+		} else {
+			while (true) {
+				if (runClockTick() || abruptTerminate) {
+					break;
+				}
 
-			// this block allows termination of simulation at a specific time
-			if (terminateAt > 0.0 && clock >= terminateAt) {
-				terminateSimulation();
-				clock = terminateAt;
-				break;
-			}
+				// this block allows termination of simulation at a specific time
+				if (terminateAt > 0.0 && clock >= terminateAt) {
+					terminateSimulation();
+					clock = terminateAt;
+					break;
+				}
 
-			if (pauseAt != -1
-					&& ((future.size() > 0 && clock <= pauseAt && pauseAt <= future.iterator().next()
-							.eventTime()) || future.size() == 0 && pauseAt <= clock)) {
-				pauseSimulation();
-				clock = pauseAt;
-			}
+				if (pauseAt != -1
+						&& ((future.size() > 0 && clock <= pauseAt && pauseAt <= future.iterator().next()
+								.eventTime()) || future.size() == 0 && pauseAt <= clock)) {
+					pauseSimulation();
+					clock = pauseAt;
+				}
 
-			while (paused) {
-				try {
-					Thread.sleep(100);
-				} catch (InterruptedException e) {
-					e.printStackTrace();
+				while (paused) {
+					try {
+						Thread.sleep(100);
+					} catch (InterruptedException e) {
+						e.printStackTrace();
+					}
 				}
 			}
 		}
@@ -935,6 +1219,11 @@ public class CloudSim {
 			ent.shutdownEntity();
 		}
 
+		if (eventTracer != null) {
+			eventTracer.close();
+			eventTracer = null;
+		}
+
 		// reset all static variables
 		// Private data members
 		entities = null;
@@ -950,6 +1239,27 @@ public class CloudSim {
 		abruptTerminate = false;
 	}
 
+	/**
+	 * @return the time at which the simulation terminates, or a negative value
+	 */
+	static double getTerminateAt() {
+		return terminateAt;
+	}
+
+	/**
+	 * @param running whether the simulation is running
+	 */
+	static void setRunning(boolean running) {
+		CloudSim.running = running;
+	}
+
+	/**
+	 * @return whether the simulation was aborted
+	 */
+	static boolean isAbruptTerminate() {
+		return abruptTerminate;
+	}
+
 	/**
 	 * Abruptally terminate.
 	 */
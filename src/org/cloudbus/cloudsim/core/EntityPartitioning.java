@@ -0,0 +1,44 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+/**
+ * Assigns simulation entities to the logical processes of the parallel kernel, see
+ * {@link CloudSim#setParallelExecution(EntityPartitioning, int)}.
+ * <p>
+ * Partition {@link #SYNCHRONOUS} holds the entities that must observe a globally consistent state,
+ * such as controllers and brokers. Its events are processed on the coordinating thread in the exact
+ * order of the sequential kernel, while every other partition is idle. The other partitions run
+ * concurrently inside time windows no longer than the {@link #getLookahead() lookahead}.
+ */
+public interface EntityPartitioning {
+
+	/** The partition whose events are processed while all other partitions are idle. */
+	int SYNCHRONOUS = 0;
+
+	/**
+	 * @return number of partitions, including the synchronous partition
+	 */
+	int getNumberOfPartitions();
+
+	/**
+	 * @param entity an entity of the simulation
+	 * @return the partition of the entity, between 0 and {@link #getNumberOfPartitions()} - 1
+	 */
+	int getPartition(SimEntity entity);
+
+	/**
+	 * Returns the minimum delay of any event sent between entities of two different partitions,
+	 * neither of them synchronous. The kernel rejects events violating it.
+	 *
+	 * @return the lookahead, greater than 0 for the partitions to run concurrently
+	 */
+	double getLookahead();
+
+}
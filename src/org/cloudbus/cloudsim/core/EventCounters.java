@@ -0,0 +1,131 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.Arrays;
+import java.util.Map;
+
+/**
+ * Counts the events addressed to one entity, per tag. Tags are kept in a small open addressing
+ * table, so counting an event neither boxes the tag nor allocates. Events can be dropped by
+ * entities of other partitions of the parallel kernel, so the counters only lock while it runs;
+ * the sequential kernel counts from a single thread.
+ */
+class EventCounters {
+
+	static final int DROPPED = 0;
+	static final int DELIVERED = 1;
+	static final int PROCESSED = 2;
+
+	private static final int FREE = Integer.MIN_VALUE;
+
+	private int[] tags = newTable(8);
+	private long[] counts = new long[8 * 3];
+	private int size;
+
+	void count(int tag, int kind) {
+		if (CloudSim.getActiveKernel() != null) {
+			synchronized (this) {
+				increment(tag, kind);
+			}
+		} else {
+			increment(tag, kind);
+		}
+	}
+
+	/**
+	 * Adds the counters of each tag to the given totals, indexed by tag.
+	 */
+	void addTo(Map<Integer, long[]> totals) {
+		if (CloudSim.getActiveKernel() != null) {
+			synchronized (this) {
+				addCounts(totals);
+			}
+		} else {
+			addCounts(totals);
+		}
+	}
+
+	/**
+	 * @return the count of the given kind summed over all tags
+	 */
+	long total(int kind) {
+		if (CloudSim.getActiveKernel() != null) {
+			synchronized (this) {
+				return sum(kind);
+			}
+		}
+		return sum(kind);
+	}
+
+	private void increment(int tag, int kind) {
+		int slot = slot(tag);
+		if (tags[slot] == FREE) {
+			if ((size + 1) * 2 > tags.length) {
+				grow();
+				slot = slot(tag);
+			}
+			tags[slot] = tag;
+			size++;
+		}
+		counts[slot * 3 + kind]++;
+	}
+
+	private void addCounts(Map<Integer, long[]> totals) {
+		for (int slot = 0; slot < tags.length; slot++) {
+			if (tags[slot] == FREE)
+				continue;
+			long[] total = totals.get(tags[slot]);
+			if (total == null) {
+				total = new long[3];
+				totals.put(tags[slot], total);
+			}
+			for (int kind = 0; kind < 3; kind++)
+				total[kind] += counts[slot * 3 + kind];
+		}
+	}
+
+	private long sum(int kind) {
+		long total = 0;
+		for (int slot = 0; slot < tags.length; slot++) {
+			if (tags[slot] != FREE)
+				total += counts[slot * 3 + kind];
+		}
+		return total;
+	}
+
+	private int slot(int tag) {
+		int mask = tags.length - 1;
+		int slot = (tag * 0x9E3779B9 >>> 16) & mask;
+		while (tags[slot] != FREE && tags[slot] != tag)
+			slot = (slot + 1) & mask;
+		return slot;
+	}
+
+	private void grow() {
+		int[] oldTags = tags;
+		long[] oldCounts = counts;
+		tags = newTable(oldTags.length * 2);
+		counts = new long[tags.length * 3];
+		for (int old = 0; old < oldTags.length; old++) {
+			if (oldTags[old] == FREE)
+				continue;
+			int slot = slot(oldTags[old]);
+			tags[slot] = oldTags[old];
+			System.arraycopy(oldCounts, old * 3, counts, slot * 3, 3);
+		}
+	}
+
+	private static int[] newTable(int capacity) {
+		int[] table = new int[capacity];
+		Arrays.fill(table, FREE);
+		return table;
+	}
+
+}
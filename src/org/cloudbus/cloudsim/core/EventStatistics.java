@@ -0,0 +1,59 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+/**
+ * Delivery statistics of the events with one tag sent to the entities of one class, see
+ * {@link CloudSim#getEventStatistics()}. An event is dropped when its destination does not
+ * {@link SimEntity#consumesEvent(int) consume} its tag, delivered when it leaves the future queue
+ * for its destination, and processed when it is passed to {@link SimEntity#processEvent(SimEvent)}.
+ */
+public class EventStatistics {
+
+	private final String entityClass;
+	private final int tag;
+	private final long dropped;
+	private final long delivered;
+	private final long processed;
+
+	EventStatistics(String entityClass, int tag, long[] counts) {
+		this.entityClass = entityClass;
+		this.tag = tag;
+		this.dropped = counts[EventCounters.DROPPED];
+		this.delivered = counts[EventCounters.DELIVERED];
+		this.processed = counts[EventCounters.PROCESSED];
+	}
+
+	public String getEntityClass() {
+		return entityClass;
+	}
+
+	public int getTag() {
+		return tag;
+	}
+
+	public long getDropped() {
+		return dropped;
+	}
+
+	public long getDelivered() {
+		return delivered;
+	}
+
+	public long getProcessed() {
+		return processed;
+	}
+
+	@Override
+	public String toString() {
+		return entityClass + "\t" + tag + "\tdropped=" + dropped + "\tdelivered=" + delivered + "\tprocessed="
+				+ processed;
+	}
+
+}
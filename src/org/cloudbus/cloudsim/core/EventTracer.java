@@ -0,0 +1,43 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+/**
+ * Receives every event scheduled and processed by the simulation kernel. A tracer is installed with
+ * {@link CloudSim#setEventTracer(EventTracer)}; when no tracer is installed the kernel pays a single
+ * null check per event.
+ * <p>
+ * Implementations are called from the simulation loop and should only copy the fields they need.
+ *
+ * @see CloudSim#setEventTracer(EventTracer)
+ */
+public interface EventTracer {
+
+	/**
+	 * Called after an event has been added to the future queue.
+	 *
+	 * @param clock the simulation time at which the event was sent
+	 * @param e the event, with its serial number already assigned
+	 */
+	void eventScheduled(double clock, SimEvent e);
+
+	/**
+	 * Called when the kernel takes an event from the future queue, before it is delivered.
+	 *
+	 * @param e the event
+	 * @param queueDepth number of events left in the future and deferred queues
+	 */
+	void eventProcessed(SimEvent e, int queueDepth);
+
+	/**
+	 * Called when the simulation finishes, while the entity list is still available.
+	 */
+	void close();
+
+}
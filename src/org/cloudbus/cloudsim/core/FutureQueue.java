@@ -10,12 +10,16 @@ package org.cloudbus.cloudsim.core;
 
 import java.util.Collection;
 import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.SortedSet;
 import java.util.TreeSet;
 
 /**
- * This class implements the future event queue used by {@link Simulation}. The event queue uses a
- * {@link TreeSet} in order to store the events.
+ * This class implements the future event queue used by {@link Simulation}. Events due in the slot
+ * being processed and before are kept sorted in a {@link TreeSet}; later events wait in a
+ * {@link TimingWheel} and are sorted when their slot is reached. The queue therefore stays small even
+ * with many periodic events re-armed ahead of time, while events are still taken in the order of
+ * their time and then of their insertion.
  * 
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
@@ -24,12 +28,30 @@ import java.util.TreeSet;
  */
 public class FutureQueue {
 
-	/** The sorted set. */
+	/** Width of the slots of the timing wheel, in simulated time. */
+	public static final double DEFAULT_SLOT_WIDTH = 1.0;
+
+	/** The sorted set of the events before the current slot of the wheel. */
 	private final SortedSet<SimEvent> sortedSet = new TreeSet<SimEvent>();
 
+	/** The events from the current slot on. */
+	private final TimingWheel wheel;
+
 	/** The serial. */
 	private long serial = 0;
 
+	public FutureQueue() {
+		this(DEFAULT_SLOT_WIDTH);
+	}
+
+	/**
+	 * @param slotWidth width of the slots of the timing wheel, in simulated time; about the
+	 *            shortest period of the periodic events works well
+	 */
+	public FutureQueue(double slotWidth) {
+		wheel = new TimingWheel(slotWidth);
+	}
+
 	/**
 	 * Add a new event to the queue. Adding a new event to the queue preserves the temporal order of
 	 * the events in the queue.
@@ -38,7 +60,7 @@ public class FutureQueue {
 	 */
 	public void addEvent(SimEvent newEvent) {
 		newEvent.setSerial(serial++);
-		sortedSet.add(newEvent);
+		add(newEvent);
 	}
 
 	/**
@@ -48,15 +70,72 @@ public class FutureQueue {
 	 */
 	public void addEventFirst(SimEvent newEvent) {
 		newEvent.setSerial(0);
-		sortedSet.add(newEvent);
+		add(newEvent);
+	}
+
+	private void add(SimEvent newEvent) {
+		if (!wheel.add(newEvent)) {
+			sortedSet.add(newEvent);
+		}
 	}
 
 	/**
-	 * Returns an iterator to the queue.
+	 * Returns an iterator to the queue, in event order. The earliest events are first moved out of
+	 * the wheel if needed, so that iterating the first events is cheap.
 	 * 
 	 * @return the iterator
 	 */
 	public Iterator<SimEvent> iterator() {
+		if (sortedSet.isEmpty()) {
+			wheel.pollEarliestSlot(sortedSet);
+		}
+		if (wheel.size() == 0) {
+			return sortedSet.iterator();
+		}
+		final Iterator<SimEvent> due = sortedSet.iterator();
+		return new Iterator<SimEvent>() {
+
+			private Iterator<SimEvent> waiting;
+			private Iterator<SimEvent> current = due;
+
+			@Override
+			public boolean hasNext() {
+				if (current.hasNext()) {
+					return true;
+				}
+				if (waiting == null) {
+					waiting = wheel.iterator();
+					current = waiting;
+				}
+				return current.hasNext();
+			}
+
+			@Override
+			public SimEvent next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				return current.next();
+			}
+
+			@Override
+			public void remove() {
+				current.remove();
+			}
+		};
+	}
+
+	/**
+	 * Returns an iterator over the events before the current slot of the wheel, in event order,
+	 * after moving the earliest slot out of the wheel if there were none. Every event at the time of
+	 * the first event is included, so the kernel iterates a tick without sorting waiting events.
+	 * 
+	 * @return the iterator
+	 */
+	Iterator<SimEvent> dueIterator() {
+		if (sortedSet.isEmpty()) {
+			wheel.pollEarliestSlot(sortedSet);
+		}
 		return sortedSet.iterator();
 	}
 
@@ -66,7 +145,7 @@ public class FutureQueue {
 	 * @return the size
 	 */
 	public int size() {
-		return sortedSet.size();
+		return sortedSet.size() + wheel.size();
 	}
 
 	/**
@@ -76,7 +155,7 @@ public class FutureQueue {
 	 * @return true, if successful
 	 */
 	public boolean remove(SimEvent event) {
-		return sortedSet.remove(event);
+		return sortedSet.remove(event) || wheel.remove(event);
 	}
 
 	/**
@@ -86,7 +165,11 @@ public class FutureQueue {
 	 * @return true, if successful
 	 */
 	public boolean removeAll(Collection<SimEvent> events) {
-		return sortedSet.removeAll(events);
+		boolean removed = false;
+		for (SimEvent event : events) {
+			removed |= remove(event);
+		}
+		return removed;
 	}
 
 	/**
@@ -94,6 +177,7 @@ public class FutureQueue {
 	 */
 	public void clear() {
 		sortedSet.clear();
+		wheel.clear();
 	}
 
-}
\ No newline at end of file
+}
@@ -0,0 +1,80 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+/**
+ * Sequence of ids handed out while the simulation runs, such as the ids of the cloudlets entities
+ * create. The sequential kernel hands them out in order. The parallel kernel gives every partition
+ * its own ids of the sequence, the ones equal to its index modulo the number of partitions, in the
+ * order in which the partition processes its events, so that the ids an entity gets do not depend
+ * on how the partitions interleave.
+ */
+public final class IdSequence {
+
+	private int next;
+
+	/** Parallel run the ids are currently handed out for, and the next id when it started */
+	private Object run;
+	private int base;
+
+	/**
+	 * @param first the first id of the sequence
+	 */
+	public IdSequence(int first) {
+		next = first;
+	}
+
+	/**
+	 * @return the next id of the sequence
+	 */
+	public int next() {
+		ParallelKernel kernel = CloudSim.getActiveKernel();
+		if (kernel != null) {
+			return kernel.nextId(this);
+		}
+		synchronized (this) {
+			return next++;
+		}
+	}
+
+	/**
+	 * @return the id the sequence hands out next
+	 */
+	public synchronized int peek() {
+		return next;
+	}
+
+	/**
+	 * @param next the id the sequence hands out next
+	 */
+	public synchronized void reset(int next) {
+		this.next = next;
+		run = null;
+	}
+
+	/**
+	 * @return the next id of the sequence when the given parallel run first drew from it
+	 */
+	synchronized int baseFor(Object parallelRun) {
+		if (run != parallelRun) {
+			run = parallelRun;
+			base = next;
+		}
+		return base;
+	}
+
+	/**
+	 * Continues the sequence after the ids handed out by a parallel run.
+	 */
+	synchronized void runFinished(int end) {
+		next = Math.max(next, end);
+		run = null;
+	}
+
+}
@@ -0,0 +1,664 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
+import org.cloudbus.cloudsim.Log;
+import org.cloudbus.cloudsim.core.predicates.Predicate;
+
+/**
+ * Conservative parallel event loop. Entities are split into partitions (logical processes) by an
+ * {@link EntityPartitioning}; each partition has its own future queue and clock.
+ * <p>
+ * The sequential kernel processes events in ticks: a tick takes every event of the earliest time
+ * from the future queue and lets the entities handle them in entity id order. This kernel keeps
+ * the same order for every entity. Events are ordered by time, then by the tick in which they were
+ * sent (send time and wave within that time) and then by sender and send order, which is exactly the
+ * order in which the sequential kernel inserts them into its future queue. The synchronous
+ * partition is processed one tick at a time on the coordinating thread, in entity id order across
+ * all partitions. Between two events of the synchronous partition, the other partitions run
+ * concurrently up to a window end of at most the current time plus the lookahead; events crossing
+ * partitions are handed over through lock-free queues and merged when the window ends.
+ * <p>
+ * Updates of shared state made by concurrent partitions through {@link CloudSim#updateShared} are
+ * applied on the coordinating thread when the window ends, sorted by time, tick and entity id,
+ * which is the order of the sequential kernel. Ids drawn from an {@link IdSequence} come from a
+ * stride of the sequence owned by the partition.
+ * <p>
+ * Entities must not block (wait, hold or pause) and events can only be cancelled by entities of the
+ * partition they are queued in.
+ */
+class ParallelKernel {
+
+	/**
+	 * An event and the position at which the sequential kernel would have queued it.
+	 */
+	static final class ScheduledEvent implements Comparable<ScheduledEvent> {
+
+		final SimEvent event;
+		final double time;
+		final double sendTime;
+		final int sendWave;
+		final int sender;
+		final long sequence;
+		final boolean first;
+		boolean cancelled;
+
+		ScheduledEvent(SimEvent event, double sendTime, int sendWave, int sender, long sequence, boolean first) {
+			this.event = event;
+			this.time = event.eventTime();
+			this.sendTime = sendTime;
+			this.sendWave = sendWave;
+			this.sender = sender;
+			this.sequence = sequence;
+			this.first = first;
+		}
+
+		/**
+		 * @return index of the tick, among the ticks at the event time, in which the event is processed
+		 */
+		int wave() {
+			return sendTime < time ? 0 : sendWave + 1;
+		}
+
+		@Override
+		public int compareTo(ScheduledEvent other) {
+			int c = Double.compare(time, other.time);
+			if (c != 0)
+				return c;
+			c = Integer.compare(wave(), other.wave());
+			if (c != 0)
+				return c;
+			if (first != other.first)
+				return first ? -1 : 1;
+			c = Double.compare(sendTime, other.sendTime);
+			if (c != 0)
+				return c;
+			c = Integer.compare(sendWave, other.sendWave);
+			if (c != 0)
+				return c;
+			c = Integer.compare(sender, other.sender);
+			if (c != 0)
+				return c;
+			return Long.compare(sequence, other.sequence);
+		}
+	}
+
+	/**
+	 * An update of shared state made by an entity in a parallel window.
+	 */
+	static final class SharedUpdate {
+
+		final double time;
+		final int wave;
+		final int entity;
+		final Runnable update;
+
+		SharedUpdate(double time, int wave, int entity, Runnable update) {
+			this.time = time;
+			this.wave = wave;
+			this.entity = entity;
+			this.update = update;
+		}
+	}
+
+	/** Order of the sequential kernel, the updates of an entity keeping the order they were made in */
+	private static final Comparator<SharedUpdate> SEQUENTIAL_ORDER = new Comparator<SharedUpdate>() {
+		@Override
+		public int compare(SharedUpdate a, SharedUpdate b) {
+			int c = Double.compare(a.time, b.time);
+			if (c != 0)
+				return c;
+			c = Integer.compare(a.wave, b.wave);
+			if (c != 0)
+				return c;
+			return Integer.compare(a.entity, b.entity);
+		}
+	};
+
+	/**
+	 * A logical process.
+	 */
+	static final class Partition {
+
+		final int index;
+		final PriorityQueue<ScheduledEvent> queue = new PriorityQueue<ScheduledEvent>();
+		final ConcurrentLinkedQueue<ScheduledEvent> inbox = new ConcurrentLinkedQueue<ScheduledEvent>();
+		final List<Integer> touched = new ArrayList<Integer>();
+
+		/** Pending events sent with {@link CloudSim#sendCancellable} by entities of this partition */
+		final Map<SimEvent, ScheduledEvent> cancellable = new IdentityHashMap<SimEvent, ScheduledEvent>();
+
+		/** Updates of shared state made in the current parallel window */
+		final List<SharedUpdate> updates = new ArrayList<SharedUpdate>();
+
+		/** Number of ids drawn from each sequence in this run */
+		final Map<IdSequence, int[]> ids = new IdentityHashMap<IdSequence, int[]>();
+
+		/** Time and wave of the tick being processed */
+		double clock;
+		int wave = -1;
+		long sequence;
+
+		/** Entity being run, and whether other partitions run at the same time */
+		int entity;
+		boolean concurrent;
+
+		/** Every event of this partition before the horizon has been processed */
+		double horizon;
+
+		Partition(int index) {
+			this.index = index;
+		}
+
+		/**
+		 * @return the first event that has not been cancelled, or null
+		 */
+		ScheduledEvent peek() {
+			ScheduledEvent head = queue.peek();
+			while (head != null && head.cancelled) {
+				queue.poll();
+				head = queue.peek();
+			}
+			return head;
+		}
+
+		double nextTime() {
+			ScheduledEvent head = peek();
+			return head == null ? Double.POSITIVE_INFINITY : head.time;
+		}
+	}
+
+	private final EntityPartitioning partitioning;
+	private final int threads;
+	private final double lookahead;
+
+	private Partition[] partitions;
+	private Partition[] partitionOfEntity;
+	private List<ArrayDeque<SimEvent>> deferred;
+	private boolean[] touched;
+	private final ThreadLocal<Partition> current = new ThreadLocal<Partition>();
+
+	ParallelKernel(EntityPartitioning partitioning, int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("The parallel kernel needs at least one thread.");
+		this.partitioning = partitioning;
+		this.threads = threads;
+		this.lookahead = partitioning.getLookahead();
+		if (lookahead < 0)
+			throw new IllegalArgumentException("Lookahead can't be negative.");
+	}
+
+	// ---------------- calls from CloudSim while the kernel is active ----------------
+
+	double clock() {
+		Partition p = current.get();
+		return p != null ? p.clock : CloudSim.clock;
+	}
+
+	SimEvent send(int src, int dest, double delay, int tag, Object data, boolean first, boolean cancellable) {
+		if (delay < 0) {
+			throw new IllegalArgumentException("Send delay can't be negative.");
+		}
+		if (dest < 0 || dest >= partitionOfEntity.length) {
+			throw new IllegalArgumentException("Attempt to send to a null entity detected.");
+		}
+		Partition from = current.get();
+		SimEvent e = new SimEvent(SimEvent.SEND, from.clock + delay, src, dest, tag, data);
+		ScheduledEvent scheduled = new ScheduledEvent(e, from.clock, from.wave, src, from.sequence++, first);
+		Partition to = partitionOfEntity[dest];
+		if (to == from) {
+			from.queue.add(scheduled);
+			if (cancellable) {
+				from.cancellable.put(e, scheduled);
+			}
+		} else {
+			if (cancellable) {
+				throw new UnsupportedOperationException("Only events within a partition can be cancelled.");
+			}
+			if (from.index != EntityPartitioning.SYNCHRONOUS && to.index != EntityPartitioning.SYNCHRONOUS
+					&& delay < lookahead) {
+				throw new IllegalStateException("Event from " + CloudSim.getEntityName(src) + " to "
+						+ CloudSim.getEntityName(dest) + " has a delay of " + delay + ", below the lookahead "
+						+ lookahead + " between partitions.");
+			}
+			if (to.index != EntityPartitioning.SYNCHRONOUS && e.eventTime() < to.horizon) {
+				throw new IllegalStateException("Event from " + CloudSim.getEntityName(src) + " to "
+						+ CloudSim.getEntityName(dest) + " at " + e.eventTime() + " arrives after its partition reached "
+						+ to.horizon + ".");
+			}
+			to.inbox.add(scheduled);
+		}
+		EventTracer tracer = CloudSim.getEventTracer();
+		if (tracer != null) {
+			synchronized (tracer) {
+				tracer.eventScheduled(from.clock, e);
+			}
+		}
+		return e;
+	}
+
+	/**
+	 * Queues an update of shared state made by an entity of a concurrent partition.
+	 *
+	 * @return false if the update can be applied at once
+	 */
+	boolean defer(Runnable update) {
+		Partition p = current.get();
+		if (p == null || !p.concurrent) {
+			return false;
+		}
+		p.updates.add(new SharedUpdate(p.clock, p.wave, p.entity, update));
+		return true;
+	}
+
+	/**
+	 * Draws the next id of a sequence for the current partition. Partition <tt>i</tt> of <tt>n</tt>
+	 * gets the ids <tt>base + i + k * n</tt>, where <tt>base</tt> is the next id of the sequence
+	 * when the run started; the coordinating thread draws the ids of the synchronous partition.
+	 */
+	int nextId(IdSequence sequence) {
+		Partition p = current.get();
+		if (p == null)
+			p = partitions[EntityPartitioning.SYNCHRONOUS];
+		int[] count = p.ids.get(sequence);
+		if (count == null) {
+			count = new int[1];
+			p.ids.put(sequence, count);
+		}
+		return sequence.baseFor(this) + p.index + count[0]++ * partitions.length;
+	}
+
+	int waiting(int d, Predicate p) {
+		int count = 0;
+		for (SimEvent event : deferred.get(d)) {
+			if (p.match(event)) {
+				count++;
+			}
+		}
+		return count;
+	}
+
+	SimEvent select(int src, Predicate p) {
+		Iterator<SimEvent> iterator = deferred.get(src).iterator();
+		while (iterator.hasNext()) {
+			SimEvent ev = iterator.next();
+			if (p.match(ev)) {
+				iterator.remove();
+				return ev;
+			}
+		}
+		return null;
+	}
+
+	SimEvent findFirstDeferred(int src, Predicate p) {
+		for (SimEvent ev : deferred.get(src)) {
+			if (p.match(ev)) {
+				return ev;
+			}
+		}
+		return null;
+	}
+
+	SimEvent cancel(int src, Predicate p) {
+		Partition partition = current.get();
+		Iterator<ScheduledEvent> iterator = partition.queue.iterator();
+		while (iterator.hasNext()) {
+			ScheduledEvent scheduled = iterator.next();
+			SimEvent ev = scheduled.event;
+			if (!scheduled.cancelled && ev.getSource() == src && p.match(ev)) {
+				iterator.remove();
+				partition.cancellable.remove(ev);
+				return ev;
+			}
+		}
+		return null;
+	}
+
+	boolean cancelEvent(SimEvent e) {
+		ScheduledEvent scheduled = current.get().cancellable.remove(e);
+		if (scheduled == null) {
+			return false;
+		}
+		scheduled.cancelled = true;
+		return true;
+	}
+
+	boolean cancelAll(int src, Predicate p) {
+		boolean cancelled = false;
+		Partition partition = current.get();
+		Iterator<ScheduledEvent> iterator = partition.queue.iterator();
+		while (iterator.hasNext()) {
+			ScheduledEvent scheduled = iterator.next();
+			SimEvent ev = scheduled.event;
+			if (!scheduled.cancelled && ev.getSource() == src && p.match(ev)) {
+				iterator.remove();
+				partition.cancellable.remove(ev);
+				cancelled = true;
+			}
+		}
+		return cancelled;
+	}
+
+	// ---------------- event loop ----------------
+
+	/**
+	 * Takes over the events queued by the entities when they started and runs until no events
+	 * are left, the termination time is reached or the simulation is aborted.
+	 */
+	void run() {
+		int numPartitions = partitioning.getNumberOfPartitions();
+		partitions = new Partition[numPartitions];
+		for (int i = 0; i < numPartitions; i++)
+			partitions[i] = new Partition(i);
+		int numEntities = CloudSim.getNumEntities();
+		partitionOfEntity = new Partition[numEntities];
+		deferred = new ArrayList<ArrayDeque<SimEvent>>(numEntities);
+		touched = new boolean[numEntities];
+		for (int id = 0; id < numEntities; id++) {
+			partitionOfEntity[id] = partitions[partitioning.getPartition(CloudSim.getEntity(id))];
+			deferred.add(new ArrayDeque<SimEvent>());
+		}
+
+		// events sent by startEntity keep the order of the sequential future queue
+		long sequence = 0;
+		Iterator<SimEvent> pending = CloudSim.future.iterator();
+		while (pending.hasNext()) {
+			SimEvent e = pending.next();
+			partitionOfEntity[e.getDestination()].queue.add(new ScheduledEvent(e, CloudSim.clock, -1, 0, sequence++,
+					false));
+		}
+		CloudSim.future.clear();
+
+		ExecutorService pool = Executors.newFixedThreadPool(threads, new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "cloudsim-partition");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try {
+			loop(pool);
+		} finally {
+			pool.shutdownNow();
+			finishIds();
+		}
+	}
+
+	/**
+	 * Continues every sequence the partitions drew from after the last id any of them could have drawn.
+	 */
+	private void finishIds() {
+		Map<IdSequence, Integer> draws = new IdentityHashMap<IdSequence, Integer>();
+		for (Partition p : partitions) {
+			for (Map.Entry<IdSequence, int[]> entry : p.ids.entrySet()) {
+				Integer count = draws.get(entry.getKey());
+				draws.put(entry.getKey(), count == null ? entry.getValue()[0] : Math.max(count, entry.getValue()[0]));
+			}
+		}
+		for (Map.Entry<IdSequence, Integer> entry : draws.entrySet())
+			entry.getKey().runFinished(entry.getKey().baseFor(this) + entry.getValue() * partitions.length);
+	}
+
+	private void loop(ExecutorService pool) {
+		Partition synchronous = partitions[EntityPartitioning.SYNCHRONOUS];
+		while (true) {
+			double now = Double.POSITIVE_INFINITY;
+			for (Partition p : partitions)
+				now = Math.min(now, p.nextTime());
+			if (now == Double.POSITIVE_INFINITY) {
+				releaseDeferred();
+				Log.printLine("Simulation: No more future events");
+				CloudSim.setRunning(false);
+				return;
+			}
+			double terminateAt = CloudSim.getTerminateAt();
+			if (terminateAt > 0.0 && now >= terminateAt) {
+				terminate(now, terminateAt);
+				return;
+			}
+
+			double windowEnd = Math.min(now + lookahead, synchronous.nextTime());
+			if (windowEnd <= now) {
+				synchronousTick(now);
+			} else {
+				parallelWindow(pool, windowEnd);
+			}
+			if (CloudSim.isAbruptTerminate()) {
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Processes one tick at the given time over all partitions, in entity id order.
+	 */
+	private void synchronousTick(double now) {
+		int wave = Integer.MAX_VALUE;
+		for (Partition p : partitions) {
+			ScheduledEvent head = p.peek();
+			if (head != null && head.time == now)
+				wave = Math.min(wave, head.wave());
+		}
+		List<Integer> touched = new ArrayList<Integer>();
+		for (Partition p : partitions) {
+			takeTick(p, now, wave);
+			touched.addAll(p.touched);
+			p.touched.clear();
+		}
+		Collections.sort(touched);
+		CloudSim.clock = now;
+		for (int id : touched) {
+			Partition p = partitionOfEntity[id];
+			p.clock = now;
+			p.wave = wave;
+			current.set(p);
+			runEntity(id);
+		}
+		current.remove();
+		for (Partition p : partitions) {
+			p.horizon = Math.max(p.horizon, now);
+			mergeInbox(p);
+		}
+	}
+
+	/**
+	 * Lets every partition except the synchronous one process its events before the window end.
+	 */
+	private void parallelWindow(ExecutorService pool, final double windowEnd) {
+		List<Partition> ready = new ArrayList<Partition>();
+		for (int i = 0; i < partitions.length; i++) {
+			if (i != EntityPartitioning.SYNCHRONOUS && partitions[i].nextTime() < windowEnd)
+				ready.add(partitions[i]);
+		}
+		// the coordinating thread runs the first partition itself instead of waiting idle
+		List<Future<?>> tasks = new ArrayList<Future<?>>();
+		for (int i = 1; i < ready.size(); i++) {
+			final Partition p = ready.get(i);
+			tasks.add(pool.submit(new Runnable() {
+				@Override
+				public void run() {
+					runPartition(p, windowEnd);
+				}
+			}));
+		}
+		try {
+			if (!ready.isEmpty())
+				runPartition(ready.get(0), windowEnd);
+		} finally {
+			awaitPartitions(tasks);
+		}
+		applySharedUpdates(ready);
+		double last = CloudSim.clock;
+		for (Partition p : partitions) {
+			if (p.index != EntityPartitioning.SYNCHRONOUS) {
+				p.horizon = windowEnd;
+				last = Math.max(last, p.clock);
+			}
+			mergeInbox(p);
+		}
+		CloudSim.clock = last;
+	}
+
+	private void awaitPartitions(List<Future<?>> tasks) {
+		for (Future<?> task : tasks) {
+			try {
+				task.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while waiting for partitions.", e);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException)
+					throw (RuntimeException) cause;
+				if (cause instanceof Error)
+					throw (Error) cause;
+				throw new IllegalStateException(cause);
+			}
+		}
+	}
+
+	private void runPartition(Partition p, double windowEnd) {
+		current.set(p);
+		p.concurrent = true;
+		try {
+			while (p.nextTime() < windowEnd) {
+				ScheduledEvent head = p.peek();
+				double time = head.time;
+				int wave = head.wave();
+				takeTick(p, time, wave);
+				Collections.sort(p.touched);
+				p.clock = time;
+				p.wave = wave;
+				for (int id : p.touched)
+					runEntity(id);
+				p.touched.clear();
+			}
+		} finally {
+			p.concurrent = false;
+			current.remove();
+		}
+	}
+
+	/**
+	 * Applies the updates of shared state made by the partitions in a window in the order of the
+	 * sequential kernel, the clock showing the time each update was made at.
+	 */
+	private void applySharedUpdates(List<Partition> ran) {
+		List<SharedUpdate> updates = new ArrayList<SharedUpdate>();
+		for (Partition p : ran) {
+			updates.addAll(p.updates);
+			p.updates.clear();
+		}
+		if (updates.isEmpty())
+			return;
+		// stable, every entity belongs to one partition
+		Collections.sort(updates, SEQUENTIAL_ORDER);
+		for (SharedUpdate update : updates) {
+			CloudSim.clock = update.time;
+			update.update.run();
+		}
+	}
+
+	/**
+	 * Moves the events of one tick from the future queue of a partition to the deferred queues of
+	 * their destinations, remembering the destinations.
+	 */
+	private void takeTick(Partition p, double time, int wave) {
+		EventTracer tracer = CloudSim.getEventTracer();
+		while (true) {
+			ScheduledEvent head = p.peek();
+			if (head == null || head.time != time || head.wave() != wave)
+				return;
+			p.queue.poll();
+			if (!p.cancellable.isEmpty())
+				p.cancellable.remove(head.event);
+			int dest = head.event.getDestination();
+			if (!touched[dest]) {
+				touched[dest] = true;
+				p.touched.add(dest);
+			}
+			deferred.get(dest).add(head.event);
+			CloudSim.getEntity(dest).getEventCounters().count(head.event.getTag(), EventCounters.DELIVERED);
+			if (tracer != null) {
+				synchronized (tracer) {
+					tracer.eventProcessed(head.event, p.queue.size());
+				}
+			}
+		}
+	}
+
+	private void runEntity(int id) {
+		touched[id] = false;
+		partitionOfEntity[id].entity = id;
+		SimEntity ent = CloudSim.getEntity(id);
+		if (ent.getState() == SimEntity.RUNNABLE) {
+			ent.run();
+		}
+	}
+
+	private void mergeInbox(Partition p) {
+		ScheduledEvent e;
+		while ((e = p.inbox.poll()) != null)
+			p.queue.add(e);
+	}
+
+	/**
+	 * Stops like the sequential kernel: the events of the first tick at or after the termination
+	 * time are handed to the entities, which handle them when the simulation finishes.
+	 */
+	private void terminate(double now, double terminateAt) {
+		releaseDeferred();
+		int wave = Integer.MAX_VALUE;
+		for (Partition p : partitions) {
+			ScheduledEvent head = p.peek();
+			if (head != null && head.time == now)
+				wave = Math.min(wave, head.wave());
+		}
+		List<ScheduledEvent> tick = new ArrayList<ScheduledEvent>();
+		for (Partition p : partitions) {
+			while (p.peek() != null && p.peek().time == now && p.peek().wave() == wave)
+				tick.add(p.queue.poll());
+		}
+		Collections.sort(tick);
+		for (ScheduledEvent e : tick)
+			CloudSim.deferred.addEvent(e.event);
+		CloudSim.terminateSimulation();
+		CloudSim.clock = terminateAt;
+	}
+
+	/**
+	 * Moves the events not yet consumed by their entities to the deferred queue of
+	 * {@link CloudSim}, where the entities find them when the simulation finishes.
+	 */
+	private void releaseDeferred() {
+		for (ArrayDeque<SimEvent> events : deferred) {
+			for (SimEvent e : events)
+				CloudSim.deferred.addEvent(e);
+			events.clear();
+		}
+	}
+
+}
@@ -42,6 +42,9 @@ public abstract class SimEntity implements Cloneable {
 	/** The entity's current state. */
 	private int state;
 
+	/** Counters of the events addressed to the entity. */
+	private final EventCounters eventCounters = new EventCounters();
+
 	/**
 	 * Creates a new entity.
 	 * 
@@ -393,6 +396,19 @@ public abstract class SimEntity implements Cloneable {
 	 */
 	public abstract void processEvent(SimEvent ev);
 
+	/**
+	 * Tells whether the entity handles events with the given tag. Events the entity doesn't consume
+	 * are dropped when they are sent instead of going through the queues. Entities ignoring some
+	 * events override this method; it may be called by other entities at any time, also from other
+	 * threads with the parallel kernel, so it must not depend on mutable state.
+	 * 
+	 * @param tag the tag of an event sent to the entity
+	 * @return true if the entity consumes the events with this tag
+	 */
+	public boolean consumesEvent(int tag) {
+		return true;
+	}
+
 	/**
 	 * This method is invoked by the {@link Simulation} before the simulation finishes. If you want
 	 * to save data in log files this is the method in which the corresponding code would be placed.
@@ -403,6 +419,7 @@ public abstract class SimEntity implements Cloneable {
 		SimEvent ev = evbuf != null ? evbuf : getNextEvent();
 
 		while (ev != null) {
+			eventCounters.count(ev.getTag(), EventCounters.PROCESSED);
 			processEvent(ev);
 			if (state != RUNNABLE) {
 				break;
@@ -414,6 +431,15 @@ public abstract class SimEntity implements Cloneable {
 		evbuf = null;
 	}
 
+	/**
+	 * Gets the counters of the events addressed to the entity.
+	 * 
+	 * @return the event counters
+	 */
+	EventCounters getEventCounters() {
+		return eventCounters;
+	}
+
 	/**
 	 * Get a clone of the entity. This is used when independent replications have been specified as
 	 * an output analysis method. Clones or backups of the entities are made in the beginning of the
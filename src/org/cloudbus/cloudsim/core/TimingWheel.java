@@ -0,0 +1,350 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.core;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.TreeSet;
+
+/**
+ * Hierarchical timing wheel holding the events of the {@link FutureQueue} that are not due yet.
+ * Simulated time is divided in slots of a fixed width; level <tt>k</tt> of the wheel has
+ * {@value #SLOTS} buckets of <tt>SLOTS^k</tt> slots each, and events beyond the last level are kept in
+ * a sorted overflow set. Adding or removing an event is constant time, whatever the number of events
+ * waiting, and the events of a bucket are only sorted when their slot becomes due. This suits
+ * periodic events (sensor emissions, periodic tuples, resource management) which are re-armed one
+ * period ahead and would otherwise each be inserted in a large sorted queue.
+ * <p>
+ * Every event of the wheel is in a slot not before {@link #getCurrentSlot()}; an event of an earlier
+ * slot is refused by {@link #add(SimEvent)} and belongs to the caller's sorted queue of due events.
+ *
+ * @see FutureQueue
+ */
+class TimingWheel {
+
+	private static final int BITS = 6;
+	private static final int SLOTS = 1 << BITS;
+	private static final int MASK = SLOTS - 1;
+	private static final int LEVELS = 6;
+
+	/** Width of a slot in simulated time. */
+	private final double slotWidth;
+
+	/** Events of a slot, or of a range of slots above level 0, in no particular order */
+	private static final class Bucket extends ArrayList<SimEvent> {
+		private static final long serialVersionUID = 1L;
+	}
+
+	private final Bucket[][] buckets = new Bucket[LEVELS][SLOTS];
+
+	/** Events too far in the future for the last level */
+	private final TreeSet<SimEvent> overflow = new TreeSet<SimEvent>();
+
+	/** First slot that may hold events */
+	private long now;
+
+	private int size;
+
+	/**
+	 * @param slotWidth width of a slot in simulated time
+	 */
+	TimingWheel(double slotWidth) {
+		if (!(slotWidth > 0)) {
+			throw new IllegalArgumentException("Slot width must be positive");
+		}
+		this.slotWidth = slotWidth;
+	}
+
+	/**
+	 * @return the slot of an event time
+	 */
+	long slotOf(double time) {
+		double slot = Math.floor(time / slotWidth);
+		return slot >= Long.MAX_VALUE ? Long.MAX_VALUE : (long) slot;
+	}
+
+	/**
+	 * @return the first slot that may hold events
+	 */
+	long getCurrentSlot() {
+		return now;
+	}
+
+	int size() {
+		return size;
+	}
+
+	/**
+	 * Adds an event.
+	 *
+	 * @param e the event
+	 * @return false if the event is due before the current slot and was not added
+	 */
+	boolean add(SimEvent e) {
+		long slot = slotOf(e.eventTime());
+		if (slot < now) {
+			return false;
+		}
+		place(e, slot);
+		size++;
+		return true;
+	}
+
+	/**
+	 * Puts an event in the bucket of its slot relative to the current slot: the lowest level in
+	 * which the slot and the current slot share all higher digits.
+	 */
+	private void place(SimEvent e, long slot) {
+		for (int level = 0; level < LEVELS; level++) {
+			int shift = BITS * (level + 1);
+			if ((slot >>> shift) == (now >>> shift)) {
+				bucket(level, (int) (slot >>> (BITS * level)) & MASK).add(e);
+				return;
+			}
+		}
+		overflow.add(e);
+	}
+
+	private List<SimEvent> bucket(int level, int index) {
+		Bucket bucket = buckets[level][index];
+		if (bucket == null) {
+			bucket = new Bucket();
+			buckets[level][index] = bucket;
+		}
+		return bucket;
+	}
+
+	/**
+	 * Removes an event.
+	 *
+	 * @param e the event
+	 * @return true if the event was in the wheel
+	 */
+	boolean remove(SimEvent e) {
+		long slot = slotOf(e.eventTime());
+		if (slot < now) {
+			return false;
+		}
+		boolean removed = false;
+		for (int level = 0; level < LEVELS && !removed; level++) {
+			int shift = BITS * (level + 1);
+			if ((slot >>> shift) == (now >>> shift)) {
+				removed = removeIdentical(buckets[level][(int) (slot >>> (BITS * level)) & MASK], e);
+				break;
+			}
+		}
+		if (!removed) {
+			removed = overflow.remove(e);
+		}
+		if (removed) {
+			size--;
+		}
+		return removed;
+	}
+
+	private static boolean removeIdentical(List<SimEvent> bucket, SimEvent e) {
+		if (bucket == null) {
+			return false;
+		}
+		for (int i = bucket.size() - 1; i >= 0; i--) {
+			if (bucket.get(i) == e) {
+				int last = bucket.size() - 1;
+				bucket.set(i, bucket.get(last));
+				bucket.remove(last);
+				return true;
+			}
+		}
+		return false;
+	}
+
+	/**
+	 * Moves the events of the earliest non empty slot to a collection, and makes the next slot the
+	 * current one. Does nothing if the wheel is empty.
+	 *
+	 * @param due the collection receiving the events
+	 */
+	void pollEarliestSlot(Collection<SimEvent> due) {
+		while (size > 0) {
+			List<SimEvent> bucket = buckets[0][(int) now & MASK];
+			if (bucket != null && !bucket.isEmpty()) {
+				due.addAll(bucket);
+				size -= bucket.size();
+				bucket.clear();
+				now++;
+				if (((int) now & MASK) == 0) {
+					cascade(1);
+				}
+				return;
+			}
+			advance();
+		}
+	}
+
+	/**
+	 * Moves the current slot to the start of the next non empty bucket and spreads that bucket over
+	 * the lower levels. The buckets below the current slot at every level are empty.
+	 */
+	private void advance() {
+		for (int level = 0; level < LEVELS; level++) {
+			int shift = BITS * level;
+			int current = (int) (now >>> shift) & MASK;
+			// the bucket of the current slot at a higher level was spread when the slot was reached
+			for (int index = level == 0 ? current : current + 1; index < SLOTS; index++) {
+				List<SimEvent> bucket = buckets[level][index];
+				if (bucket != null && !bucket.isEmpty()) {
+					long block = (now >>> (shift + BITS)) << (shift + BITS);
+					now = block | ((long) index << shift);
+					if (level > 0) {
+						spread(level, index);
+					}
+					return;
+				}
+			}
+		}
+		// only far events are left
+		now = slotOf(overflow.first().eventTime());
+		pullOverflow();
+	}
+
+	/**
+	 * Spreads the buckets of the levels from a level on that the current slot has just reached.
+	 */
+	private void cascade(int fromLevel) {
+		for (int level = fromLevel; level < LEVELS; level++) {
+			int shift = BITS * level;
+			spread(level, (int) (now >>> shift) & MASK);
+			if (((now >>> shift) & MASK) != 0) {
+				return;
+			}
+		}
+		pullOverflow();
+	}
+
+	private void spread(int level, int index) {
+		List<SimEvent> bucket = buckets[level][index];
+		if (bucket == null || bucket.isEmpty()) {
+			return;
+		}
+		List<SimEvent> events = new ArrayList<SimEvent>(bucket);
+		bucket.clear();
+		for (SimEvent e : events) {
+			place(e, slotOf(e.eventTime()));
+		}
+	}
+
+	private void pullOverflow() {
+		int shift = BITS * LEVELS;
+		while (!overflow.isEmpty()) {
+			SimEvent first = overflow.first();
+			long slot = slotOf(first.eventTime());
+			if ((slot >>> shift) != (now >>> shift)) {
+				return;
+			}
+			overflow.pollFirst();
+			place(first, slot);
+		}
+	}
+
+	/**
+	 * Removes every event.
+	 */
+	void clear() {
+		for (Bucket[] level : buckets) {
+			for (List<SimEvent> bucket : level) {
+				if (bucket != null) {
+					bucket.clear();
+				}
+			}
+		}
+		overflow.clear();
+		size = 0;
+	}
+
+	/**
+	 * Returns an iterator over the events in time order. Each bucket is sorted when the iterator
+	 * reaches it. The iterator supports {@link Iterator#remove()}.
+	 *
+	 * @return the iterator
+	 */
+	Iterator<SimEvent> iterator() {
+		return new Iterator<SimEvent>() {
+
+			private int level;
+			private int index = (int) now & MASK;
+			private List<SimEvent> bucket;
+			private List<SimEvent> sorted = Collections.emptyList();
+			private int position;
+			private Iterator<SimEvent> overflowIterator;
+			private SimEvent last;
+
+			@Override
+			public boolean hasNext() {
+				if (overflowIterator != null) {
+					return overflowIterator.hasNext();
+				}
+				while (position >= sorted.size()) {
+					if (!nextBucket()) {
+						overflowIterator = overflow.iterator();
+						return overflowIterator.hasNext();
+					}
+				}
+				return true;
+			}
+
+			private boolean nextBucket() {
+				while (level < LEVELS) {
+					if (index < SLOTS) {
+						List<SimEvent> candidate = buckets[level][index++];
+						if (candidate != null && !candidate.isEmpty()) {
+							bucket = candidate;
+							sorted = new ArrayList<SimEvent>(candidate);
+							Collections.sort(sorted);
+							position = 0;
+							return true;
+						}
+					} else {
+						level++;
+						if (level < LEVELS) {
+							index = ((int) (now >>> (BITS * level)) & MASK) + 1;
+						}
+					}
+				}
+				return false;
+			}
+
+			@Override
+			public SimEvent next() {
+				if (!hasNext()) {
+					throw new NoSuchElementException();
+				}
+				last = overflowIterator != null ? overflowIterator.next() : sorted.get(position++);
+				return last;
+			}
+
+			@Override
+			public void remove() {
+				if (last == null) {
+					throw new IllegalStateException();
+				}
+				if (overflowIterator != null) {
+					overflowIterator.remove();
+				} else {
+					removeIdentical(bucket, last);
+				}
+				size--;
+				last = null;
+			}
+		};
+	}
+
+}
@@ -0,0 +1,110 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.distributions;
+
+import java.util.Arrays;
+
+/**
+ * Precomputed cumulative distribution of a discrete distribution, sampled by inverse transform with
+ * a binary search, so a draw costs logarithmic time in the number of values instead of summing the
+ * probabilities again. A table is immutable once built and can be shared by any number of random
+ * number generators, in any thread.
+ */
+public class InverseCdfTable {
+
+	/** The cumulative probabilities, non decreasing. */
+	private final double[] cdf;
+
+	/**
+	 * Creates a table from cumulative probabilities.
+	 *
+	 * @param cdf the cumulative probabilities, non decreasing; the array is copied
+	 */
+	public InverseCdfTable(double[] cdf) {
+		for (int i = 1; i < cdf.length; i++) {
+			if (cdf[i] < cdf[i - 1]) {
+				throw new IllegalArgumentException("Cumulative probabilities must not decrease.");
+			}
+		}
+		this.cdf = cdf.clone();
+	}
+
+	/**
+	 * Creates a table from the weights of the values, which need not sum to 1.
+	 *
+	 * @param weights the non negative weights
+	 * @return the table
+	 */
+	public static InverseCdfTable fromWeights(double[] weights) {
+		double total = 0;
+		for (double weight : weights) {
+			if (weight < 0) {
+				throw new IllegalArgumentException("Weights must not be negative.");
+			}
+			total += weight;
+		}
+		double[] cdf = new double[weights.length];
+		double sum = 0;
+		for (int i = 0; i < weights.length; i++) {
+			sum += weights[i];
+			cdf[i] = sum / total;
+		}
+		return new InverseCdfTable(cdf);
+	}
+
+	/**
+	 * Returns the index of the value a uniform variate maps to: the first index from a given one
+	 * whose cumulative probability is at least the variate.
+	 *
+	 * @param variate the variate
+	 * @param fromIndex the first index considered
+	 * @return the index, or {@link #size()} if the variate is above every cumulative probability
+	 */
+	public int indexOf(double variate, int fromIndex) {
+		int position = Arrays.binarySearch(cdf, fromIndex, cdf.length, variate);
+		if (position < 0) {
+			return -position - 1;
+		}
+		// the first of equal probabilities
+		while (position > fromIndex && cdf[position - 1] == variate) {
+			position--;
+		}
+		return position;
+	}
+
+	/**
+	 * Returns the index of the value a uniform variate maps to.
+	 *
+	 * @param variate the variate
+	 * @return the index, or {@link #size()} if the variate is above every cumulative probability
+	 */
+	public int indexOf(double variate) {
+		return indexOf(variate, 0);
+	}
+
+	/**
+	 * Gets the cumulative probability of an index.
+	 *
+	 * @param index the index
+	 * @return the cumulative probability
+	 */
+	public double getCumulativeProbability(int index) {
+		return cdf[index];
+	}
+
+	/**
+	 * Gets the number of values.
+	 *
+	 * @return the number of values
+	 */
+	public int size() {
+		return cdf.length;
+	}
+
+}
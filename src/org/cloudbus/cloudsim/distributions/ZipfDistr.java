@@ -1,7 +1,6 @@
 /*
  * Title:        CloudSim Toolkit
- * Descripimport java.util.Random;
-mulation) Toolkit for Modeling and Simulation of Clouds
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
  * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
  *
  * Copyright (c) 2009-2012, The University of Melbourne, Australia
@@ -9,10 +8,17 @@ mulation) Toolkit for Modeling and Simulation of Clouds
 
 package org.cloudbus.cloudsim.distributions;
 
+import java.lang.ref.SoftReference;
 import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * The Class ZipfDistr.
+ * <p>
+ * The cumulative probabilities are computed once per shape and population and shared by every
+ * instance with those parameters, so that a sample costs a binary search instead of a sum over the
+ * population. Samples are the same as when they were summed for each draw.
  * 
  * @author Marcos Dias de Assuncao
  * @since CloudSim Toolkit 1.0
@@ -28,6 +34,43 @@ public class ZipfDistr implements ContinuousDistribution {
 	/** The den. */
 	private double den;
 
+	/** The cumulative probabilities for the shape and population. */
+	private final Table table;
+
+	/** Tables by shape and population, kept while memory allows. */
+	private static final ConcurrentMap<String, SoftReference<Table>> TABLES = new ConcurrentHashMap<String, SoftReference<Table>>();
+
+	/**
+	 * Cumulative probabilities of a shape and population.
+	 */
+	private static final class Table {
+
+		/** Partial harmonic sums divided by den, from 1 to max(population, 2) terms. */
+		private final InverseCdfTable cdf;
+
+		/** The den. */
+		private final double den;
+
+		/** The last partial harmonic sum of the table. */
+		private final double lastSum;
+
+		private Table(double shape, int population) {
+			int size = Math.max(population, 2);
+			double[] sums = new double[size];
+			double sum = 0.0;
+			for (int j = 1; j <= size; j++) {
+				sum += 1 / Math.pow(j, shape);
+				sums[j - 1] = sum;
+			}
+			den = population >= 1 ? sums[population - 1] : 0.0;
+			for (int i = 0; i < size; i++) {
+				sums[i] = sums[i] / den;
+			}
+			cdf = new InverseCdfTable(sums);
+			lastSum = sum;
+		}
+	}
+
 	/**
 	 * Instantiates a new zipf distr.
 	 * 
@@ -41,8 +84,8 @@ public class ZipfDistr implements ContinuousDistribution {
 		}
 		numGen = new Random(seed);
 		this.shape = shape;
-
-		computeDen(shape, population);
+		table = getTable(shape, population);
+		den = table.den;
 	}
 
 	/**
@@ -57,7 +100,8 @@ public class ZipfDistr implements ContinuousDistribution {
 		}
 		numGen = new Random(System.currentTimeMillis());
 		this.shape = shape;
-		computeDen(shape, population);
+		table = getTable(shape, population);
+		den = table.den;
 	}
 
 	/**
@@ -68,9 +112,16 @@ public class ZipfDistr implements ContinuousDistribution {
 	@Override
 	public double sample() {
 		double variate = numGen.nextDouble();
-		double num = 1;
-		double nextNum = 1 + 1 / Math.pow(2, shape);
-		double j = 3;
+		InverseCdfTable cdf = table.cdf;
+		int index = cdf.indexOf(variate, 1);
+		if (index < cdf.size()) {
+			return cdf.getCumulativeProbability(index - 1);
+		}
+
+		// rounding left the variate above the last probability, carry on summing past the table
+		double num = table.lastSum;
+		double nextNum = num + 1 / Math.pow(cdf.size() + 1, shape);
+		double j = cdf.size() + 2;
 
 		while (variate > nextNum / den) {
 			num = nextNum;
@@ -82,16 +133,21 @@ public class ZipfDistr implements ContinuousDistribution {
 	}
 
 	/**
-	 * Compute den.
+	 * Gets the table of a shape and population, computing it if no instance holds it.
 	 * 
 	 * @param shape the shape
 	 * @param population the population
+	 * @return the table
 	 */
-	private void computeDen(double shape, int population) {
-		den = 0.0;
-		for (int j = 1; j <= population; j++) {
-			den += 1 / Math.pow(j, shape);
+	private static Table getTable(double shape, int population) {
+		String key = shape + "/" + population;
+		SoftReference<Table> reference = TABLES.get(key);
+		Table table = reference == null ? null : reference.get();
+		if (table == null) {
+			table = new Table(shape, population);
+			TABLES.put(key, new SoftReference<Table>(table));
 		}
+		return table;
 	}
 
 }
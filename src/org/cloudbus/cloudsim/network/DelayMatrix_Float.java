@@ -29,10 +29,10 @@ public class DelayMatrix_Float {
 	protected int mTotalNodeNum = 0;
 
 	/**
-	 * private constructor to ensure that only an correct initialized delay-matrix could be created
+	 * constructor for subclasses which store the delays otherwise, to ensure that only an correct
+	 * initialized delay-matrix could be created
 	 */
-	@SuppressWarnings("unused")
-	private DelayMatrix_Float() {
+	protected DelayMatrix_Float() {
 	};
 
 	/**
@@ -8,8 +8,22 @@
 
 package org.cloudbus.cloudsim.network;
 
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+
 /**
  * FloydWarshall algorithm to calculate all pairs delay and predecessor matrix.
+ * <p>
+ * The matrices are updated in place and split in square blocks of {@value #BLOCK_SIZE} nodes. For
+ * each block of intermediate nodes, the diagonal block is computed first, then the blocks of its row
+ * and column, then all other blocks, each phase spread over the available processors. A block is
+ * small enough to stay in the processor cache while it is updated. Graphs of at most one block are
+ * computed by the classic triple loop.
  * 
  * @author Rahul Simha
  * @author Weishuai Yang
@@ -18,6 +32,11 @@ package org.cloudbus.cloudsim.network;
  */
 public class FloydWarshall_Float {
 
+	/**
+	 * Side of the blocks of the matrices
+	 */
+	private static final int BLOCK_SIZE = 64;
+
 	/**
 	 * Number of vertices (when initialized)
 	 */
@@ -32,14 +51,19 @@ public class FloydWarshall_Float {
 	// private float[][] adjMatrix;
 
 	/**
-	 * Matrices used in dynamic programming
+	 * Delay matrix, updated in place
+	 */
+	private float[][] Dk;
+
+	/**
+	 * Predecessor matrix, updated in place
 	 */
-	private float[][] Dk, Dk_minus_one;
+	private int[][] Pk;
 
 	/**
-	 * Matrices used in dynamic programming
+	 * Number of threads used for large graphs
 	 */
-	private int[][] Pk, Pk_minus_one;
+	private int threads = Runtime.getRuntime().availableProcessors();
 
 	/**
 	 * initialization matrix
@@ -49,22 +73,25 @@ public class FloydWarshall_Float {
 	public void initialize(int numVertices) {
 		this.numVertices = numVertices;
 
-		// Initialize Dk matrices.
+		// Initialize Dk and Pk matrices.
 		Dk = new float[numVertices][];
-		Dk_minus_one = new float[numVertices][];
-		for (int i = 0; i < numVertices; i++) {
-			Dk[i] = new float[numVertices];
-			Dk_minus_one[i] = new float[numVertices];
-		}
-
-		// Initialize Pk matrices.
 		Pk = new int[numVertices][];
-		Pk_minus_one = new int[numVertices][];
 		for (int i = 0; i < numVertices; i++) {
+			Dk[i] = new float[numVertices];
 			Pk[i] = new int[numVertices];
-			Pk_minus_one[i] = new int[numVertices];
 		}
+	}
 
+	/**
+	 * Sets the number of threads computing large graphs, by default the number of processors.
+	 * 
+	 * @param threads number of threads
+	 */
+	public void setThreads(int threads) {
+		if (threads < 1) {
+			throw new IllegalArgumentException("At least one thread is needed.");
+		}
+		this.threads = threads;
 	}
 
 	/**
@@ -74,59 +101,148 @@ public class FloydWarshall_Float {
 	 * @return all pairs delay matrix
 	 */
 	public float[][] allPairsShortestPaths(float[][] adjMatrix) {
-		// Dk_minus_one = weights when k = -1
+		// Dk = weights when k = -1
 		for (int i = 0; i < numVertices; i++) {
 			for (int j = 0; j < numVertices; j++) {
-				if (adjMatrix[i][j] != 0) {
-					Dk_minus_one[i][j] = adjMatrix[i][j];
-					Pk_minus_one[i][j] = i;
+				if (i == j) {
+					Dk[i][j] = 0;
+					Pk[i][j] = -1;
+				} else if (adjMatrix[i][j] != 0) {
+					Dk[i][j] = adjMatrix[i][j];
+					Pk[i][j] = i;
 				} else {
-					Dk_minus_one[i][j] = Float.MAX_VALUE;
-					Pk_minus_one[i][j] = -1;
+					Dk[i][j] = Float.MAX_VALUE;
+					Pk[i][j] = -1;
 				}
 				// NOTE: we have set the value to infinity and will exploit
 				// this to avoid a comparison.
 			}
 		}
 
-		// Now iterate over k.
-
-		for (int k = 0; k < numVertices; k++) {
-
-			// Compute Dk[i][j], for each i,j
-
-			for (int i = 0; i < numVertices; i++) {
-				for (int j = 0; j < numVertices; j++) {
-					if (i != j) {
-
-						// D_k[i][j] = min ( D_k-1[i][j], D_k-1[i][k] + D_k-1[k][j].
-						if (Dk_minus_one[i][j] <= Dk_minus_one[i][k] + Dk_minus_one[k][j]) {
-							Dk[i][j] = Dk_minus_one[i][j];
-							Pk[i][j] = Pk_minus_one[i][j];
-						} else {
-							Dk[i][j] = Dk_minus_one[i][k] + Dk_minus_one[k][j];
-							Pk[i][j] = Pk_minus_one[k][j];
-						}
-					} else {
-						Pk[i][j] = -1;
+		// Now iterate over the blocks of k. The row and column of k do not change while k is the
+		// intermediate node, so the matrices can be updated in place.
+		final int blocks = (numVertices + BLOCK_SIZE - 1) / BLOCK_SIZE;
+		if (blocks <= 1 || threads == 1) {
+			for (int kb = 0; kb < blocks; kb++) {
+				updateBlock(kb, kb, kb);
+				for (int b = 0; b < blocks; b++) {
+					if (b != kb) {
+						updateBlock(kb, b, kb);
+						updateBlock(b, kb, kb);
 					}
 				}
+				for (int ib = 0; ib < blocks; ib++) {
+					updateRowOfBlocks(ib, kb, blocks);
+				}
 			}
+			return Dk;
+		}
 
-			// Now store current Dk into D_k-1
-			for (int i = 0; i < numVertices; i++) {
-				for (int j = 0; j < numVertices; j++) {
-					Dk_minus_one[i][j] = Dk[i][j];
-					Pk_minus_one[i][j] = Pk[i][j];
+		ExecutorService pool = Executors.newFixedThreadPool(Math.min(threads, blocks), new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r, "cloudsim-floyd-warshall");
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try {
+			for (int kb = 0; kb < blocks; kb++) {
+				final int k = kb;
+				updateBlock(kb, kb, kb);
+				List<Future<?>> tasks = new ArrayList<Future<?>>();
+				for (int b = 0; b < blocks; b++) {
+					if (b != kb) {
+						final int other = b;
+						tasks.add(pool.submit(new Runnable() {
+							@Override
+							public void run() {
+								updateBlock(k, other, k);
+								updateBlock(other, k, k);
+							}
+						}));
+					}
+				}
+				waitFor(tasks);
+				for (int ib = 0; ib < blocks; ib++) {
+					final int row = ib;
+					tasks.add(pool.submit(new Runnable() {
+						@Override
+						public void run() {
+							updateRowOfBlocks(row, k, blocks);
+						}
+					}));
 				}
+				waitFor(tasks);
 			}
-
-		} // end-outermost-for
+		} finally {
+			pool.shutdownNow();
+		}
 
 		return Dk;
 
 	}
 
+	/**
+	 * Updates the blocks of a row which are neither in the row nor in the column of the
+	 * intermediate block.
+	 */
+	private void updateRowOfBlocks(int ib, int kb, int blocks) {
+		if (ib == kb) {
+			return;
+		}
+		for (int jb = 0; jb < blocks; jb++) {
+			if (jb != kb) {
+				updateBlock(ib, jb, kb);
+			}
+		}
+	}
+
+	/**
+	 * Updates a block of the matrices with the paths through the nodes of the intermediate block.
+	 */
+	private void updateBlock(int ib, int jb, int kb) {
+		int iEnd = Math.min((ib + 1) * BLOCK_SIZE, numVertices);
+		int jStart = jb * BLOCK_SIZE;
+		int jEnd = Math.min(jStart + BLOCK_SIZE, numVertices);
+		int kEnd = Math.min((kb + 1) * BLOCK_SIZE, numVertices);
+		for (int k = kb * BLOCK_SIZE; k < kEnd; k++) {
+			float[] Dk_k = Dk[k];
+			int[] Pk_k = Pk[k];
+			for (int i = ib * BLOCK_SIZE; i < iEnd; i++) {
+				float[] Dk_i = Dk[i];
+				int[] Pk_i = Pk[i];
+				float Dk_ik = Dk_i[k];
+				for (int j = jStart; j < jEnd; j++) {
+					// D_k[i][j] = min ( D_k-1[i][j], D_k-1[i][k] + D_k-1[k][j].
+					if (!(Dk_i[j] <= Dk_ik + Dk_k[j])) {
+						Dk_i[j] = Dk_ik + Dk_k[j];
+						Pk_i[j] = Pk_k[j];
+					}
+				}
+			}
+		}
+	}
+
+	private static void waitFor(List<Future<?>> tasks) {
+		for (Future<?> task : tasks) {
+			try {
+				task.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new IllegalStateException("Interrupted while computing shortest paths.", e);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if (cause instanceof RuntimeException)
+					throw (RuntimeException) cause;
+				if (cause instanceof Error)
+					throw (Error) cause;
+				throw new IllegalStateException(cause);
+			}
+		}
+		tasks.clear();
+	}
+
 	/**
 	 * gets predecessor matrix
 	 * 
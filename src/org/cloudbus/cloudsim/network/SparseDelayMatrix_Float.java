@@ -0,0 +1,226 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.network;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A delay-topology for large graphs, which does not store the delay between every two nodes. The
+ * links are kept in adjacency arrays, and the delays from a source node to all nodes are computed by
+ * Dijkstra's algorithm the first time the source is asked for. The rows of delays of the most
+ * recently used sources are kept, up to a number of delays given at creation, so that asking the
+ * delays between the nodes mapped to simulation entities, which are usually few, costs constant
+ * time. The delays are the exact shortest paths, as with {@link DelayMatrix_Float}, up to the
+ * rounding of float sums.
+ */
+public class SparseDelayMatrix_Float extends DelayMatrix_Float {
+
+	/**
+	 * default number of delays kept, 64 MB of floats
+	 */
+	public static final int DEFAULT_CACHED_DELAYS = 1 << 24;
+
+	/**
+	 * index of the first link of each node in the link arrays, and the number of links at the end
+	 */
+	private final int[] firstLink;
+
+	/**
+	 * destination node of each link
+	 */
+	private final int[] linkDest;
+
+	/**
+	 * delay of each link
+	 */
+	private final float[] linkDelay;
+
+	/**
+	 * delays from the most recently used source nodes, in access order
+	 */
+	private final Map<Integer, float[]> rows;
+
+	/**
+	 * this constructor creates an correct initialized sparse Float-Delay-Matrix, keeping
+	 * {@link #DEFAULT_CACHED_DELAYS} delays
+	 *
+	 * @param graph the topological graph as source-information
+	 * @param directed true if an directed matrix should be computed, false otherwise
+	 */
+	public SparseDelayMatrix_Float(TopologicalGraph graph, boolean directed) {
+		this(graph, directed, DEFAULT_CACHED_DELAYS);
+	}
+
+	/**
+	 * this constructor creates an correct initialized sparse Float-Delay-Matrix
+	 *
+	 * @param graph the topological graph as source-information
+	 * @param directed true if an directed matrix should be computed, false otherwise
+	 * @param cachedDelays the number of delays kept, at least one row of delays is kept
+	 */
+	public SparseDelayMatrix_Float(TopologicalGraph graph, boolean directed, int cachedDelays) {
+		mTotalNodeNum = graph.getNumberOfNodes();
+
+		// the last link between two nodes gives their delay, and a delay of 0 means no link, as in
+		// the delay-matrix
+		Map<Long, Float> delays = new HashMap<Long, Float>();
+		Iterator<TopologicalLink> itr = graph.getLinkIterator();
+		while (itr.hasNext()) {
+			TopologicalLink edge = itr.next();
+			delays.put(key(edge.getSrcNodeID(), edge.getDestNodeID()), edge.getLinkDelay());
+			if (!directed) {
+				delays.put(key(edge.getDestNodeID(), edge.getSrcNodeID()), edge.getLinkDelay());
+			}
+		}
+
+		firstLink = new int[mTotalNodeNum + 1];
+		for (Map.Entry<Long, Float> entry : delays.entrySet()) {
+			if (isLink(entry)) {
+				firstLink[(int) (entry.getKey() / mTotalNodeNum) + 1]++;
+			}
+		}
+		for (int node = 0; node < mTotalNodeNum; node++) {
+			firstLink[node + 1] += firstLink[node];
+		}
+		linkDest = new int[firstLink[mTotalNodeNum]];
+		linkDelay = new float[linkDest.length];
+		int[] next = Arrays.copyOf(firstLink, mTotalNodeNum);
+		for (Map.Entry<Long, Float> entry : delays.entrySet()) {
+			if (isLink(entry)) {
+				int link = next[(int) (entry.getKey() / mTotalNodeNum)]++;
+				linkDest[link] = (int) (entry.getKey() % mTotalNodeNum);
+				linkDelay[link] = entry.getValue();
+			}
+		}
+
+		final int maxRows = Math.max(1, cachedDelays / Math.max(1, mTotalNodeNum));
+		rows = new LinkedHashMap<Integer, float[]>(16, 0.75f, true) {
+
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<Integer, float[]> eldest) {
+				return size() > maxRows;
+			}
+		};
+	}
+
+	private long key(int srcID, int destID) {
+		return (long) srcID * mTotalNodeNum + destID;
+	}
+
+	private boolean isLink(Map.Entry<Long, Float> entry) {
+		long key = entry.getKey();
+		return entry.getValue() != 0 && key / mTotalNodeNum != key % mTotalNodeNum;
+	}
+
+	/**
+	 * @param srcID the id of the source-node
+	 * @param destID the id of the destination-node
+	 * @return the delay-count between the given two nodes
+	 */
+	@Override
+	public float getDelay(int srcID, int destID) {
+		// check the nodeIDs against internal array-boundarys
+		if (srcID < 0 || destID < 0 || srcID >= mTotalNodeNum || destID >= mTotalNodeNum) {
+			throw new ArrayIndexOutOfBoundsException("srcID or destID is higher than highest stored node-ID!");
+		}
+		if (srcID == destID) {
+			return 0;
+		}
+
+		return getRow(srcID)[destID];
+	}
+
+	/**
+	 * @return the delays from a source node to every node
+	 */
+	private synchronized float[] getRow(int srcID) {
+		float[] row = rows.get(srcID);
+		if (row == null) {
+			row = calculateShortestPaths(srcID);
+			rows.put(srcID, row);
+		}
+		return row;
+	}
+
+	/**
+	 * Dijkstra's algorithm from a source node. The heap holds the delay bits, which order
+	 * non-negative floats as integers, above the node id; a node reached again by a shorter path is
+	 * pushed again and its older entries are skipped.
+	 */
+	private float[] calculateShortestPaths(int srcID) {
+		float[] delay = new float[mTotalNodeNum];
+		Arrays.fill(delay, Float.MAX_VALUE);
+		delay[srcID] = 0;
+
+		long[] heap = new long[16];
+		int size = 0;
+		heap[size++] = srcID;
+		while (size > 0) {
+			long top = heap[0];
+			// pop the smallest entry
+			long last = heap[--size];
+			int hole = 0;
+			while (true) {
+				int child = 2 * hole + 1;
+				if (child >= size) {
+					break;
+				}
+				if (child + 1 < size && heap[child + 1] < heap[child]) {
+					child++;
+				}
+				if (heap[child] >= last) {
+					break;
+				}
+				heap[hole] = heap[child];
+				hole = child;
+			}
+			heap[hole] = last;
+
+			int node = (int) top;
+			float nodeDelay = Float.intBitsToFloat((int) (top >>> 32));
+			if (nodeDelay > delay[node]) {
+				continue;
+			}
+			for (int link = firstLink[node]; link < firstLink[node + 1]; link++) {
+				int dest = linkDest[link];
+				float candidate = nodeDelay + linkDelay[link];
+				if (candidate < delay[dest]) {
+					delay[dest] = candidate;
+					// push the new entry
+					if (size == heap.length) {
+						heap = Arrays.copyOf(heap, size * 2);
+					}
+					long entry = ((long) Float.floatToIntBits(candidate) << 32) | dest;
+					int position = size++;
+					while (position > 0 && heap[(position - 1) / 2] > entry) {
+						heap[position] = heap[(position - 1) / 2];
+						position = (position - 1) / 2;
+					}
+					heap[position] = entry;
+				}
+			}
+		}
+		return delay;
+	}
+
+	/**
+	 * this method just creates an string-output from the internal structures
+	 */
+	@Override
+	public String toString() {
+		return "sparse distance-aware-topology with " + mTotalNodeNum + " nodes and " + linkDest.length
+				+ " links, delays kept from " + rows.size() + " nodes";
+	}
+}
@@ -8,11 +8,13 @@
 
 package org.cloudbus.cloudsim.network.datacenter;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
 
 import org.cloudbus.cloudsim.Cloudlet;
 import org.cloudbus.cloudsim.CloudletScheduler;
@@ -53,9 +55,15 @@ public class NetworkCloudletSpaceSharedScheduler extends CloudletScheduler {
 
 	// for network
 
-	public Map<Integer, List<HostPacket>> pkttosend;
+	/** Packets sent by the cloudlets of the VM and not yet taken by the host, in sending order. */
+	public List<HostPacket> pkttosend;
 
-	public Map<Integer, List<HostPacket>> pktrecv;
+	/**
+	 * Packets received by the cloudlets of the VM and not yet consumed, by sending VM, in arrival
+	 * order. A cloudlet waiting for a peer VM takes the oldest packet from it, whichever cloudlet of
+	 * the VM the packet names.
+	 */
+	public Map<Integer, Queue<HostPacket>> pktrecv;
 
 	/**
 	 * Creates a new CloudletSchedulerSpaceShared object. This method must be invoked before
@@ -72,8 +80,22 @@ public class NetworkCloudletSpaceSharedScheduler extends CloudletScheduler {
 		cloudletFinishedList = new ArrayList<ResCloudlet>();
 		usedPes = 0;
 		currentCpus = 0;
-		pkttosend = new HashMap<Integer, List<HostPacket>>();
-		pktrecv = new HashMap<Integer, List<HostPacket>>();
+		pkttosend = new ArrayList<HostPacket>();
+		pktrecv = new HashMap<Integer, Queue<HostPacket>>();
+	}
+
+	/**
+	 * Stores a packet received by a cloudlet of the VM until the cloudlet waits for it.
+	 * 
+	 * @param pkt the packet
+	 */
+	public void receivePacket(HostPacket pkt) {
+		Queue<HostPacket> pktlist = pktrecv.get(pkt.sender);
+		if (pktlist == null) {
+			pktlist = new ArrayDeque<HostPacket>();
+			pktrecv.put(pkt.sender, pktlist);
+		}
+		pktlist.add(pkt);
 	}
 
 	/**
@@ -129,25 +151,20 @@ public class NetworkCloudletSpaceSharedScheduler extends CloudletScheduler {
 					}
 				}
 				if (st.type == NetworkConstants.WAIT_RECV) {
-					List<HostPacket> pktlist = pktrecv.get(st.peer);
-					List<HostPacket> pkttoremove = new ArrayList<HostPacket>();
-					if (pktlist != null) {
-						Iterator<HostPacket> it = pktlist.iterator();
-						HostPacket pkt = null;
-						if (it.hasNext()) {
-							pkt = it.next();
-							// Asumption packet will not arrive in the same cycle
-							if (pkt.reciever == cl.getVmId()) {
-								pkt.recievetime = CloudSim.clock();
-								st.time = CloudSim.clock() - pkt.sendtime;
-								changetonextstage(cl, st);
-								pkttoremove.add(pkt);
-							}
+					// only the oldest packet from the peer is looked at, queues are removed once
+					// empty
+					Queue<HostPacket> pktlist = pktrecv.get(st.peer);
+					if (pktlist != null && pktlist.peek().reciever == cl.getVmId()) {
+						HostPacket pkt = pktlist.poll();
+						if (pktlist.isEmpty()) {
+							pktrecv.remove(st.peer);
 						}
-						pktlist.removeAll(pkttoremove);
-						// if(pkt!=null)
-						// else wait for recieving the packet
+						// Asumption packet will not arrive in the same cycle
+						pkt.recievetime = CloudSim.clock();
+						st.time = CloudSim.clock() - pkt.sendtime;
+						changetonextstage(cl, st);
 					}
+					// else wait for recieving the packet
 				}
 
 			} else {
@@ -178,38 +195,36 @@ public class NetworkCloudletSpaceSharedScheduler extends CloudletScheduler {
 
 		// update each cloudlet
 		int finished = 0;
-		List<ResCloudlet> toRemove = new ArrayList<ResCloudlet>();
-		for (ResCloudlet rcl : getCloudletExecList()) {
+		for (Iterator<ResCloudlet> it = getCloudletExecList().iterator(); it.hasNext();) {
+			ResCloudlet rcl = it.next();
 			// rounding issue...
 			if (((NetworkCloudlet) (rcl.getCloudlet())).currStagenum == NetworkConstants.FINISH) {
 				// stage is changed and packet to send
 				((NetworkCloudlet) (rcl.getCloudlet())).finishtime = CloudSim.clock();
-				toRemove.add(rcl);
+				it.remove();
 				cloudletFinish(rcl);
 				finished++;
 			}
 		}
-		getCloudletExecList().removeAll(toRemove);
 		// add all the CloudletExecList in waitingList.
 		// sort the waitinglist
 
 		// for each finished cloudlet, add a new one from the waiting list
 		if (!getCloudletWaitingList().isEmpty()) {
 			for (int i = 0; i < finished; i++) {
-				toRemove.clear();
-				for (ResCloudlet rcl : getCloudletWaitingList()) {
+				for (Iterator<ResCloudlet> it = getCloudletWaitingList().iterator(); it.hasNext();) {
+					ResCloudlet rcl = it.next();
 					if ((currentCpus - usedPes) >= rcl.getNumberOfPes()) {
 						rcl.setCloudletStatus(Cloudlet.INEXEC);
 						for (int k = 0; k < rcl.getNumberOfPes(); k++) {
 							rcl.setMachineAndPeId(0, i);
 						}
+						it.remove();
 						getCloudletExecList().add(rcl);
 						usedPes += rcl.getNumberOfPes();
-						toRemove.add(rcl);
 						break;
 					}
 				}
-				getCloudletWaitingList().removeAll(toRemove);
 			}// for(cont)
 		}
 
@@ -248,12 +263,7 @@ public class NetworkCloudletSpaceSharedScheduler extends CloudletScheduler {
 							-1,
 							cl.getCloudletId(),
 							cl.stages.get(i).vpeer);
-					List<HostPacket> pktlist = pkttosend.get(cl.getVmId());
-					if (pktlist == null) {
-						pktlist = new ArrayList<HostPacket>();
-					}
-					pktlist.add(pkt);
-					pkttosend.put(cl.getVmId(), pktlist);
+					pkttosend.add(pkt);
 
 				} else {
 					break;
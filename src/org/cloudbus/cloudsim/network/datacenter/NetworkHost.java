@@ -10,7 +10,6 @@ package org.cloudbus.cloudsim.network.datacenter;
 
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map.Entry;
 
 import org.cloudbus.cloudsim.Host;
 import org.cloudbus.cloudsim.Pe;
@@ -114,17 +113,7 @@ public class NetworkHost extends Host {
 
 			// insertthe packet in recievedlist of VM
 			Vm vm = VmList.getById(getVmList(), hs.pkt.reciever);
-			List<HostPacket> pktlist = ((NetworkCloudletSpaceSharedScheduler) vm.getCloudletScheduler()).pktrecv
-					.get(hs.pkt.sender);
-
-			if (pktlist == null) {
-				pktlist = new ArrayList<HostPacket>();
-				((NetworkCloudletSpaceSharedScheduler) vm.getCloudletScheduler()).pktrecv.put(
-						hs.pkt.sender,
-						pktlist);
-
-			}
-			pktlist.add(hs.pkt);
+			((NetworkCloudletSpaceSharedScheduler) vm.getCloudletScheduler()).receivePacket(hs.pkt);
 
 		}
 		packetrecieved.clear();
@@ -138,22 +127,21 @@ public class NetworkHost extends Host {
 	private void sendpackets() {
 
 		for (Vm vm : super.getVmList()) {
-			for (Entry<Integer, List<HostPacket>> es : ((NetworkCloudletSpaceSharedScheduler) vm
-					.getCloudletScheduler()).pkttosend.entrySet()) {
-				List<HostPacket> pktlist = es.getValue();
-				for (HostPacket pkt : pktlist) {
-					NetworkPacket hpkt = new NetworkPacket(getId(), pkt, vm.getId(), pkt.sender);
-					Vm vm2 = VmList.getById(this.getVmList(), hpkt.recievervmid);
-					if (vm2 != null) {
-						packetTosendLocal.add(hpkt);
-					} else {
-						packetTosendGlobal.add(hpkt);
-					}
+			List<HostPacket> pktlist = ((NetworkCloudletSpaceSharedScheduler) vm
+					.getCloudletScheduler()).pkttosend;
+			if (pktlist.isEmpty()) {
+				continue;
+			}
+			for (HostPacket pkt : pktlist) {
+				NetworkPacket hpkt = new NetworkPacket(getId(), pkt, vm.getId(), pkt.sender);
+				Vm vm2 = VmList.getById(this.getVmList(), hpkt.recievervmid);
+				if (vm2 != null) {
+					packetTosendLocal.add(hpkt);
+				} else {
+					packetTosendGlobal.add(hpkt);
 				}
-				pktlist.clear();
-
 			}
-
+			pktlist.clear();
 		}
 
 		boolean flag = false;
@@ -164,17 +152,7 @@ public class NetworkHost extends Host {
 			hs.pkt.recievetime = CloudSim.clock();
 			// insertthe packet in recievedlist
 			Vm vm = VmList.getById(getVmList(), hs.pkt.reciever);
-
-			List<HostPacket> pktlist = ((NetworkCloudletSpaceSharedScheduler) vm.getCloudletScheduler()).pktrecv
-					.get(hs.pkt.sender);
-			if (pktlist == null) {
-				pktlist = new ArrayList<HostPacket>();
-				((NetworkCloudletSpaceSharedScheduler) vm.getCloudletScheduler()).pktrecv.put(
-						hs.pkt.sender,
-						pktlist);
-			}
-			pktlist.add(hs.pkt);
-
+			((NetworkCloudletSpaceSharedScheduler) vm.getCloudletScheduler()).receivePacket(hs.pkt);
 		}
 		if (flag) {
 			for (Vm vm : super.getVmList()) {
@@ -65,8 +65,8 @@ public class PowerHostUtilizationHistory extends PowerHost {
 		double[] utilizationHistory = new double[PowerVm.HISTORY_LENGTH];
 		double hostMips = getTotalMips();
 		for (PowerVm vm : this.<PowerVm> getVmList()) {
-			for (int i = 0; i < vm.getUtilizationHistory().size(); i++) {
-				utilizationHistory[i] += vm.getUtilizationHistory().get(i) * vm.getMips() / hostMips;
+			for (int i = 0; i < vm.getUtilizationHistorySize(); i++) {
+				utilizationHistory[i] += vm.getUtilizationHistoryValue(i) * vm.getMips() / hostMips;
 			}
 		}
 		return MathUtil.trimZeroTail(utilizationHistory);
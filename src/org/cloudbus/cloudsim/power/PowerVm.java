@@ -8,7 +8,7 @@
 
 package org.cloudbus.cloudsim.power;
 
-import java.util.LinkedList;
+import java.util.AbstractList;
 import java.util.List;
 
 import org.cloudbus.cloudsim.CloudletScheduler;
@@ -36,8 +36,31 @@ public class PowerVm extends Vm {
 	/** The Constant HISTORY_LENGTH. */
 	public static final int HISTORY_LENGTH = 30;
 
-	/** The utilization history. */
-	private final List<Double> utilizationHistory = new LinkedList<Double>();
+	/** The utilization history, a ring buffer of the last HISTORY_LENGTH values. */
+	private final double[] utilizationHistory = new double[HISTORY_LENGTH];
+
+	/** The position of the most recent value in the utilization history. */
+	private int utilizationHistoryHead;
+
+	/** The number of values in the utilization history. */
+	private int utilizationHistorySize;
+
+	/** Read-only view of the utilization history, the most recent value first. */
+	private final List<Double> utilizationHistoryView = new AbstractList<Double>() {
+
+		@Override
+		public Double get(int index) {
+			if (index < 0 || index >= utilizationHistorySize) {
+				throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + utilizationHistorySize);
+			}
+			return getUtilizationHistoryValue(index);
+		}
+
+		@Override
+		public int size() {
+			return utilizationHistorySize;
+		}
+	};
 
 	/** The previous time. */
 	private double previousTime;
@@ -108,15 +131,12 @@ public class PowerVm extends Vm {
 	 */
 	public double getUtilizationMad() {
 		double mad = 0;
-		if (!getUtilizationHistory().isEmpty()) {
-			int n = HISTORY_LENGTH;
-			if (HISTORY_LENGTH > getUtilizationHistory().size()) {
-				n = getUtilizationHistory().size();
-			}
+		if (getUtilizationHistorySize() > 0) {
+			int n = getUtilizationHistorySize();
 			double median = MathUtil.median(getUtilizationHistory());
 			double[] deviationSum = new double[n];
 			for (int i = 0; i < n; i++) {
-				deviationSum[i] = Math.abs(median - getUtilizationHistory().get(i));
+				deviationSum[i] = Math.abs(median - getUtilizationHistoryValue(i));
 			}
 			mad = MathUtil.median(deviationSum);
 		}
@@ -130,13 +150,10 @@ public class PowerVm extends Vm {
 	 */
 	public double getUtilizationMean() {
 		double mean = 0;
-		if (!getUtilizationHistory().isEmpty()) {
-			int n = HISTORY_LENGTH;
-			if (HISTORY_LENGTH > getUtilizationHistory().size()) {
-				n = getUtilizationHistory().size();
-			}
+		if (getUtilizationHistorySize() > 0) {
+			int n = getUtilizationHistorySize();
 			for (int i = 0; i < n; i++) {
-				mean += getUtilizationHistory().get(i);
+				mean += getUtilizationHistoryValue(i);
 			}
 			mean /= n;
 		}
@@ -151,13 +168,10 @@ public class PowerVm extends Vm {
 	public double getUtilizationVariance() {
 		double mean = getUtilizationMean();
 		double variance = 0;
-		if (!getUtilizationHistory().isEmpty()) {
-			int n = HISTORY_LENGTH;
-			if (HISTORY_LENGTH > getUtilizationHistory().size()) {
-				n = getUtilizationHistory().size();
-			}
+		if (getUtilizationHistorySize() > 0) {
+			int n = getUtilizationHistorySize();
 			for (int i = 0; i < n; i++) {
-				double tmp = getUtilizationHistory().get(i) * getMips() - mean;
+				double tmp = getUtilizationHistoryValue(i) * getMips() - mean;
 				variance += tmp * tmp;
 			}
 			variance /= n;
@@ -171,19 +185,39 @@ public class PowerVm extends Vm {
 	 * @param utilization the utilization
 	 */
 	public void addUtilizationHistoryValue(final double utilization) {
-		getUtilizationHistory().add(0, utilization);
-		if (getUtilizationHistory().size() > HISTORY_LENGTH) {
-			getUtilizationHistory().remove(HISTORY_LENGTH);
+		utilizationHistoryHead = (utilizationHistoryHead + HISTORY_LENGTH - 1) % HISTORY_LENGTH;
+		utilizationHistory[utilizationHistoryHead] = utilization;
+		if (utilizationHistorySize < HISTORY_LENGTH) {
+			utilizationHistorySize++;
 		}
 	}
 
 	/**
-	 * Gets the utilization history.
+	 * Gets the utilization history, the most recent value first. The list is a read-only view.
 	 * 
 	 * @return the utilization history
 	 */
 	protected List<Double> getUtilizationHistory() {
-		return utilizationHistory;
+		return utilizationHistoryView;
+	}
+
+	/**
+	 * Gets the number of values in the utilization history.
+	 * 
+	 * @return the utilization history size
+	 */
+	protected int getUtilizationHistorySize() {
+		return utilizationHistorySize;
+	}
+
+	/**
+	 * Gets a value of the utilization history without boxing it.
+	 * 
+	 * @param index the index, 0 for the most recent value
+	 * @return the utilization history value
+	 */
+	protected double getUtilizationHistoryValue(final int index) {
+		return utilizationHistory[(utilizationHistoryHead + index) % HISTORY_LENGTH];
 	}
 
 	/**
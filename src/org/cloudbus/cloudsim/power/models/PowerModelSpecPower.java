@@ -8,6 +8,8 @@
 
 package org.cloudbus.cloudsim.power.models;
 
+import java.util.Arrays;
+
 /**
  * The abstract class of power models created based on data from SPECpower benchmark:
  * http://www.spec.org/power_ssj2008/
@@ -25,6 +27,16 @@ package org.cloudbus.cloudsim.power.models;
  */
 public abstract class PowerModelSpecPower implements PowerModel {
 
+	/** The power at each whole percent of utilization, NaN until computed. */
+	private final double[] powerAtPercent = new double[101];
+
+	/**
+	 * Instantiates a new power model.
+	 */
+	public PowerModelSpecPower() {
+		Arrays.fill(powerAtPercent, Double.NaN);
+	}
+
 	/*
 	 * (non-Javadoc)
 	 * @see org.cloudbus.cloudsim.power.models.PowerModel#getPower(double)
@@ -34,6 +46,27 @@ public abstract class PowerModelSpecPower implements PowerModel {
 		if (utilization < 0 || utilization > 1) {
 			throw new IllegalArgumentException("Utilization value must be between 0 and 1");
 		}
+		// hosts mostly run at a few utilization levels, the power of whole percents is kept
+		double percent = utilization * 100;
+		int level = (int) percent;
+		if (level == percent) {
+			double power = powerAtPercent[level];
+			if (Double.isNaN(power)) {
+				power = computePower(utilization);
+				powerAtPercent[level] = power;
+			}
+			return power;
+		}
+		return computePower(utilization);
+	}
+
+	/**
+	 * Computes the power by linear interpolation of the power data.
+	 * 
+	 * @param utilization the utilization
+	 * @return the power
+	 */
+	private double computePower(double utilization) {
 		if (utilization % 0.1 == 0) {
 			return getPowerData((int) (utilization * 10));
 		}
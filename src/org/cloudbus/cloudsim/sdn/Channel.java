@@ -8,6 +8,7 @@
 
 package org.cloudbus.cloudsim.sdn;
 
+import java.util.Collection;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -81,6 +82,25 @@ public class Channel {
 		nodes.get(nodes.size()-1).updateNetworkUtilization();
 	}
 	
+	/**
+	 * Collects the channels passing through any link of this channel in the same direction. Only
+	 * their bandwidth depends on the channels of these links, so they are the only ones to adjust
+	 * when this channel is initialized or terminated.
+	 * 
+	 * @param dedicated collects the dedicated channels
+	 * @param shared collects the default channels
+	 */
+	void collectChannelsAlongLinks(Collection<Channel> dedicated, Collection<Channel> shared) {
+		for(int i=0; i<nodes.size()-1; i++) {
+			for(Channel ch:links.get(i).getChannels(nodes.get(i))) {
+				if(ch.chId == -1)
+					shared.add(ch);
+				else
+					dedicated.add(ch);
+			}
+		}
+	}
+	
 	private double getLowestSharedBandwidth() {
 		// Get the lowest bandwidth along links in the channel
 		double lowestSharedBw = Double.POSITIVE_INFINITY;
@@ -294,6 +314,14 @@ public class Channel {
 		inTransmission.remove(transmission);
 	}
 
+	/**
+	 * @return true if some Packages finished their transmission since
+	 *         they were last retrieved
+	 */
+	public boolean hasArrivedPackages(){
+		return !completed.isEmpty();
+	}
+	
 	/**
 	 * @return list of Packages whose transmission finished, or empty
 	 *         list if no package arrived.
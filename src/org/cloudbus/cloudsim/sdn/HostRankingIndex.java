@@ -0,0 +1,69 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2015, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.sdn;
+
+import java.util.Comparator;
+import java.util.TreeSet;
+
+/**
+ * Ranks the hosts of a VM allocation policy by a metric of their free resources, so that the policy
+ * can try the hosts from the best to the worst without scanning all of them for every VM.
+ * Hosts with equal metrics are ranked by their index in the host list, as a linear scan keeping the
+ * first best host does. The policy must update the metric of a host whenever its free resources change.
+ */
+public class HostRankingIndex {
+	private final double[] metrics;
+	private final TreeSet<Integer> ranking;
+
+	/**
+	 * @param numHosts number of hosts, all of them starting with metric 0
+	 * @param highestFirst true to rank the hosts by decreasing metric, false by increasing metric
+	 */
+	public HostRankingIndex(int numHosts, final boolean highestFirst) {
+		this.metrics = new double[numHosts];
+		this.ranking = new TreeSet<Integer>(new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				double ma = metrics[a];
+				double mb = metrics[b];
+				if(ma != mb) {
+					if(highestFirst)
+						return ma > mb ? -1 : 1;
+					return ma < mb ? -1 : 1;
+				}
+				return a.compareTo(b);
+			}
+		});
+		for(int i=0; i<numHosts; i++) {
+			ranking.add(i);
+		}
+	}
+
+	/**
+	 * Changes the metric of a host, in O(log hosts).
+	 *
+	 * @param idx index of the host
+	 * @param metric new metric of the host
+	 */
+	public void update(int idx, double metric) {
+		if(metrics[idx] == metric)
+			return;
+		ranking.remove(idx);
+		metrics[idx] = metric;
+		ranking.add(idx);
+	}
+
+	/**
+	 * @return the indexes of the hosts from the best to the worst ranked. The metrics must not
+	 *         be updated while iterating.
+	 */
+	public Iterable<Integer> getHosts() {
+		return ranking;
+	}
+}
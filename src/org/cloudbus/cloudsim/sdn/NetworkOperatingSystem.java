@@ -16,9 +16,11 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.Hashtable;
 import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.cloudbus.cloudsim.CloudletSchedulerTimeShared;
 import org.cloudbus.cloudsim.Host;
@@ -30,7 +32,6 @@ import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.CloudSimTags;
 import org.cloudbus.cloudsim.core.SimEntity;
 import org.cloudbus.cloudsim.core.SimEvent;
-import org.cloudbus.cloudsim.core.predicates.PredicateType;
 import org.cloudbus.cloudsim.provisioners.BwProvisioner;
 import org.cloudbus.cloudsim.provisioners.BwProvisionerSimple;
 import org.cloudbus.cloudsim.provisioners.PeProvisionerSimple;
@@ -58,6 +59,9 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 	Hashtable<Package,Node> pkgTable;
 	
 	Hashtable<String, Channel> channelTable;
+	
+	// Pending SDN_INTERNAL_PACKAGE_PROCESS event, cancelled when the next finish time changes
+	private SimEvent internalEvent;
 
 	List<Host> hosts;
 	protected List<SDNHost> sdnhosts;
@@ -131,6 +135,8 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 		
 		switch(tag){
 			case Constants.SDN_INTERNAL_PACKAGE_PROCESS: 
+				if(ev == internalEvent)
+					internalEvent = null;
 				internalPackageProcess(); 
 				break;
 			case CloudSimTags.VM_CREATE_ACK:
@@ -210,14 +216,17 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 	}
 	
 	private void sendInternalEvent() {
-		CloudSim.cancelAll(getId(), new PredicateType(Constants.SDN_INTERNAL_PACKAGE_PROCESS));
+		if(internalEvent != null) {
+			CloudSim.cancelEvent(internalEvent);
+			internalEvent = null;
+		}
 		
 		if(channelTable.size() != 0) {
 			// More to process. Send event again
 			double delay = this.nextFinishTime();
 			Log.printLine(CloudSim.clock() + ": " + getName() + ".sendInternalEvent(): next finish time: "+ delay);
 			
-			send(this.getId(), delay, Constants.SDN_INTERNAL_PACKAGE_PROCESS);
+			internalEvent = CloudSim.sendCancellable(this.getId(), this.getId(), delay, Constants.SDN_INTERNAL_PACKAGE_PROCESS, null);
 		}
 	}
 	
@@ -246,13 +255,14 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 		for(Channel ch:channelTable.values()){
 			boolean isCompleted = ch.updatePackageProcessing();
 			needSendEvent = needSendEvent || isCompleted;
-			//completeChannels.add(ch.getArrivedPackages());
-			completeChannels.add(ch);
+			// Only channels with arrived packages can become empty
+			if(ch.hasArrivedPackages())
+				completeChannels.add(ch);
 		}
 		
 		if(completeChannels.size() != 0) {
 			processCompletePackages(completeChannels);
-			updateChannel();
+			updateChannel(completeChannels);
 		}
 
 		return needSendEvent;
@@ -296,28 +306,43 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 		//System.err.println("NOS.addChannel:"+getKey(src, dst, chId));
 		this.channelTable.put(getKey(src, dst, chId), ch);
 		ch.initialize();
-		adjustAllChannels();
+		adjustChannels(ch);
 	}
 	
 	private Channel removeChannel(String key) {
 		//System.err.println("NOS.removeChannel:"+key);
 		Channel ch = this.channelTable.remove(key);
 		ch.terminate();
-		adjustAllChannels();
+		adjustChannels(ch);
 		return ch;
 	}
 	
-	private void adjustAllChannels() {
-		for(Channel ch:this.channelTable.values()) {
-			if(ch.adjustDedicatedBandwidthAlongLink()) {
-				// Channel BW is changed. send event.
+	/**
+	 * Adjusts the bandwidth of the channels affected by adding or removing a channel. Dedicated
+	 * channels only depend on the channels of their own links, and default channels on the channels
+	 * of their own links and the bandwidth of the dedicated ones, so the channels sharing no link
+	 * direction with the changed channel, or with a dedicated channel whose bandwidth changes, keep
+	 * their bandwidth.
+	 */
+	private void adjustChannels(Channel changed) {
+		Set<Channel> dedicated = new LinkedHashSet<Channel>();
+		Set<Channel> shared = new LinkedHashSet<Channel>();
+		changed.collectChannelsAlongLinks(dedicated, shared);
+		
+		List<Channel> changedDedicated = new ArrayList<Channel>();
+		for(Channel ch:dedicated) {
+			double previousBw = ch.getAllocatedBandwidth();
+			ch.adjustDedicatedBandwidthAlongLink();
+			if(ch.getAllocatedBandwidth() != previousBw) {
+				changedDedicated.add(ch);
 			}
 		}
+		for(Channel ch:changedDedicated) {
+			ch.collectChannelsAlongLinks(dedicated, shared);
+		}
 		
-		for(Channel ch:this.channelTable.values()) {
-			if(ch.adjustSharedBandwidthAlongLink()) {
-				// Channel BW is changed. send event.
-			}
+		for(Channel ch:shared) {
+			ch.adjustSharedBandwidthAlongLink();
 		}
 	}
 
@@ -369,13 +394,12 @@ public abstract class NetworkOperatingSystem extends SimEntity {
 		return channel;
 	}
 	
-	private void updateChannel() {
+	private void updateChannel(List<Channel> channels) {
 		List<String> removeCh = new ArrayList<String>();  
-		for(String key:this.channelTable.keySet()) {
-			Channel ch = this.channelTable.get(key);
+		for(Channel ch:channels) {
 			if(ch.getActiveTransmissionNum() == 0) {
 				// No more job in channel. Delete
-				removeCh.add(key);
+				removeCh.add(getKey(ch.getSrcId(), ch.getDstId(), ch.getChId()));
 			}
 		}
 		
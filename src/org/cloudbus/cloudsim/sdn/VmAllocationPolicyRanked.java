@@ -0,0 +1,86 @@
+/*
+ * Title:        CloudSimSDN
+ * Description:  SDN extension for CloudSim
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2015, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.sdn;
+
+import java.util.List;
+
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.VmAllocationPolicy;
+
+/**
+ * VM allocation policy trying the hosts in the order of a {@link HostRankingIndex}, and counting
+ * the hosts running VMs. Subclasses call {@link #updateHost(int)} whenever the free resources of a
+ * host change, including once for every host after their free resources are initialised.
+ */
+public abstract class VmAllocationPolicyRanked extends VmAllocationPolicy {
+
+	/** Hosts ranked by {@link #getHostMetric(int)}, built on first use */
+	private HostRankingIndex hostRanking;
+	/** Whether each host runs VMs, and the number of such hosts */
+	private final boolean[] hostUsed;
+	private int numHostsUsed;
+
+	public VmAllocationPolicyRanked(List<? extends Host> list) {
+		super(list);
+		hostUsed = new boolean[getHostList().size()];
+	}
+
+	/**
+	 * Metric of the free resources of a host. Hosts are tried by increasing metric, or by
+	 * decreasing metric if {@link #isLeastFullFirst()}.
+	 *
+	 * @param idx index of the host
+	 * @return the metric
+	 */
+	protected abstract double getHostMetric(int idx);
+
+	/**
+	 * @param idx index of the host
+	 * @return whether the host runs VMs
+	 */
+	protected abstract boolean isHostUsed(int idx);
+
+	protected boolean isLeastFullFirst() {
+		return false;
+	}
+
+	protected HostRankingIndex getHostRanking() {
+		if (hostRanking == null) {
+			hostRanking = new HostRankingIndex(getHostList().size(), isLeastFullFirst());
+			for (int i = 0; i < getHostList().size(); i++) {
+				hostRanking.update(i, getHostMetric(i));
+			}
+		}
+		return hostRanking;
+	}
+
+	/**
+	 * Updates the ranking of a host and the number of used hosts after the free resources
+	 * of the host changed.
+	 *
+	 * @param idx index of the host
+	 */
+	protected void updateHost(int idx) {
+		if (hostRanking != null) {
+			hostRanking.update(idx, getHostMetric(idx));
+		}
+		boolean used = isHostUsed(idx);
+		if (used != hostUsed[idx]) {
+			hostUsed[idx] = used;
+			numHostsUsed += used ? 1 : -1;
+		}
+	}
+
+	/**
+	 * @return the number of hosts running VMs
+	 */
+	protected int getNumHostsUsed() {
+		return numHostsUsed;
+	}
+}
@@ -10,6 +10,18 @@ public class VmAllocationPolicyMipsLeastFullFirst extends VmAllocationPolicyComb
 	public VmAllocationPolicyMipsLeastFullFirst(List<? extends Host> list) {
 		super(list);
 	}
+	
+	@Override
+	protected double getHostMetric(int idx) {
+		double mipsFreePercent = (double)getFreeMips().get(idx) / this.hostTotalMips; 
+		
+		return mipsFreePercent;
+	}
+	
+	@Override
+	protected boolean isLeastFullFirst() {
+		return true;
+	}
 
 	/**
 	 * Allocates a host for a given VM.
@@ -25,8 +37,6 @@ public class VmAllocationPolicyMipsLeastFullFirst extends VmAllocationPolicyComb
 			return false;
 		}
 		
-		int numHosts = getHostList().size();
-
 		// 1. Find/Order the best host for this VM by comparing a metric
 		int requiredPes = vm.getNumberOfPes();
 		double requiredMips = vm.getCurrentRequestedTotalMips();
@@ -34,33 +44,8 @@ public class VmAllocationPolicyMipsLeastFullFirst extends VmAllocationPolicyComb
 
 		boolean result = false;
 		
-		double[] freeResources = new double[numHosts];
-		for (int i = 0; i < numHosts; i++) {
-			double mipsFreePercent = (double)getFreeMips().get(i) / hostTotalMips; 
-			//double bwFreePercent = (double)getFreeBw().get(i) / hostTotalBw;
-			
-			freeResources[i] = mipsFreePercent;
-		}
-
-		for(int tries = 0; tries < numHosts; tries++) {// we still trying until we find a host or until we try all of them
-			double moreFree = Double.NEGATIVE_INFINITY;
-			int idx = -1;
-
-			// we want the host with less pes in use
-			for (int i = 0; i < numHosts; i++) {
-				if (freeResources[i] > moreFree) {
-					moreFree = freeResources[i];
-					idx = i;
-				}
-			}
-			
-			if(idx==-1) {
-				System.err.println("Cannot assign the VM to any host:"+tries+"/"+numHosts);
-				return false;
-			}
-			
-			freeResources[idx] = Double.NEGATIVE_INFINITY;
-			
+		// Try the hosts from the best ranked one until one can hold the VM
+		for(int idx:getHostRanking().getHosts()) {
 			Host host = getHostList().get(idx);
 			
 			// Check whether the host can hold this VM or not.
@@ -83,6 +68,7 @@ public class VmAllocationPolicyMipsLeastFullFirst extends VmAllocationPolicyComb
 
 				getUsedBw().put(vm.getUid(), (long) requiredBw);
 				getFreeBw().set(idx,  (long) (getFreeBw().get(idx) - requiredBw));
+				updateHost(idx);
 				break;
 			} 
 		}
@@ -10,6 +10,13 @@ public class VmAllocationPolicyMipsMostFullFirst extends VmAllocationPolicyCombi
 	public VmAllocationPolicyMipsMostFullFirst(List<? extends Host> list) {
 		super(list);
 	}
+	
+	@Override
+	protected double getHostMetric(int idx) {
+		double mipsFreePercent = (double)getFreeMips().get(idx) / this.hostTotalMips; 
+		
+		return mipsFreePercent;
+	}
 
 	/**
 	 * Allocates a host for a given VM.
@@ -25,8 +32,6 @@ public class VmAllocationPolicyMipsMostFullFirst extends VmAllocationPolicyCombi
 			return false;
 		}
 		
-		int numHosts = getHostList().size();
-
 		// 1. Find/Order the best host for this VM by comparing a metric
 		int requiredPes = vm.getNumberOfPes();
 		double requiredMips = vm.getCurrentRequestedTotalMips();
@@ -34,25 +39,8 @@ public class VmAllocationPolicyMipsMostFullFirst extends VmAllocationPolicyCombi
 
 		boolean result = false;
 		
-		double[] freeResources = new double[numHosts];
-		for (int i = 0; i < numHosts; i++) {
-			double mipsFreePercent = (double)getFreeMips().get(i) / this.hostTotalMips; 
-			
-			freeResources[i] = mipsFreePercent;
-		}
-
-		for(int tries = 0; result == false && tries < numHosts; tries++) {// we still trying until we find a host or until we try all of them
-			double lessFree = Double.POSITIVE_INFINITY;
-			int idx = -1;
-
-			// we want the host with less pes in use
-			for (int i = 0; i < numHosts; i++) {
-				if (freeResources[i] < lessFree) {
-					lessFree = freeResources[i];
-					idx = i;
-				}
-			}
-			freeResources[idx] = Double.POSITIVE_INFINITY;
+		// Try the hosts from the best ranked one until one can hold the VM
+		for(int idx:getHostRanking().getHosts()) {
 			Host host = getHostList().get(idx);
 			
 			// Check whether the host can hold this VM or not.
@@ -75,6 +63,7 @@ public class VmAllocationPolicyMipsMostFullFirst extends VmAllocationPolicyCombi
 
 				getUsedBw().put(vm.getUid(), (long) requiredBw);
 				getFreeBw().set(idx,  (long) (getFreeBw().get(idx) - requiredBw));
+				updateHost(idx);
 
 				break;
 			}
@@ -26,6 +26,11 @@ public class VmAllocationPolicyCombinedLeastFullFirst extends VmAllocationPolicy
 	public VmAllocationPolicyCombinedLeastFullFirst(List<? extends Host> list) {
 		super(list);
 	}
+	
+	@Override
+	protected boolean isLeastFullFirst() {
+		return true;
+	}
 
 	/**
 	 * Allocates a host for a given VM.
@@ -50,33 +55,8 @@ public class VmAllocationPolicyCombinedLeastFullFirst extends VmAllocationPolicy
 
 		boolean result = false;
 		
-		double[] freeResources = new double[numHosts];
-		for (int i = 0; i < numHosts; i++) {
-			double mipsFreePercent = (double)getFreeMips().get(i) / hostTotalMips; 
-			double bwFreePercent = (double)getFreeBw().get(i) / hostTotalBw;
-			
-			freeResources[i] = convertWeightedMetric(mipsFreePercent, bwFreePercent);
-		}
-
-		for(int tries = 0; tries < numHosts; tries++) {// we still trying until we find a host or until we try all of them
-			double moreFree = Double.NEGATIVE_INFINITY;
-			int idx = -1;
-
-			// we want the host with less pes in use
-			for (int i = 0; i < numHosts; i++) {
-				if (freeResources[i] > moreFree) {
-					moreFree = freeResources[i];
-					idx = i;
-				}
-			}
-			
-			if(idx==-1) {
-				System.err.println("Cannot assign the VM to any host:"+tries+"/"+numHosts);
-				return false;
-			}
-			
-			freeResources[idx] = Double.NEGATIVE_INFINITY;
-			
+		// Try the hosts from the best ranked one until one can hold the VM
+		for(int idx:getHostRanking().getHosts()) {
 			Host host = getHostList().get(idx);
 
 			// Check whether the host can hold this VM or not.
@@ -103,6 +83,7 @@ public class VmAllocationPolicyCombinedLeastFullFirst extends VmAllocationPolicy
 
 				getUsedBw().put(vm.getUid(), (long) requiredBw);
 				getFreeBw().set(idx,  (long) (getFreeBw().get(idx) - requiredBw));
+				updateHost(idx);
 				break;
 			} 
 		}
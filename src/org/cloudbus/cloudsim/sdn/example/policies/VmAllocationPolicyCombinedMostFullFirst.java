@@ -15,8 +15,8 @@ import java.util.Map;
 import org.cloudbus.cloudsim.Host;
 import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.Vm;
-import org.cloudbus.cloudsim.VmAllocationPolicy;
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.sdn.VmAllocationPolicyRanked;
 import org.cloudbus.cloudsim.sdn.power.PowerUtilizationMaxHostInterface;
 
 /**
@@ -27,7 +27,7 @@ import org.cloudbus.cloudsim.sdn.power.PowerUtilizationMaxHostInterface;
  * @author Jungmin Son
  * @since CloudSimSDN 1.0
  */
-public class VmAllocationPolicyCombinedMostFullFirst extends VmAllocationPolicy implements PowerUtilizationMaxHostInterface {
+public class VmAllocationPolicyCombinedMostFullFirst extends VmAllocationPolicyRanked implements PowerUtilizationMaxHostInterface {
 
 	protected final double hostTotalMips;
 	protected final double hostTotalBw;
@@ -69,6 +69,10 @@ public class VmAllocationPolicyCombinedMostFullFirst extends VmAllocationPolicy
 		hostTotalMips = getHostList().get(0).getTotalMips();
 		hostTotalBw =  getHostList().get(0).getBw();
 		hostTotalPes =  getHostList().get(0).getNumberOfPes();
+		
+		for (int i = 0; i < getHostList().size(); i++) {
+			updateHost(i);
+		}
 
 		setVmTable(new HashMap<String, Host>());
 		setUsedPes(new HashMap<String, Integer>());
@@ -80,6 +84,20 @@ public class VmAllocationPolicyCombinedMostFullFirst extends VmAllocationPolicy
 		double ret = mipsPercent * bwPercent;
 		return ret;
 	}
+	
+	@Override
+	protected double getHostMetric(int idx) {
+		double mipsFreePercent = (double)getFreeMips().get(idx) / this.hostTotalMips; 
+		double bwFreePercent = (double)getFreeBw().get(idx) / this.hostTotalBw;
+		
+		return this.convertWeightedMetric(mipsFreePercent, bwFreePercent);
+	}
+	
+	@Override
+	protected boolean isHostUsed(int idx) {
+		return getFreePes().get(idx) < hostTotalPes;
+	}
+
 	/**
 	 * Allocates a host for a given VM.
 	 * 
@@ -94,8 +112,6 @@ public class VmAllocationPolicyCombinedMostFullFirst extends VmAllocationPolicy
 			return false;
 		}
 		
-		int numHosts = getHostList().size();
-
 		// 1. Find/Order the best host for this VM by comparing a metric
 		int requiredPes = vm.getNumberOfPes();
 		double requiredMips = vm.getCurrentRequestedTotalMips();
@@ -103,26 +119,8 @@ public class VmAllocationPolicyCombinedMostFullFirst extends VmAllocationPolicy
 
 		boolean result = false;
 		
-		double[] freeResources = new double[numHosts];
-		for (int i = 0; i < numHosts; i++) {
-			double mipsFreePercent = (double)getFreeMips().get(i) / this.hostTotalMips; 
-			double bwFreePercent = (double)getFreeBw().get(i) / this.hostTotalBw;
-			
-			freeResources[i] = this.convertWeightedMetric(mipsFreePercent, bwFreePercent);
-		}
-
-		for(int tries = 0; result == false && tries < numHosts; tries++) {// we still trying until we find a host or until we try all of them
-			double lessFree = Double.POSITIVE_INFINITY;
-			int idx = -1;
-
-			// we want the host with less pes in use
-			for (int i = 0; i < numHosts; i++) {
-				if (freeResources[i] < lessFree) {
-					lessFree = freeResources[i];
-					idx = i;
-				}
-			}
-			freeResources[idx] = Double.POSITIVE_INFINITY;
+		// Try the hosts from the best ranked one until one can hold the VM
+		for(int idx:getHostRanking().getHosts()) {
 			Host host = getHostList().get(idx);
 			
 
@@ -150,6 +148,7 @@ public class VmAllocationPolicyCombinedMostFullFirst extends VmAllocationPolicy
 
 				getUsedBw().put(vm.getUid(), (long) requiredBw);
 				getFreeBw().set(idx,  (long) (getFreeBw().get(idx) - requiredBw));
+				updateHost(idx);
 
 				break;
 			}
@@ -164,16 +163,9 @@ public class VmAllocationPolicyCombinedMostFullFirst extends VmAllocationPolicy
 	
 	protected int maxNumHostsUsed=0;
 	public void logMaxNumHostsUsed() {
-		// Get how many are used
-		int numHostsUsed=0;
-		for(int freePes:getFreePes()) {
-			if(freePes < hostTotalPes) {
-				numHostsUsed++;
-			}
-		}
-		if(maxNumHostsUsed < numHostsUsed)
-			maxNumHostsUsed = numHostsUsed;
-		Log.printLine("Number of online hosts:"+numHostsUsed + ", max was ="+maxNumHostsUsed);
+		if(maxNumHostsUsed < getNumHostsUsed())
+			maxNumHostsUsed = getNumHostsUsed();
+		Log.printLine("Number of online hosts:"+getNumHostsUsed() + ", max was ="+maxNumHostsUsed);
 	}
 	public int getMaxNumHostsUsed() { return maxNumHostsUsed;}
 
@@ -199,6 +191,7 @@ public class VmAllocationPolicyCombinedMostFullFirst extends VmAllocationPolicy
 			
 			Long bw = getUsedBw().remove(vm.getUid());
 			getFreeBw().set(idx, getFreeBw().get(idx) + bw);
+			updateHost(idx);
 		}
 	}
 
@@ -333,6 +326,7 @@ public class VmAllocationPolicyCombinedMostFullFirst extends VmAllocationPolicy
 			int idx = getHostList().indexOf(host);
 			getUsedPes().put(vm.getUid(), requiredPes);
 			getFreePes().set(idx, getFreePes().get(idx) - requiredPes);
+			updateHost(idx);
 
 			Log.formatLine(
 					"%.2f: VM #" + vm.getId() + " has been allocated to the host #" + host.getId(),
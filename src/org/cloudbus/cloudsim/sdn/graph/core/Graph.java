@@ -17,6 +17,8 @@ public class Graph implements Serializable {
 	
 	private Map<Node, List<Edge>> adjacencyList;
 
+	/** Number of changes made through this class, for views caching what they derive from the graph */
+	private long version;
 
 	public Graph() {
 		// when creating a new graph ensure that a new adjacencyList is created
@@ -29,14 +31,20 @@ public class Graph implements Serializable {
 
 	public void setAdjacencyList(Map<Node, List<Edge>> adjacencyList) {
 		this.adjacencyList = adjacencyList;
+		version++;
 	}
 
 	public Map<Node, List<Edge>> getAdjacencyList() {
 		return adjacencyList;
 	}
 
+	public long getVersion() {
+		return version;
+	}
+
 	/** Adds a given edge to the adjacency list. If the base node is not yet part of the adjacency list a new entry is added */
 	public void addEdge(Node key, Edge value) {
+		version++;
 
 		if (adjacencyList.containsKey(key)) {
 			if (adjacencyList.get(key) == null) {
@@ -89,6 +97,7 @@ public class Graph implements Serializable {
 	}
 
 	public void removeEdge(Node key, Edge value) {
+		version++;
 
 		if (!adjacencyList.containsKey(key)) {
 			throw new IllegalArgumentException("The adjacency list does not contain a node for the given key: " + key);
@@ -120,6 +129,7 @@ public class Graph implements Serializable {
 		}
 
 		adjacencyList.remove(key);
+		version++;
 
 		// clean up all edges
 		for (Entry<Node, List<Edge>> entry : adjacencyList.entrySet()) {
@@ -137,6 +147,7 @@ public class Graph implements Serializable {
 	
 	public void clearGraph(){
 		adjacencyList.clear();
+		version++;
 	}
 	
 	public String toJsonString(){
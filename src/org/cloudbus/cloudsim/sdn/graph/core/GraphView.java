@@ -5,13 +5,15 @@ import java.awt.FontMetrics;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Image;
+import java.awt.Rectangle;
 import java.awt.Toolkit;
 import java.awt.geom.AffineTransform;
-import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
 import javax.swing.BoxLayout;
 import javax.swing.ImageIcon;
@@ -33,6 +35,14 @@ public class GraphView extends JPanel {
 	private Image imgHost;
 	private Image imgSwitch;
 	private Image imgVm;
+
+	/** Last placement of the nodes and what it was computed for */
+	private Map<Node, Coordinates> layout;
+	private Graph layoutGraph;
+	private long layoutVersion;
+	private int layoutWidth;
+	private int layoutHeight;
+	private int layoutRadius;
 	
 	public GraphView(final Graph graph) {
 
@@ -55,33 +65,23 @@ public class GraphView extends JPanel {
 					return;
 				}
 
-				Map<Node, Coordinates> coordForNodes = new HashMap<Node, Coordinates>();
-
-				int offsetX = canvas.getWidth() / 2;
-				int offsetY = canvas.getHeight() / 2;
-				//System.out.println("sys:"+canvas.getWidth() + ":" + canvas.getHeight());
-
 				int height = 40;
-				int width = 40;
-				double angle = 2 * Math.PI / graph.getAdjacencyList().keySet().size();
-				int radius = offsetY / 2 - 20;
 				FontMetrics f = g.getFontMetrics();
 				int nodeHeight = Math.max(height, f.getHeight());
 				int nodeWidth = nodeHeight;
 
-				int i = 0;
-				for (Node node : graph.getAdjacencyList().keySet()) {
-					// calculate coordinates
-					int x = Double.valueOf(offsetX + Math.cos(i * angle) * radius).intValue();
-					int y = Double.valueOf(offsetY + Math.sin(i * angle) * radius).intValue();
-					//System.out.println(i+":"+x+"-"+y);
-
-					coordForNodes.put(node, new Coordinates(x, y));
-					node.setCoordinate(new Coordinates(x, y));
-					i++;
+				Map<Node, Coordinates> coordForNodes = getCoordForNodes();
+				Rectangle clip = g.getClipBounds();
+				if (clip == null) {
+					clip = new Rectangle(0, 0, canvas.getWidth(), canvas.getHeight());
 				}
+				// nodes closer than their icons are drawn as dots
+				int nodeCount = coordForNodes.size();
+				boolean dots = nodeCount > 0 && 2 * Math.PI * layoutRadius / nodeCount < nodeWidth;
+				Rectangle nodeClip = new Rectangle(clip);
+				nodeClip.grow(nodeWidth / 2, nodeHeight / 2);
 
-				Map<Node, List<Node>> drawnList = new HashMap<Node, List<Node>>();
+				Map<Node, Set<Node>> drawnList = new HashMap<Node, Set<Node>>();
 				// draw edges first
 				// TODO: we draw one edge two times at the moment because we have an undirected graph. But this
 				// shouldn`t matter because we have the same edge costs and no one will see in. Perhaps refactor later.
@@ -97,6 +97,9 @@ public class GraphView extends JPanel {
 						}
 
 						Coordinates targetNode = coordForNodes.get(edge.getNode());
+						if (!clip.intersectsLine(startNode.getX(), startNode.getY(), targetNode.getX(), targetNode.getY())) {
+							continue;
+						}
 						g.setColor(Color.RED);
 						g.drawLine(startNode.getX(), startNode.getY(), targetNode.getX(), targetNode.getY());
 
@@ -104,7 +107,7 @@ public class GraphView extends JPanel {
 						if (drawnList.containsKey(entry.getKey())) {
 							drawnList.get(entry.getKey()).add(edge.getNode());
 						} else {
-							List<Node> nodes = new ArrayList<Node>();
+							Set<Node> nodes = new HashSet<Node>();
 							nodes.add(edge.getNode());
 							drawnList.put(entry.getKey(), nodes);
 						}
@@ -159,6 +162,13 @@ public class GraphView extends JPanel {
 					// int nodeWidth = Math.max(width, f.stringWidth(entry.getKey().getNodeText()) + width / 2);
 
 					Coordinates wrapper = entry.getValue();
+					if (!nodeClip.contains(wrapper.getX(), wrapper.getY())) {
+						continue;
+					}
+					if (dots) {
+						g.fillRect(wrapper.getX() - 1, wrapper.getY() - 1, 3, 3);
+						continue;
+					}
 					switch(entry.getKey().getType()){
 						case "host":
 							g.drawImage(imgHost, wrapper.getX() - nodeWidth / 2, wrapper.getY() - nodeHeight / 2, nodeWidth, nodeHeight, this);
@@ -193,6 +203,42 @@ public class GraphView extends JPanel {
 		add(scrollPane);
 	}
 
+	/**
+	 * Places the nodes on a circle, the placement being kept until the graph or the size of the
+	 * canvas changes.
+	 */
+	private Map<Node, Coordinates> getCoordForNodes() {
+		int offsetX = canvas.getWidth() / 2;
+		int offsetY = canvas.getHeight() / 2;
+		if (layout != null && layoutGraph == graph && layoutVersion == graph.getVersion()
+				&& layoutWidth == canvas.getWidth() && layoutHeight == canvas.getHeight()) {
+			return layout;
+		}
+
+		Map<Node, Coordinates> coordForNodes = new HashMap<Node, Coordinates>();
+		double angle = 2 * Math.PI / graph.getAdjacencyList().keySet().size();
+		int radius = offsetY / 2 - 20;
+
+		int i = 0;
+		for (Node node : graph.getAdjacencyList().keySet()) {
+			// calculate coordinates
+			int x = Double.valueOf(offsetX + Math.cos(i * angle) * radius).intValue();
+			int y = Double.valueOf(offsetY + Math.sin(i * angle) * radius).intValue();
+
+			coordForNodes.put(node, new Coordinates(x, y));
+			node.setCoordinate(new Coordinates(x, y));
+			i++;
+		}
+
+		layout = coordForNodes;
+		layoutGraph = graph;
+		layoutVersion = graph.getVersion();
+		layoutWidth = canvas.getWidth();
+		layoutHeight = canvas.getHeight();
+		layoutRadius = radius;
+		return layout;
+	}
+
 	private void drawArrow(Graphics g1, int x1, int y1, int x2, int y2) {
 		Graphics2D g = (Graphics2D) g1.create();
 
@@ -7,12 +7,14 @@ import java.awt.Toolkit;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.IOException;
-import java.util.List;
-import java.util.Map.Entry;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.BoxLayout;
 import javax.swing.ButtonGroup;
@@ -31,15 +33,14 @@ import javax.swing.JToolBar;
 import javax.swing.KeyStroke;
 import javax.swing.SwingConstants;
 import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.UIManager;
 import javax.swing.filechooser.FileFilter;
 import javax.swing.filechooser.FileNameExtensionFilter;
 
 import org.cloudbus.cloudsim.sdn.graph.core.Bridge;
-import org.cloudbus.cloudsim.sdn.graph.core.Edge;
 import org.cloudbus.cloudsim.sdn.graph.core.Graph;
 import org.cloudbus.cloudsim.sdn.graph.core.GraphView;
-import org.cloudbus.cloudsim.sdn.graph.core.Node;
 import org.cloudbus.cloudsim.sdn.graph.dialog.*;
 
 public class GraphicSDN extends JFrame {
@@ -159,20 +160,12 @@ public class GraphicSDN extends JFrame {
 		};
 		ActionListener importPhyTopoListener = new ActionListener() {
 		    public void actionPerformed(ActionEvent e) {
-		    	String fileName = importFile("josn");
-		    	Graph phyGraph= Bridge.jsonToGraph(fileName, 0);
-/*		    	System.out.println(phyGraph.getAdjacencyList().size());
-		    	for (Entry<Node, List<Edge>> entry : phyGraph.getAdjacencyList().entrySet()) {
-		    		System.out.println(entry.getKey().getName()+entry.getKey().getType());
-		    	}*/
-		    	physicalCanvas.setGraph(phyGraph);
+		    	importGraph(importFile("josn"), 0, physicalCanvas);
 		    }
 		};
 		ActionListener importVirTopoListener = new ActionListener() {
 		    public void actionPerformed(ActionEvent e) {
-		    	String fileName = importFile("josn");
-		    	Graph virGraph= Bridge.jsonToGraph(fileName, 1);
-		    	virtualCanvas.setGraph(virGraph);
+		    	importGraph(importFile("josn"), 1, virtualCanvas);
 		    }
 		};
 		ActionListener savePhyTopoListener = new ActionListener() {
@@ -578,6 +571,27 @@ public class GraphicSDN extends JFrame {
         return "";
     }
     
+    /** parse a topology off the event dispatch thread and show it once parsed */
+    private void importGraph(final String fileName, final int type, final GraphView canvas){
+    	new SwingWorker<Graph, Void>() {
+    		@Override
+    		protected Graph doInBackground() {
+    			return Bridge.jsonToGraph(fileName, type);
+    		}
+
+    		@Override
+    		protected void done() {
+    			try {
+    				canvas.setGraph(get());
+    			} catch (InterruptedException | ExecutionException e) {
+    				e.printStackTrace();
+    				return;
+    			}
+    			canvas.repaint();
+    		}
+    	}.execute();
+    }
+    
     /** save network topology */
     private void saveFile(String type, Graph graph) throws IOException{
     	JFileChooser fileopen = new JFileChooser();
@@ -587,13 +601,15 @@ public class GraphicSDN extends JFrame {
         int ret = fileopen.showSaveDialog(panel);
 
         if (ret == JFileChooser.APPROVE_OPTION) {
-        	String jsonText = graph.toJsonString();
-        	System.out.println(jsonText);
             String path = fileopen.getSelectedFile().toString();
             File file = new File(path);
-    		FileOutputStream out = new FileOutputStream(file);
-			out.write(jsonText.getBytes());
-			out.close();
+            // streamed node by node instead of building the whole document in memory
+    		Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file)));
+    		try {
+    			Bridge.writeGraph(graph, out);
+    		} finally {
+    			out.close();
+    		}
         }
     }
     
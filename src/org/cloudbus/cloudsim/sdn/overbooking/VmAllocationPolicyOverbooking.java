@@ -8,11 +8,11 @@ import java.util.Map;
 import org.cloudbus.cloudsim.Host;
 import org.cloudbus.cloudsim.Log;
 import org.cloudbus.cloudsim.Vm;
-import org.cloudbus.cloudsim.VmAllocationPolicy;
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.sdn.VmAllocationPolicyRanked;
 import org.cloudbus.cloudsim.sdn.power.PowerUtilizationMaxHostInterface;
 
-public class VmAllocationPolicyOverbooking extends VmAllocationPolicy implements PowerUtilizationMaxHostInterface {
+public class VmAllocationPolicyOverbooking extends VmAllocationPolicyRanked implements PowerUtilizationMaxHostInterface {
 
 	protected final double hostTotalMips;
 	protected final double hostTotalBw;
@@ -54,6 +54,10 @@ public class VmAllocationPolicyOverbooking extends VmAllocationPolicy implements
 		hostTotalMips = getHostList().get(0).getTotalMips();
 		hostTotalBw =  getHostList().get(0).getBw();
 		hostTotalPes =  getHostList().get(0).getNumberOfPes();
+		
+		for (int i = 0; i < getHostList().size(); i++) {
+			updateHost(i);
+		}
 
 		setVmTable(new HashMap<String, Host>());
 		setUsedPes(new HashMap<String, Integer>());
@@ -65,6 +69,20 @@ public class VmAllocationPolicyOverbooking extends VmAllocationPolicy implements
 		double ret = mipsPercent * bwPercent;
 		return ret;
 	}
+	
+	@Override
+	protected double getHostMetric(int idx) {
+		double mipsFreePercent = (double)getFreeMips().get(idx) / this.hostTotalMips; 
+		double bwFreePercent = (double)getFreeBw().get(idx) / this.hostTotalBw;
+		
+		return this.convertWeightedMetric(mipsFreePercent, bwFreePercent);
+	}
+	
+	@Override
+	protected boolean isHostUsed(int idx) {
+		return getFreePes().get(idx) < hostTotalPes;
+	}
+
 	/**
 	 * Allocates a host for a given VM.
 	 * 
@@ -79,8 +97,6 @@ public class VmAllocationPolicyOverbooking extends VmAllocationPolicy implements
 			return false;
 		}
 		
-		int numHosts = getHostList().size();
-
 		// 1. Find/Order the best host for this VM by comparing a metric
 		int requiredPes = vm.getNumberOfPes();
 		double requiredMips = vm.getCurrentRequestedTotalMips();
@@ -88,29 +104,8 @@ public class VmAllocationPolicyOverbooking extends VmAllocationPolicy implements
 
 		boolean result = false;
 		
-		// freeReousrces : Weighted-calculated free resource percentage in each host 
-		double[] freeResources = new double[numHosts];
-		for (int i = 0; i < numHosts; i++) {
-			double mipsFreePercent = (double)getFreeMips().get(i) / this.hostTotalMips; 
-			double bwFreePercent = (double)getFreeBw().get(i) / this.hostTotalBw;
-			
-			freeResources[i] = this.convertWeightedMetric(mipsFreePercent, bwFreePercent);
-		}
-
-		// Find the most full host, with available resource. 
-		for(int tries = 0; result == false && tries < numHosts; tries++) {// we still trying until we find a host or until we try all of them
-			double lessFree = Double.POSITIVE_INFINITY;
-			int idx = -1;
-
-			// Find the most full host
-			for (int i = 0; i < numHosts; i++) {
-				if (freeResources[i] < lessFree) {
-					lessFree = freeResources[i];
-					idx = i;
-				}
-			}
-			freeResources[idx] = Double.POSITIVE_INFINITY;	// Mark visited
-			
+		// Try the hosts from the best ranked one until one can hold the VM
+		for(int idx:getHostRanking().getHosts()) {
 			Host host = getHostList().get(idx);
 			
 			// Check whether the host can hold this VM or not.
@@ -143,6 +138,7 @@ public class VmAllocationPolicyOverbooking extends VmAllocationPolicy implements
 
 				getUsedBw().put(vm.getUid(), (long) requiredBw);
 				getFreeBw().set(idx,  (long) (getFreeBw().get(idx) - requiredBw));
+				updateHost(idx);
 
 				break;
 			}
@@ -157,16 +153,9 @@ public class VmAllocationPolicyOverbooking extends VmAllocationPolicy implements
 	
 	protected int maxNumHostsUsed=0;
 	public void logMaxNumHostsUsed() {
-		// Get how many are used
-		int numHostsUsed=0;
-		for(int freePes:getFreePes()) {
-			if(freePes < hostTotalPes) {
-				numHostsUsed++;
-			}
-		}
-		if(maxNumHostsUsed < numHostsUsed)
-			maxNumHostsUsed = numHostsUsed;
-		Log.printLine("Number of online hosts:"+numHostsUsed + ", max was ="+maxNumHostsUsed);
+		if(maxNumHostsUsed < getNumHostsUsed())
+			maxNumHostsUsed = getNumHostsUsed();
+		Log.printLine("Number of online hosts:"+getNumHostsUsed() + ", max was ="+maxNumHostsUsed);
 	}
 	public int getMaxNumHostsUsed() { return maxNumHostsUsed;}
 
@@ -192,6 +181,7 @@ public class VmAllocationPolicyOverbooking extends VmAllocationPolicy implements
 			
 			Long bw = getUsedBw().remove(vm.getUid());
 			getFreeBw().set(idx, getFreeBw().get(idx) + bw);
+			updateHost(idx);
 		}
 	}
 
@@ -326,6 +316,7 @@ public class VmAllocationPolicyOverbooking extends VmAllocationPolicy implements
 			int idx = getHostList().indexOf(host);
 			getUsedPes().put(vm.getUid(), requiredPes);
 			getFreePes().set(idx, getFreePes().get(idx) - requiredPes);
+			updateHost(idx);
 
 			Log.formatLine(
 					"%.2f: VM #" + vm.getId() + " has been allocated to the host #" + host.getId(),
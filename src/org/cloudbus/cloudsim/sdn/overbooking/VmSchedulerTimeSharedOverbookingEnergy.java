@@ -12,6 +12,7 @@ import java.util.ArrayList;
 import java.util.List;
 
 import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.StateHistory;
 import org.cloudbus.cloudsim.VmSchedulerTimeSharedOverSubscription;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.sdn.power.PowerUtilizationHistoryEntry;
@@ -41,39 +42,59 @@ public class VmSchedulerTimeSharedOverbookingEnergy extends VmSchedulerTimeShare
 	
 	private List<PowerUtilizationHistoryEntry> utilizationHistories = null;
 	private static double powerOffDuration = 0; //if host is idle for 1 hours, it's turned off.
+
+	/** Whether the entries are kept, the energy being integrated as they are added in any case */
+	private boolean utilizationHistoryKept = StateHistory.getDefaultMode() == StateHistory.Mode.FULL;
+	private boolean utilizationRecorded = false;
+	private double energyConsumption = 0;
+	private double lastTime = 0;
+	private double lastMips = 0;
 	
 	public void addUtilizationEntryTermination(double terminatedTime) {
-		if(this.utilizationHistories != null)
-			this.utilizationHistories.add(new PowerUtilizationHistoryEntry(terminatedTime, 0));
+		if(this.utilizationRecorded)
+			addUtilization(terminatedTime, 0);
 	}
 	
+	/**
+	 * Sets whether the utilization entries are kept for {@link #getUtilizationHisotry()}. The
+	 * energy consumption does not depend on it. By default they are kept if the histories are
+	 * recorded in full, see {@link StateHistory#setDefaultMode(StateHistory.Mode, double)}.
+	 */
+	public void setUtilizationHistoryKept(boolean kept) {
+		this.utilizationHistoryKept = kept;
+	}
+
 	public List<PowerUtilizationHistoryEntry> getUtilizationHisotry() {
 		return utilizationHistories;
 	}
 
 	public double getUtilizationEnergyConsumption() {
+		return energyConsumption/3600;	// transform to Whatt*hour from What*seconds
+	}
+	
+	/**
+	 * Integrates the power consumed since the previous entry, at its utilization.
+	 */
+	private void addUtilization(double time, double usedMips) {
+		double duration = time - lastTime;
+		double utilPercentage = lastMips/ getTotalMips();
+		double power = calculatePower(utilPercentage);
+		double energy = power * duration;
 		
-		double total=0;
-		double lastTime=0;
-		double lastMips=0;
-		if(this.utilizationHistories == null)
-			return 0;
+		// Assume that the host is turned off when duration is long enough
+		if(duration > powerOffDuration && lastMips == 0)
+			energy = 0;
 		
-		for(PowerUtilizationHistoryEntry h:this.utilizationHistories) {
-			double duration = h.startTime - lastTime;
-			double utilPercentage = lastMips/ getTotalMips();
-			double power = calculatePower(utilPercentage);
-			double energyConsumption = power * duration;
-			
-			// Assume that the host is turned off when duration is long enough
-			if(duration > powerOffDuration && lastMips == 0)
-				energyConsumption = 0;
-			
-			total += energyConsumption;
-			lastTime = h.startTime;
-			lastMips = h.usedMips;
+		energyConsumption += energy;
+		lastTime = time;
+		lastMips = usedMips;
+		utilizationRecorded = true;
+
+		if(utilizationHistoryKept) {
+			if(utilizationHistories == null)
+				utilizationHistories = new ArrayList<PowerUtilizationHistoryEntry>();
+			this.utilizationHistories.add(new PowerUtilizationHistoryEntry(time, usedMips));
 		}
-		return total/3600;	// transform to Whatt*hour from What*seconds
 	}
 	
 	private double calculatePower(double u) {
@@ -88,9 +109,7 @@ public class VmSchedulerTimeSharedOverbookingEnergy extends VmSchedulerTimeShare
 		if(usingMips < 0) {
 			System.err.println("addUtilizationEntry : using mips is negative, No way!");
 		}
-		if(utilizationHistories == null)
-			utilizationHistories = new ArrayList<PowerUtilizationHistoryEntry>();
-		this.utilizationHistories.add(new PowerUtilizationHistoryEntry(time, usingMips));
+		addUtilization(time, usingMips);
 	}
 	
 	private double getTotalMips() {
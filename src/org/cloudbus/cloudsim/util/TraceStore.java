@@ -0,0 +1,339 @@
+/*
+ * Title:        CloudSim Toolkit
+ * Description:  CloudSim (Cloud Simulation) Toolkit for Modeling and Simulation of Clouds
+ * Licence:      GPL - http://www.gnu.org/copyleft/gpl.html
+ *
+ * Copyright (c) 2009-2012, The University of Melbourne, Australia
+ */
+
+package org.cloudbus.cloudsim.util;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Parses trace files once into a compact binary columnar form, memory-maps it and shares the mapping
+ * between every model that reads the same trace. The binary form is kept in a directory, by default
+ * <tt>cloudsim-traces</tt> in the temporary directory or the one given by the
+ * <tt>cloudsim.traceStore</tt> system property, so later runs map it directly without parsing. It is
+ * parsed again when the trace file changes.
+ * <p>
+ * Binary layout (big endian): <tt>int magic, int version, int keyLength</tt>, the key as
+ * <tt>keyLength</tt> bytes of UTF-8, <tt>int columns, int rows</tt>, then each column as <tt>rows</tt>
+ * ints. The key is the canonical path, length and modification time of the trace file and the key of
+ * the parser; a binary trace is only reused if its key is the one of the trace asked for.
+ *
+ * @see org.cloudbus.cloudsim.UtilizationModelPlanetLabInMemory
+ * @see WorkloadFileReader
+ */
+public class TraceStore {
+
+	private static final int MAGIC = 0x54524345;
+
+	private static final int VERSION = 2;
+
+	/** Size of the header without the key */
+	private static final int HEADER_SIZE = 20;
+
+	private static final Charset KEY_CHARSET = Charset.forName("UTF-8");
+
+	private static TraceStore defaultStore;
+
+	/** Parses a trace file into columns of ints. */
+	interface Parser {
+
+		/** @return a string identifying the parser and its settings, part of the cache key */
+		String getKey();
+
+		/** @return number of columns of the table */
+		int getColumns();
+
+		/**
+		 * Parses the file, adding rows to the table.
+		 */
+		void parse(File file, Table table) throws IOException;
+	}
+
+	/**
+	 * Columns of ints being parsed.
+	 */
+	static class Table {
+
+		private final int[][] columns;
+
+		private int rows;
+
+		Table(int columns) {
+			this.columns = new int[columns][1024];
+		}
+
+		void addRow(int... values) {
+			if (rows == columns[0].length) {
+				for (int c = 0; c < columns.length; c++) {
+					int[] grown = new int[rows * 2];
+					System.arraycopy(columns[c], 0, grown, 0, rows);
+					columns[c] = grown;
+				}
+			}
+			for (int c = 0; c < columns.length; c++) {
+				columns[c][rows] = values[c];
+			}
+			rows++;
+		}
+
+		int getRows() {
+			return rows;
+		}
+	}
+
+	/**
+	 * A memory-mapped trace, read-only and safe to share between threads.
+	 */
+	public static class Trace {
+
+		private final ByteBuffer buffer;
+
+		private final String key;
+
+		/** Offset of the first column */
+		private final int start;
+
+		private final int columns;
+
+		private final int rows;
+
+		private Trace(ByteBuffer buffer) throws IOException {
+			if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+				throw new IOException("Not a trace store file");
+			}
+			int keyLength = buffer.getInt(8);
+			if (keyLength < 0 || keyLength > buffer.capacity() - HEADER_SIZE) {
+				throw new IOException("Corrupt trace store file");
+			}
+			byte[] keyBytes = new byte[keyLength];
+			ByteBuffer header = buffer.duplicate();
+			header.position(12);
+			header.get(keyBytes);
+			this.buffer = buffer;
+			key = new String(keyBytes, KEY_CHARSET);
+			columns = buffer.getInt(12 + keyLength);
+			rows = buffer.getInt(16 + keyLength);
+			start = HEADER_SIZE + keyLength;
+		}
+
+		/**
+		 * @return the key of the trace file and parser the trace was stored for
+		 */
+		String getKey() {
+			return key;
+		}
+
+		/**
+		 * @return the size the binary trace must have
+		 */
+		long getStoredSize() {
+			return start + 4L * columns * rows;
+		}
+
+		/**
+		 * @return number of rows
+		 */
+		public int getRows() {
+			return rows;
+		}
+
+		/**
+		 * @return number of columns
+		 */
+		public int getColumns() {
+			return columns;
+		}
+
+		/**
+		 * Gets a value.
+		 *
+		 * @param column the column
+		 * @param row the row
+		 * @return the value
+		 */
+		public int get(int column, int row) {
+			if (row < 0 || row >= rows || column < 0 || column >= columns) {
+				throw new IndexOutOfBoundsException("Row " + row + " column " + column);
+			}
+			return buffer.getInt(start + ((column * rows) + row) * 4);
+		}
+	}
+
+	private final File directory;
+
+	private final Map<String, Trace> traces = new ConcurrentHashMap<String, Trace>();
+
+	/**
+	 * Creates a store.
+	 *
+	 * @param directory the directory of the binary traces, created if needed
+	 */
+	public TraceStore(File directory) {
+		this.directory = directory;
+	}
+
+	/**
+	 * Gets the store shared by the models that are not given one.
+	 *
+	 * @return the store
+	 */
+	public static synchronized TraceStore getDefault() {
+		if (defaultStore == null) {
+			String directory = System.getProperty("cloudsim.traceStore");
+			if (directory == null) {
+				directory = new File(System.getProperty("java.io.tmpdir"), "cloudsim-traces").getPath();
+			}
+			defaultStore = new TraceStore(new File(directory));
+		}
+		return defaultStore;
+	}
+
+	/**
+	 * Gets a PlanetLab utilization trace: one row per line holding an integer percentage, up to the
+	 * first line that is not one.
+	 *
+	 * @param fileName the trace file
+	 * @return the trace, with a single column
+	 * @throws IOException if the trace can't be read or stored
+	 */
+	public Trace getPlanetLabTrace(String fileName) throws IOException {
+		return getTrace(new File(fileName), new Parser() {
+
+			@Override
+			public String getKey() {
+				return "planetlab";
+			}
+
+			@Override
+			public int getColumns() {
+				return 1;
+			}
+
+			@Override
+			public void parse(File file, Table table) throws IOException {
+				BufferedReader input = new BufferedReader(new InputStreamReader(new FileInputStream(file)));
+				try {
+					String line;
+					while ((line = input.readLine()) != null) {
+						table.addRow(Integer.parseInt(line));
+					}
+				} catch (NumberFormatException e) {
+					// the samples end at the first line which is not a number
+				} finally {
+					input.close();
+				}
+			}
+		});
+	}
+
+	/**
+	 * Gets a trace, mapping its binary form, which is written first if missing or outdated.
+	 *
+	 * @param file the trace file
+	 * @param parser the parser of the trace file
+	 * @return the trace
+	 * @throws IOException if the trace can't be read or stored
+	 */
+	Trace getTrace(File file, Parser parser) throws IOException {
+		String key = file.getCanonicalPath() + "|" + file.length() + "|" + file.lastModified() + "|"
+				+ parser.getKey();
+		Trace trace = traces.get(key);
+		if (trace != null) {
+			return trace;
+		}
+		synchronized (this) {
+			trace = traces.get(key);
+			if (trace == null) {
+				trace = load(file, key, parser);
+				traces.put(key, trace);
+			}
+			return trace;
+		}
+	}
+
+	private Trace load(File file, String key, Parser parser) throws IOException {
+		if (!file.exists()) {
+			throw new IOException("Trace " + file + " does not exist");
+		}
+		// the name only spreads the traces, two keys with the same hash take turns in the file
+		File stored = new File(directory, file.getName() + "-" + Integer.toHexString(key.hashCode()) + ".trace");
+		if (stored.exists()) {
+			try {
+				Trace trace = map(stored);
+				if (trace.getKey().equals(key) && trace.getColumns() == parser.getColumns()) {
+					return trace;
+				}
+			} catch (IOException e) {
+				// unreadable, written again below
+			}
+		}
+
+		Table table = new Table(parser.getColumns());
+		parser.parse(file, table);
+		directory.mkdirs();
+		File temporary = File.createTempFile(stored.getName(), ".tmp", directory);
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temporary), 1 << 16));
+		try {
+			byte[] keyBytes = key.getBytes(KEY_CHARSET);
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(keyBytes.length);
+			out.write(keyBytes);
+			out.writeInt(table.columns.length);
+			out.writeInt(table.rows);
+			for (int[] column : table.columns) {
+				for (int row = 0; row < table.rows; row++) {
+					out.writeInt(column[row]);
+				}
+			}
+		} finally {
+			out.close();
+		}
+		// another run may be storing the same trace, either copy will do
+		if (!temporary.renameTo(stored)) {
+			stored.delete();
+			if (!temporary.renameTo(stored)) {
+				temporary.delete();
+				throw new IOException("Can't store trace " + stored);
+			}
+		}
+		return map(stored);
+	}
+
+	private static Trace map(File stored) throws IOException {
+		RandomAccessFile file = new RandomAccessFile(stored, "r");
+		try {
+			FileChannel channel = file.getChannel();
+			if (channel.size() < HEADER_SIZE) {
+				throw new IOException("Truncated trace store file " + stored);
+			}
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			Trace trace = new Trace(buffer);
+			if (channel.size() != trace.getStoredSize()) {
+				throw new IOException("Truncated trace store file " + stored);
+			}
+			return trace;
+		} finally {
+			// the mapping stays valid once the file is closed
+			file.close();
+		}
+	}
+
+}
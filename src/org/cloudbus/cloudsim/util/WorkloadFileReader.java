@@ -16,6 +16,8 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Enumeration;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
 import java.util.zip.GZIPInputStream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipFile;
@@ -34,8 +36,9 @@ import org.cloudbus.cloudsim.UtilizationModelFull;
  * <li>If you need to load multiple trace files, then you need to create multiple instances of this
  * class <tt>each with a unique 
  *      	 entity name</tt>.
- * <li>If size of the trace file is huge or contains lots of traces please increase the JVM heap
- * size accordingly by using <tt>java -Xmx</tt> option when running the simulation.
+ * <li>The trace is parsed once into the {@link TraceStore}, which keeps the fields of the jobs in a
+ * memory-mapped binary form shared by every reader of the file. If the trace is huge, prefer
+ * {@link #streamWorkload()}, which creates each job when it is needed, to the whole list of jobs.
  * <li>The default job file size for sending to and receiving from a resource is
  * {@link gridsim.net.Link#DEFAULT_MTU}. However, you can specify the file size by using
  * {@link #setGridletFileSize(int)}.
@@ -98,6 +101,15 @@ public class WorkloadFileReader implements WorkloadModel {
 
 	private String[] fieldArray = null; // a temp array storing all the fields
 
+	// columns of the jobs in the trace store
+	private static final int COLUMN_ID = 0;
+
+	private static final int COLUMN_SUBMIT_TIME = 1;
+
+	private static final int COLUMN_RUN_TIME = 2;
+
+	private static final int COLUMN_NUM_PROC = 3;
+
 	/**
 	 * Create a new {@link WorkloadFileReader} object.
 	 * 
@@ -138,19 +150,11 @@ public class WorkloadFileReader implements WorkloadModel {
 	public ArrayList<Cloudlet> generateWorkload() {
 		if (jobs == null) {
 			jobs = new ArrayList<Cloudlet>();
-
-			// create a temp array
-			fieldArray = new String[MAX_FIELD];
-
 			try {
-				if (file.getName().endsWith(".gz")) {
-					readGZIPFile(file);
-				} else if (file.getName().endsWith(".zip")) {
-					readZipFile(file);
-				} else {
-					readFile(file);
+				Stream stream = streamWorkload();
+				while (stream.hasNext()) {
+					jobs.add(stream.next());
 				}
-			} catch (final FileNotFoundException e) {
 			} catch (final IOException e) {
 			}
 		}
@@ -158,6 +162,97 @@ public class WorkloadFileReader implements WorkloadModel {
 		return jobs;
 	}
 
+	/**
+	 * Returns the jobs of the trace in file order, each one created when it is reached, together
+	 * with their submit times.
+	 * 
+	 * @return the stream of jobs
+	 * @throws IOException if the trace can't be read or stored
+	 */
+	public Stream streamWorkload() throws IOException {
+		return new Stream(TraceStore.getDefault().getTrace(file, new SwfParser()));
+	}
+
+	/**
+	 * The jobs of a trace, created one at a time.
+	 */
+	public class Stream implements Iterator<Cloudlet> {
+
+		private final TraceStore.Trace trace;
+
+		private int row;
+
+		private Stream(TraceStore.Trace trace) {
+			this.trace = trace;
+		}
+
+		@Override
+		public boolean hasNext() {
+			return row < trace.getRows();
+		}
+
+		/**
+		 * Gets the submit time of the next job, without moving to it.
+		 * 
+		 * @return the submit time in seconds
+		 */
+		public long peekSubmitTime() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return trace.get(COLUMN_SUBMIT_TIME, row);
+		}
+
+		@Override
+		public Cloudlet next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			Cloudlet job = createJob(
+					trace.get(COLUMN_ID, row),
+					trace.get(COLUMN_SUBMIT_TIME, row),
+					trace.get(COLUMN_RUN_TIME, row),
+					trace.get(COLUMN_NUM_PROC, row));
+			row++;
+			return job;
+		}
+
+		@Override
+		public void remove() {
+			throw new UnsupportedOperationException();
+		}
+	}
+
+	/**
+	 * Parses the trace file into the columns of the trace store.
+	 */
+	private class SwfParser implements TraceStore.Parser {
+
+		@Override
+		public String getKey() {
+			return "swf|" + COMMENT + "|" + MAX_FIELD + "|" + JOB_NUM + "|" + SUBMIT_TIME + "|" + REQ_RUN_TIME
+					+ "|" + REQ_NUM_PROC;
+		}
+
+		@Override
+		public int getColumns() {
+			return 4;
+		}
+
+		@Override
+		public void parse(File file, TraceStore.Table table) throws IOException {
+			// create a temp array
+			fieldArray = new String[MAX_FIELD];
+			if (file.getName().endsWith(".gz")) {
+				readGZIPFile(file, table);
+			} else if (file.getName().endsWith(".zip")) {
+				readZipFile(file, table);
+			} else {
+				readFile(file, table);
+			}
+		}
+	}
+
 	/**
 	 * Identifies the start of a comment line.
 	 * 
@@ -249,29 +344,20 @@ public class WorkloadFileReader implements WorkloadModel {
 	// ------------------- PRIVATE METHODS -------------------
 
 	/**
-	 * Creates a Gridlet with the given information and adds to the list
+	 * Creates a Gridlet with the given information
 	 * 
 	 * @param id a Gridlet ID
 	 * @param submitTime Gridlet's submit time
 	 * @param runTime Gridlet's run time
 	 * @param numProc number of processors
-	 * @param reqRunTime user estimated run time
-	 * @param userID user id
-	 * @param groupID user's group id
+	 * @return the Gridlet
 	 * @pre id >= 0
 	 * @pre submitTime >= 0
 	 * @pre runTime >= 0
 	 * @pre numProc > 0
 	 * @post $none
 	 */
-	private void createJob(
-			final int id,
-			final long submitTime,
-			final int runTime,
-			final int numProc,
-			final int reqRunTime,
-			final int userID,
-			final int groupID) {
+	private Cloudlet createJob(final int id, final long submitTime, final int runTime, final int numProc) {
 		// create the cloudlet
 		final int len = runTime * rating;
 		UtilizationModel utilizationModel = new UtilizationModelFull();
@@ -284,25 +370,27 @@ public class WorkloadFileReader implements WorkloadModel {
 				utilizationModel,
 				utilizationModel,
 				utilizationModel);
-		jobs.add(wgl);
+		return wgl;
 	}
 
 	/**
-	 * Extracts relevant information from a given array
+	 * Extracts relevant information from a given array into a row of the trace store; the user and
+	 * group ids are only checked
 	 * 
 	 * @param array an array of String
 	 * @param line a line number
+	 * @param table the table receiving the job
 	 * @pre array != null
 	 * @pre line > 0
 	 */
-	private void extractField(final String[] array, final int line) {
+	private void extractField(final String[] array, final int line, final TraceStore.Table table) {
 		try {
 			Integer obj = null;
 
 			// get the job number
 			int id = 0;
 			if (JOB_NUM == IRRELEVANT) {
-				id = jobs.size() + 1;
+				id = table.getRows() + 1;
 			} else {
 				obj = new Integer(array[JOB_NUM].trim());
 				id = obj.intValue();
@@ -345,7 +433,7 @@ public class WorkloadFileReader implements WorkloadModel {
 			if (numProc <= 0) {
 				numProc = 1;
 			}
-			createJob(id, submitTime, runTime, numProc, reqRunTime, userID, groupID);
+			table.addRow(id, (int) submitTime, runTime, numProc);
 		} catch (final Exception e) {
 
 		}
@@ -356,35 +444,38 @@ public class WorkloadFileReader implements WorkloadModel {
 	 * 
 	 * @param line a line of string
 	 * @param lineNum a line number
+	 * @param table the table receiving the job
 	 * @pre line != null
 	 * @pre lineNum > 0
 	 * @post $none
 	 */
-	private void parseValue(final String line, final int lineNum) {
+	private void parseValue(final String line, final int lineNum, final TraceStore.Table table) {
 		// skip a comment line
 		if (line.startsWith(COMMENT)) {
 			return;
 		}
 
-		final String[] sp = line.split("\\s+"); // split the fields based on a
-		// space
-		int len = 0; // length of a string
+		// split the fields based on white space
 		int index = 0; // the index of an array
-
-		// check for each field in the array
-		for (final String elem : sp) {
-			len = elem.length(); // get the length of a string
-
-			// if it is empty then ignore
-			if (len == 0) {
-				continue;
+		int start = -1; // start of the current field
+		for (int i = 0; i <= line.length(); i++) {
+			if (i == line.length() || Character.isWhitespace(line.charAt(i))) {
+				if (start >= 0) {
+					// a line with too many fields is ignored
+					if (index == MAX_FIELD) {
+						return;
+					}
+					fieldArray[index] = line.substring(start, i);
+					index++;
+					start = -1;
+				}
+			} else if (start < 0) {
+				start = i;
 			}
-			fieldArray[index] = elem;
-			index++;
 		}
 
 		if (index == MAX_FIELD) {
-			extractField(fieldArray, lineNum);
+			extractField(fieldArray, lineNum, table);
 		}
 	}
 
@@ -392,11 +483,12 @@ public class WorkloadFileReader implements WorkloadModel {
 	 * Reads a text file one line at the time
 	 * 
 	 * @param fl a file name
+	 * @param table the table receiving the jobs
 	 * @return <code>true</code> if successful, <code>false</code> otherwise.
 	 * @throws IOException if the there was any error reading the file
 	 * @throws FileNotFoundException if the file was not found
 	 */
-	private boolean readFile(final File fl) throws IOException, FileNotFoundException {
+	private boolean readFile(final File fl, final TraceStore.Table table) throws IOException, FileNotFoundException {
 		boolean success = false;
 		BufferedReader reader = null;
 		try {
@@ -404,8 +496,9 @@ public class WorkloadFileReader implements WorkloadModel {
 
 			// read one line at the time
 			int line = 1;
-			while (reader.ready()) {
-				parseValue(reader.readLine(), line);
+			String text;
+			while ((text = reader.readLine()) != null) {
+				parseValue(text, line, table);
 				line++;
 			}
 
@@ -424,11 +517,12 @@ public class WorkloadFileReader implements WorkloadModel {
 	 * Reads a gzip file one line at the time
 	 * 
 	 * @param fl a gzip file name
+	 * @param table the table receiving the jobs
 	 * @return <code>true</code> if successful; <code>false</code> otherwise.
 	 * @throws IOException if the there was any error reading the file
 	 * @throws FileNotFoundException if the file was not found
 	 */
-	private boolean readGZIPFile(final File fl) throws IOException, FileNotFoundException {
+	private boolean readGZIPFile(final File fl, final TraceStore.Table table) throws IOException, FileNotFoundException {
 		boolean success = false;
 		BufferedReader reader = null;
 		try {
@@ -436,8 +530,9 @@ public class WorkloadFileReader implements WorkloadModel {
 
 			// read one line at the time
 			int line = 1;
-			while (reader.ready()) {
-				parseValue(reader.readLine(), line);
+			String text;
+			while ((text = reader.readLine()) != null) {
+				parseValue(text, line, table);
 				line++;
 			}
 
@@ -456,10 +551,11 @@ public class WorkloadFileReader implements WorkloadModel {
 	 * Reads a Zip file.
 	 * 
 	 * @param fl a zip file name
+	 * @param table the table receiving the jobs
 	 * @return <code>true</code> if reading a file is successful; <code>false</code> otherwise.
 	 * @throws IOException if the there was any error reading the file
 	 */
-	private boolean readZipFile(final File fl) throws IOException {
+	private boolean readZipFile(final File fl, final TraceStore.Table table) throws IOException {
 		boolean success = false;
 		ZipFile zipFile = null;
 		try {
@@ -476,8 +572,9 @@ public class WorkloadFileReader implements WorkloadModel {
 
 				// read one line at the time
 				int line = 1;
-				while (reader.ready()) {
-					parseValue(reader.readLine(), line);
+				String text;
+				while ((text = reader.readLine()) != null) {
+					parseValue(text, line, table);
 					line++;
 				}
 
@@ -45,6 +45,11 @@ public class Application {
 
 	protected DAG dag;
 
+	/**
+	 * Template the modules, edges and loops are shared with, null if the application has its own
+	 */
+	private ApplicationTemplate template;
+
 	/**
 	 * Creates a plain vanilla application with no modules and edges.
 	 * @param appId
@@ -141,6 +146,8 @@ public class Application {
 	 * @return
 	 */
 	public List<AppEdge> getPeriodicEdges(String srcModule){
+		if(hasTemplateEdges())
+			return template.getPeriodicEdges(srcModule);
 		List<AppEdge> result = new ArrayList<AppEdge>();
 		for(AppEdge edge : edges){
 			if(edge.isPeriodic() && edge.getSource().equals(srcModule))
@@ -172,12 +179,38 @@ public class Application {
 		}
 	}
 
+	/**
+	 * Creates an application sharing the modules, edges, tuple mappings and loops of a template. Only the
+	 * module instances and the loop ids belong to the application.
+	 * @param template
+	 * @param appId
+	 * @param userId
+	 * @see ApplicationTemplate#createApplication(String, int)
+	 */
+	protected Application(ApplicationTemplate template, String appId, int userId) {
+		this.template = template;
+		setAppId(appId);
+		setUserId(userId);
+		setModules(template.createModules(appId, userId));
+		setEdges(template.getEdges());
+		setGeoCoverage(template.getGeoCoverage());
+		setLoops(template.createLoops());
+		setEdgeMap(template.getEdgeMap());
+		specialPlacementInfo = template.createSpecialPlacementInfo();
+		dag = template.getDAG();
+	}
+
 	/**
 	 * Search and return an application module by its module name
 	 * @param name the module name to be returned
 	 * @return
 	 */
 	public AppModule getModuleByName(String name){
+		if(template != null){
+			int index = template.getModuleIndex(name);
+			if(index >= 0 && index < modules.size() && modules.get(index).getName().equals(name))
+				return modules.get(index);
+		}
 		for(AppModule module : modules){
 			if(module.getName().equals(name))
 				return module;
@@ -195,7 +228,7 @@ public class Application {
 	public List<Tuple> getResultantTuples(String moduleName, Tuple inputTuple, int sourceDeviceId, int sourceModuleId){
 		List<Tuple> tuples = new ArrayList<Tuple>();
 		AppModule module = getModuleByName(moduleName);
-		for(AppEdge edge : getEdges()){
+		for(AppEdge edge : hasTemplateEdges() ? template.getEdgesFrom(moduleName) : getEdges()){
 			if(edge.getSource().equals(moduleName)){
 				Pair<String, String> pair = new Pair<String, String>(inputTuple.getTupleType(), edge.getTupleType());
 				
@@ -383,6 +416,10 @@ public class Application {
 	}
 
 	public void createDAG() {
+		if (hasTemplateEdges()) {
+			dag = template.getDAG();
+			return;
+		}
 		List<String> moduleNames = new ArrayList<>();
 		for (AppModule module : getModules()) {
 			moduleNames.add(module.getName());
@@ -397,4 +434,18 @@ public class Application {
 	public DAG getDAG() {
 		return dag;
 	}
+
+	/**
+	 * @return true if the edges are still the ones of the template, whose indexes can then be used
+	 */
+	private boolean hasTemplateEdges() {
+		return template != null && edges == template.getEdges();
+	}
+
+	/**
+	 * @return the template the application was created from, null if it has its own definition
+	 */
+	public ApplicationTemplate getTemplate() {
+		return template;
+	}
 }
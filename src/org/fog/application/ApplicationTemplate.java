@@ -0,0 +1,250 @@
+package org.fog.application;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.apache.commons.math3.util.Pair;
+import org.fog.application.selectivity.SelectivityModel;
+import org.fog.entities.Tuple;
+import org.fog.scheduler.TupleScheduler;
+import org.fog.utils.FogUtils;
+import org.fog.utils.GeoCoverage;
+
+/**
+ * Immutable definition of an application - its modules, edges, selectivity maps, loops and DAG - which is
+ * shared by every application created from it. Scenarios deploying the same application for many users
+ * create one template and an application per user with {@link #createApplication(String, int)}; the
+ * applications then only hold their identifiers and their mutable simulation state (the module instances,
+ * which are VMs, and the loops, whose ids the loop delays are recorded under).
+ * <p>
+ * The edges and selectivity models are shared as they are, so they must not be modified once the template
+ * is created. The modules, edges, tuple mappings and loops of the created applications can't be changed, and
+ * neither can the DAG they share.
+ */
+public class ApplicationTemplate {
+
+	/**
+	 * Definition of a module, from which a module instance is created for each application.
+	 */
+	private static class ModuleDefinition {
+		private final String name;
+		private final double mips;
+		private final int ram;
+		private final long bw;
+		private final long size;
+		private final String vmm;
+		private final Map<Pair<String, String>, SelectivityModel> selectivityMap;
+
+		private ModuleDefinition(AppModule module) {
+			name = module.getName();
+			mips = module.getMips();
+			ram = module.getRam();
+			bw = module.getBw();
+			size = module.getSize();
+			vmm = module.getVmm();
+			selectivityMap = Collections.unmodifiableMap(
+					new HashMap<Pair<String, String>, SelectivityModel>(module.getSelectivityMap()));
+		}
+	}
+
+	private final List<ModuleDefinition> modules;
+
+	/**
+	 * Index of each module in the module list of the applications created from the template
+	 */
+	private final Map<String, Integer> moduleIndex;
+
+	private final List<AppEdge> edges;
+
+	private final Map<String, AppEdge> edgeMap;
+
+	/**
+	 * Edges by source module name, in the order of the edge list
+	 */
+	private final Map<String, List<AppEdge>> edgesBySource;
+
+	/**
+	 * Periodic edges by source module name, in the order of the edge list
+	 */
+	private final Map<String, List<AppEdge>> periodicEdgesBySource;
+
+	/**
+	 * Module names of each loop
+	 */
+	private final List<List<String>> loops;
+
+	private final GeoCoverage geoCoverage;
+
+	private final Map<String, List<String>> specialPlacementInfo;
+
+	private final DAG dag;
+
+	/**
+	 * Creates a template from the current definition of an application. Later changes to the application
+	 * do not affect the template.
+	 * @param application the application defining the modules, edges, tuple mappings and loops
+	 */
+	public ApplicationTemplate(Application application) {
+		List<ModuleDefinition> moduleList = new ArrayList<ModuleDefinition>();
+		Map<String, Integer> index = new HashMap<String, Integer>();
+		List<String> moduleNames = new ArrayList<String>();
+		for (AppModule module : application.getModules()) {
+			if (index.containsKey(module.getName()))
+				throw new IllegalArgumentException("Duplicate module " + module.getName() + " in application " + application.getAppId());
+			index.put(module.getName(), moduleList.size());
+			moduleList.add(new ModuleDefinition(module));
+			moduleNames.add(module.getName());
+		}
+		modules = Collections.unmodifiableList(moduleList);
+		moduleIndex = Collections.unmodifiableMap(index);
+
+		edges = Collections.unmodifiableList(new ArrayList<AppEdge>(application.getEdges()));
+		edgeMap = Collections.unmodifiableMap(new HashMap<String, AppEdge>(application.getEdgeMap()));
+		Map<String, List<AppEdge>> bySource = new LinkedHashMap<String, List<AppEdge>>();
+		Map<String, List<AppEdge>> periodicBySource = new LinkedHashMap<String, List<AppEdge>>();
+		for (AppEdge edge : edges) {
+			addEdge(bySource, edge);
+			if (edge.isPeriodic())
+				addEdge(periodicBySource, edge);
+		}
+		edgesBySource = freeze(bySource);
+		periodicEdgesBySource = freeze(periodicBySource);
+
+		List<List<String>> loopList = new ArrayList<List<String>>();
+		for (AppLoop loop : application.getLoops()) {
+			loopList.add(Collections.unmodifiableList(new ArrayList<String>(loop.getModules())));
+		}
+		loops = Collections.unmodifiableList(loopList);
+
+		geoCoverage = application.getGeoCoverage();
+		specialPlacementInfo = freezeStrings(application.getSpecialPlacementInfo());
+
+		dag = new DAG(Collections.unmodifiableList(moduleNames));
+		for (AppEdge edge : edges) {
+			if (edge.getDirection() == Tuple.UP)
+				dag.addEdge(edge.getSource(), edge.getDestination());
+		}
+		dag.setReadOnly();
+	}
+
+	private static void addEdge(Map<String, List<AppEdge>> edgesBySource, AppEdge edge) {
+		if (!edgesBySource.containsKey(edge.getSource()))
+			edgesBySource.put(edge.getSource(), new ArrayList<AppEdge>());
+		edgesBySource.get(edge.getSource()).add(edge);
+	}
+
+	private static Map<String, List<AppEdge>> freeze(Map<String, List<AppEdge>> edgesBySource) {
+		for (Map.Entry<String, List<AppEdge>> entry : edgesBySource.entrySet()) {
+			entry.setValue(Collections.unmodifiableList(entry.getValue()));
+		}
+		return Collections.unmodifiableMap(edgesBySource);
+	}
+
+	private static Map<String, List<String>> freezeStrings(Map<String, List<String>> map) {
+		Map<String, List<String>> result = new HashMap<String, List<String>>();
+		for (Map.Entry<String, List<String>> entry : map.entrySet()) {
+			result.put(entry.getKey(), Collections.unmodifiableList(new ArrayList<String>(entry.getValue())));
+		}
+		return Collections.unmodifiableMap(result);
+	}
+
+	/**
+	 * Creates an application for a user, sharing the definition of the template.
+	 * @param appId
+	 * @param userId
+	 * @return
+	 */
+	public Application createApplication(String appId, int userId) {
+		return new Application(this, appId, userId);
+	}
+
+	/**
+	 * Creates the module instances of an application, one per module of the template, sharing the
+	 * selectivity maps.
+	 */
+	List<AppModule> createModules(String appId, int userId) {
+		List<AppModule> result = new ArrayList<AppModule>(modules.size());
+		for (ModuleDefinition module : modules) {
+			result.add(new AppModule(FogUtils.generateEntityId(), module.name, appId, userId,
+					module.mips, module.ram, module.bw, module.size, module.vmm,
+					new TupleScheduler(module.mips, 1), module.selectivityMap));
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * Creates the loops of an application, which share the module lists of the template but have their own ids.
+	 */
+	List<AppLoop> createLoops() {
+		List<AppLoop> result = new ArrayList<AppLoop>(loops.size());
+		for (List<String> loop : loops) {
+			result.add(new AppLoop(loop));
+		}
+		return Collections.unmodifiableList(result);
+	}
+
+	/**
+	 * Copies the special placement information, which an application may add to.
+	 */
+	Map<String, List<String>> createSpecialPlacementInfo() {
+		Map<String, List<String>> result = new HashMap<String, List<String>>();
+		for (Map.Entry<String, List<String>> entry : specialPlacementInfo.entrySet()) {
+			result.put(entry.getKey(), new ArrayList<String>(entry.getValue()));
+		}
+		return result;
+	}
+
+	/**
+	 * @param moduleName
+	 * @return index of the module in the module list of the created applications, -1 if there is no such module
+	 */
+	int getModuleIndex(String moduleName) {
+		Integer index = moduleIndex.get(moduleName);
+		return index == null ? -1 : index;
+	}
+
+	/**
+	 * @param srcModule
+	 * @return the edges whose source is the module
+	 */
+	public List<AppEdge> getEdgesFrom(String srcModule) {
+		List<AppEdge> result = edgesBySource.get(srcModule);
+		return result == null ? Collections.<AppEdge>emptyList() : result;
+	}
+
+	/**
+	 * @param srcModule
+	 * @return the periodic edges whose source is the module
+	 */
+	public List<AppEdge> getPeriodicEdges(String srcModule) {
+		List<AppEdge> result = periodicEdgesBySource.get(srcModule);
+		return result == null ? Collections.<AppEdge>emptyList() : result;
+	}
+
+	public List<AppEdge> getEdges() {
+		return edges;
+	}
+
+	public Map<String, AppEdge> getEdgeMap() {
+		return edgeMap;
+	}
+
+	public List<List<String>> getLoops() {
+		return loops;
+	}
+
+	public GeoCoverage getGeoCoverage() {
+		return geoCoverage;
+	}
+
+	/**
+	 * @return the DAG of the modules, shared by the applications created from the template and read-only
+	 */
+	public DAG getDAG() {
+		return dag;
+	}
+}
@@ -11,6 +11,7 @@ public class DAG {
     private int V;   // No. of vertices
     private List<String> vertices = new ArrayList<>();
     private HashMap<String,LinkedList<String>> adj = new HashMap<>(); // Adjacency List
+    private boolean readOnly; // set once the DAG is shared by the applications of a template
 
     //Constructor
     public DAG(List<String> vertices) {
@@ -24,10 +25,19 @@ public class DAG {
 
     // Function to add an edge into the graph
     public void addEdge(String v, String w) {
+        if(readOnly)
+            throw new UnsupportedOperationException("The DAG of an application template can't be changed");
         if(adj.containsKey(v) && adj.containsKey(w))
         adj.get(v).add(w);
     }
 
+    /**
+     * Makes the DAG read-only, so that the applications sharing it can't change it.
+     */
+    void setReadOnly() {
+        readOnly = true;
+    }
+
     // A recursive function used by topologicalSort
     public  void topologicalSortUtil(String v, Map<String,Boolean> visited,
                              Stack stack) {
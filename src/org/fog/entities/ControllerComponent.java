@@ -34,9 +34,9 @@ public class ControllerComponent {
     public static final String STORAGE = "storage";
 
     /**
-     * DeviceID,<ResourceIdentifier,AvailableResourceAmount>
+     * Available resources per device, see {@link ResourceTable}
      */
-    protected Map<Integer, Map<String, Double>> resourceAvailability = new HashMap<>();
+    protected ResourceTable resourceAvailability = new ResourceTable();
 
 
     //Application Info
@@ -53,7 +53,7 @@ public class ControllerComponent {
      * @param mPlacement
      */
     public ControllerComponent(Integer deviceId, LoadBalancer loadBalancer, MicroservicePlacementLogic mPlacement,
-                               Map<Integer, Map<String, Double>> resourceAvailability, Map<String, Application> applicationInfo, List<FogDevice> fogDevices) {
+                               ResourceTable resourceAvailability, Map<String, Application> applicationInfo, List<FogDevice> fogDevices) {
         this.fogDeviceList = fogDevices;
         this.loadBalancer = loadBalancer;
         this.applicationInfo = applicationInfo;
@@ -102,24 +102,33 @@ public class ControllerComponent {
     }
 
     public Double getAvailableResource(int deviceID, String resourceIdentifier) {
-        if (resourceAvailability.containsKey(deviceID))
-            return resourceAvailability.get(deviceID).get(resourceIdentifier);
+        if (resourceAvailability.contains(deviceID))
+            return resourceAvailability.get(deviceID, ResourceTable.resourceIndex(resourceIdentifier));
         else
             return null;
     }
 
+    public double getAvailableResource(int deviceID, int resource) {
+        return resourceAvailability.get(deviceID, resource);
+    }
+
     public void updateResources(int device, String resourceIdentifier, double remainingResourceAmount) {
-        if (resourceAvailability.containsKey(device))
-            resourceAvailability.get(device).put(resourceIdentifier, remainingResourceAmount);
-        else {
-            Map<String, Double> resources = new HashMap<>();
-            resources.put(resourceIdentifier, remainingResourceAmount);
-            resourceAvailability.put(device, resources);
-        }
+        resourceAvailability.set(device, ResourceTable.resourceIndex(resourceIdentifier), remainingResourceAmount);
+    }
+
+    public void updateResources(int device, int resource, double remainingResourceAmount) {
+        resourceAvailability.set(device, resource, remainingResourceAmount);
     }
 
-    public void updateResourceInfo(int deviceId, Map<String, Double> resources) {
-        resourceAvailability.put(deviceId, resources);
+    public void updateResourceInfo(int deviceId, double[] resources) {
+        resourceAvailability.setRow(deviceId, resources);
+    }
+
+    /**
+     * @return a copy of the available resources of a device, indexed by the {@link ResourceTable} columns
+     */
+    public double[] getResourceRow(int deviceId) {
+        return resourceAvailability.getRow(deviceId);
     }
 
     public void removeServiceDiscoveryInfo(String microserviceName, Integer deviceID) {
@@ -0,0 +1,211 @@
+package org.fog.entities;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.math3.util.Pair;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimEntity;
+
+/**
+ * Descendant index of the fog device tree, used to route DOWN and ACTUATOR tuples only towards the
+ * children whose subtree holds their destination instead of flooding them to every child.
+ * <p>
+ * Devices are numbered in depth first order over the children lists, so that the subtree of a device
+ * is the interval <tt>[enter, exit]</tt> of numbers and "is b below a" is two comparisons. For every
+ * module of every application, and every actuator type, the index keeps the sorted numbers of the
+ * devices placing the module or attached to such an actuator; a subtree holds one of them if the
+ * first number not below its <tt>enter</tt> is not above its <tt>exit</tt>.
+ * <p>
+ * The index is rebuilt lazily after {@link #invalidate()}, which devices call when their children,
+ * placed modules or actuators change. Under the parallel kernel the change is a shared update: devices
+ * keep routing with the previous index until the window ends, and the index is then rebuilt while no
+ * partition runs.
+ */
+public class DeviceTreeIndex {
+
+	private static final int[] NONE = new int[0];
+
+	private static DeviceTreeIndex instance;
+	private static boolean valid;
+
+	/** Depth first numbers of the devices by entity id, -1 for other entities */
+	private final int[] enter;
+	/** Largest depth first number in the subtree of each device */
+	private final int[] exit;
+	/** Sorted depth first numbers of the devices placing a module, by application and module */
+	private final Map<String, Map<String, int[]>> moduleHosts = new HashMap<String, Map<String, int[]>>();
+	/** Sorted depth first numbers of the devices attached to an actuator, by actuator type */
+	private final Map<String, int[]> actuatorHosts = new HashMap<String, int[]>();
+
+	private DeviceTreeIndex() {
+		int entities = CloudSim.getNumEntities();
+		enter = new int[entities];
+		exit = new int[entities];
+		Arrays.fill(enter, -1);
+		Arrays.fill(exit, -1);
+
+		List<FogDevice> devices = new ArrayList<FogDevice>();
+		Set<Integer> children = new HashSet<Integer>();
+		for (SimEntity entity : CloudSim.getEntityList()) {
+			if (entity instanceof FogDevice) {
+				devices.add((FogDevice) entity);
+				children.addAll(((FogDevice) entity).getChildrenIds());
+			}
+		}
+		int next = 0;
+		for (FogDevice device : devices) {
+			if (!children.contains(device.getId()))
+				next = number(device, next);
+		}
+		// devices only reachable through a cycle of children lists
+		for (FogDevice device : devices) {
+			if (enter[device.getId()] < 0)
+				next = number(device, next);
+		}
+
+		Map<String, Map<String, List<Integer>>> modules = new HashMap<String, Map<String, List<Integer>>>();
+		Map<String, List<Integer>> actuators = new HashMap<String, List<Integer>>();
+		for (FogDevice device : devices) {
+			int label = enter[device.getId()];
+			for (Map.Entry<String, List<String>> entry : device.appToModulesMap.entrySet()) {
+				Map<String, List<Integer>> appModules = modules.get(entry.getKey());
+				if (appModules == null) {
+					appModules = new HashMap<String, List<Integer>>();
+					modules.put(entry.getKey(), appModules);
+				}
+				for (String module : entry.getValue())
+					add(appModules, module, label);
+			}
+			for (Pair<Integer, Double> association : device.getAssociatedActuatorIds()) {
+				SimEntity actuator = CloudSim.getEntity(association.getFirst());
+				if (actuator instanceof Actuator)
+					add(actuators, ((Actuator) actuator).getActuatorType(), label);
+			}
+		}
+		for (Map.Entry<String, Map<String, List<Integer>>> entry : modules.entrySet()) {
+			Map<String, int[]> appModules = new HashMap<String, int[]>();
+			for (Map.Entry<String, List<Integer>> module : entry.getValue().entrySet())
+				appModules.put(module.getKey(), sorted(module.getValue()));
+			moduleHosts.put(entry.getKey(), appModules);
+		}
+		for (Map.Entry<String, List<Integer>> entry : actuators.entrySet())
+			actuatorHosts.put(entry.getKey(), sorted(entry.getValue()));
+	}
+
+	/**
+	 * Numbers the devices of the subtree of a device not numbered yet, without recursion so that
+	 * deep topologies do not overflow the stack.
+	 *
+	 * @return the next free number
+	 */
+	private int number(FogDevice root, int next) {
+		Deque<int[]> stack = new ArrayDeque<int[]>();
+		enter[root.getId()] = next++;
+		stack.push(new int[] { root.getId(), 0 });
+		while (!stack.isEmpty()) {
+			int[] top = stack.peek();
+			List<Integer> children = ((FogDevice) CloudSim.getEntity(top[0])).getChildrenIds();
+			if (top[1] < children.size()) {
+				int childId = children.get(top[1]++);
+				if (childId >= 0 && childId < enter.length && enter[childId] < 0
+						&& CloudSim.getEntity(childId) instanceof FogDevice) {
+					enter[childId] = next++;
+					stack.push(new int[] { childId, 0 });
+				}
+			} else {
+				exit[top[0]] = next - 1;
+				stack.pop();
+			}
+		}
+		return next;
+	}
+
+	private static void add(Map<String, List<Integer>> map, String key, int label) {
+		List<Integer> labels = map.get(key);
+		if (labels == null) {
+			labels = new ArrayList<Integer>();
+			map.put(key, labels);
+		}
+		labels.add(label);
+	}
+
+	private static int[] sorted(List<Integer> labels) {
+		int[] result = new int[labels.size()];
+		for (int i = 0; i < result.length; i++)
+			result[i] = labels.get(i);
+		Arrays.sort(result);
+		return result;
+	}
+
+	/**
+	 * @return the index of the current device tree, rebuilt if it changed since the last call
+	 */
+	public static synchronized DeviceTreeIndex getInstance() {
+		if (!valid || instance == null || instance.enter.length != CloudSim.getNumEntities()) {
+			instance = new DeviceTreeIndex();
+			valid = true;
+		}
+		return instance;
+	}
+
+	/**
+	 * Marks the index outdated, to be called when children, placed modules or actuators of a device change.
+	 */
+	public static void invalidate() {
+		CloudSim.updateShared(new Runnable() {
+			@Override
+			public void run() {
+				synchronized (DeviceTreeIndex.class) {
+					valid = false;
+					// partitions must not rebuild it while others change their devices
+					if (CloudSim.running() && CloudSim.getParallelExecution() != null)
+						getInstance();
+				}
+			}
+		});
+	}
+
+	/**
+	 * @return true if the device is the root of the subtree or one of its descendants
+	 */
+	public boolean isInSubtree(int subtreeRootId, int deviceId) {
+		if (subtreeRootId < 0 || subtreeRootId >= enter.length || deviceId < 0 || deviceId >= enter.length)
+			return false;
+		int label = enter[deviceId];
+		return label >= 0 && enter[subtreeRootId] >= 0 && label >= enter[subtreeRootId] && label <= exit[subtreeRootId];
+	}
+
+	/**
+	 * @return true if a device of the subtree places the module of the application
+	 */
+	public boolean subtreeHostsModule(int subtreeRootId, String appId, String moduleName) {
+		Map<String, int[]> appModules = moduleHosts.get(appId);
+		int[] labels = appModules == null ? null : appModules.get(moduleName);
+		return containsLabelOf(subtreeRootId, labels == null ? NONE : labels);
+	}
+
+	/**
+	 * @return true if a device of the subtree is attached to an actuator of the type
+	 */
+	public boolean subtreeHostsActuator(int subtreeRootId, String actuatorType) {
+		int[] labels = actuatorHosts.get(actuatorType);
+		return containsLabelOf(subtreeRootId, labels == null ? NONE : labels);
+	}
+
+	private boolean containsLabelOf(int subtreeRootId, int[] labels) {
+		if (labels.length == 0 || subtreeRootId < 0 || subtreeRootId >= enter.length || enter[subtreeRootId] < 0)
+			return false;
+		int position = Arrays.binarySearch(labels, enter[subtreeRootId]);
+		if (position < 0)
+			position = -position - 1;
+		return position < labels.length && labels[position] <= exit[subtreeRootId];
+	}
+}
@@ -22,6 +22,15 @@ public class FogBroker extends PowerDatacenterBroker{
 		
 	}
 
+	/**
+	 * The broker only identifies the user of the applications, the cloudlets returned to it are
+	 * not processed.
+	 */
+	@Override
+	public boolean consumesEvent(int tag) {
+		return false;
+	}
+
 	@Override
 	public void shutdownEntity() {
 		// TODO Auto-generated method stub
@@ -18,6 +18,7 @@ import org.fog.application.Application;
 import org.fog.mobilitydata.Clustering;
 import org.fog.policy.AppModuleAllocationPolicy;
 import org.fog.scheduler.StreamOperatorScheduler;
+import org.fog.scheduler.TupleScheduler;
 import org.fog.utils.*;
 import org.json.simple.JSONObject;
 
@@ -64,14 +65,29 @@ public class FogDevice extends PowerDatacenter {
      */
     protected boolean isNorthLinkBusy;
 
+    /**
+     * Time each link has been busy before its current busy period, and start of that period
+     */
+    private double northLinkBusyTime;
+    private double northLinkBusySince;
+    private double southLinkBusyTime;
+    private double southLinkBusySince;
+    private double clusterLinkBusyTime;
+    private double clusterLinkBusySince;
+
     protected double uplinkBandwidth;
     protected double downlinkBandwidth;
     protected double uplinkLatency;
     protected List<Pair<Integer, Double>> associatedActuatorIds;
 
+    /**
+     * Energy and cost up to {@link #utilizationSince}; from then on the host has been at
+     * {@link #lastUtilization}, as last observed at {@link #lastUtilizationUpdateTime}
+     */
     protected double energyConsumption;
     protected double lastUtilizationUpdateTime;
     protected double lastUtilization;
+    protected double utilizationSince;
     private int level;
 
     protected double ratePerMips;
@@ -89,6 +105,11 @@ public class FogDevice extends PowerDatacenter {
     protected boolean isClusterLinkBusy; //Flag denoting whether the link connecting to cluster from this FogDevice is busy
     protected double clusterLinkBandwidth;
 
+    /**
+     * Modules of the host by name, indexed when the stream operator scheduler starts tracking the allocation
+     */
+    private Map<String, List<Vm>> modulesByName;
+    private boolean tupleSchedulersOnly;
 
     public FogDevice(
             String name,
@@ -245,6 +266,23 @@ public class FogDevice extends PowerDatacenter {
 
     }
 
+    /**
+     * Acknowledgements of sent tuples are ignored, and so are sensors joining, whose only effect
+     * would be an acknowledgement the sensor ignores. Subclasses handling either override this
+     * method.
+     */
+    @Override
+    public boolean consumesEvent(int tag) {
+        return tag != FogEvents.TUPLE_ACK && tag != FogEvents.SENSOR_JOINED;
+    }
+
+    @Override
+    public void startEntity() {
+        super.startEntity();
+        // topologies are wired through getChildrenIds() before the simulation starts
+        DeviceTreeIndex.invalidate();
+    }
+
     @Override
     protected void processOtherEvent(SimEvent ev) {
         switch (ev.getTag()) {
@@ -257,9 +295,6 @@ public class FogDevice extends PowerDatacenter {
             case FogEvents.RELEASE_OPERATOR:
                 processOperatorRelease(ev);
                 break;
-            case FogEvents.SENSOR_JOINED:
-                processSensorJoining(ev);
-                break;
             case FogEvents.SEND_PERIODIC_TUPLE:
                 sendPeriodicTuple(ev);
                 break;
@@ -397,10 +432,20 @@ public class FogDevice extends PowerDatacenter {
         int actuatorId = ev.getSource();
         double delay = (double) ev.getData();
         getAssociatedActuatorIds().add(new Pair<Integer, Double>(actuatorId, delay));
+        DeviceTreeIndex.invalidate();
     }
 
 
+    /**
+     * The event data is an application, or the list of applications submitted together.
+     */
+    @SuppressWarnings("unchecked")
     protected void updateActiveApplications(SimEvent ev) {
+        if (ev.getData() instanceof List) {
+            for (Application app : (List<Application>) ev.getData())
+                getActiveApplications().add(app.getAppId());
+            return;
+        }
         Application app = (Application) ev.getData();
         getActiveApplications().add(app.getAppId());
     }
@@ -537,12 +582,7 @@ public class FogDevice extends PowerDatacenter {
         String destModule = resTuple.getDestModuleName();
         for (AppLoop loop : getApplicationMap().get(resTuple.getAppId()).getLoops()) {
             if (loop.hasEdge(srcModule, destModule) && loop.isStartModule(srcModule)) {
-                int tupleId = TimeKeeper.getInstance().getUniqueId();
-                resTuple.setActualTupleId(tupleId);
-                if (!TimeKeeper.getInstance().getLoopIdToTupleIds().containsKey(loop.getLoopId()))
-                    TimeKeeper.getInstance().getLoopIdToTupleIds().put(loop.getLoopId(), new ArrayList<Integer>());
-                TimeKeeper.getInstance().getLoopIdToTupleIds().get(loop.getLoopId()).add(tupleId);
-                TimeKeeper.getInstance().getEmitTimes().put(tupleId, CloudSim.clock());
+                resTuple.setActualTupleId(TimeKeeper.getInstance().loopStarted(loop.getLoopId()));
 
                 //Logger.debug(getName(), "\tSENDING\t"+tuple.getActualTupleId()+"\tSrc:"+srcModule+"\tDest:"+destModule);
 
@@ -551,15 +591,32 @@ public class FogDevice extends PowerDatacenter {
     }
 
     protected int getChildIdWithRouteTo(int targetDeviceId) {
+        DeviceTreeIndex index = DeviceTreeIndex.getInstance();
         for (Integer childId : getChildrenIds()) {
-            if (targetDeviceId == childId)
-                return childId;
-            if (((FogDevice) CloudSim.getEntity(childId)).getChildIdWithRouteTo(targetDeviceId) != -1)
+            if (index.isInSubtree(childId, targetDeviceId))
                 return childId;
         }
         return -1;
     }
 
+    /**
+     * Sends a DOWN tuple to the children whose subtree places its destination module. Under the
+     * parallel kernel the placement of other devices may be changing concurrently, so the tuple is
+     * sent to every child as before.
+     */
+    protected void sendDownToModule(Tuple tuple) {
+        if (tuple.getDestModuleName() == null || CloudSim.getParallelExecution() != null) {
+            for (int childId : getChildrenIds())
+                sendDown(tupleForChild(tuple), childId);
+            return;
+        }
+        DeviceTreeIndex index = DeviceTreeIndex.getInstance();
+        for (int childId : getChildrenIds()) {
+            if (index.subtreeHostsModule(childId, tuple.getAppId(), tuple.getDestModuleName()))
+                sendDown(tupleForChild(tuple), childId);
+        }
+    }
+
     protected int getChildIdForTuple(Tuple tuple) {
         if (tuple.getDirection() == Tuple.ACTUATOR) {
             int gatewayId = ((Actuator) CloudSim.getEntity(tuple.getActuatorId())).getGatewayDeviceId();
@@ -569,6 +626,27 @@ public class FogDevice extends PowerDatacenter {
     }
 
     protected void updateAllocatedMips(String incomingOperator) {
+        if (getHost().getVmScheduler() instanceof StreamOperatorScheduler) {
+            StreamOperatorScheduler scheduler = (StreamOperatorScheduler) getHost().getVmScheduler();
+            List<Vm> vms = getHost().getVmList();
+            if (scheduler.isTracking(vms) && modulesByName != null) {
+                // tuples only start on the incoming operator, so only busy modules can go idle and only
+                // modules of the incoming operator can become busy
+                for (Vm vm : scheduler.getBusyVms())
+                    scheduler.setBusy(vm, isBusyModule(vm, incomingOperator));
+                for (Vm vm : getModulesNamed(incomingOperator))
+                    scheduler.setBusy(vm, true);
+                scheduler.applyBusyStates();
+            } else {
+                boolean[] busy = new boolean[vms.size()];
+                for (int i = 0; i < busy.length; i++)
+                    busy[i] = isBusyModule(vms.get(i), incomingOperator);
+                scheduler.allocateBusyVms(vms, busy);
+                indexModules(vms);
+            }
+            updateEnergyConsumption();
+            return;
+        }
         getHost().getVmScheduler().deallocatePesForAllVms();
         for (final Vm vm : getHost().getVmList()) {
             if (vm.getCloudletScheduler().runningCloudlets() > 0 || ((AppModule) vm).getName().equals(incomingOperator)) {
@@ -594,6 +672,89 @@ public class FogDevice extends PowerDatacenter {
 
     }
 
+    /**
+     * Checks whether {@link #updateAllocatedMips(String)} would change the allocation, i.e. whether
+     * a module holds MIPS without running tuples or the other way round.
+     */
+    protected boolean isAllocatedMipsOutdated(String incomingOperator) {
+        if (getHost().getVmScheduler() instanceof StreamOperatorScheduler && modulesByName != null && tupleSchedulersOnly) {
+            StreamOperatorScheduler scheduler = (StreamOperatorScheduler) getHost().getVmScheduler();
+            if (scheduler.isTracking(getHost().getVmList())) {
+                // the modules updateAllocatedMips(String) would look at, the others have no tuples
+                for (Vm vm : scheduler.getBusyVms()) {
+                    if (isAllocatedMipsOutdated(vm, incomingOperator))
+                        return true;
+                }
+                for (Vm vm : getModulesNamed(incomingOperator)) {
+                    if (isAllocatedMipsOutdated(vm, incomingOperator))
+                        return true;
+                }
+                return false;
+            }
+        }
+        for (Vm vm : getHost().getVmList()) {
+            if (isAllocatedMipsOutdated(vm, incomingOperator))
+                return true;
+        }
+        return false;
+    }
+
+    private boolean isAllocatedMipsOutdated(Vm vm, String incomingOperator) {
+        if (isBusyModule(vm, incomingOperator) != isAllocatedMips(vm))
+            return true;
+        return !(vm.getCloudletScheduler() instanceof TupleScheduler)
+                || ((TupleScheduler) vm.getCloudletScheduler()).hasCompletedCloudletsInExecution();
+    }
+
+    private static boolean isBusyModule(Vm vm, String incomingOperator) {
+        return vm.getCloudletScheduler().runningCloudlets() > 0 || ((AppModule) vm).getName().equals(incomingOperator);
+    }
+
+    /**
+     * Indexes the modules of the host by name, along with the allocation the stream operator scheduler
+     * starts tracking.
+     */
+    private void indexModules(List<Vm> vms) {
+        modulesByName = new HashMap<String, List<Vm>>();
+        tupleSchedulersOnly = true;
+        for (Vm vm : vms) {
+            String name = ((AppModule) vm).getName();
+            if (!modulesByName.containsKey(name))
+                modulesByName.put(name, new ArrayList<Vm>(1));
+            modulesByName.get(name).add(vm);
+            tupleSchedulersOnly &= vm.getCloudletScheduler() instanceof TupleScheduler;
+        }
+    }
+
+    private List<Vm> getModulesNamed(String name) {
+        List<Vm> modules = modulesByName.get(name);
+        return modules != null ? modules : Collections.<Vm>emptyList();
+    }
+
+    private boolean isAllocatedMips(Vm vm) {
+        if (getHost().getVmScheduler() instanceof StreamOperatorScheduler)
+            return ((StreamOperatorScheduler) getHost().getVmScheduler()).isBusy(vm);
+        return getHost().getTotalAllocatedMipsForVm(vm) > 0;
+    }
+
+    /**
+     * Gives the whole capacity of the host to the given module, keeping the share of the others.
+     */
+    protected void allocateMipsToModule(AppModule operator) {
+        if (getHost().getVmScheduler() instanceof StreamOperatorScheduler) {
+            ((StreamOperatorScheduler) getHost().getVmScheduler()).allocateBusyVm(getHost().getVmList(), operator);
+            return;
+        }
+        getHost().getVmScheduler().deallocatePesForVm(operator);
+        getHost().getVmScheduler().allocatePesForVm(operator, new ArrayList<Double>() {
+            protected static final long serialVersionUID = 1L;
+
+            {
+                add((double) getHost().getTotalMips());
+            }
+        });
+    }
+
     private void updateEnergyConsumption() {
         double totalMipsAllocated = 0;
         for (final Vm vm : getHost().getVmList()) {
@@ -604,23 +765,33 @@ public class FogDevice extends PowerDatacenter {
         }
 
         double timeNow = CloudSim.clock();
-        double currentEnergyConsumption = getEnergyConsumption();
-        double newEnergyConsumption = currentEnergyConsumption + (timeNow - lastUtilizationUpdateTime) * getHost().getPowerModel().getPower(lastUtilization);
-        setEnergyConsumption(newEnergyConsumption);
-	
-		/*if(getName().equals("d-0")){
-			System.out.println("------------------------");
-			System.out.println("Utilization = "+lastUtilization);
-			System.out.println("Power = "+getHost().getPowerModel().getPower(lastUtilization));
-			System.out.println(timeNow-lastUtilizationUpdateTime);
-		}*/
+        double utilization = Math.min(1, totalMipsAllocated / getHost().getTotalMips());
+        // energy and cost are integrals of a piecewise constant utilization, only accumulated when it changes
+        lastUtilizationUpdateTime = timeNow;
+        if (utilization != lastUtilization) {
+            closeUtilizationPeriod();
+            lastUtilization = utilization;
+        }
+    }
 
-        double currentCost = getTotalCost();
-        double newcost = currentCost + (timeNow - lastUtilizationUpdateTime) * getRatePerMips() * lastUtilization * getHost().getTotalMips();
-        setTotalCost(newcost);
+    /**
+     * Adds the energy and cost of the period at {@link #lastUtilization} up to the last update to the
+     * totals, and starts a new period.
+     */
+    private void closeUtilizationPeriod() {
+        energyConsumption += getOpenPeriodEnergy();
+        totalCost += getOpenPeriodCost();
+        utilizationSince = lastUtilizationUpdateTime;
+    }
 
-        lastUtilization = Math.min(1, totalMipsAllocated / getHost().getTotalMips());
-        lastUtilizationUpdateTime = timeNow;
+    private double getOpenPeriodEnergy() {
+        double duration = lastUtilizationUpdateTime - utilizationSince;
+        return duration == 0 ? 0 : duration * getHost().getPowerModel().getPower(lastUtilization);
+    }
+
+    private double getOpenPeriodCost() {
+        double duration = lastUtilizationUpdateTime - utilizationSince;
+        return duration == 0 ? 0 : duration * getRatePerMips() * lastUtilization * getHost().getTotalMips();
     }
 
     protected void processAppSubmit(SimEvent ev) {
@@ -631,8 +802,10 @@ public class FogDevice extends PowerDatacenter {
     public void addChild(int childId) {
         if (CloudSim.getEntityName(childId).toLowerCase().contains("sensor"))
             return;
-        if (!getChildrenIds().contains(childId) && childId != getId())
+        if (!getChildrenIds().contains(childId) && childId != getId()) {
             getChildrenIds().add(childId);
+            DeviceTreeIndex.invalidate();
+        }
         if (!getChildToOperatorsMap().containsKey(childId))
             getChildToOperatorsMap().put(childId, new ArrayList<String>());
     }
@@ -666,8 +839,16 @@ public class FogDevice extends PowerDatacenter {
                 return;
             }
         }
+        if (CloudSim.getParallelExecution() != null) {
+            for (int childId : getChildrenIds())
+                sendDown(tupleForChild(tuple), childId);
+            return;
+        }
+        // every actuator of the type below this device receives the tuple, as when it was flooded
+        DeviceTreeIndex index = DeviceTreeIndex.getInstance();
         for (int childId : getChildrenIds()) {
-            sendDown(tuple, childId);
+            if (index.subtreeHostsActuator(childId, tuple.getDestModuleName()))
+                sendDown(tupleForChild(tuple), childId);
         }
     }
 
@@ -703,14 +884,7 @@ public class FogDevice extends PowerDatacenter {
         if (getHost().getVmList().size() > 0) {
             final AppModule operator = (AppModule) getHost().getVmList().get(0);
             if (CloudSim.clock() > 0) {
-                getHost().getVmScheduler().deallocatePesForVm(operator);
-                getHost().getVmScheduler().allocatePesForVm(operator, new ArrayList<Double>() {
-                    protected static final long serialVersionUID = 1L;
-
-                    {
-                        add((double) getHost().getTotalMips());
-                    }
-                });
+                allocateMipsToModule(operator);
             }
         }
 
@@ -740,20 +914,16 @@ public class FogDevice extends PowerDatacenter {
             } else if (tuple.getDestModuleName() != null) {
                 if (tuple.getDirection() == Tuple.UP)
                     sendUp(tuple);
-                else if (tuple.getDirection() == Tuple.DOWN) {
-                    for (int childId : getChildrenIds())
-                        sendDown(tuple, childId);
-                }
+                else if (tuple.getDirection() == Tuple.DOWN)
+                    sendDownToModule(tuple);
             } else {
                 sendUp(tuple);
             }
         } else {
             if (tuple.getDirection() == Tuple.UP)
                 sendUp(tuple);
-            else if (tuple.getDirection() == Tuple.DOWN) {
-                for (int childId : getChildrenIds())
-                    sendDown(tuple, childId);
-            }
+            else if (tuple.getDirection() == Tuple.DOWN)
+                sendDownToModule(tuple);
         }
     }
 
@@ -764,29 +934,12 @@ public class FogDevice extends PowerDatacenter {
         List<AppLoop> loops = app.getLoops();
         for (AppLoop loop : loops) {
             if (loop.hasEdge(srcModule, destModule) && loop.isEndModule(destModule)) {
-                Double startTime = TimeKeeper.getInstance().getEmitTimes().get(tuple.getActualTupleId());
-                if (startTime == null)
-                    break;
-                if (!TimeKeeper.getInstance().getLoopIdToCurrentAverage().containsKey(loop.getLoopId())) {
-                    TimeKeeper.getInstance().getLoopIdToCurrentAverage().put(loop.getLoopId(), 0.0);
-                    TimeKeeper.getInstance().getLoopIdToCurrentNum().put(loop.getLoopId(), 0);
-                }
-                double currentAverage = TimeKeeper.getInstance().getLoopIdToCurrentAverage().get(loop.getLoopId());
-                int currentCount = TimeKeeper.getInstance().getLoopIdToCurrentNum().get(loop.getLoopId());
-                double delay = CloudSim.clock() - TimeKeeper.getInstance().getEmitTimes().get(tuple.getActualTupleId());
-                TimeKeeper.getInstance().getEmitTimes().remove(tuple.getActualTupleId());
-                double newAverage = (currentAverage * currentCount + delay) / (currentCount + 1);
-                TimeKeeper.getInstance().getLoopIdToCurrentAverage().put(loop.getLoopId(), newAverage);
-                TimeKeeper.getInstance().getLoopIdToCurrentNum().put(loop.getLoopId(), currentCount + 1);
+                TimeKeeper.getInstance().loopCompleted(loop.getLoopId(), tuple.getActualTupleId());
                 break;
             }
         }
     }
 
-    protected void processSensorJoining(SimEvent ev) {
-        send(ev.getSource(), CloudSim.getMinTimeBetweenEvents(), FogEvents.TUPLE_ACK);
-    }
-
     protected void executeTuple(SimEvent ev, String moduleName) {
         Logger.debug(getName(), "Executing tuple on module " + moduleName);
         Tuple tuple = (Tuple) ev.getData();
@@ -810,7 +963,10 @@ public class FogDevice extends PowerDatacenter {
         TimeKeeper.getInstance().tupleStartedExecution(tuple);
         updateAllocatedMips(moduleName);
         processCloudletSubmit(ev, false);
-        updateAllocatedMips(moduleName);
+        // the second pass only matters if modules went idle while processing up to now, or if
+        // the tuple is already complete
+        if (tuple.getCloudletLength() == 0 || isAllocatedMipsOutdated(moduleName))
+            updateAllocatedMips(moduleName);
 		/*for(Vm vm : getHost().getVmList()){
 			Logger.error(getName(), "MIPS allocated to "+((AppModule)vm).getName()+" = "+getHost().getTotalAllocatedMipsForVm(vm));
 		}*/
@@ -823,6 +979,7 @@ public class FogDevice extends PowerDatacenter {
             appToModulesMap.put(appId, new ArrayList<String>());
         }
         appToModulesMap.get(appId).add(module.getName());
+        DeviceTreeIndex.invalidate();
         processVmCreate(ev, false);
         if (module.isBeingInstantiated()) {
             module.setBeingInstantiated(false);
@@ -901,6 +1058,20 @@ public class FogDevice extends PowerDatacenter {
         NetworkUsageMonitor.sendingTuple(latency, tuple.getCloudletFileSize());
     }
 
+    /**
+     * Returns the tuple to send to one of several children. The sequential kernel lets the children
+     * share the tuple, while the parallel kernel may execute them concurrently and needs a copy each.
+     * Subclasses of tuples are shared in both cases.
+     *
+     * @param tuple tuple sent to all children
+     * @return the tuple for one child
+     */
+    protected Tuple tupleForChild(Tuple tuple) {
+        if (CloudSim.getParallelExecution() == null || tuple.getClass() != Tuple.class)
+            return tuple;
+        return new Tuple(tuple);
+    }
+
     protected void sendDown(Tuple tuple, int childId) {
         if (getChildrenIds().contains(childId)) {
             if (!isSouthLinkBusy()) {
@@ -934,6 +1105,7 @@ public class FogDevice extends PowerDatacenter {
 
     public void setChildrenIds(List<Integer> childrenIds) {
         this.childrenIds = childrenIds;
+        DeviceTreeIndex.invalidate();
     }
 
     public double getUplinkBandwidth() {
@@ -961,13 +1133,53 @@ public class FogDevice extends PowerDatacenter {
     }
 
     public void setSouthLinkBusy(boolean isSouthLinkBusy) {
+        if (isSouthLinkBusy != this.isSouthLinkBusy) {
+            if (isSouthLinkBusy)
+                southLinkBusySince = CloudSim.clock();
+            else
+                southLinkBusyTime += CloudSim.clock() - southLinkBusySince;
+        }
         this.isSouthLinkBusy = isSouthLinkBusy;
     }
 
     public void setNorthLinkBusy(boolean isNorthLinkBusy) {
+        if (isNorthLinkBusy != this.isNorthLinkBusy) {
+            if (isNorthLinkBusy)
+                northLinkBusySince = CloudSim.clock();
+            else
+                northLinkBusyTime += CloudSim.clock() - northLinkBusySince;
+        }
         this.isNorthLinkBusy = isNorthLinkBusy;
     }
 
+    /**
+     * @return total simulated time the link southwards has been busy, up to now
+     */
+    public double getSouthLinkBusyTime() {
+        return southLinkBusyTime + (isSouthLinkBusy ? CloudSim.clock() - southLinkBusySince : 0);
+    }
+
+    /**
+     * @return total simulated time the link northwards has been busy, up to now
+     */
+    public double getNorthLinkBusyTime() {
+        return northLinkBusyTime + (isNorthLinkBusy ? CloudSim.clock() - northLinkBusySince : 0);
+    }
+
+    /**
+     * @return total simulated time the link to the cluster has been busy, up to now
+     */
+    public double getClusterLinkBusyTime() {
+        return clusterLinkBusyTime + (isClusterLinkBusy ? CloudSim.clock() - clusterLinkBusySince : 0);
+    }
+
+    /**
+     * @return utilization of the host as of the last update of the energy consumption
+     */
+    public double getLastUtilization() {
+        return lastUtilization;
+    }
+
     public int getControllerId() {
         return controllerId;
     }
@@ -1032,11 +1244,16 @@ public class FogDevice extends PowerDatacenter {
         this.associatedActuatorIds = associatedActuatorIds;
     }
 
+    /**
+     * @return the energy consumed up to the last utilization update
+     */
     public double getEnergyConsumption() {
-        return energyConsumption;
+        return energyConsumption + getOpenPeriodEnergy();
     }
 
     public void setEnergyConsumption(double energyConsumption) {
+        totalCost += getOpenPeriodCost();
+        utilizationSince = lastUtilizationUpdateTime;
         this.energyConsumption = energyConsumption;
     }
 
@@ -1061,14 +1278,20 @@ public class FogDevice extends PowerDatacenter {
     }
 
     public void setRatePerMips(double ratePerMips) {
+        closeUtilizationPeriod();
         this.ratePerMips = ratePerMips;
     }
 
+    /**
+     * @return the cost up to the last utilization update
+     */
     public double getTotalCost() {
-        return totalCost;
+        return totalCost + getOpenPeriodCost();
     }
 
     public void setTotalCost(double totalCost) {
+        energyConsumption += getOpenPeriodEnergy();
+        utilizationSince = lastUtilizationUpdateTime;
         this.totalCost = totalCost;
     }
 
@@ -1089,8 +1312,10 @@ public class FogDevice extends PowerDatacenter {
         // TODO Auto-generated method stub
         @SuppressWarnings("deprecation")
         Integer childIDobject = new Integer(childId);
-        if (getChildrenIds().contains(childId) && childId != getId())
+        if (getChildrenIds().contains(childId) && childId != getId()) {
             getChildrenIds().remove(childIDobject);
+            DeviceTreeIndex.invalidate();
+        }
         if (getChildToOperatorsMap().containsKey(childId)) {
             List<String> operatorName = getChildToOperatorsMap().get(childId);
             getChildToOperatorsMap().remove(childId, operatorName);
@@ -1176,6 +1401,12 @@ public class FogDevice extends PowerDatacenter {
     }
 
     protected void setClusterLinkBusy(boolean busy) {
+        if (busy != this.isClusterLinkBusy) {
+            if (busy)
+                clusterLinkBusySince = CloudSim.clock();
+            else
+                clusterLinkBusyTime += CloudSim.clock() - clusterLinkBusySince;
+        }
         this.isClusterLinkBusy = busy;
     }
 
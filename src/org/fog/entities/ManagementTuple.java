@@ -25,7 +25,7 @@ public class ManagementTuple extends Tuple {
     protected PlacementRequest placementRequest;
     protected Pair<String, Integer> serviceDiscoveryInfor;
     protected Map<Application, List<ModuleLaunchConfig>> deployementSet;
-    protected Pair<Integer, Map<String, Double>> resourceData;
+    protected Pair<Integer, double[]> resourceData;
 
     //todo check use of this
     public Double processingDelay = 0.0;
@@ -65,11 +65,11 @@ public class ManagementTuple extends Tuple {
         return deployementSet;
     }
 
-    public Pair<Integer, Map<String, Double>> getResourceData() {
+    public Pair<Integer, double[]> getResourceData() {
         return resourceData;
     }
 
-    public void setResourceData(Pair<Integer, Map<String, Double>> resourceData) {
+    public void setResourceData(Pair<Integer, double[]> resourceData) {
         this.resourceData = resourceData;
     }
 }
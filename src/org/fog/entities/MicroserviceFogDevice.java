@@ -99,13 +99,13 @@ public class MicroserviceFogDevice extends FogDevice {
     }
 
     private void updateResourceInfo(SimEvent ev) {
-        Pair<Integer, Map<String, Double>> pair = (Pair<Integer, Map<String, Double>>) ev.getData();
+        Pair<Integer, double[]> pair = (Pair<Integer, double[]>) ev.getData();
         int deviceId = pair.getFirst();
         getControllerComponent().updateResourceInfo(deviceId, pair.getSecond());
     }
 
-    public Map<String, Double> getResourceAvailabilityOfDevice() {
-        return getControllerComponent().resourceAvailability.get(getId());
+    public double[] getResourceAvailabilityOfDevice() {
+        return getControllerComponent().getResourceRow(getId());
     }
 
 
@@ -176,14 +176,7 @@ public class MicroserviceFogDevice extends FogDevice {
         if (getHost().getVmList().size() > 0) {
             final AppModule operator = (AppModule) getHost().getVmList().get(0);
             if (CloudSim.clock() > 0) {
-                getHost().getVmScheduler().deallocatePesForVm(operator);
-                getHost().getVmScheduler().allocatePesForVm(operator, new ArrayList<Double>() {
-                    protected static final long serialVersionUID = 1L;
-
-                    {
-                        add((double) getHost().getTotalMips());
-                    }
-                });
+                allocateMipsToModule(operator);
             }
         }
 
@@ -265,8 +258,7 @@ public class MicroserviceFogDevice extends FogDevice {
                     }
 
 
-                    for (int childId : getChildrenIds())
-                        sendDown(tuple, childId);
+                    sendDownToModule(tuple);
 
                 } else {
                     Logger.error("Routing error", "Destination id -1 for UP tuple");
@@ -279,7 +271,7 @@ public class MicroserviceFogDevice extends FogDevice {
     /**
      * Both cloud and FON participates in placement process
      */
-    public void initializeController(LoadBalancer loadBalancer, MicroservicePlacementLogic mPlacement, Map<Integer, Map<String, Double>> resourceAvailability, Map<String, Application> applications, List<FogDevice> fogDevices) {
+    public void initializeController(LoadBalancer loadBalancer, MicroservicePlacementLogic mPlacement, ResourceTable resourceAvailability, Map<String, Application> applications, List<FogDevice> fogDevices) {
         if (getDeviceType() == MicroserviceFogDevice.FON || getDeviceType() == MicroserviceFogDevice.CLOUD) {
             controllerComponent = new ControllerComponent(getId(), loadBalancer, mPlacement, resourceAvailability, applications, fogDevices);
         } else
@@ -292,9 +284,9 @@ public class MicroserviceFogDevice extends FogDevice {
     public void initializeController(LoadBalancer loadBalancer) {
         if (getDeviceType() != MicroserviceFogDevice.FON) {
             controllerComponent = new ControllerComponent(getId(), loadBalancer);
-            controllerComponent.updateResources(getId(), ControllerComponent.CPU, getHost().getTotalMips());
-            controllerComponent.updateResources(getId(), ControllerComponent.RAM, getHost().getRam());
-            controllerComponent.updateResources(getId(), ControllerComponent.STORAGE, getHost().getStorage());
+            controllerComponent.updateResources(getId(), ResourceTable.CPU, getHost().getTotalMips());
+            controllerComponent.updateResources(getId(), ResourceTable.RAM, getHost().getRam());
+            controllerComponent.updateResources(getId(), ResourceTable.STORAGE, getHost().getStorage());
         }
     }
 
@@ -441,6 +433,7 @@ public class MicroserviceFogDevice extends FogDevice {
         }
         if (!appToModulesMap.get(appId).contains(module.getName())) {
             appToModulesMap.get(appId).add(module.getName());
+            DeviceTreeIndex.invalidate();
             processVmCreate(ev, false);
             boolean result = getVmAllocationPolicy().allocateHostForVm(module);
             if (result) {
@@ -495,6 +488,7 @@ public class MicroserviceFogDevice extends FogDevice {
             else {
                 moduleInstanceCount.get(appModule.getAppId()).remove(appModule.getName());
                 appToModulesMap.get(appModule.getAppId()).remove(appModule.getName());
+                DeviceTreeIndex.invalidate();
                 sendNow(getId(), FogEvents.RELEASE_MODULE, appModule);
             }
         }
@@ -609,17 +603,17 @@ public class MicroserviceFogDevice extends FogDevice {
 
         // in FONs resource availability is updated by placement algorithm
         if (getDeviceType() != FON) {
-            double mips = getControllerComponent().getAvailableResource(getId(), ControllerComponent.CPU) - (config.getModule().getMips() * config.getInstanceCount());
-            getControllerComponent().updateResources(getId(), ControllerComponent.CPU, mips);
-            double ram = getControllerComponent().getAvailableResource(getId(), ControllerComponent.RAM) - (config.getModule().getRam() * config.getInstanceCount());
-            getControllerComponent().updateResources(getId(), ControllerComponent.RAM, ram);
-            double storage = getControllerComponent().getAvailableResource(getId(), ControllerComponent.STORAGE) - (config.getModule().getSize() * config.getInstanceCount());
-            getControllerComponent().updateResources(getId(), ControllerComponent.STORAGE, storage);
+            double mips = getControllerComponent().getAvailableResource(getId(), ResourceTable.CPU) - (config.getModule().getMips() * config.getInstanceCount());
+            getControllerComponent().updateResources(getId(), ResourceTable.CPU, mips);
+            double ram = getControllerComponent().getAvailableResource(getId(), ResourceTable.RAM) - (config.getModule().getRam() * config.getInstanceCount());
+            getControllerComponent().updateResources(getId(), ResourceTable.RAM, ram);
+            double storage = getControllerComponent().getAvailableResource(getId(), ResourceTable.STORAGE) - (config.getModule().getSize() * config.getInstanceCount());
+            getControllerComponent().updateResources(getId(), ResourceTable.STORAGE, storage);
         }
         if (isInCluster && MicroservicePlacementConfig.ENABLE_RESOURCE_DATA_SHARING) {
             for (Integer deviceId : getClusterMembers()) {
                 ManagementTuple managementTuple = new ManagementTuple(FogUtils.generateTupleId(), ManagementTuple.NONE, ManagementTuple.RESOURCE_UPDATE);
-                Pair<Integer, Map<String, Double>> data = new Pair<>(getId(), getControllerComponent().resourceAvailability.get(getId()));
+                Pair<Integer, double[]> data = new Pair<>(getId(), getControllerComponent().getResourceRow(getId()));
                 managementTuple.setResourceData(data);
                 managementTuple.setDestinationDeviceId(deviceId);
                 sendNow(getId(), FogEvents.MANAGEMENT_TUPLE_ARRIVAL, managementTuple);
@@ -0,0 +1,187 @@
+package org.fog.entities;
+
+import java.util.Arrays;
+
+/**
+ * Columnar table of available resources (cpu, ram, storage) per device, indexed by device ordinal.
+ * <p>
+ * Every write is recorded in a delta log so that consumers can ask which devices changed since a
+ * given {@link #getVersion() version} instead of scanning all devices.
+ */
+public class ResourceTable {
+
+    /**
+     * Resource columns
+     */
+    public static final int CPU = 0;
+    public static final int RAM = 1;
+    public static final int STORAGE = 2;
+    public static final int NUM_RESOURCES = 3;
+
+    private static final int MIN_LOG_CAPACITY = 64;
+
+    private int[] ordinalById;
+    private int[] idByOrdinal;
+    private int size;
+    private double[][] columns;
+
+    /**
+     * Delta log : ordinals of changed devices, entry i corresponds to version logBase + i + 1
+     */
+    private int[] log;
+    private int logSize;
+    private long logBase;
+
+    public ResourceTable() {
+        this(16);
+    }
+
+    public ResourceTable(int expectedDevices) {
+        int capacity = Math.max(expectedDevices, 1);
+        ordinalById = new int[capacity];
+        Arrays.fill(ordinalById, -1);
+        idByOrdinal = new int[capacity];
+        columns = new double[NUM_RESOURCES][capacity];
+        log = new int[MIN_LOG_CAPACITY];
+    }
+
+    /**
+     * Maps the string resource identifiers of {@link ControllerComponent} to columns.
+     */
+    public static int resourceIndex(String resourceIdentifier) {
+        if (ControllerComponent.CPU.equals(resourceIdentifier))
+            return CPU;
+        if (ControllerComponent.RAM.equals(resourceIdentifier))
+            return RAM;
+        if (ControllerComponent.STORAGE.equals(resourceIdentifier))
+            return STORAGE;
+        throw new IllegalArgumentException("Unknown resource identifier " + resourceIdentifier);
+    }
+
+    public boolean contains(int deviceId) {
+        return deviceId >= 0 && deviceId < ordinalById.length && ordinalById[deviceId] >= 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int getDeviceId(int ordinal) {
+        return idByOrdinal[ordinal];
+    }
+
+    public double get(int deviceId, int resource) {
+        return columns[resource][ordinal(deviceId)];
+    }
+
+    /**
+     * @return a copy of the resources of a device, or null if the device is unknown
+     */
+    public double[] getRow(int deviceId) {
+        if (!contains(deviceId))
+            return null;
+        int ordinal = ordinalById[deviceId];
+        double[] row = new double[NUM_RESOURCES];
+        for (int r = 0; r < NUM_RESOURCES; r++)
+            row[r] = columns[r][ordinal];
+        return row;
+    }
+
+    public void set(int deviceId, int resource, double value) {
+        int ordinal = ordinalForWrite(deviceId);
+        if (columns[resource][ordinal] != value) {
+            columns[resource][ordinal] = value;
+            record(ordinal);
+        }
+    }
+
+    public void add(int deviceId, int resource, double delta) {
+        if (delta != 0)
+            set(deviceId, resource, get(deviceId, resource) + delta);
+    }
+
+    public void setRow(int deviceId, double cpu, double ram, double storage) {
+        int ordinal = ordinalForWrite(deviceId);
+        columns[CPU][ordinal] = cpu;
+        columns[RAM][ordinal] = ram;
+        columns[STORAGE][ordinal] = storage;
+        record(ordinal);
+    }
+
+    public void setRow(int deviceId, double[] row) {
+        setRow(deviceId, row[CPU], row[RAM], row[STORAGE]);
+    }
+
+    /**
+     * @return version of the table, incremented by every effective write
+     */
+    public long getVersion() {
+        return logBase + logSize;
+    }
+
+    /**
+     * Returns the ids of the devices whose resources changed after the given version. If the log
+     * no longer reaches back to that version, all devices are returned.
+     */
+    public int[] changedSince(long version) {
+        if (version < logBase) {
+            return Arrays.copyOf(idByOrdinal, size);
+        }
+        int from = (int) (version - logBase);
+        if (from >= logSize)
+            return new int[0];
+        boolean[] seen = new boolean[size];
+        int[] changed = new int[Math.min(size, logSize - from)];
+        int count = 0;
+        for (int i = from; i < logSize; i++) {
+            int ordinal = log[i];
+            if (!seen[ordinal]) {
+                seen[ordinal] = true;
+                changed[count++] = idByOrdinal[ordinal];
+            }
+        }
+        return Arrays.copyOf(changed, count);
+    }
+
+    private int ordinal(int deviceId) {
+        if (!contains(deviceId))
+            throw new IllegalArgumentException("Device " + deviceId + " is not in the resource table");
+        return ordinalById[deviceId];
+    }
+
+    private int ordinalForWrite(int deviceId) {
+        if (contains(deviceId))
+            return ordinalById[deviceId];
+        if (deviceId < 0)
+            throw new IllegalArgumentException("Invalid device id " + deviceId);
+        if (deviceId >= ordinalById.length) {
+            int old = ordinalById.length;
+            ordinalById = Arrays.copyOf(ordinalById, Math.max(deviceId + 1, old * 2));
+            Arrays.fill(ordinalById, old, ordinalById.length, -1);
+        }
+        if (size == idByOrdinal.length) {
+            idByOrdinal = Arrays.copyOf(idByOrdinal, size * 2);
+            for (int r = 0; r < NUM_RESOURCES; r++)
+                columns[r] = Arrays.copyOf(columns[r], size * 2);
+        }
+        ordinalById[deviceId] = size;
+        idByOrdinal[size] = deviceId;
+        return size++;
+    }
+
+    private void record(int ordinal) {
+        if (logSize == log.length) {
+            int limit = Math.max(MIN_LOG_CAPACITY, 2 * size);
+            if (logSize >= limit) {
+                // drop the older half; readers asking for older versions get every device
+                int keep = logSize / 2;
+                System.arraycopy(log, logSize - keep, log, 0, keep);
+                logBase += logSize - keep;
+                logSize = keep;
+            } else {
+                log = Arrays.copyOf(log, Math.min(limit, log.length * 2));
+            }
+        }
+        log[logSize++] = ordinal;
+    }
+}
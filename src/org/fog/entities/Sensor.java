@@ -1,7 +1,5 @@
 package org.fog.entities;
 
-import java.util.ArrayList;
-
 import org.cloudbus.cloudsim.UtilizationModelFull;
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.SimEntity;
@@ -103,13 +101,7 @@ public class Sensor extends SimEntity {
 		Application application = getApp();
 		for(AppLoop loop : application.getLoops()){
 			if(loop.hasEdge(src, dest)){
-				
-				int tupleId = TimeKeeper.getInstance().getUniqueId();
-				if(!TimeKeeper.getInstance().getLoopIdToTupleIds().containsKey(loop.getLoopId()))
-					TimeKeeper.getInstance().getLoopIdToTupleIds().put(loop.getLoopId(), new ArrayList<Integer>());
-				TimeKeeper.getInstance().getLoopIdToTupleIds().get(loop.getLoopId()).add(tupleId);
-				TimeKeeper.getInstance().getEmitTimes().put(tupleId, CloudSim.clock());
-				return tupleId;
+				return TimeKeeper.getInstance().loopStarted(loop.getLoopId());
 			}
 		}
 		return -1;
@@ -124,9 +116,6 @@ public class Sensor extends SimEntity {
 	@Override
 	public void processEvent(SimEvent ev) {
 		switch(ev.getTag()){
-		case FogEvents.TUPLE_ACK:
-			//transmit(transmitDistribution.getNextValue());
-			break;
 		case FogEvents.EMIT_TUPLE:
 			transmit();
 			send(getId(), getTransmitDistribution().getNextValue(), FogEvents.EMIT_TUPLE);
@@ -135,6 +124,14 @@ public class Sensor extends SimEntity {
 			
 	}
 
+	/**
+	 * Only the emission timer is processed, acknowledgements of the gateway are ignored.
+	 */
+	@Override
+	public boolean consumesEvent(int tag) {
+		return tag == FogEvents.EMIT_TUPLE;
+	}
+
 	@Override
 	public void shutdownEntity() {
 		
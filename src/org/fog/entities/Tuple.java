@@ -52,6 +52,27 @@ public class Tuple extends Cloudlet{
 		setDestinationDeviceId(-1);
 	}
 
+	/**
+	 * Creates an unexecuted copy of a tuple, with the same ids and routing information.
+	 * @param tuple the tuple to copy
+	 */
+	public Tuple(Tuple tuple) {
+		this(tuple.getAppId(), tuple.getCloudletId(), tuple.getDirection(), tuple.getCloudletLength(),
+				tuple.getNumberOfPes(), tuple.getCloudletFileSize(), tuple.getCloudletOutputSize(),
+				tuple.getUtilizationModelCpu(), tuple.getUtilizationModelRam(), tuple.getUtilizationModelBw());
+		setUserId(tuple.getUserId());
+		setTupleType(tuple.getTupleType());
+		setDestModuleName(tuple.getDestModuleName());
+		setSrcModuleName(tuple.getSrcModuleName());
+		setActualTupleId(tuple.getActualTupleId());
+		setActuatorId(tuple.getActuatorId());
+		setSourceDeviceId(tuple.getSourceDeviceId());
+		setSourceModuleId(tuple.getSourceModuleId());
+		setModuleCopyMap(new HashMap<String, Integer>(tuple.getModuleCopyMap()));
+		setDestinationDeviceId(tuple.getDestinationDeviceId());
+		setTraversedMicroservices(new HashMap<String, Integer>(tuple.getTraversed()));
+	}
+
 	public int getActualTupleId() {
 		return actualTupleId;
 	}
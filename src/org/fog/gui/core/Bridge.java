@@ -1,204 +1,207 @@
 package org.fog.gui.core;
 
-import java.io.FileNotFoundException;
+import java.io.BufferedReader;
 import java.io.FileReader;
 import java.io.IOException;
+import java.io.Reader;
 import java.io.StringWriter;
+import java.io.Writer;
 import java.math.BigDecimal;
 import java.util.ArrayList;
 import java.util.HashMap;
-import java.util.Iterator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
 
+import org.fog.utils.JsonRecordHandler;
+import org.fog.utils.StreamingTopologyLoader;
 import org.fog.utils.distribution.DeterministicDistribution;
 import org.fog.utils.distribution.Distribution;
 import org.fog.utils.distribution.NormalDistribution;
 import org.fog.utils.distribution.UniformDistribution;
-import org.json.simple.JSONArray;
 import org.json.simple.JSONObject;
-import org.json.simple.JSONValue;
 
 public class Bridge {
 	
-	private static Node getNode(Graph graph, String name){
+	/** Indexes the nodes of the graph by name, the links of a topology are resolved through it */
+	private static Map<String, Node> getNodesByName(Graph graph){
+		Map<String, Node> nodesByName = new HashMap<String, Node>();
 		for(Node node : graph.getAdjacencyList().keySet()){
-			if(node!=null){
-				if(node.getName().equals(name)){
-					return node;
-				}
+			if(node!=null && !nodesByName.containsKey(node.getName())){
+				nodesByName.put(node.getName(), node);
 			}
 		}
-		return null;
+		return nodesByName;
 	}
 
 	// convert from JSON object to Graph object
 	public static Graph jsonToGraph(String fileName, int type){
 		
-		Graph graph = new Graph();
+		final Graph graph = new Graph();
+		// links are resolved once all the nodes are known
+		final List<Object[]> links = new ArrayList<Object[]>();
 		
 		// type 0->physical topology 1->virtual topology
 		if(0 == type){
 			try {
-				JSONObject doc = (JSONObject) JSONValue.parse(new FileReader(fileName));
-	    		JSONArray nodes = (JSONArray) doc.get("nodes");
-	    		@SuppressWarnings("unchecked")
-				Iterator<JSONObject> iter =nodes.iterator(); 
-				while(iter.hasNext()){
-					JSONObject node = iter.next();
-					String nodeType = (String) node.get("type");
-					String nodeName = (String) node.get("name");
-					
-					if(nodeType.equalsIgnoreCase("host")){  //host
-						long pes = (Long) node.get("pes");
-						long mips = (Long) node.get("mips");
-						int ram = new BigDecimal((Long)node.get("ram")).intValueExact();
-						long storage = (Long) node.get("storage");
-						long bw = new BigDecimal((Long)node.get("bw")).intValueExact();
+				parse(fileName, new JsonRecordHandler() {
+					@Override
+					public void node(Map<String, Object> node) {
+						String nodeType = (String) node.get("type");
+						String nodeName = (String) node.get("name");
 						
-						int num = 1;
-						if (node.get("nums")!= null)
-							num = new BigDecimal((Long)node.get("nums")).intValueExact();
+						if(nodeType.equalsIgnoreCase("host")){  //host
+							long pes = (Long) node.get("pes");
+							long mips = (Long) node.get("mips");
+							int ram = new BigDecimal((Long)node.get("ram")).intValueExact();
+							long storage = (Long) node.get("storage");
+							long bw = new BigDecimal((Long)node.get("bw")).intValueExact();
+							
+							int num = 1;
+							if (node.get("nums")!= null)
+								num = new BigDecimal((Long)node.get("nums")).intValueExact();
 
-						for(int n = 0; n< num; n++) {
-							Node hNode = new HostNode(nodeName, nodeType, pes, mips, ram, storage, bw);
-							graph.addNode(hNode);
+							for(int n = 0; n< num; n++) {
+								Node hNode = new HostNode(nodeName, nodeType, pes, mips, ram, storage, bw);
+								graph.addNode(hNode);
+							}
+							
+						} else if(nodeType.equals("FOG_DEVICE")){
+							long mips = (Long) node.get("mips");
+							int ram = new BigDecimal((Long)node.get("ram")).intValueExact();
+							long upBw = new BigDecimal((Long)node.get("upBw")).intValueExact();
+							long downBw = new BigDecimal((Long)node.get("downBw")).intValueExact();
+							int level = new BigDecimal((Long)node.get("level")).intValue();
+							double rate = new BigDecimal((Double)node.get("ratePerMips")).doubleValue();
+							
+							Node fogDevice = new FogDeviceGui(nodeName, mips, ram, upBw, downBw, level, rate);
+							graph.addNode(fogDevice);
+	 
+						} else if(nodeType.equals("SENSOR")){
+							String sensorType = node.get("sensorType").toString();
+							int distType = new BigDecimal((Long)node.get("distribution")).intValue();
+							Distribution distribution = null;
+							if(distType == Distribution.DETERMINISTIC)
+								distribution = new DeterministicDistribution(new BigDecimal((Double)node.get("value")).doubleValue());
+							else if(distType == Distribution.NORMAL){
+								distribution = new NormalDistribution(new BigDecimal((Double)node.get("mean")).doubleValue(), 
+										new BigDecimal((Double)node.get("stdDev")).doubleValue());
+							} else if(distType == Distribution.UNIFORM){
+								distribution = new UniformDistribution(new BigDecimal((Double)node.get("min")).doubleValue(), 
+										new BigDecimal((Double)node.get("max")).doubleValue());
+							}
+							System.out.println("Sensor type : "+sensorType);
+							Node sensor = new SensorGui(nodeName, sensorType, distribution);
+							graph.addNode(sensor);
+						} else if(nodeType.equals("ACTUATOR")){
+							String actuatorType = node.get("actuatorType").toString(); 
+							Node actuator = new ActuatorGui(nodeName, actuatorType);
+							graph.addNode(actuator);
+						} else {   //switch
+							int bw = new BigDecimal((Long)node.get("bw")).intValueExact();
+							long iops = (Long) node.get("iops");
+							int upports =  new BigDecimal((Long)node.get("upports")).intValueExact();
+							int downports = new BigDecimal((Long)node.get("downports")).intValueExact();
+							
+							Node sNode = new SwitchNode(nodeName, nodeType, iops, upports, downports, bw);
+							graph.addNode(sNode);
 						}
-						
-					} else if(nodeType.equals("FOG_DEVICE")){
-						long mips = (Long) node.get("mips");
-						int ram = new BigDecimal((Long)node.get("ram")).intValueExact();
-						long upBw = new BigDecimal((Long)node.get("upBw")).intValueExact();
-						long downBw = new BigDecimal((Long)node.get("downBw")).intValueExact();
-						int level = new BigDecimal((Long)node.get("level")).intValue();
-						double rate = new BigDecimal((Double)node.get("ratePerMips")).doubleValue();
-						
-						Node fogDevice = new FogDeviceGui(nodeName, mips, ram, upBw, downBw, level, rate);
-						graph.addNode(fogDevice);
- 
-					} else if(nodeType.equals("SENSOR")){
-						String sensorType = node.get("sensorType").toString();
-						int distType = new BigDecimal((Long)node.get("distribution")).intValue();
-						Distribution distribution = null;
-						if(distType == Distribution.DETERMINISTIC)
-							distribution = new DeterministicDistribution(new BigDecimal((Double)node.get("value")).doubleValue());
-						else if(distType == Distribution.NORMAL){
-							distribution = new NormalDistribution(new BigDecimal((Double)node.get("mean")).doubleValue(), 
-									new BigDecimal((Double)node.get("stdDev")).doubleValue());
-						} else if(distType == Distribution.UNIFORM){
-							distribution = new UniformDistribution(new BigDecimal((Double)node.get("min")).doubleValue(), 
-									new BigDecimal((Double)node.get("max")).doubleValue());
-						}
-						System.out.println("Sensor type : "+sensorType);
-						Node sensor = new SensorGui(nodeName, sensorType, distribution);
-						graph.addNode(sensor);
-					} else if(nodeType.equals("ACTUATOR")){
-						String actuatorType = node.get("actuatorType").toString(); 
-						Node actuator = new ActuatorGui(nodeName, actuatorType);
-						graph.addNode(actuator);
-					} else {   //switch
-						int bw = new BigDecimal((Long)node.get("bw")).intValueExact();
-						long iops = (Long) node.get("iops");
-						int upports =  new BigDecimal((Long)node.get("upports")).intValueExact();
-						int downports = new BigDecimal((Long)node.get("downports")).intValueExact();
-						
-						Node sNode = new SwitchNode(nodeName, nodeType, iops, upports, downports, bw);
-						graph.addNode(sNode);
 					}
-				}
-					
-				JSONArray links = (JSONArray) doc.get("links");
-				@SuppressWarnings("unchecked")
-				Iterator<JSONObject> linksIter =links.iterator(); 
-				while(linksIter.hasNext()){
-					JSONObject link = linksIter.next();
-					String src = (String) link.get("source");  
-					String dst = (String) link.get("destination");
-					double lat = (Double) link.get("latency");
+
+					@Override
+					public void link(Map<String, Object> link) {
+						String src = (String) link.get("source");  
+						String dst = (String) link.get("destination");
+						double lat = (Double) link.get("latency");
+						links.add(new Object[]{src, dst, lat});
+					}
+				});
 					
-					Node source = (Node) getNode(graph, src);
-					Node target = (Node) getNode(graph, dst);
+				Map<String, Node> nodesByName = getNodesByName(graph);
+				for(Object[] link : links){
+					Node source = nodesByName.get(link[0]);
+					Node target = nodesByName.get(link[1]);
 					
 					if(source!=null && target!=null){
-						System.out.println("Adding edge between "+source.getName()+" & "+target.getName());
-						Edge edge = new Edge(target, lat);
+						Edge edge = new Edge(target, (Double) link[2]);
 						graph.addEdge(source, edge);
 					}
 				}
-			} catch (FileNotFoundException e) {
+			} catch (IOException e) {
 				e.printStackTrace();
 			}
 			
 		}else if(1 == type){
 			try {
-				JSONObject doc = (JSONObject) JSONValue.parse(new FileReader(fileName));
-	    		JSONArray nodes = (JSONArray) doc.get("nodes");
-	    		@SuppressWarnings("unchecked")
-				Iterator<JSONObject> iter = nodes.iterator(); 
-				while(iter.hasNext()){
-					JSONObject node = iter.next();
-					
-					String nodeType = (String) node.get("type");
-					String nodeName = (String) node.get("name");
-					int pes = new BigDecimal((Long)node.get("pes")).intValueExact();
-					long mips = (Long) node.get("mips");
-					int ram = new BigDecimal((Long)node.get("ram")).intValueExact();
-					long size = (Long) node.get("size");
-					
-					Node vmNode = new VmNode(nodeName, nodeType, size, pes, mips, ram);
-					graph.addNode(vmNode);
-				}
-				
-				JSONArray links = (JSONArray) doc.get("links");
-				
-				@SuppressWarnings("unchecked")
-				Iterator<JSONObject> linksIter = links.iterator(); 
-				while(linksIter.hasNext()){
-					JSONObject link = linksIter.next();
-					String name = (String) link.get("name");
-					String src = (String) link.get("source");  
-					String dst = (String) link.get("destination");
+				parse(fileName, new JsonRecordHandler() {
+					@Override
+					public void node(Map<String, Object> node) {
+						String nodeType = (String) node.get("type");
+						String nodeName = (String) node.get("name");
+						int pes = new BigDecimal((Long)node.get("pes")).intValueExact();
+						long mips = (Long) node.get("mips");
+						int ram = new BigDecimal((Long)node.get("ram")).intValueExact();
+						long size = (Long) node.get("size");
+						
+						Node vmNode = new VmNode(nodeName, nodeType, size, pes, mips, ram);
+						graph.addNode(vmNode);
+					}
 
-					Object reqBw = link.get("bandwidth");
-				
-					long bw = 0;
-					if(reqBw != null)
-						bw = (Long) reqBw;
+					@Override
+					public void link(Map<String, Object> link) {
+						String name = (String) link.get("name");
+						String src = (String) link.get("source");  
+						String dst = (String) link.get("destination");
+
+						Object reqBw = link.get("bandwidth");
 					
-					Node source = getNode(graph, src);
-					Node target = getNode(graph, dst);
+						long bw = 0;
+						if(reqBw != null)
+							bw = (Long) reqBw;
+						links.add(new Object[]{name, src, dst, bw});
+					}
+				});
+				
+				Map<String, Node> nodesByName = getNodesByName(graph);
+				for(Object[] link : links){
+					Node source = nodesByName.get(link[1]);
+					Node target = nodesByName.get(link[2]);
 
-					Edge edge = new Edge(target, name, bw);
+					Edge edge = new Edge(target, (String) link[0], (Long) link[3]);
 					graph.addEdge(source, edge);
-					
 				}
-			} catch (FileNotFoundException e) {
+			} catch (IOException e) {
 				e.printStackTrace();
 			}
 		}
-		System.out.println("############################");
-		System.out.println(graph.getAdjacencyList());
-		System.out.println("############################");
 		return graph;
 	}
 	
 	// convert from Graph object to JSON object
-	@SuppressWarnings("unchecked")
 	public static String graphToJson(Graph graph){
-		System.out.println();
-		System.out.println("****************************");
-		System.out.println(graph.getAdjacencyList());
-		System.out.println("****************************");
 		if(graph.getAdjacencyList().size() < 1){
 			return "Graph is Empty";
 		}
-		Map<Node, List<Node>> edgeList = new HashMap<Node, List<Node>>();
-		
-		JSONObject topo = new JSONObject();
-		JSONArray nodes = new JSONArray();
-		JSONArray links = new JSONArray();
-		
+		StringWriter out = new StringWriter();
+		try {
+			writeGraph(graph, out);
+		} catch (IOException e) {
+			// TODO Auto-generated catch block
+			e.printStackTrace();
+		}
+		return out.toString();
+	}
+
+	/**
+	 * Writes a graph as a JSON topology one node and one link at a time, without building the
+	 * whole document in memory.
+	 */
+	@SuppressWarnings("unchecked")
+	public static void writeGraph(Graph graph, Writer out) throws IOException{
+		out.write("{\"nodes\":[");
+		boolean first = true;
 		for (Entry<Node, List<Edge>> entry : graph.getAdjacencyList().entrySet()) {
 			Node srcNode = entry.getKey();
 			
@@ -268,7 +271,16 @@ public class Bridge {
 					jobj.put("ram", vNode.getRam());
 					break;
 			}
-			nodes.add(jobj);
+			if(!first)
+				out.write(',');
+			first = false;
+			jobj.writeJSONString(out);
+		}
+		out.write("],\"links\":[");
+		first = true;
+		Map<Node, Set<Node>> edgeList = new HashMap<Node, Set<Node>>();
+		for (Entry<Node, List<Edge>> entry : graph.getAdjacencyList().entrySet()) {
+			Node srcNode = entry.getKey();
 			
 			// add edge
 			for (Edge edge : entry.getValue()) {
@@ -290,34 +302,34 @@ public class Bridge {
 						jobj2.put("bandwidth", edge.getBandwidth());
 					}
 				}
-				links.add(jobj2);
+				if(!first)
+					out.write(',');
+				first = false;
+				jobj2.writeJSONString(out);
 				
 				// add exist edge to the edgeList
 				if (edgeList.containsKey(entry.getKey())) {
 					edgeList.get(entry.getKey()).add(edge.getNode());
 				} else {
-					List<Node> ns = new ArrayList<Node>();
+					Set<Node> ns = new HashSet<Node>();
 					ns.add(edge.getNode());
 					edgeList.put(entry.getKey(), ns);
 				}
 				
 			}
 		}
-		topo.put("nodes", nodes);
-		topo.put("links", links);
-		
-		StringWriter out = new StringWriter();
-		String jsonText = "";
+		out.write("]}");
+		out.flush();
+	}
+
+	/** Streams the nodes and links of a JSON topology file to the handler */
+	private static void parse(String fileName, JsonRecordHandler handler) throws IOException{
+		Reader reader = new BufferedReader(new FileReader(fileName));
 		try {
-			topo.writeJSONString(out);
-			jsonText = out.toString();
-		} catch (IOException e) {
-			// TODO Auto-generated catch block
-			e.printStackTrace();
+			StreamingTopologyLoader.parseJsonRecords(reader, handler);
+		} finally {
+			reader.close();
 		}
-		
-		//System.out.println(jsonText);
-		return jsonText;
 	}
 	
 }
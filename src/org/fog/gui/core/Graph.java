@@ -3,6 +3,7 @@ package org.fog.gui.core;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -17,6 +18,8 @@ public class Graph implements Serializable {
 	
 	private Map<Node, List<Edge>> adjacencyList;
 
+	/** Number of changes made through this class, for views caching what they derive from the graph */
+	private long version;
 
 	public Graph() {
 		// when creating a new graph ensure that a new adjacencyList is created
@@ -29,14 +32,36 @@ public class Graph implements Serializable {
 
 	public void setAdjacencyList(Map<Node, List<Edge>> adjacencyList) {
 		this.adjacencyList = adjacencyList;
+		version++;
 	}
 
 	public Map<Node, List<Edge>> getAdjacencyList() {
 		return adjacencyList;
 	}
 
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * Copies the adjacency list, keeping its iteration order, so that the copy can be read by another
+	 * thread while this graph is edited. The nodes and edges are shared.
+	 */
+	public Graph snapshot() {
+		Map<Node, List<Edge>> copy = new LinkedHashMap<Node, List<Edge>>();
+		if (adjacencyList != null) {
+			for (Entry<Node, List<Edge>> entry : adjacencyList.entrySet()) {
+				copy.put(entry.getKey(), entry.getValue() == null ? null : new ArrayList<Edge>(entry.getValue()));
+			}
+		}
+		Graph snapshot = new Graph(copy);
+		snapshot.version = version;
+		return snapshot;
+	}
+
 	/** Adds a given edge to the adjacency list. If the base node is not yet part of the adjacency list a new entry is added */
 	public void addEdge(Node key, Edge value) {
+		version++;
 
 		if (adjacencyList.containsKey(key)) {
 			if (adjacencyList.get(key) == null) {
@@ -89,6 +114,7 @@ public class Graph implements Serializable {
 	}
 
 	public void removeEdge(Node key, Edge value) {
+		version++;
 
 		if (!adjacencyList.containsKey(key)) {
 			throw new IllegalArgumentException("The adjacency list does not contain a node for the given key: " + key);
@@ -120,6 +146,7 @@ public class Graph implements Serializable {
 		}
 
 		adjacencyList.remove(key);
+		version++;
 
 		// clean up all edges
 		for (Entry<Node, List<Edge>> entry : adjacencyList.entrySet()) {
@@ -137,6 +164,7 @@ public class Graph implements Serializable {
 	
 	public void clearGraph(){
 		adjacencyList.clear();
+		version++;
 	}
 	
 	public String toJsonString(){
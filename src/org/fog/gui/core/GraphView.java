@@ -1,29 +1,57 @@
 package org.fog.gui.core;
 
 import java.awt.Color;
+import java.awt.Dimension;
 import java.awt.FontMetrics;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
 import java.awt.Image;
-import java.awt.Toolkit;
+import java.awt.Rectangle;
+import java.awt.event.MouseWheelEvent;
+import java.awt.event.MouseWheelListener;
+import java.awt.image.BufferedImage;
+import java.net.URL;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.BoxLayout;
+import javax.swing.ImageIcon;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
+import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 
 import org.fog.utils.FogUtils;
 
 
-/** Panel that displays a graph */
+/**
+ * Panel that displays a graph. The layout is computed by a background worker whenever the graph or
+ * the size of the canvas changes, and the canvas is painted from cached tiles rendered from that
+ * layout. Levels too crowded to tell their nodes apart are drawn as a single band, and the labels
+ * are only drawn where they fit. Ctrl + mouse wheel zooms in and out.
+ */
 public class GraphView extends JPanel {
 
 	private static final long serialVersionUID = 1L;
 
+	/** Side of the cached tiles, in pixels */
+	private static final int TILE_SIZE = 256;
+	/** Number of tiles kept, the least recently painted are dropped first */
+	private static final int MAX_TILES = 128;
+	/** Below this distance between the nodes of a level, the level is drawn as a band */
+	private static final int MIN_NODE_SPACING = 4;
+	private static final double MAX_ZOOM = 64;
+
 	private JPanel canvas;
+	private JScrollPane scrollPane;
 	private Graph graph;
 
 	private Image imgHost;
@@ -33,28 +61,46 @@ public class GraphView extends JPanel {
 	private Image imgActuator;
 	private Image imgSensorModule;
 	private Image imgActuatorModule;
-	
+
+	private double zoom = 1;
+	/** Layout painted by the canvas, possibly outdated while the next one is computed */
+	private Layout layout;
+	private SwingWorker<Layout, Void> layoutWorker;
+	@SuppressWarnings("serial")
+	private final Map<Long, BufferedImage> tiles = new LinkedHashMap<Long, BufferedImage>(16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Long, BufferedImage> eldest) {
+			return size() > MAX_TILES;
+		}
+	};
+
 	public GraphView(final Graph graph) {
 
 		this.graph = graph;
-		imgHost = Toolkit.getDefaultToolkit().getImage(this.getClass().getResource("/images/host.png"));
-		imgSwitch = Toolkit.getDefaultToolkit().getImage(this.getClass().getResource("/images/disk.png"));
-		imgAppModule = Toolkit.getDefaultToolkit().getImage(this.getClass().getResource("/images/module.png"));
-		imgSensor = Toolkit.getDefaultToolkit().getImage(this.getClass().getResource("/images/sensor.png"));
-		imgActuator = Toolkit.getDefaultToolkit().getImage(this.getClass().getResource("/images/actuator.png"));
-		imgSensorModule = Toolkit.getDefaultToolkit().getImage(this.getClass().getResource("/images/sensorModule.png"));
-		imgActuatorModule = Toolkit.getDefaultToolkit().getImage(this.getClass().getResource("/images/actuatorModule.png"));
-		
+		// loaded synchronously, tiles are rendered once
+		imgHost = loadImage("/images/host.png");
+		imgSwitch = loadImage("/images/disk.png");
+		imgAppModule = loadImage("/images/module.png");
+		imgSensor = loadImage("/images/sensor.png");
+		imgActuator = loadImage("/images/actuator.png");
+		imgSensorModule = loadImage("/images/sensorModule.png");
+		imgActuatorModule = loadImage("/images/actuatorModule.png");
+
 		initComponents();
 	}
 
-	private Map<Node, List<Node>> createChildrenMap(){
+	private Image loadImage(String path) {
+		URL url = this.getClass().getResource(path);
+		return url == null ? null : new ImageIcon(url).getImage();
+	}
+
+	private static Map<Node, List<Node>> createChildrenMap(Graph graph){
 		Map<Node, List<Node>> childrenMap = new HashMap<Node, List<Node>>();
 		for(Node node : graph.getAdjacencyList().keySet()){
 			if(node.getType().equals("FOG_DEVICE") && !childrenMap.containsKey(node))
 				childrenMap.put(node, new ArrayList<Node>());
 			List<Edge> edgeList = graph.getAdjacencyList().get(node);
-			
+
 			for(Edge edge : edgeList){
 				Node neighbour = edge.getNode();
 				if(node.getType().equals("SENSOR") || node.getType().equals("ACTUATOR")){
@@ -79,7 +125,7 @@ public class GraphView extends JPanel {
 		}
 		return childrenMap;
 	}
-	
+
 	@SuppressWarnings("serial")
 	private void initComponents() {
 
@@ -90,217 +136,246 @@ public class GraphView extends JPanel {
 				if (graph.getAdjacencyList() == null) {
 					return;
 				}
-
-				Map<Node, Coordinates> coordForNodes = new HashMap<Node, Coordinates>();
-
-				/*int offsetX = canvas.getWidth() / 2;
-				int offsetY = canvas.getHeight() / 2;*/
-				System.out.println("sys:"+canvas.getWidth() + ":" + canvas.getHeight());
-
-				int height = 40;
-				/*double angle = 2 * Math.PI / graph.getAdjacencyList().keySet().size();
-				int radius = offsetY / 2 - 20;*/
-				FontMetrics f = g.getFontMetrics();
-				int nodeHeight = Math.max(height, f.getHeight());
-				int nodeWidth = nodeHeight;
-
-				int maxLevel=-1, minLevel=FogUtils.MAX;
-				Map<Integer, List<Node>> levelMap = new HashMap<Integer, List<Node>>();
-				List<Node> endpoints = new ArrayList<Node>(); 
-				for (Node node : graph.getAdjacencyList().keySet()) {
-					if(node.getType().equals("FOG_DEVICE")){
-						int level = ((FogDeviceGui)node).getLevel();
-						if(!levelMap.containsKey(level))
-							levelMap.put(level, new ArrayList<Node>());
-						levelMap.get(level).add(node);
-						
-						if(level > maxLevel)
-							maxLevel = level;
-						if(level < minLevel)
-							minLevel = level;
-					} else if(node.getType().equals("SENSOR") || node.getType().equals("ACTUATOR")){
-						endpoints.add(node);
-					}
+				if (!isLayoutCurrent(layout)) {
+					requestLayout();
 				}
-				
-				double yDist = canvas.getHeight()/(maxLevel-minLevel+3);
-				System.out.println("===================\n================\n=============");
-				
-				Map<Integer, List<PlaceHolder>> levelToPlaceHolderMap = new HashMap<Integer, List<PlaceHolder>>();
-				
-				int k=1;
-				for(int i=minLevel;i<=maxLevel;i++, k++){
-					double xDist = canvas.getWidth()/(levelMap.get(i).size()+1);
-					
-					for(int j=1;j<=levelMap.get(i).size();j++){
-						int x = (int)xDist*j;
-						int y = (int)yDist*k;
-						if(!levelToPlaceHolderMap.containsKey(i))
-							levelToPlaceHolderMap.put(i, new ArrayList<PlaceHolder>());
-						levelToPlaceHolderMap.get(i).add(new PlaceHolder(x, y));
-						
-						//coordForNodes.put(node, new Coordinates(x, y));
-						//node.setCoordinate(new Coordinates(x, y));
-					}
+				Rectangle clip = g.getClipBounds();
+				if (clip == null) {
+					clip = new Rectangle(0, 0, getWidth(), getHeight());
+				}
+				if (layout == null) {
+					g.setColor(getBackground());
+					g.fillRect(clip.x, clip.y, clip.width, clip.height);
+					return;
 				}
-				
-				List<PlaceHolder> endpointPlaceHolders = new ArrayList<PlaceHolder>();
-				
-				double xDist = canvas.getWidth()/(endpoints.size()+1);
-				for(int i=0;i<endpoints.size();i++){
-					Node node = endpoints.get(i);
-					int x = (int)xDist*(i+1);
-					int y = (int)yDist*k;
-					endpointPlaceHolders.add(new PlaceHolder(x, y));
-					
-					coordForNodes.put(node, new Coordinates(x, y));
-					node.setCoordinate(new Coordinates(x, y));
+				// only the tiles in the clip are painted, rendered on first use
+				for (int ty = clip.y / TILE_SIZE; ty * TILE_SIZE < clip.y + clip.height; ty++) {
+					for (int tx = clip.x / TILE_SIZE; tx * TILE_SIZE < clip.x + clip.width; tx++) {
+						long key = ((long) tx << 32) | ty;
+						BufferedImage tile = tiles.get(key);
+						if (tile == null) {
+							tile = renderTile(tx, ty);
+							tiles.put(key, tile);
+						}
+						g.drawImage(tile, tx * TILE_SIZE, ty * TILE_SIZE, null);
+					}
 				}
-				
-				for (Node node : graph.getAdjacencyList().keySet()) {
-					if(node.getType().equals("FOG_DEVICE")||node.getType().equals("SENSOR")||node.getType().equals("ACTUATOR"))
-						continue;
-					// calculate coordinates
-					/*int x = Double.valueOf(offsetX + Math.cos(i * angle) * radius).intValue();
-					int y = Double.valueOf(offsetY + Math.sin(i * angle) * radius).intValue();*/
-
-					//coordForNodes.put(node, new Coordinates(x, y));
-					//node.setCoordinate(new Coordinates(x, y));
+			}
+		};
+		canvas.addMouseWheelListener(new MouseWheelListener() {
+			@Override
+			public void mouseWheelMoved(MouseWheelEvent e) {
+				if (e.isControlDown()) {
+					setZoom(zoom * Math.pow(1.25, -e.getWheelRotation()));
+				} else {
+					scrollPane.dispatchEvent(SwingUtilities.convertMouseEvent(canvas, e, scrollPane));
 				}
+			}
+		});
+		scrollPane = new JScrollPane(canvas);
+		setLayout(new BoxLayout(this, BoxLayout.PAGE_AXIS));
+		add(scrollPane);
+	}
 
-				
-				coordForNodes = getCoordForNodes(levelToPlaceHolderMap, endpointPlaceHolders, levelMap, endpoints, minLevel, maxLevel);
-				System.out.println("COORD MAP"+coordForNodes);
-				
-				Map<Node, List<Node>> drawnList = new HashMap<Node, List<Node>>();
-				
-				
-				
-				for (Entry<Node, Coordinates> entry : coordForNodes.entrySet()) {
-					// first paint a single node for testing.
-					g.setColor(Color.black);
-					// int nodeWidth = Math.max(width, f.stringWidth(entry.getKey().getNodeText()) + width / 2);
-
-					Coordinates wrapper = entry.getValue();
-					String nodeName = entry.getKey().getName();
-					switch(entry.getKey().getType()){
-						case "host":
-							g.drawImage(imgHost, wrapper.getX() - nodeWidth / 2, wrapper.getY() - nodeHeight / 2, nodeWidth, nodeHeight, this);
-							break;
-						case "APP_MODULE":
-							g.drawImage(imgAppModule, wrapper.getX() - nodeWidth / 2, wrapper.getY() - nodeHeight / 2, nodeWidth, nodeHeight, this);
-							g.drawString(nodeName, wrapper.getX() - f.stringWidth(nodeName) / 2, wrapper.getY() + nodeHeight);
-							break;
-						case "core":
-						case "edge":
-							g.drawImage(imgSwitch, wrapper.getX() - nodeWidth / 2, wrapper.getY() - nodeHeight / 2, nodeWidth, nodeHeight, this);
-							break;
-						case "FOG_DEVICE":
-							g.drawImage(imgHost, wrapper.getX() - nodeWidth / 2, wrapper.getY() - nodeHeight / 2, nodeWidth, nodeHeight, this);
-							g.drawString(nodeName, wrapper.getX() - f.stringWidth(nodeName) / 2, wrapper.getY() + nodeHeight);
-							break;
-						case "SENSOR":
-							g.drawImage(imgSensor, wrapper.getX() - nodeWidth / 2, wrapper.getY() - nodeHeight / 2, nodeWidth, nodeHeight, this);
-							g.drawString(nodeName, wrapper.getX() - f.stringWidth(nodeName) / 2, wrapper.getY() + nodeHeight);
-							break;
-						case "ACTUATOR":
-							g.drawImage(imgActuator, wrapper.getX() - nodeWidth / 2, wrapper.getY() - nodeHeight / 2, nodeWidth, nodeHeight, this);
-							g.drawString(nodeName, wrapper.getX() - f.stringWidth(nodeName) / 2, wrapper.getY() + nodeHeight);
-							break;
-						case "SENSOR_MODULE":
-							g.drawImage(imgSensorModule, wrapper.getX() - nodeWidth / 2, wrapper.getY() - nodeHeight / 2, nodeWidth, nodeHeight, this);
-							g.drawString(nodeName, wrapper.getX() - f.stringWidth(nodeName) / 2, wrapper.getY() + nodeHeight);
-							break;
-						case "ACTUATOR_MODULE":
-							g.drawImage(imgActuatorModule, wrapper.getX() - nodeWidth / 2, wrapper.getY() - nodeHeight / 2, nodeWidth, nodeHeight, this);
-							g.drawString(nodeName, wrapper.getX() - f.stringWidth(nodeName) / 2, wrapper.getY() + nodeHeight);
-							break;
-					}
-					//g.setColor(Color.white);
-					//g.fillOval(wrapper.getX() - nodeWidth / 2, wrapper.getY() - nodeHeight / 2, nodeWidth, nodeHeight);
-					//g.setColor(Color.black);
-					//g.drawOval(wrapper.getX() - nodeWidth / 2, wrapper.getY() - nodeHeight / 2, nodeWidth, nodeHeight);
-					//System.out.println((wrapper.getX())+" "+(wrapper.getY()));
+	/**
+	 * Sets the size of the canvas relatively to the visible area, 1 showing the whole graph.
+	 */
+	public void setZoom(double zoom) {
+		this.zoom = Math.max(1, Math.min(MAX_ZOOM, zoom));
+		if (this.zoom == 1) {
+			canvas.setPreferredSize(null);
+		} else {
+			Dimension extent = scrollPane.getViewport().getExtentSize();
+			canvas.setPreferredSize(new Dimension((int) (extent.width * this.zoom), (int) (extent.height * this.zoom)));
+		}
+		canvas.revalidate();
+		canvas.repaint();
+	}
+
+	public double getZoom() {
+		return zoom;
+	}
+
+	private int getNodeSize() {
+		FontMetrics f = canvas.getFontMetrics(canvas.getFont());
+		return Math.max(40, f.getHeight());
+	}
+
+	private boolean isLayoutCurrent(Layout layout) {
+		return layout != null && layout.graph == graph && layout.version == graph.getVersion()
+				&& layout.width == canvas.getWidth() && layout.height == canvas.getHeight()
+				&& layout.nodeSize == getNodeSize();
+	}
 
-					//g.drawString(entry.getKey().getName(), wrapper.getX() - f.stringWidth(entry.getKey().getName()) / 2, wrapper.getY() + f.getHeight() / 2);
+	/**
+	 * Starts computing the layout of a snapshot of the graph in the background, unless a layout is
+	 * being computed already. The canvas is repainted once done, which requests a new layout if
+	 * the graph or the canvas changed meanwhile.
+	 */
+	private void requestLayout() {
+		if (layoutWorker != null && !layoutWorker.isDone()) {
+			return;
+		}
+		final Graph snapshot = graph.snapshot();
+		final Graph source = graph;
+		final int width = canvas.getWidth();
+		final int height = canvas.getHeight();
+		final int nodeSize = getNodeSize();
+		layoutWorker = new SwingWorker<Layout, Void>() {
+			@Override
+			protected Layout doInBackground() {
+				return computeLayout(snapshot, width, height, nodeSize);
+			}
 
+			@Override
+			protected void done() {
+				Layout computed;
+				try {
+					computed = get();
+				} catch (InterruptedException e) {
+					return;
+				} catch (ExecutionException e) {
+					e.printStackTrace();
+					return;
+				}
+				if (source != graph) {
+					canvas.repaint();
+					return;
+				}
+				computed.graph = source;
+				for (Entry<Node, Coordinates> entry : computed.coordinates.entrySet()) {
+					entry.getKey().setCoordinate(entry.getValue());
 				}
+				layout = computed;
+				tiles.clear();
+				canvas.repaint();
+			}
+		};
+		layoutWorker.execute();
+	}
 
-				
-				
-				// draw edges first
-				// TODO: we draw one edge two times at the moment because we have an undirected graph. But this
-				// shouldn`t matter because we have the same edge costs and no one will see in. Perhaps refactor later.
-				for (Entry<Node, List<Edge>> entry : graph.getAdjacencyList().entrySet()) {
-
-					Coordinates startNode = coordForNodes.get(entry.getKey());
-					System.out.println("Start Node : "+entry.getKey().getName());
-
-					for (Edge edge : entry.getValue()) {
-/*
-						// if other direction was drawn already continue
-						if (drawnList.containsKey(edge.getNode()) && drawnList.get(edge.getNode()).contains(entry.getKey())) {
-							continue;
-						}
-*/
-						Coordinates targetNode = coordForNodes.get(edge.getNode());
-						System.out.println("Target Node : "+edge.getNode().getName());
-						g.setColor(Color.RED);
-						g.drawLine(startNode.getX(), startNode.getY(), targetNode.getX(), targetNode.getY());
-						//drawArrow(g, startNode.getX(), startNode.getY(), targetNode.getX(), targetNode.getY());
-						// add drawn edges to the drawnList
-						if (drawnList.containsKey(entry.getKey())) {
-							drawnList.get(entry.getKey()).add(edge.getNode());
-						} else {
-							List<Node> nodes = new ArrayList<Node>();
-							nodes.add(edge.getNode());
-							drawnList.put(entry.getKey(), nodes);
-						}
+	/**
+	 * Places the fog devices by level, each level on a row, and the sensors and actuators on the
+	 * last row.
+	 */
+	private static Layout computeLayout(Graph graph, int width, int height, int nodeSize) {
+		Layout layout = new Layout(graph.getVersion(), width, height, nodeSize);
+
+		int maxLevel=-1, minLevel=FogUtils.MAX;
+		Map<Integer, List<Node>> levelMap = new HashMap<Integer, List<Node>>();
+		List<Node> endpoints = new ArrayList<Node>();
+		for (Node node : graph.getAdjacencyList().keySet()) {
+			if(node.getType().equals("FOG_DEVICE")){
+				int level = ((FogDeviceGui)node).getLevel();
+				if(!levelMap.containsKey(level))
+					levelMap.put(level, new ArrayList<Node>());
+				levelMap.get(level).add(node);
 
-						/*int labelX = (startNode.getX() - targetNode.getX()) / 2;
-						int labelY = (startNode.getY() - targetNode.getY()) / 2;
+				if(level > maxLevel)
+					maxLevel = level;
+				if(level < minLevel)
+					minLevel = level;
+			} else if(node.getType().equals("SENSOR") || node.getType().equals("ACTUATOR")){
+				endpoints.add(node);
+			}
+		}
 
-						labelX *= -1;
-						labelY *= -1;
+		double yDist = height/(maxLevel-minLevel+3);
 
-						labelX += startNode.getX();
-						labelY += startNode.getY();
-*/
-						//g.setColor(Color.BLACK);
-						//g.drawString(String.valueOf(edge.getInfo()), labelX - f.stringWidth(String.valueOf(edge.getInfo())) / 2, labelY + f.getHeight() / 2);
-					}
+		Map<Integer, List<PlaceHolder>> levelToPlaceHolderMap = new HashMap<Integer, List<PlaceHolder>>();
+		Map<Node, Row> rowOfNode = new HashMap<Node, Row>();
+
+		int k=1;
+		for(int i=minLevel;i<=maxLevel;i++, k++){
+			double xDist = width/(levelMap.get(i).size()+1);
+			Row row = new Row((int)yDist*k, (int)xDist, levelMap.get(i).size(), "level " + i + " devices");
+			layout.rows.add(row);
+			for(Node node : levelMap.get(i))
+				rowOfNode.put(node, row);
+
+			for(int j=1;j<=levelMap.get(i).size();j++){
+				int x = (int)xDist*j;
+				int y = (int)yDist*k;
+				if(!levelToPlaceHolderMap.containsKey(i))
+					levelToPlaceHolderMap.put(i, new ArrayList<PlaceHolder>());
+				levelToPlaceHolderMap.get(i).add(new PlaceHolder(x, y));
+			}
+		}
+
+		List<PlaceHolder> endpointPlaceHolders = new ArrayList<PlaceHolder>();
+
+		double xDist = width/(endpoints.size()+1);
+		Row endpointRow = new Row((int)yDist*k, (int)xDist, endpoints.size(), "sensors and actuators");
+		layout.rows.add(endpointRow);
+		for(int i=0;i<endpoints.size();i++){
+			Node node = endpoints.get(i);
+			int x = (int)xDist*(i+1);
+			int y = (int)yDist*k;
+			endpointPlaceHolders.add(new PlaceHolder(x, y));
+			rowOfNode.put(node, endpointRow);
+			layout.coordinates.put(node, new Coordinates(x, y));
+		}
+
+		layout.coordinates.putAll(getCoordForNodes(graph, levelToPlaceHolderMap, endpointPlaceHolders, levelMap, endpoints, minLevel, maxLevel));
+
+		for (Entry<Node, Coordinates> entry : layout.coordinates.entrySet()) {
+			Row row = rowOfNode.get(entry.getKey());
+			if (row != null && !row.isBand())
+				layout.nodes.add(new PlacedNode(entry.getKey(), entry.getValue(), row.spacing));
+		}
+
+		// edges to a band are bundled, one per node or band at the other end
+		Set<List<Object>> bundles = new HashSet<List<Object>>();
+		for (Entry<Node, List<Edge>> entry : graph.getAdjacencyList().entrySet()) {
+			Coordinates start = layout.coordinates.get(entry.getKey());
+			Row startRow = rowOfNode.get(entry.getKey());
+			if (startRow == null || entry.getValue() == null)
+				continue;
+			for (Edge edge : entry.getValue()) {
+				Coordinates target = layout.coordinates.get(edge.getNode());
+				Row targetRow = rowOfNode.get(edge.getNode());
+				if (targetRow == null)
+					continue;
+				if (!startRow.isBand() && !targetRow.isBand()) {
+					layout.addSegment(start.getX(), start.getY(), target.getX(), target.getY());
+				} else if (startRow.isBand() && targetRow.isBand()) {
+					if (startRow != targetRow && bundles.add(Arrays.<Object>asList(startRow, targetRow))
+							&& !bundles.contains(Arrays.<Object>asList(targetRow, startRow)))
+						layout.addSegment(width / 2, startRow.y, width / 2, targetRow.y);
+				} else {
+					Node node = startRow.isBand() ? edge.getNode() : entry.getKey();
+					Coordinates at = startRow.isBand() ? target : start;
+					Row band = startRow.isBand() ? startRow : targetRow;
+					if (bundles.add(Arrays.<Object>asList(node, band)))
+						layout.addSegment(at.getX(), at.getY(), at.getX(), band.y);
 				}
 			}
-		};
-		JScrollPane scrollPane = new JScrollPane(canvas);
-		setLayout(new BoxLayout(this, BoxLayout.PAGE_AXIS));
-		add(scrollPane);
+		}
+		return layout;
 	}
 
-	protected Map<Node, Coordinates> getCoordForNodes(
+	protected static Map<Node, Coordinates> getCoordForNodes(
+			Graph graph,
 			Map<Integer, List<PlaceHolder>> levelToPlaceHolderMap,
 			List<PlaceHolder> endpointPlaceHolders,
 			Map<Integer, List<Node>> levelMap, List<Node> endpoints, int minLevel, int maxLevel) {
-		// TODO Auto-generated method stub
 		Map<Node, Coordinates> coordForNodesMap = new HashMap<Node, Coordinates>();
-		Map<Node, List<Node>> childrenMap = createChildrenMap();
-		
-		for(Node node : graph.getAdjacencyList().keySet())node.setPlaced(false);
-		for(Node node : endpoints)node.setPlaced(false);
-		
+		Map<Node, List<Node>> childrenMap = createChildrenMap(graph);
+		// nodes are shared with the graph being edited, the placement is tracked here
+		Set<Node> placed = new HashSet<Node>();
+
 		if(maxLevel < 0)
 			return new HashMap<Node, Coordinates>();
-		
+
 		int j=0;
 		for(PlaceHolder placeHolder : levelToPlaceHolderMap.get(minLevel)){
 			Node node = levelMap.get(minLevel).get(j);
 			placeHolder.setNode(node);
-			node.setCoordinate(placeHolder.getCoordinates());
-			coordForNodesMap.put(node, node.getCoordinate());
-			node.setPlaced(true);
+			coordForNodesMap.put(node, placeHolder.getCoordinates());
+			placed.add(node);
 			j++;
 		}
-		
+
 		for(int level = minLevel+1;level <= maxLevel; level++){
 			List<PlaceHolder> upperLevelNodes = levelToPlaceHolderMap.get(level-1);
 			List<Node> nodes = levelMap.get(level);
@@ -311,20 +386,18 @@ public class GraphView extends JPanel {
 					PlaceHolder childPlaceHolder = levelToPlaceHolderMap.get(level).get(i);
 					childPlaceHolder.setOccupied(true);
 					childPlaceHolder.setNode(child);
-					child.setCoordinate(childPlaceHolder.getCoordinates());
-					coordForNodesMap.put(child, child.getCoordinate());
-					child.setPlaced(true);
+					coordForNodesMap.put(child, childPlaceHolder.getCoordinates());
+					placed.add(child);
 					i++;
 				}
 			}
 			for(Node node : nodes){
-				if(!node.isPlaced()){
+				if(!placed.contains(node)){
 					PlaceHolder placeHolder = levelToPlaceHolderMap.get(level).get(i);
 					placeHolder.setOccupied(true);
 					placeHolder.setNode(node);
-					node.setCoordinate(placeHolder.getCoordinates());
-					coordForNodesMap.put(node, node.getCoordinate());
-					node.setPlaced(true);
+					coordForNodesMap.put(node, placeHolder.getCoordinates());
+					placed.add(node);
 					i++;
 				}
 			}
@@ -336,43 +409,186 @@ public class GraphView extends JPanel {
 				PlaceHolder placeHolder = endpointPlaceHolders.get(i);
 				placeHolder.setOccupied(true);
 				placeHolder.setNode(child);
-				child.setCoordinate(placeHolder.getCoordinates());
-				coordForNodesMap.put(child, child.getCoordinate());
-				child.setPlaced(true);
+				coordForNodesMap.put(child, placeHolder.getCoordinates());
+				placed.add(child);
 				i++;
 			}
 		}
 		for(Node node : endpoints){
-			if(!node.isPlaced()){
+			if(!placed.contains(node)){
 				PlaceHolder placeHolder = endpointPlaceHolders.get(i);
 				placeHolder.setOccupied(true);
 				placeHolder.setNode(node);
-				node.setCoordinate(placeHolder.getCoordinates());
-				coordForNodesMap.put(node, node.getCoordinate());
-				node.setPlaced(true);
+				coordForNodesMap.put(node, placeHolder.getCoordinates());
+				placed.add(node);
 				i++;
 			}
 		}
 		return coordForNodesMap;
 	}
 
-	/*private void drawArrow(Graphics g1, int x1, int y1, int x2, int y2) {
-		Graphics2D g = (Graphics2D) g1.create();
-		System.out.println("Drawing arrow");
-		double dx = x2 - x1, dy = y2 - y1;
-		double angle = Math.atan2(dy, dx);
-		int len = (int) Math.sqrt(dx * dx + dy * dy);
-		AffineTransform at = AffineTransform.getTranslateInstance(x1, y1);
-		at.concatenate(AffineTransform.getRotateInstance(angle));
-		g.transform(at);
-
-		// Draw horizontal arrow starting in (0, 0)
-		QuadCurve2D.Double curve = new QuadCurve2D.Double(0,0,50+0.5*len,50,len,0);
-		g.draw(curve);
-		g.fillPolygon(new int[] { len, len - ARR_SIZE, len - ARR_SIZE, len }, new int[] { 0, -ARR_SIZE, ARR_SIZE, 0 }, 4);
-	}*/
-	
+	/**
+	 * Renders the part of the layout in a tile: the nodes and bands first, then the edges.
+	 */
+	private BufferedImage renderTile(int tx, int ty) {
+		BufferedImage tile = new BufferedImage(TILE_SIZE, TILE_SIZE, BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = tile.createGraphics();
+		g.setColor(canvas.getBackground());
+		g.fillRect(0, 0, TILE_SIZE, TILE_SIZE);
+		g.setFont(canvas.getFont());
+		g.translate(-tx * TILE_SIZE, -ty * TILE_SIZE);
+		Rectangle area = new Rectangle(tx * TILE_SIZE, ty * TILE_SIZE, TILE_SIZE, TILE_SIZE);
+
+		FontMetrics f = g.getFontMetrics();
+		int nodeHeight = layout.nodeSize;
+		int nodeWidth = nodeHeight;
+
+		for (Row row : layout.rows) {
+			if (!row.isBand() || row.y + nodeHeight / 2 < area.y || row.y - nodeHeight / 2 > area.y + area.height)
+				continue;
+			g.setColor(Color.LIGHT_GRAY);
+			g.fillRect(0, row.y - nodeHeight / 4, layout.width, nodeHeight / 2);
+			g.setColor(Color.black);
+			String text = row.count + " " + row.name;
+			g.drawString(text, layout.width / 2 - f.stringWidth(text) / 2, row.y + f.getAscent() / 2);
+		}
+
+		for (PlacedNode node : layout.nodes) {
+			Coordinates wrapper = node.coordinates;
+			// labels are centered below the nodes and at most as wide as the spacing
+			int reach = Math.max(nodeWidth, node.spacing) / 2 + 1;
+			if (wrapper.getX() + reach < area.x || wrapper.getX() - reach > area.x + area.width
+					|| wrapper.getY() + nodeHeight + f.getDescent() < area.y
+					|| wrapper.getY() - nodeHeight / 2 > area.y + area.height)
+				continue;
+			g.setColor(Color.black);
+			int x = wrapper.getX() - nodeWidth / 2;
+			int y = wrapper.getY() - nodeHeight / 2;
+			String nodeName = node.node.getName();
+			if (node.spacing < nodeWidth) {
+				// too close for icons, a dot per node
+				int size = Math.max(2, node.spacing - 1);
+				g.fillRect(wrapper.getX() - size / 2, wrapper.getY() - size / 2, size, size);
+				continue;
+			}
+			Image image = null;
+			boolean labeled = true;
+			switch(node.node.getType()){
+				case "host":
+					image = imgHost;
+					labeled = false;
+					break;
+				case "APP_MODULE":
+					image = imgAppModule;
+					break;
+				case "core":
+				case "edge":
+					image = imgSwitch;
+					labeled = false;
+					break;
+				case "FOG_DEVICE":
+					image = imgHost;
+					break;
+				case "SENSOR":
+					image = imgSensor;
+					break;
+				case "ACTUATOR":
+					image = imgActuator;
+					break;
+				case "SENSOR_MODULE":
+					image = imgSensorModule;
+					break;
+				case "ACTUATOR_MODULE":
+					image = imgActuatorModule;
+					break;
+				default:
+					labeled = false;
+			}
+			if (image != null)
+				g.drawImage(image, x, y, nodeWidth, nodeHeight, null);
+			if (labeled && f.stringWidth(nodeName) <= node.spacing)
+				g.drawString(nodeName, wrapper.getX() - f.stringWidth(nodeName) / 2, wrapper.getY() + nodeHeight);
+		}
+
+		g.setColor(Color.RED);
+		int[] segments = layout.segments;
+		for (int i = 0; i < layout.numSegments * 4; i += 4) {
+			if (area.intersectsLine(segments[i], segments[i + 1], segments[i + 2], segments[i + 3]))
+				g.drawLine(segments[i], segments[i + 1], segments[i + 2], segments[i + 3]);
+		}
+		g.dispose();
+		return tile;
+	}
+
 	public void setGraph(Graph newGraph){
 		this.graph = newGraph;
+		canvas.repaint();
+	}
+
+	/** Row of nodes, drawn as a band when they are too close to each other */
+	private static class Row {
+		final int y;
+		final int spacing;
+		final int count;
+		final String name;
+
+		Row(int y, int spacing, int count, String name) {
+			this.y = y;
+			this.spacing = spacing;
+			this.count = count;
+			this.name = name;
+		}
+
+		boolean isBand() {
+			return spacing < MIN_NODE_SPACING;
+		}
+	}
+
+	private static class PlacedNode {
+		final Node node;
+		final Coordinates coordinates;
+		/** Distance to the next node of the row */
+		final int spacing;
+
+		PlacedNode(Node node, Coordinates coordinates, int spacing) {
+			this.node = node;
+			this.coordinates = coordinates;
+			this.spacing = spacing;
+		}
+	}
+
+	/** What the canvas draws for a version of the graph and a size of the canvas */
+	private static class Layout {
+		/** Set on the event dispatch thread, the layout being computed from a snapshot */
+		Graph graph;
+		final long version;
+		final int width;
+		final int height;
+		final int nodeSize;
+		final Map<Node, Coordinates> coordinates = new HashMap<Node, Coordinates>();
+		final List<Row> rows = new ArrayList<Row>();
+		/** Nodes outside of the bands */
+		final List<PlacedNode> nodes = new ArrayList<PlacedNode>();
+		/** Edges, as x1, y1, x2, y2 */
+		int[] segments = new int[64];
+		int numSegments;
+
+		Layout(long version, int width, int height, int nodeSize) {
+			this.version = version;
+			this.width = width;
+			this.height = height;
+			this.nodeSize = nodeSize;
+		}
+
+		void addSegment(int x1, int y1, int x2, int y2) {
+			if ((numSegments + 1) * 4 > segments.length)
+				segments = Arrays.copyOf(segments, segments.length * 2);
+			int i = numSegments * 4;
+			segments[i] = x1;
+			segments[i + 1] = y1;
+			segments[i + 2] = x2;
+			segments[i + 3] = y2;
+			numSegments++;
+		}
 	}
 }
@@ -7,9 +7,13 @@ import java.awt.Toolkit;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.event.KeyEvent;
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.BoxLayout;
 import javax.swing.ButtonGroup;
@@ -26,6 +30,7 @@ import javax.swing.JRadioButtonMenuItem;
 import javax.swing.JToolBar;
 import javax.swing.KeyStroke;
 import javax.swing.SwingUtilities;
+import javax.swing.SwingWorker;
 import javax.swing.UIManager;
 import javax.swing.filechooser.FileFilter;
 import javax.swing.filechooser.FileNameExtensionFilter;
@@ -175,21 +180,32 @@ public class FogGui extends JFrame {
 		};
 		ActionListener importPhyTopoListener = new ActionListener() {
 		    public void actionPerformed(ActionEvent e) {
-		    	String fileName = importFile("josn");
-		    	Graph phyGraph= Bridge.jsonToGraph(fileName, 0);
-		    	physicalGraph = phyGraph;
-		    	physicalCanvas.setGraph(physicalGraph);
-		    	physicalCanvas.repaint();
+		    	final String fileName = importFile("josn");
+		    	// large topologies are parsed off the event dispatch thread
+		    	new SwingWorker<Graph, Void>() {
+		    		@Override
+		    		protected Graph doInBackground() {
+		    			return Bridge.jsonToGraph(fileName, 0);
+		    		}
+
+		    		@Override
+		    		protected void done() {
+		    			try {
+		    				physicalGraph = get();
+		    			} catch (InterruptedException | ExecutionException e1) {
+		    				e1.printStackTrace();
+		    				return;
+		    			}
+		    			physicalCanvas.setGraph(physicalGraph);
+		    			physicalCanvas.repaint();
+		    		}
+		    	}.execute();
 		    }
 		};
 		
 		ActionListener savePhyTopoListener = new ActionListener() {
 		    public void actionPerformed(ActionEvent e) {
-		    	try {
-					saveFile("json", physicalGraph);
-				} catch (IOException e1) {
-					e1.printStackTrace();
-				}
+		    	saveFile("json", physicalGraph);
 		    }
 		};
 				
@@ -532,7 +548,7 @@ public class FogGui extends JFrame {
     }
     
     /** save network topology */
-    private void saveFile(String type, Graph graph) throws IOException{
+    private void saveFile(String type, Graph graph){
     	JFileChooser fileopen = new JFileChooser();
         FileFilter filter = new FileNameExtensionFilter(type.toUpperCase()+" Files", type);
         fileopen.addChoosableFileFilter(filter);
@@ -540,13 +556,31 @@ public class FogGui extends JFrame {
         int ret = fileopen.showSaveDialog(panel);
 
         if (ret == JFileChooser.APPROVE_OPTION) {
-        	String jsonText = graph.toJsonString();
-        	System.out.println(jsonText);
             String path = fileopen.getSelectedFile().toString();
-            File file = new File(path);
-    		FileOutputStream out = new FileOutputStream(file);
-			out.write(jsonText.getBytes());
-			out.close();
+            final File file = new File(path);
+            // written off the event dispatch thread, from a copy the dialogs cannot change meanwhile
+            final Graph snapshot = graph.snapshot();
+            new SwingWorker<Void, Void>() {
+            	@Override
+            	protected Void doInBackground() throws IOException {
+            		Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(file)));
+            		try {
+            			Bridge.writeGraph(snapshot, out);
+            		} finally {
+            			out.close();
+            		}
+            		return null;
+            	}
+
+            	@Override
+            	protected void done() {
+            		try {
+            			get();
+            		} catch (InterruptedException | ExecutionException e) {
+            			e.printStackTrace();
+            		}
+            	}
+            }.execute();
         }
     }
     
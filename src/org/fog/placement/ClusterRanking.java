@@ -0,0 +1,93 @@
+package org.fog.placement;
+
+import org.fog.entities.ResourceTable;
+
+import java.util.*;
+
+/**
+ * Members of a cluster ranked by available CPU in a {@link ResourceTable}, highest first, members with the same
+ * available CPU keeping their order in the member list.
+ * <p>
+ * The ranking is kept across placement rounds. A round only re-ranks the members whose resources changed since the
+ * previous round, as told by the delta log of the table, so unchanged members are neither read nor sorted again. The
+ * ranking is built again when the member list or the table changes.
+ */
+class ClusterRanking {
+
+    private ResourceTable resources;
+    private long version;
+
+    /**
+     * Copy of the member list the ranking was built for
+     */
+    private List<Integer> members = new ArrayList<>();
+    private Map<Integer, Integer> memberIndex = new HashMap<>();
+    private List<Integer> ranking = new ArrayList<>();
+
+    /**
+     * @return the ranked members, valid until the next call
+     */
+    List<Integer> rank(List<Integer> clusterMembers, ResourceTable resourceAvailability) {
+        if (resourceAvailability != resources || !members.equals(clusterMembers)) {
+            rebuild(clusterMembers, resourceAvailability);
+        } else {
+            List<Integer> changedMembers = new ArrayList<>();
+            for (int deviceId : resourceAvailability.changedSince(version)) {
+                if (memberIndex.containsKey(deviceId))
+                    changedMembers.add(deviceId);
+            }
+            if (changedMembers.size() > members.size() / 4) {
+                rebuild(clusterMembers, resourceAvailability);
+            } else {
+                // every changed member is out of place, so all of them leave the ranking before any is inserted
+                ranking.removeAll(changedMembers);
+                for (int deviceId : changedMembers)
+                    insert(deviceId);
+            }
+        }
+        version = resourceAvailability.getVersion();
+        return Collections.unmodifiableList(ranking);
+    }
+
+    private void rebuild(List<Integer> clusterMembers, ResourceTable resourceAvailability) {
+        resources = resourceAvailability;
+        members = new ArrayList<>(clusterMembers);
+        memberIndex.clear();
+        for (Integer id : members) {
+            if (!memberIndex.containsKey(id))
+                memberIndex.put(id, memberIndex.size());
+        }
+        // a stable sort keeps the member order for the same cpu
+        ranking = new ArrayList<>(members);
+        Collections.sort(ranking, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                return Double.compare(resources.get(b, ResourceTable.CPU), resources.get(a, ResourceTable.CPU));
+            }
+        });
+        if (memberIndex.size() != members.size()) {
+            // a member listed twice can't be re-ranked by its position, rank the list again next time
+            members = Collections.emptyList();
+        }
+    }
+
+    private void insert(int deviceId) {
+        int low = 0;
+        int high = ranking.size();
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (compareMembers(ranking.get(middle), deviceId) < 0)
+                low = middle + 1;
+            else
+                high = middle;
+        }
+        ranking.add(low, deviceId);
+    }
+
+    private int compareMembers(int a, int b) {
+        int byCpu = Double.compare(resources.get(b, ResourceTable.CPU), resources.get(a, ResourceTable.CPU));
+        if (byCpu != 0)
+            return byCpu;
+        return Integer.compare(memberIndex.get(a), memberIndex.get(b));
+    }
+}
@@ -6,9 +6,9 @@ import org.fog.application.AppModule;
 import org.fog.application.Application;
 import org.fog.entities.FogDevice;
 import org.fog.entities.Tuple;
-import org.fog.entities.ControllerComponent;
 import org.fog.entities.MicroserviceFogDevice;
 import org.fog.entities.PlacementRequest;
+import org.fog.entities.ResourceTable;
 import org.fog.utils.Logger;
 import org.fog.utils.ModuleLaunchConfig;
 
@@ -23,7 +23,7 @@ public class ClusteredMicroservicePlacementLogic implements MicroservicePlacemen
      */
     List<FogDevice> fogDevices; //fog devices considered by FON for placements of requests
     List<PlacementRequest> placementRequests; // requests to be processed
-    protected Map<Integer, Map<String, Double>> resourceAvailability;
+    protected ResourceTable resourceAvailability;
     private Map<String, Application> applicationInfo = new HashMap<>();
     private Map<String, String> moduleToApp = new HashMap<>();
 
@@ -37,6 +37,19 @@ public class ClusteredMicroservicePlacementLogic implements MicroservicePlacemen
     Map<Integer, Map<String, Integer>> mappedMicroservices = new HashMap<>();
     ; //mappedMicroservice
 
+    /**
+     * Device lookup, rebuilt only when the device list changes
+     */
+    private List<FogDevice> indexedDevices;
+    private int indexedDeviceCount;
+    private Map<Integer, FogDevice> deviceById = new HashMap<>();
+    private Map<String, FogDevice> deviceByName = new HashMap<>();
+
+    /**
+     * Members of each cluster by available cpu, kept across placement rounds
+     */
+    private Map<Integer, ClusterRanking> clusterRankings = new HashMap<>();
+
     public ClusteredMicroservicePlacementLogic(int fonID) {
         setFONId(fonID);
     }
@@ -50,20 +63,18 @@ public class ClusteredMicroservicePlacementLogic implements MicroservicePlacemen
     }
 
     @Override
-    public PlacementLogicOutput run(List<FogDevice> fogDevices, Map<String, Application> applicationInfo, Map<Integer, Map<String, Double>> resourceAvailability, List<PlacementRequest> pr) {
+    public PlacementLogicOutput run(List<FogDevice> fogDevices, Map<String, Application> applicationInfo, ResourceTable resourceAvailability, List<PlacementRequest> pr) {
         this.fogDevices = fogDevices;
         this.placementRequests = pr;
         this.resourceAvailability = resourceAvailability;
         this.applicationInfo = applicationInfo;
+        indexDevices();
 
+        // per round state is created on first use, so a round only pays for the devices it touches
         setCurrentCpuLoad(new HashMap<Integer, Double>());
         setCurrentModuleMap(new HashMap<>());
-        for (FogDevice dev : fogDevices) {
-            getCurrentCpuLoad().put(dev.getId(), 0.0);
-            getCurrentModuleMap().put(dev.getId(), new ArrayList<>());
-            currentModuleLoadMap.put(dev.getId(), new HashMap<String, Double>());
-            currentModuleInstanceNum.put(dev.getId(), new HashMap<String, Integer>());
-        }
+        currentModuleLoadMap.clear();
+        currentModuleInstanceNum.clear();
 
         mapModules();
         PlacementLogicOutput placement = generatePlacementMap();
@@ -73,14 +84,13 @@ public class ClusteredMicroservicePlacementLogic implements MicroservicePlacemen
     }
 
     @Override
-    public void updateResources(Map<Integer, Map<String, Double>> resourceAvailability) {
+    public void updateResources(ResourceTable resourceAvailability) {
         for (int deviceId : currentModuleInstanceNum.keySet()) {
             Map<String, Integer> moduleCount = currentModuleInstanceNum.get(deviceId);
             for (String moduleName : moduleCount.keySet()) {
                 Application app = applicationInfo.get(moduleToApp.get(moduleName));
                 AppModule module = app.getModuleByName(moduleName);
-                double mips = resourceAvailability.get(deviceId).get(ControllerComponent.CPU) - (module.getMips() * moduleCount.get(moduleName));
-                resourceAvailability.get(deviceId).put(ControllerComponent.CPU, mips);
+                resourceAvailability.add(deviceId, ResourceTable.CPU, -(module.getMips() * moduleCount.get(moduleName)));
             }
         }
     }
@@ -224,30 +234,30 @@ public class ClusteredMicroservicePlacementLogic implements MicroservicePlacemen
                     FogDevice device = getDeviceByName(deviceName);
                     int deviceId = device.getId();
 
-                    if (getModule(microservice, app).getMips() + getCurrentCpuLoad().get(deviceId) <= resourceAvailability.get(deviceId).get(ControllerComponent.CPU)) {
+                    if (getModule(microservice, app).getMips() + getCurrentCpuLoad(deviceId) <= resourceAvailability.get(deviceId, ResourceTable.CPU)) {
                         Logger.debug("ModulePlacementEdgeward", "Placement of operator " + microservice + " on device " + device.getName() + " successful.");
-                        getCurrentCpuLoad().put(deviceId, getModule(microservice, app).getMips() + getCurrentCpuLoad().get(deviceId));
+                        getCurrentCpuLoad().put(deviceId, getModule(microservice, app).getMips() + getCurrentCpuLoad(deviceId));
                         System.out.println("Placement of operator " + microservice + " on device " + device.getName() + " successful.");
 
                         moduleToApp.put(microservice, app.getAppId());
 
-                        if (!currentModuleMap.get(deviceId).contains(microservice))
-                            currentModuleMap.get(deviceId).add(microservice);
+                        if (!getCurrentModules(deviceId).contains(microservice))
+                            getCurrentModules(deviceId).add(microservice);
 
                         mappedMicroservices.get(placementRequest.getPlacementRequestId()).put(microservice, deviceId);
 
                         //currentModuleLoad
-                        if (!currentModuleLoadMap.get(deviceId).containsKey(microservice))
-                            currentModuleLoadMap.get(deviceId).put(microservice, getModule(microservice, app).getMips());
+                        if (!getCurrentModuleLoads(deviceId).containsKey(microservice))
+                            getCurrentModuleLoads(deviceId).put(microservice, getModule(microservice, app).getMips());
                         else
-                            currentModuleLoadMap.get(deviceId).put(microservice, getModule(microservice, app).getMips() + currentModuleLoadMap.get(deviceId).get(microservice));
+                            getCurrentModuleLoads(deviceId).put(microservice, getModule(microservice, app).getMips() + getCurrentModuleLoads(deviceId).get(microservice));
 
 
                         //currentModuleInstance
-                        if (!currentModuleInstanceNum.get(deviceId).containsKey(microservice))
-                            currentModuleInstanceNum.get(deviceId).put(microservice, 1);
+                        if (!getCurrentModuleInstances(deviceId).containsKey(microservice))
+                            getCurrentModuleInstances(deviceId).put(microservice, 1);
                         else
-                            currentModuleInstanceNum.get(deviceId).put(microservice, currentModuleInstanceNum.get(deviceId).get(microservice) + 1);
+                            getCurrentModuleInstances(deviceId).put(microservice, getCurrentModuleInstances(deviceId).get(microservice) + 1);
 
                         break;
                     }
@@ -281,30 +291,30 @@ public class ClusteredMicroservicePlacementLogic implements MicroservicePlacemen
                     if (toPlace.containsKey(placementRequest)) {
                         for (String microservice : toPlace.get(placementRequest)) {
                             // try to place
-                            if (getModule(microservice, app).getMips() + getCurrentCpuLoad().get(deviceId) <= resourceAvailability.get(deviceId).get(ControllerComponent.CPU)) {
+                            if (getModule(microservice, app).getMips() + getCurrentCpuLoad(deviceId) <= resourceAvailability.get(deviceId, ResourceTable.CPU)) {
                                 Logger.debug("ModulePlacementEdgeward", "Placement of operator " + microservice + " on device " + device.getName() + " successful.");
-                                getCurrentCpuLoad().put(deviceId, getModule(microservice, app).getMips() + getCurrentCpuLoad().get(deviceId));
+                                getCurrentCpuLoad().put(deviceId, getModule(microservice, app).getMips() + getCurrentCpuLoad(deviceId));
                                 System.out.println("Placement of operator " + microservice + " on device " + device.getName() + " successful.");
 
                                 moduleToApp.put(microservice, app.getAppId());
 
-                                if (!currentModuleMap.get(deviceId).contains(microservice))
-                                    currentModuleMap.get(deviceId).add(microservice);
+                                if (!getCurrentModules(deviceId).contains(microservice))
+                                    getCurrentModules(deviceId).add(microservice);
 
                                 mappedMicroservices.get(placementRequest.getPlacementRequestId()).put(microservice, deviceId);
 
                                 //currentModuleLoad
-                                if (!currentModuleLoadMap.get(deviceId).containsKey(microservice))
-                                    currentModuleLoadMap.get(deviceId).put(microservice, getModule(microservice, app).getMips());
+                                if (!getCurrentModuleLoads(deviceId).containsKey(microservice))
+                                    getCurrentModuleLoads(deviceId).put(microservice, getModule(microservice, app).getMips());
                                 else
-                                    currentModuleLoadMap.get(deviceId).put(microservice, getModule(microservice, app).getMips() + currentModuleLoadMap.get(deviceId).get(microservice));
+                                    getCurrentModuleLoads(deviceId).put(microservice, getModule(microservice, app).getMips() + getCurrentModuleLoads(deviceId).get(microservice));
 
 
                                 //currentModuleInstance
-                                if (!currentModuleInstanceNum.get(deviceId).containsKey(microservice))
-                                    currentModuleInstanceNum.get(deviceId).put(microservice, 1);
+                                if (!getCurrentModuleInstances(deviceId).containsKey(microservice))
+                                    getCurrentModuleInstances(deviceId).put(microservice, 1);
                                 else
-                                    currentModuleInstanceNum.get(deviceId).put(microservice, currentModuleInstanceNum.get(deviceId).get(microservice) + 1);
+                                    getCurrentModuleInstances(deviceId).put(microservice, getCurrentModuleInstances(deviceId).get(microservice) + 1);
 
                                 placed.add(microservice);
                             }
@@ -330,48 +340,24 @@ public class ClusteredMicroservicePlacementLogic implements MicroservicePlacemen
                         int clusterDeviceId = clusterNode.get(placementRequest);
                         FogDevice device = getDevice(clusterDeviceId);
                         List<Integer> clusterDeviceIds = ((MicroserviceFogDevice) device).getClusterMembers();
+                        // members running modules of this round first, each group from the most to the least free cpu
                         List<Integer> sortedClusterDevicesActive = new ArrayList<>();
                         List<Integer> sortedClusterDevicesInactive = new ArrayList<>();
                         for (Integer id : clusterDeviceIds) {
-                            //sort list from min to max
-                            if (currentModuleMap.get(id).size()>0 && sortedClusterDevicesActive.isEmpty())
+                            if (getCurrentModules(id).size() > 0)
                                 sortedClusterDevicesActive.add(id);
-                            else if(currentModuleMap.get(id).size()==0 && sortedClusterDevicesInactive.isEmpty())
-                                sortedClusterDevicesInactive.add(id);
-                            else if(currentModuleMap.get(id).size()>0){
-                                boolean isPlaced = false;
-                                for (int i = 0; i < sortedClusterDevicesActive.size(); i++) {
-                                    double sorted = resourceAvailability.get(sortedClusterDevicesActive.get(i)).get("cpu") -
-                                            getCurrentCpuLoad().get(sortedClusterDevicesActive.get(i));
-                                    double current = resourceAvailability.get(id).get("cpu") -
-                                            getCurrentCpuLoad().get(id);
-                                    if (sorted < current) {sortedClusterDevicesActive.add(i, id);
-                                        isPlaced = true;
-                                        break;
-                                    } else {
-                                        continue;
-                                    }
-                                }
-                                if (!isPlaced)
-                                    sortedClusterDevicesActive.add(id);
-                            }
-                            else{
-                                boolean isPlaced = false;
-                                for (int i = 0; i < sortedClusterDevicesInactive.size(); i++) {
-                                    double sorted = resourceAvailability.get(sortedClusterDevicesInactive.get(i)).get("cpu") -
-                                            getCurrentCpuLoad().get(sortedClusterDevicesInactive.get(i));
-                                    double current = resourceAvailability.get(id).get("cpu") -
-                                            getCurrentCpuLoad().get(id);
-                                    if (sorted < current) {sortedClusterDevicesInactive.add(i, id);
-                                        isPlaced = true;
-                                        break;
-                                    } else {
-                                        continue;
-                                    }
-                                }
-                                if (!isPlaced)
-                                    sortedClusterDevicesInactive.add(id);
+                        }
+                        Collections.sort(sortedClusterDevicesActive, new Comparator<Integer>() {
+                            @Override
+                            public int compare(Integer a, Integer b) {
+                                return Double.compare(resourceAvailability.get(b, ResourceTable.CPU) - getCurrentCpuLoad(b),
+                                        resourceAvailability.get(a, ResourceTable.CPU) - getCurrentCpuLoad(a));
                             }
+                        });
+                        // the other members have no load of this round, so their order is the one of the available cpu
+                        for (Integer id : getClusterRanking(clusterDeviceId).rank(clusterDeviceIds, resourceAvailability)) {
+                            if (getCurrentModules(id).size() == 0)
+                                sortedClusterDevicesInactive.add(id);
                         }
 
                         List<Integer> sortedClusterDevices = new ArrayList<>(sortedClusterDevicesActive);
@@ -380,31 +366,31 @@ public class ClusteredMicroservicePlacementLogic implements MicroservicePlacemen
                         for (String microservice : toPlace.get(placementRequest)) {
                             for (int id : sortedClusterDevices) {
                                 // try to place
-                                if (getModule(microservice, app).getMips() + getCurrentCpuLoad().get(id) <= resourceAvailability.get(id).get(ControllerComponent.CPU)) {
+                                if (getModule(microservice, app).getMips() + getCurrentCpuLoad(id) <= resourceAvailability.get(id, ResourceTable.CPU)) {
                                     FogDevice placedDevice = getDevice(id);
                                     Logger.debug("ModulePlacementEdgeward", "Placement of operator " + microservice + " on device " + placedDevice.getName() + " successful.");
-                                    getCurrentCpuLoad().put(id, getModule(microservice, app).getMips() + getCurrentCpuLoad().get(id));
+                                    getCurrentCpuLoad().put(id, getModule(microservice, app).getMips() + getCurrentCpuLoad(id));
                                     System.out.println("Placement of operator " + microservice + " on device " + placedDevice.getName() + " successful.");
 
-                                    if (!currentModuleMap.get(id).contains(microservice))
-                                        currentModuleMap.get(id).add(microservice);
+                                    if (!getCurrentModules(id).contains(microservice))
+                                        getCurrentModules(id).add(microservice);
 
                                     mappedMicroservices.get(placementRequest.getPlacementRequestId()).put(microservice, id);
 
                                     moduleToApp.put(microservice, app.getAppId());
 
                                     //currentModuleLoad
-                                    if (!currentModuleLoadMap.get(id).containsKey(microservice))
-                                        currentModuleLoadMap.get(id).put(microservice, getModule(microservice, app).getMips());
+                                    if (!getCurrentModuleLoads(id).containsKey(microservice))
+                                        getCurrentModuleLoads(id).put(microservice, getModule(microservice, app).getMips());
                                     else
-                                        currentModuleLoadMap.get(id).put(microservice, getModule(microservice, app).getMips() + currentModuleLoadMap.get(id).get(microservice));
+                                        getCurrentModuleLoads(id).put(microservice, getModule(microservice, app).getMips() + getCurrentModuleLoads(id).get(microservice));
 
 
                                     //currentModuleInstance
-                                    if (!currentModuleInstanceNum.get(id).containsKey(microservice))
-                                        currentModuleInstanceNum.get(id).put(microservice, 1);
+                                    if (!getCurrentModuleInstances(id).containsKey(microservice))
+                                        getCurrentModuleInstances(id).put(microservice, 1);
                                     else
-                                        currentModuleInstanceNum.get(id).put(microservice, currentModuleInstanceNum.get(id).get(microservice) + 1);
+                                        getCurrentModuleInstances(id).put(microservice, getCurrentModuleInstances(id).get(microservice) + 1);
 
                                     placed.add(microservice);
                                     break;
@@ -428,18 +414,68 @@ public class ClusteredMicroservicePlacementLogic implements MicroservicePlacemen
 
     }
 
-    private FogDevice getDeviceByName(String deviceName) {
+    private void indexDevices() {
+        if (indexedDevices == fogDevices && indexedDeviceCount == fogDevices.size())
+            return;
+        deviceById.clear();
+        deviceByName.clear();
         for (FogDevice f : fogDevices) {
-            if (f.getName().equals(deviceName))
-                return f;
+            deviceById.put(f.getId(), f);
+            deviceByName.put(f.getName(), f);
         }
-        return null;
+        indexedDevices = fogDevices;
+        indexedDeviceCount = fogDevices.size();
+    }
+
+    private ClusterRanking getClusterRanking(int clusterDeviceId) {
+        ClusterRanking ranking = clusterRankings.get(clusterDeviceId);
+        if (ranking == null) {
+            ranking = new ClusterRanking();
+            clusterRankings.put(clusterDeviceId, ranking);
+        }
+        return ranking;
+    }
+
+    private FogDevice getDeviceByName(String deviceName) {
+        return deviceByName.get(deviceName);
     }
 
     public Map<Integer, Double> getCurrentCpuLoad() {
         return currentCpuLoad;
     }
 
+    private double getCurrentCpuLoad(int deviceId) {
+        Double load = currentCpuLoad.get(deviceId);
+        return load == null ? 0.0 : load;
+    }
+
+    private List<String> getCurrentModules(int deviceId) {
+        List<String> modules = currentModuleMap.get(deviceId);
+        if (modules == null) {
+            modules = new ArrayList<>();
+            currentModuleMap.put(deviceId, modules);
+        }
+        return modules;
+    }
+
+    private Map<String, Double> getCurrentModuleLoads(int deviceId) {
+        Map<String, Double> loads = currentModuleLoadMap.get(deviceId);
+        if (loads == null) {
+            loads = new HashMap<>();
+            currentModuleLoadMap.put(deviceId, loads);
+        }
+        return loads;
+    }
+
+    private Map<String, Integer> getCurrentModuleInstances(int deviceId) {
+        Map<String, Integer> instances = currentModuleInstanceNum.get(deviceId);
+        if (instances == null) {
+            instances = new HashMap<>();
+            currentModuleInstanceNum.put(deviceId, instances);
+        }
+        return instances;
+    }
+
     private AppModule getModule(String moduleName, Application app) {
         for (AppModule appModule : app.getModules()) {
             if (appModule.getName().equals(moduleName))
@@ -449,11 +485,7 @@ public class ClusteredMicroservicePlacementLogic implements MicroservicePlacemen
     }
 
     private FogDevice getDevice(int deviceId) {
-        for (FogDevice fogDevice : fogDevices) {
-            if (fogDevice.getId() == deviceId)
-                return fogDevice;
-        }
-        return null;
+        return deviceById.get(deviceId);
     }
 
     private List<String> getModulesToPlace(Set<String> placedModules, Application app) {
@@ -159,6 +159,7 @@ public class ClusteringController extends SimEntity {
                 break;
             case FogEvents.STOP_SIMULATION:
                 CloudSim.stopSimulation();
+                ResultsWriter.finish(applications.values());
                 printTimeDetails();
                 printPowerDetails();
                 printCostDetails();
@@ -1,9 +1,13 @@
 package org.fog.placement;
 
+import java.util.ArrayList;
 import java.util.Calendar;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 import org.cloudbus.cloudsim.core.CloudSim;
 import org.cloudbus.cloudsim.core.SimEntity;
@@ -19,6 +23,7 @@ import org.fog.utils.Config;
 import org.fog.utils.FogEvents;
 import org.fog.utils.FogUtils;
 import org.fog.utils.NetworkUsageMonitor;
+import org.fog.utils.ResultsWriter;
 import org.fog.utils.TimeKeeper;
 
 
@@ -34,6 +39,10 @@ public class Controller extends SimEntity{
 	private Map<String, Integer> appLaunchDelays;
 
 	private Map<String, ModulePlacement> appModulePlacementPolicy;
+
+	/** Applications of each call to {@link #submitApplications(List, int)}, launched together */
+	private final List<List<Application>> bulkSubmissions = new ArrayList<List<Application>>();
+	private final Set<String> bulkAppIds = new HashSet<String>();
 	
 	public Controller(String name, List<FogDevice> fogDevices, List<Sensor> sensors, List<Actuator> actuators) {
 		super(name);
@@ -49,17 +58,12 @@ public class Controller extends SimEntity{
 		connectWithLatencies();
 	}
 
-	private FogDevice getFogDeviceById(int id){
-		for(FogDevice fogDevice : getFogDevices()){
-			if(id==fogDevice.getId())
-				return fogDevice;
-		}
-		return null;
-	}
-	
 	private void connectWithLatencies(){
+		Map<Integer, FogDevice> devicesById = new HashMap<Integer, FogDevice>();
+		for(FogDevice fogDevice : getFogDevices())
+			devicesById.put(fogDevice.getId(), fogDevice);
 		for(FogDevice fogDevice : getFogDevices()){
-			FogDevice parent = getFogDeviceById(fogDevice.getParentId());
+			FogDevice parent = devicesById.get(fogDevice.getParentId());
 			if(parent == null)
 				continue;
 			double latency = fogDevice.getUplinkLatency();
@@ -71,11 +75,20 @@ public class Controller extends SimEntity{
 	@Override
 	public void startEntity() {
 		for(String appId : applications.keySet()){
+			if(bulkAppIds.contains(appId))
+				continue;
 			if(getAppLaunchDelays().get(appId)==0)
 				processAppSubmit(applications.get(appId));
 			else
 				send(getId(), getAppLaunchDelays().get(appId), FogEvents.APP_SUBMIT, applications.get(appId));
 		}
+		for(List<Application> batch : bulkSubmissions){
+			int delay = getAppLaunchDelays().get(batch.get(0).getAppId());
+			if(delay==0)
+				processAppsSubmit(batch);
+			else
+				send(getId(), delay, FogEvents.APP_SUBMIT, batch);
+		}
 
 		send(getId(), Config.RESOURCE_MANAGE_INTERVAL, FogEvents.CONTROLLER_RESOURCE_MANAGE);
 		
@@ -100,6 +113,7 @@ public class Controller extends SimEntity{
 			break;
 		case FogEvents.STOP_SIMULATION:
 			CloudSim.stopSimulation();
+			ResultsWriter.finish(getApplications().values());
 			printTimeDetails();
 			printPowerDetails();
 			printCostDetails();
@@ -202,12 +216,161 @@ public class Controller extends SimEntity{
 	public void submitApplication(Application application, ModulePlacement modulePlacement){
 		submitApplication(application, 0, modulePlacement);
 	}
+
+	/**
+	 * Submits many applications at once, such as the tenants of a shared fog hierarchy, each with the
+	 * placement computed for it. Unlike repeated calls to
+	 * {@link #submitApplication(Application, int, ModulePlacement)}, sensors and actuators are indexed
+	 * by application and actuator type once for all the applications, and the applications are
+	 * launched together: every device is told about all of them in a single event.
+	 * 
+	 * @param modulePlacements the placements of the applications, each giving its application
+	 * @param delay the launch delay of all the applications
+	 * @throws IllegalArgumentException if an application is invalid, listing the problems of all of
+	 *         them; none of the applications is submitted then
+	 */
+	public void submitApplications(List<ModulePlacement> modulePlacements, int delay){
+		if(modulePlacements.isEmpty())
+			return;
+		List<Application> batch = validateApplications(modulePlacements);
+
+		Map<String, List<Sensor>> sensorsByApp = new HashMap<String, List<Sensor>>();
+		for(Sensor sensor : getSensors())
+			addTo(sensorsByApp, sensor.getAppId(), sensor);
+		Map<String, List<Actuator>> actuatorsByApp = new HashMap<String, List<Actuator>>();
+		Map<String, List<Actuator>> actuatorsByType = new HashMap<String, List<Actuator>>();
+		for(Actuator actuator : getActuators()){
+			addTo(actuatorsByApp, actuator.getAppId(), actuator);
+			if(actuator.getActuatorType() != null)
+				addTo(actuatorsByType, actuatorTypeKey(actuator.getActuatorType()), actuator);
+		}
+
+		for(ModulePlacement modulePlacement : modulePlacements){
+			Application application = modulePlacement.getApplication();
+			FogUtils.appIdToGeoCoverageMap.put(application.getAppId(), application.getGeoCoverage());
+			getApplications().put(application.getAppId(), application);
+			getAppLaunchDelays().put(application.getAppId(), delay);
+			getAppModulePlacementPolicy().put(application.getAppId(), modulePlacement);
+			bulkAppIds.add(application.getAppId());
+		}
+
+		for(Application application : batch){
+			if(sensorsByApp.containsKey(application.getAppId()))
+				for(Sensor sensor : sensorsByApp.get(application.getAppId()))
+					sensor.setApp(application);
+			if(actuatorsByApp.containsKey(application.getAppId()))
+				for(Actuator ac : actuatorsByApp.get(application.getAppId()))
+					ac.setApp(application);
+
+			for(AppEdge edge : application.getEdges()){
+				if(edge.getEdgeType() == AppEdge.ACTUATOR && actuatorsByType.containsKey(actuatorTypeKey(edge.getDestination()))){
+					AppModule module = application.getModuleByName(edge.getSource());
+					for(Actuator actuator : actuatorsByType.get(actuatorTypeKey(edge.getDestination())))
+						module.subscribeActuator(actuator.getId(), edge.getTupleType());
+				}
+			}
+		}
+		bulkSubmissions.add(Collections.unmodifiableList(batch));
+	}
+
+	public void submitApplications(List<ModulePlacement> modulePlacements){
+		submitApplications(modulePlacements, 0);
+	}
+
+	/**
+	 * Checks the applications of a bulk submission together.
+	 * 
+	 * @return the applications
+	 * @throws IllegalArgumentException listing the problems found
+	 */
+	private List<Application> validateApplications(List<ModulePlacement> modulePlacements){
+		List<String> problems = new ArrayList<String>();
+		List<Application> batch = new ArrayList<Application>();
+		Set<String> appIds = new HashSet<String>();
+		for(int i = 0; i < modulePlacements.size(); i++){
+			ModulePlacement modulePlacement = modulePlacements.get(i);
+			if(modulePlacement == null || modulePlacement.getApplication() == null){
+				problems.add("placement " + i + " has no application");
+				continue;
+			}
+			Application application = modulePlacement.getApplication();
+			String appId = application.getAppId();
+			batch.add(application);
+			if(!appIds.add(appId) || getApplications().containsKey(appId))
+				problems.add("application " + appId + " is submitted twice");
+			if(modulePlacement.getDeviceToModuleMap() == null){
+				problems.add("application " + appId + " has no module placement");
+			} else {
+				for(Integer deviceId : modulePlacement.getDeviceToModuleMap().keySet()){
+					if(!(CloudSim.getEntity(deviceId) instanceof FogDevice))
+						problems.add("application " + appId + " places modules on " + deviceId + " which is not a fog device");
+				}
+			}
+			for(AppEdge edge : application.getEdges()){
+				if(edge.getEdgeType() == AppEdge.ACTUATOR && application.getModuleByName(edge.getSource()) == null)
+					problems.add("application " + appId + " has no module " + edge.getSource() + " sending to actuator " + edge.getDestination());
+			}
+		}
+		if(!problems.isEmpty()){
+			StringBuilder message = new StringBuilder("Invalid applications: ");
+			for(int i = 0; i < problems.size() && i < 10; i++)
+				message.append(i == 0 ? "" : "; ").append(problems.get(i));
+			if(problems.size() > 10)
+				message.append("; and ").append(problems.size() - 10).append(" more");
+			throw new IllegalArgumentException(message.toString());
+		}
+		return batch;
+	}
+
+	private static <T> void addTo(Map<String, List<T>> map, String key, T value){
+		if(!map.containsKey(key))
+			map.put(key, new ArrayList<T>());
+		map.get(key).add(value);
+	}
+
+	/**
+	 * @return a key equal for the actuator types which are equal ignoring case
+	 */
+	private static String actuatorTypeKey(String actuatorType){
+		char[] chars = actuatorType.toCharArray();
+		for(int i = 0; i < chars.length; i++)
+			chars[i] = Character.toLowerCase(Character.toUpperCase(chars[i]));
+		return new String(chars);
+	}
 	
 	
+	@SuppressWarnings("unchecked")
 	private void processAppSubmit(SimEvent ev){
+		if(ev.getData() instanceof List){
+			processAppsSubmit((List<Application>) ev.getData());
+			return;
+		}
 		Application app = (Application) ev.getData();
 		processAppSubmit(app);
 	}
+
+	/**
+	 * Launches the applications of a bulk submission, telling every device about all of them at once.
+	 */
+	private void processAppsSubmit(List<Application> batch){
+		for(Application application : batch){
+			System.out.println(CloudSim.clock()+" Submitted application "+ application.getAppId());
+			FogUtils.appIdToGeoCoverageMap.put(application.getAppId(), application.getGeoCoverage());
+			getApplications().put(application.getAppId(), application);
+		}
+		for(FogDevice fogDevice : fogDevices){
+			sendNow(fogDevice.getId(), FogEvents.ACTIVE_APP_UPDATE, batch);
+		}
+		for(Application application : batch){
+			Map<Integer, List<AppModule>> deviceToModuleMap = getAppModulePlacementPolicy().get(application.getAppId()).getDeviceToModuleMap();
+			for(Integer deviceId : deviceToModuleMap.keySet()){
+				for(AppModule module : deviceToModuleMap.get(deviceId)){
+					sendNow(deviceId, FogEvents.APP_SUBMIT, application);
+					sendNow(deviceId, FogEvents.LAUNCH_MODULE, module);
+				}
+			}
+		}
+	}
 	
 	private void processAppSubmit(Application application){
 		System.out.println(CloudSim.clock()+" Submitted application "+ application.getAppId());
@@ -6,9 +6,9 @@ import org.fog.application.AppModule;
 import org.fog.application.Application;
 import org.fog.entities.FogDevice;
 import org.fog.entities.Tuple;
-import org.fog.entities.ControllerComponent;
 import org.fog.entities.MicroserviceFogDevice;
 import org.fog.entities.PlacementRequest;
+import org.fog.entities.ResourceTable;
 import org.fog.utils.Logger;
 import org.fog.utils.ModuleLaunchConfig;
 
@@ -24,7 +24,7 @@ public class DistributedMicroservicePlacementLogic implements MicroservicePlacem
      */
     FogDevice fogDevice; //fog devices considered by FON for placements of requests
     List<PlacementRequest> placementRequests; // requests to be processed
-    protected Map<Integer, Map<String, Double>> resourceAvailability;
+    protected ResourceTable resourceAvailability;
     private Map<String, Application> applicationInfo = new HashMap<>();
     private Map<String, String> moduleToApp = new HashMap<>();
 
@@ -37,6 +37,11 @@ public class DistributedMicroservicePlacementLogic implements MicroservicePlacem
 
     protected Map<PlacementRequest, Integer> prStatus = new HashMap<>();
 
+    /**
+     * Cluster members by available cpu, kept across placement rounds
+     */
+    private ClusterRanking clusterRanking = new ClusterRanking();
+
 
     public DistributedMicroservicePlacementLogic(int fonID) {
         setFONId(fonID);
@@ -52,7 +57,7 @@ public class DistributedMicroservicePlacementLogic implements MicroservicePlacem
 
 
     @Override
-    public PlacementLogicOutput run(List<FogDevice> fogDevices, Map<String, Application> applicationInfo, Map<Integer, Map<String, Double>> resourceAvailability, List<PlacementRequest> prs) {
+    public PlacementLogicOutput run(List<FogDevice> fogDevices, Map<String, Application> applicationInfo, ResourceTable resourceAvailability, List<PlacementRequest> prs) {
         this.fogDevice = fogDevices.get(0); // only consists of current device
         this.placementRequests = prs;
         this.resourceAvailability = resourceAvailability;
@@ -66,13 +71,12 @@ public class DistributedMicroservicePlacementLogic implements MicroservicePlacem
     }
 
     @Override
-    public void updateResources(Map<Integer, Map<String, Double>> resourceAvailability) {
+    public void updateResources(ResourceTable resourceAvailability) {
         int deviceId = fogDevice.getId();
         for (String moduleName : currentModuleInstanceNum.keySet()) {
             Application app = applicationInfo.get(moduleToApp.get(moduleName));
             AppModule module = app.getModuleByName(moduleName);
-            double mips = resourceAvailability.get(deviceId).get(ControllerComponent.CPU) - (module.getMips() * currentModuleInstanceNum.get(moduleName));
-            resourceAvailability.get(deviceId).put(ControllerComponent.CPU, mips);
+            resourceAvailability.add(deviceId, ResourceTable.CPU, -(module.getMips() * currentModuleInstanceNum.get(moduleName)));
         }
     }
 
@@ -153,7 +157,7 @@ public class DistributedMicroservicePlacementLogic implements MicroservicePlacem
                     if (app.getSpecialPlacementInfo().containsKey(microservice) &&
                             !app.getSpecialPlacementInfo().get(microservice).contains(fogDevice.getName())) {
                         failedMicroservices.add(microservice);
-                    } else if (getModule(microservice, app).getMips() + currentCpuLoad <= resourceAvailability.get(fogDevice.getId()).get(ControllerComponent.CPU)) {
+                    } else if (getModule(microservice, app).getMips() + currentCpuLoad <= resourceAvailability.get(fogDevice.getId(), ResourceTable.CPU)) {
                         Logger.debug("ModulePlacementEdgeward", "Placement of operator " + microservice + " on device " + fogDevice.getName() + " successful.");
                         currentCpuLoad = getModule(microservice, app).getMips() + currentCpuLoad;
                         System.out.println("Placement of operator " + microservice + " on device " + fogDevice.getName() + " successful.");
@@ -220,28 +224,8 @@ public class DistributedMicroservicePlacementLogic implements MicroservicePlacem
         List<Integer> clusterDeviceIds = ((MicroserviceFogDevice) fogDevice).getClusterMembers();
         if (clusterDeviceIds.isEmpty())
             return -1;
-        List<Integer> sortedClusterDevices = new ArrayList<>();
-        for (Integer id : clusterDeviceIds) {
-            //sort list from min to max
-            if (sortedClusterDevices.isEmpty())
-                sortedClusterDevices.add(id);
-            else {
-                boolean isPlaced = false;
-                for (int i = 0; i < sortedClusterDevices.size(); i++) {
-                    double sorted = resourceAvailability.get(sortedClusterDevices.get(i)).get("cpu");
-                    double current = resourceAvailability.get(id).get("cpu");
-                    if (sorted < current) {
-                        continue;
-                    } else {
-                        sortedClusterDevices.add(i, id);
-                        isPlaced = true;
-                        break;
-                    }
-                }
-                if (!isPlaced)
-                    sortedClusterDevices.add(id);
-            }
-        }
+        // members by available cpu, highest first
+        List<Integer> rankedClusterDevices = clusterRanking.rank(clusterDeviceIds, resourceAvailability);
 
         List<AppModule> sortedMicroservices = new ArrayList<>();
         for (String microservice : failedMicroservices) {
@@ -267,9 +251,9 @@ public class DistributedMicroservicePlacementLogic implements MicroservicePlacem
             }
         }
 
-        double cpuMax = resourceAvailability.get(sortedClusterDevices.get(sortedClusterDevices.size() - 1)).get("cpu");
+        double cpuMax = resourceAvailability.get(rankedClusterDevices.get(0), ResourceTable.CPU);
         if (cpuMax >= sortedMicroservices.get(0).getMips()) {
-            return sortedClusterDevices.get(sortedClusterDevices.size() - 1);
+            return rankedClusterDevices.get(0);
         } else {
             return -1;
         }
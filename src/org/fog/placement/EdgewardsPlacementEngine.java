@@ -0,0 +1,457 @@
+package org.fog.placement;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.commons.math3.util.Pair;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.fog.application.AppEdge;
+import org.fog.application.AppModule;
+import org.fog.application.Application;
+import org.fog.application.selectivity.SelectivityModel;
+import org.fog.entities.Actuator;
+import org.fog.entities.FogDevice;
+import org.fog.entities.Sensor;
+import org.fog.entities.Tuple;
+import org.fog.utils.Logger;
+
+/**
+ * Edgewards placement shared by {@link ModulePlacementEdgewards}, {@link ModulePlacementMobileEdgewards}
+ * and {@link ModulePlacementMobileEdgewardsCluster}. Modules are placed path by path, from every leaf
+ * device up to the root, as low as the CPU capacity of the devices allows.
+ * <p>
+ * Every path adds its load to the devices it shares with the others, so the paths are still placed
+ * one after the other, in the order of the tree. What does not depend on the path is computed once
+ * instead: the sensors and actuators attached to each device, the rate of each sensor type, the
+ * modules each module waits for and the incoming edges of each module. The edge rates are only
+ * propagated again on devices that add sensors, and the paths are enumerated by a single walk of the
+ * tree instead of being built for all leaves beforehand.
+ */
+public class EdgewardsPlacementEngine {
+
+	/** Receives the leaf-to-root paths of a tree of devices. */
+	public interface PathVisitor {
+		/**
+		 * @param path ids of the devices from a leaf to the root
+		 */
+		void visit(List<Integer> path);
+	}
+
+	private final Application application;
+	private final Map<Integer, Double> currentCpuLoad;
+	private final Map<Integer, List<String>> currentModuleMap;
+	private final Map<Integer, Map<String, Double>> currentModuleLoadMap;
+	private final Map<Integer, Map<String, Integer>> currentModuleInstanceNum;
+
+	private final Map<Integer, Map<String, Integer>> sensorsByDevice = new HashMap<Integer, Map<String, Integer>>();
+	private final Map<Integer, Map<String, Integer>> actuatorsByDevice = new HashMap<Integer, Map<String, Integer>>();
+	private final Map<String, Double> sensorRates = new HashMap<String, Double>();
+	/** Modules that must be placed before each module, in the order of the application edges */
+	private final Map<String, List<String>> prerequisites = new HashMap<String, List<String>>();
+	private final Map<String, List<AppEdge>> incomingEdges = new HashMap<String, List<AppEdge>>();
+	private final Map<String, List<AppEdge>> outgoingEdges = new HashMap<String, List<AppEdge>>();
+
+	/**
+	 * The maps are those of the placement, updated as modules are placed.
+	 */
+	public EdgewardsPlacementEngine(Application application, List<Sensor> sensors, List<Actuator> actuators,
+			Map<Integer, Double> currentCpuLoad, Map<Integer, List<String>> currentModuleMap,
+			Map<Integer, Map<String, Double>> currentModuleLoadMap,
+			Map<Integer, Map<String, Integer>> currentModuleInstanceNum) {
+		this.application = application;
+		this.currentCpuLoad = currentCpuLoad;
+		this.currentModuleMap = currentModuleMap;
+		this.currentModuleLoadMap = currentModuleLoadMap;
+		this.currentModuleInstanceNum = currentModuleInstanceNum;
+
+		for(Sensor sensor : sensors){
+			count(sensorsByDevice, sensor.getGatewayDeviceId(), sensor.getTupleType());
+			if(!sensorRates.containsKey(sensor.getTupleType()))
+				sensorRates.put(sensor.getTupleType(), 1/sensor.getTransmitDistribution().getMeanInterTransmitTime());
+		}
+		for(Actuator actuator : actuators)
+			count(actuatorsByDevice, actuator.getGatewayDeviceId(), actuator.getActuatorType());
+
+		for(AppModule module : application.getModules()){
+			prerequisites.put(module.getName(), new ArrayList<String>());
+			incomingEdges.put(module.getName(), new ArrayList<AppEdge>());
+			outgoingEdges.put(module.getName(), new ArrayList<AppEdge>());
+		}
+		for(AppEdge edge : application.getEdges()){
+			if(edge.getDirection()==Tuple.DOWN && prerequisites.containsKey(edge.getSource()))
+				prerequisites.get(edge.getSource()).add(edge.getDestination());
+			if(edge.getDirection()==Tuple.UP && prerequisites.containsKey(edge.getDestination()))
+				prerequisites.get(edge.getDestination()).add(edge.getSource());
+			if(incomingEdges.containsKey(edge.getDestination()))
+				incomingEdges.get(edge.getDestination()).add(edge);
+			if(outgoingEdges.containsKey(edge.getSource()))
+				outgoingEdges.get(edge.getSource()).add(edge);
+		}
+	}
+
+	private static void count(Map<Integer, Map<String, Integer>> endpoints, int deviceId, String type) {
+		Map<String, Integer> counts = endpoints.get(deviceId);
+		if(counts == null){
+			counts = new HashMap<String, Integer>();
+			endpoints.put(deviceId, counts);
+		}
+		if(!counts.containsKey(type))
+			counts.put(type, 0);
+		counts.put(type, counts.get(type)+1);
+	}
+
+	/**
+	 * Places the modules on every leaf-to-root path of the tree rooted at the given device.
+	 */
+	public void place(int rootId) {
+		forEachLeafToRootPath(rootId, new PathVisitor() {
+			@Override
+			public void visit(List<Integer> path) {
+				placeModulesInPath(path);
+			}
+		});
+	}
+
+	/**
+	 * Walks the tree rooted at the given device and visits the path from each leaf to the root, the
+	 * leaves being visited in the order of the children lists.
+	 */
+	public static void forEachLeafToRootPath(int rootId, PathVisitor visitor) {
+		List<FogDevice> stack = new ArrayList<FogDevice>();
+		List<Integer> nextChild = new ArrayList<Integer>();
+		stack.add((FogDevice)CloudSim.getEntity(rootId));
+		nextChild.add(0);
+		while(!stack.isEmpty()){
+			int top = stack.size()-1;
+			FogDevice device = stack.get(top);
+			List<Integer> children = device.getChildrenIds();
+			if(children.isEmpty()){
+				List<Integer> path = new ArrayList<Integer>(stack.size());
+				for(int i=top;i>=0;i--)
+					path.add(stack.get(i).getId());
+				visitor.visit(path);
+			}
+			int child = nextChild.get(top);
+			if(child < children.size()){
+				nextChild.set(top, child+1);
+				stack.add((FogDevice)CloudSim.getEntity(children.get(child)));
+				nextChild.add(0);
+			} else {
+				stack.remove(top);
+				nextChild.remove(top);
+			}
+		}
+	}
+
+	/**
+	 * Get the list of modules that are ready to be placed
+	 * @param placedModules Modules that have already been placed in current path
+	 * @return list of modules ready to be placed
+	 */
+	private List<String> getModulesToPlace(Set<String> placedModules){
+		List<String> modulesToPlace = new ArrayList<String>();
+		for(AppModule module : application.getModules()){
+			String moduleName = module.getName();
+			if(placedModules.contains(moduleName))
+				continue;
+			/*
+			 * Filtering based on whether modules (to be placed) lower in physical topology are already placed
+			 */
+			boolean toBePlaced = true;
+			for(String prerequisite : prerequisites.get(moduleName)){
+				if(!placedModules.contains(prerequisite)){
+					toBePlaced = false;
+					break;
+				}
+			}
+			if(toBePlaced)
+				modulesToPlace.add(moduleName);
+		}
+		return modulesToPlace;
+	}
+
+	private double getRateOfSensor(String sensorType){
+		Double rate = sensorRates.get(sensorType);
+		return rate == null ? 0 : rate;
+	}
+
+	private Map<String, Integer> getAssociated(Map<Integer, Map<String, Integer>> endpoints, int deviceId) {
+		Map<String, Integer> counts = endpoints.get(deviceId);
+		return counts == null ? new HashMap<String, Integer>() : counts;
+	}
+
+	private double getIncomingCpuLoad(String moduleName, Map<AppEdge, Double> appEdgeToRate) {
+		double totalCpuLoad = 0;
+		for(AppEdge edge : incomingEdges.get(moduleName)){		// take all incoming edges
+			double rate = appEdgeToRate.get(edge);
+			totalCpuLoad += rate*edge.getTupleCpuLength();
+		}
+		return totalCpuLoad;
+	}
+
+	private void placeModulesInPath(List<Integer> path) {
+		if(path.size()==0)return;
+		Set<String> placedModules = new HashSet<String>();
+		Map<AppEdge, Double> appEdgeToRate = new HashMap<AppEdge, Double>();
+
+		/**
+		 * Periodic edges have a fixed periodicity of tuples, so setting the tuple rate beforehand
+		 */
+		for(AppEdge edge : application.getEdges()){
+			if(edge.isPeriodic()){
+				appEdgeToRate.put(edge, 1/edge.getPeriodicity());
+			}
+		}
+
+		boolean ratesStable = false;
+		for(Integer deviceId : path){
+			FogDevice device = (FogDevice)CloudSim.getEntity(deviceId);
+			Map<String, Integer> sensorsAssociated = getAssociated(sensorsByDevice, deviceId);
+			Map<String, Integer> actuatorsAssociated = getAssociated(actuatorsByDevice, deviceId);
+			placedModules.addAll(sensorsAssociated.keySet()); // ADDING ALL SENSORS TO PLACED LIST
+			placedModules.addAll(actuatorsAssociated.keySet()); // ADDING ALL ACTUATORS TO PLACED LIST
+
+			/*
+			 * Setting the rates of application edges emanating from sensors
+			 */
+			for(String sensor : sensorsAssociated.keySet()){
+				for(AppEdge edge : application.getEdges()){
+					if(edge.getSource().equals(sensor)){
+						appEdgeToRate.put(edge, sensorsAssociated.get(sensor)*getRateOfSensor(sensor));
+					}
+				}
+			}
+
+			/*
+			 * Updating the AppEdge rates for the entire application based on knowledge so far. The
+			 * rates only change when sensors are added, propagating them again would find nothing new.
+			 */
+			if(!ratesStable || !sensorsAssociated.isEmpty())
+				propagateRates(appEdgeToRate);
+			ratesStable = true;
+
+			/*
+			 * Getting the list of modules ready to be placed on current device on path
+			 */
+			List<String> modulesToPlace = getModulesToPlace(placedModules);
+
+			while(modulesToPlace.size() > 0){ // Loop runs until all modules in modulesToPlace are deployed in the path
+				String moduleName = modulesToPlace.get(0);
+				double totalCpuLoad = 0;
+
+				//IF MODULE IS ALREADY PLACED UPSTREAM, THEN UPDATE THE EXISTING MODULE
+				int upsteamDeviceId = isPlacedUpstream(moduleName, path);
+				if(upsteamDeviceId > 0){
+					if(upsteamDeviceId==deviceId){
+						placedModules.add(moduleName);
+						modulesToPlace = getModulesToPlace(placedModules);
+
+						// NOW THE MODULE TO PLACE IS IN THE CURRENT DEVICE. CHECK IF THE NODE CAN SUSTAIN THE MODULE
+						totalCpuLoad += getIncomingCpuLoad(moduleName, appEdgeToRate);
+						if(totalCpuLoad + currentCpuLoad.get(deviceId) > device.getHost().getTotalMips()){
+							Logger.debug("ModulePlacementEdgeward", "Need to shift module "+moduleName+" upstream from device " + device.getName());
+							List<String> _placedOperators = shiftModuleNorth(moduleName, totalCpuLoad, deviceId, modulesToPlace);
+							placedModules.addAll(_placedOperators);
+						} else{
+							placedModules.add(moduleName);
+							currentCpuLoad.put(deviceId, currentCpuLoad.get(deviceId)+totalCpuLoad);
+							currentModuleInstanceNum.get(deviceId).put(moduleName, currentModuleInstanceNum.get(deviceId).get(moduleName)+1);
+							Logger.debug("ModulePlacementEdgeward", "AppModule "+moduleName+" can be created on device "+device.getName());
+						}
+					}
+				}else{
+					// FINDING OUT WHETHER PLACEMENT OF OPERATOR ON DEVICE IS POSSIBLE
+					totalCpuLoad += getIncomingCpuLoad(moduleName, appEdgeToRate);
+
+					if(totalCpuLoad + currentCpuLoad.get(deviceId) > device.getHost().getTotalMips()){
+						Logger.debug("ModulePlacementEdgeward", "Placement of operator "+moduleName+ "NOT POSSIBLE on device "+device.getName());
+					}
+					else{
+						Logger.debug("ModulePlacementEdgeward", "Placement of operator "+moduleName+ " on device "+device.getName() + " successful.");
+						currentCpuLoad.put(deviceId, totalCpuLoad + currentCpuLoad.get(deviceId));
+						System.out.println("Placement of operator "+moduleName+ " on device "+device.getName() + " successful.");
+
+						if(!currentModuleMap.containsKey(deviceId))
+							currentModuleMap.put(deviceId, new ArrayList<String>());
+						currentModuleMap.get(deviceId).add(moduleName);
+						placedModules.add(moduleName);
+						modulesToPlace = getModulesToPlace(placedModules);
+						currentModuleLoadMap.get(device.getId()).put(moduleName, totalCpuLoad);
+
+						int max = 1;
+						for(AppEdge edge : outgoingEdges.get(moduleName)){
+							if(actuatorsAssociated.containsKey(edge.getDestination()))
+								max = Math.max(actuatorsAssociated.get(edge.getDestination()), max);
+						}
+						for(AppEdge edge : incomingEdges.get(moduleName)){
+							if(sensorsAssociated.containsKey(edge.getSource()))
+								max = Math.max(sensorsAssociated.get(edge.getSource()), max);
+						}
+						currentModuleInstanceNum.get(deviceId).put(moduleName, max);
+					}
+				}
+
+				modulesToPlace.remove(moduleName);
+			}
+		}
+	}
+
+	/**
+	 * Propagates the known edge rates through the selectivities of the modules until nothing changes.
+	 */
+	private void propagateRates(Map<AppEdge, Double> appEdgeToRate) {
+		boolean changed = true;
+		while(changed){		//Loop runs as long as some new information is added
+			changed=false;
+			Map<AppEdge, Double> rateMap = new HashMap<AppEdge, Double>(appEdgeToRate);
+			for(AppEdge edge : rateMap.keySet()){
+				AppModule destModule = application.getModuleByName(edge.getDestination());
+				if(destModule == null)continue;
+				Map<Pair<String, String>, SelectivityModel> map = destModule.getSelectivityMap();
+				for(Pair<String, String> pair : map.keySet()){
+					if(pair.getFirst().equals(edge.getTupleType())){
+						double outputRate = appEdgeToRate.get(edge)*map.get(pair).getMeanRate(); // getting mean rate from SelectivityModel
+						AppEdge outputEdge = application.getEdgeMap().get(pair.getSecond());
+						if(!appEdgeToRate.containsKey(outputEdge) || appEdgeToRate.get(outputEdge)!=outputRate){
+							// if some new information is available
+							changed = true;
+						}
+						appEdgeToRate.put(outputEdge, outputRate);
+					}
+				}
+			}
+		}
+	}
+
+	/**
+	 * Shifts a module moduleName from device deviceId northwards. This involves other modules that depend on it to be shifted north as well.
+	 * @param moduleName
+	 * @param cpuLoad cpuLoad of the module
+	 * @param deviceId
+	 */
+	private List<String> shiftModuleNorth(String moduleName, double cpuLoad, Integer deviceId, List<String> operatorsToPlace) {
+		System.out.println(CloudSim.getEntityName(deviceId)+" is shifting "+moduleName+" north.");
+		List<String> modulesToShift = findModulesToShift(moduleName, deviceId);
+
+		Map<String, Integer> moduleToNumInstances = new HashMap<String, Integer>(); // Map of number of instances of modules that need to be shifted
+		double totalCpuLoad = 0;
+		Map<String, Double> loadMap = new HashMap<String, Double>();
+		for(String module : modulesToShift){
+			loadMap.put(module, currentModuleLoadMap.get(deviceId).get(module));
+			moduleToNumInstances.put(module, currentModuleInstanceNum.get(deviceId).get(module)+1);
+			totalCpuLoad += currentModuleLoadMap.get(deviceId).get(module);
+			currentModuleLoadMap.get(deviceId).remove(module);
+			currentModuleMap.get(deviceId).remove(module);
+			currentModuleInstanceNum.get(deviceId).remove(module);
+		}
+
+		currentCpuLoad.put(deviceId, currentCpuLoad.get(deviceId)-totalCpuLoad); // change info of current CPU load on device
+		loadMap.put(moduleName, loadMap.get(moduleName)+cpuLoad);
+		totalCpuLoad += cpuLoad;
+
+		int id = ((FogDevice)CloudSim.getEntity(deviceId)).getParentId();
+		while(true){ // Loop iterates over all devices in path upstream from current device. Tries to place modules (to be shifted northwards) on each of them.
+			if(id==-1){
+				// Loop has reached the apex fog device in hierarchy, and still could not place modules.
+				Logger.debug("ModulePlacementEdgeward", "Could not place modules "+modulesToShift+" northwards.");
+				break;
+			}
+			FogDevice fogDevice = (FogDevice)CloudSim.getEntity(id);
+			if(currentCpuLoad.get(id) + totalCpuLoad > fogDevice.getHost().getTotalMips()){
+				// Device cannot take up CPU load of incoming modules. Keep searching for device further north.
+				List<String> _modulesToShift = findModulesToShift(modulesToShift, id);	// All modules in _modulesToShift are currently placed on device id
+				double cpuLoadShifted = 0;		// the total CPU load shifted from device id to its parent
+				for(String module : _modulesToShift){
+					if(!modulesToShift.contains(module)){
+						// Add information of all newly added modules (to be shifted)
+						moduleToNumInstances.put(module, currentModuleInstanceNum.get(id).get(module)+moduleToNumInstances.get(module));
+						loadMap.put(module, currentModuleLoadMap.get(id).get(module));
+						cpuLoadShifted += currentModuleLoadMap.get(id).get(module);
+						totalCpuLoad += currentModuleLoadMap.get(id).get(module);
+						// Removing information of all modules (to be shifted north) in device with ID id
+						currentModuleLoadMap.get(id).remove(module);
+						currentModuleMap.get(id).remove(module);
+						currentModuleInstanceNum.get(id).remove(module);
+					}
+				}
+				currentCpuLoad.put(id, currentCpuLoad.get(id)-cpuLoadShifted); // CPU load on device id gets reduced due to modules shifting northwards
+
+				modulesToShift = _modulesToShift;
+				id = fogDevice.getParentId(); // iterating to parent device
+			} else{
+				// Device (@ id) can accommodate modules. Placing them here.
+				double totalLoad = 0;
+				for(String module : loadMap.keySet()){
+					totalLoad += loadMap.get(module);
+					currentModuleLoadMap.get(id).put(module, loadMap.get(module));
+					currentModuleMap.get(id).add(module);
+					String module_ = module;
+					int initialNumInstances = 0;
+					if(currentModuleInstanceNum.get(id).containsKey(module_))
+						initialNumInstances = currentModuleInstanceNum.get(id).get(module_);
+					int finalNumInstances = initialNumInstances + moduleToNumInstances.get(module_);
+					currentModuleInstanceNum.get(id).put(module_, finalNumInstances);
+				}
+				currentCpuLoad.put(id, totalLoad);
+				operatorsToPlace.removeAll(loadMap.keySet());
+				List<String> placedOperators = new ArrayList<String>();
+				for(String op : loadMap.keySet())placedOperators.add(op);
+				return placedOperators;
+			}
+		}
+		return new ArrayList<String>();
+	}
+
+	/**
+	 * Get all modules that need to be shifted northwards along with <b>module</b>.
+	 * Typically, these other modules are those that are hosted on device with ID <b>deviceId</b> and lie upstream of <b>module</b> in application model.
+	 * @param module the module that needs to be shifted northwards
+	 * @param deviceId the fog device ID that it is currently on
+	 * @return list of all modules that need to be shifted north along with <b>module</b>
+	 */
+	private List<String> findModulesToShift(String module, Integer deviceId) {
+		List<String> modules = new ArrayList<String>();
+		modules.add(module);
+		return findModulesToShift(modules, deviceId);
+	}
+
+	/**
+	 * Get all modules that need to be shifted northwards along with <b>modules</b>.
+	 * Typically, these other modules are those that are hosted on device with ID <b>deviceId</b> and lie upstream of modules in <b>modules</b> in application model.
+	 * @param modules the modules that need to be shifted northwards
+	 * @param deviceId the fog device ID that they are currently on
+	 * @return list of all modules that need to be shifted north along with <b>modules</b>
+	 */
+	private List<String> findModulesToShift(List<String> modules, Integer deviceId) {
+		List<String> upstreamModules = new ArrayList<String>();
+		upstreamModules.addAll(modules);
+		boolean changed = true;
+		while(changed){ // Keep loop running as long as new information is added.
+			changed = false;
+			/*
+			 * If there is an application edge UP from the module to be shifted to another module in the same device
+			 */
+			for(AppEdge edge : application.getEdges()){
+				if(upstreamModules.contains(edge.getSource()) && edge.getDirection()==Tuple.UP &&
+						currentModuleMap.get(deviceId).contains(edge.getDestination())
+						&& !upstreamModules.contains(edge.getDestination())){
+					upstreamModules.add(edge.getDestination());
+					changed = true;
+				}
+			}
+		}
+		return upstreamModules;
+	}
+
+	private int isPlacedUpstream(String operatorName, List<Integer> path) {
+		for(int deviceId : path){
+			if(currentModuleMap.containsKey(deviceId) && currentModuleMap.get(deviceId).contains(operatorName))
+				return deviceId;
+		}
+		return -1;
+	}
+}
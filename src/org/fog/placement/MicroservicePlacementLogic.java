@@ -3,6 +3,7 @@ package org.fog.placement;
 import org.fog.application.Application;
 import org.fog.entities.FogDevice;
 import org.fog.entities.PlacementRequest;
+import org.fog.entities.ResourceTable;
 
 import java.util.List;
 import java.util.Map;
@@ -11,7 +12,7 @@ import java.util.Map;
  * Created by Samodha Pallewatta
  */
 public interface MicroservicePlacementLogic {
-    PlacementLogicOutput run(List<FogDevice> fogDevices, Map<String, Application> applicationInfo, Map<Integer, Map<String, Double>> resourceAvailability, List<PlacementRequest> pr);
-    void updateResources(Map<Integer, Map<String, Double>> resourceAvailability);
+    PlacementLogicOutput run(List<FogDevice> fogDevices, Map<String, Application> applicationInfo, ResourceTable resourceAvailability, List<PlacementRequest> pr);
+    void updateResources(ResourceTable resourceAvailability);
     void postProcessing();
 }
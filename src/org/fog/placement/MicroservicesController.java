@@ -152,7 +152,7 @@ public class MicroservicesController extends SimEntity {
         for (FogDevice f : fogDevices) {
             if (((MicroserviceFogDevice) f).getIsInCluster()) {
                 for (int deviceId : ((MicroserviceFogDevice) f).getClusterMembers()) {
-                    Pair<Integer, Map<String, Double>> resources = new Pair<>(f.getId(), ((MicroserviceFogDevice) f).getResourceAvailabilityOfDevice());
+                    Pair<Integer, double[]> resources = new Pair<>(f.getId(), ((MicroserviceFogDevice) f).getResourceAvailabilityOfDevice());
                     sendNow(deviceId, FogEvents.UPDATE_RESOURCE_INFO, resources);
                 }
             }
@@ -214,6 +214,7 @@ public class MicroservicesController extends SimEntity {
                 break;
             case FogEvents.STOP_SIMULATION:
                 CloudSim.stopSimulation();
+                ResultsWriter.finish(applications.values());
                 printTimeDetails();
                 printPowerDetails();
                 printCostDetails();
@@ -322,14 +323,10 @@ public class MicroservicesController extends SimEntity {
         System.out.println("=========================================");
     }
 
-    protected Map<Integer, Map<String, Double>> getResourceInfo(List<FogDevice> fogDevices) {
-        Map<Integer, Map<String, Double>> resources = new HashMap<>();
+    protected ResourceTable getResourceInfo(List<FogDevice> fogDevices) {
+        ResourceTable resources = new ResourceTable(fogDevices.size());
         for (FogDevice device : fogDevices) {
-            Map<String, Double> perDevice = new HashMap<>();
-            perDevice.put(ControllerComponent.CPU, (double) device.getHost().getTotalMips());
-            perDevice.put(ControllerComponent.RAM, (double) device.getHost().getRam());
-            perDevice.put(ControllerComponent.STORAGE, (double) device.getHost().getStorage());
-            resources.put(device.getId(), perDevice);
+            resources.setRow(device.getId(), device.getHost().getTotalMips(), device.getHost().getRam(), device.getHost().getStorage());
         }
         return resources;
     }
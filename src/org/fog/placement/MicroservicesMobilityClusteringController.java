@@ -15,6 +15,7 @@ import org.fog.mobilitydata.References;
 import org.fog.utils.Config;
 import org.fog.utils.FogEvents;
 import org.fog.utils.MigrationDelayMonitor;
+import org.fog.utils.ResultsWriter;
 import org.json.simple.JSONObject;
 
 import java.util.ArrayList;
@@ -96,6 +97,7 @@ public class MicroservicesMobilityClusteringController extends MicroservicesCont
                 break;
             case FogEvents.STOP_SIMULATION:
                 CloudSim.stopSimulation();
+                ResultsWriter.finish(applications.values());
                 printTimeDetails();
                 printPowerDetails();
                 printCostDetails();
@@ -22,6 +22,7 @@ import org.fog.utils.FogEvents;
 import org.fog.utils.FogUtils;
 import org.fog.utils.MigrationDelayMonitor;
 import org.fog.utils.NetworkUsageMonitor;
+import org.fog.utils.ResultsWriter;
 import org.fog.utils.TimeKeeper;
 import org.json.simple.JSONObject;
 
@@ -147,6 +148,7 @@ public class MobilityController extends SimEntity{
 			break;
 		case FogEvents.STOP_SIMULATION:
 			CloudSim.stopSimulation();
+			ResultsWriter.finish(getApplications().values());
 			printTimeDetails();
 			printPowerDetails();
 			printCostDetails();
@@ -1,6 +1,7 @@
 package org.fog.placement;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -26,6 +27,12 @@ public abstract class ModulePlacement {
 	protected Map<Integer, List<String>> modulesOnDevice;
 	protected Boolean clusteringFeature;
 
+	/** Devices of the placement by name and id, indexed again when the device list is replaced or resized */
+	private List<FogDevice> indexedDevices;
+	private int indexedDeviceCount;
+	private Map<String, FogDevice> devicesByName;
+	private Map<Integer, FogDevice> devicesById;
+
 	protected abstract void mapModules();
 
 	protected boolean canBeCreated(FogDevice fogDevice, AppModule module){
@@ -70,19 +77,33 @@ public abstract class ModulePlacement {
 	}
 
 	protected FogDevice getDeviceByName(String deviceName) {
-		for(FogDevice dev : getFogDevices()){
-			if(dev.getName().equals(deviceName))
-				return dev;
-		}
-		return null;
+		indexDevices();
+		return devicesByName.get(deviceName);
 	}
 
 	protected FogDevice getDeviceById(int id){
+		indexDevices();
+		return devicesById.get(id);
+	}
+
+	/**
+	 * Indexes the devices of this placement, unless they are already indexed, so that mapping the
+	 * modules does not scan the devices for every module.
+	 */
+	private void indexDevices() {
+		if(indexedDevices == getFogDevices() && indexedDeviceCount == getFogDevices().size())
+			return;
+		devicesByName = new HashMap<String, FogDevice>();
+		devicesById = new HashMap<Integer, FogDevice>();
 		for(FogDevice dev : getFogDevices()){
-			if(dev.getId() == id)
-				return dev;
+			// the first device of a name or id is found, as by a scan
+			if(!devicesByName.containsKey(dev.getName()))
+				devicesByName.put(dev.getName(), dev);
+			if(!devicesById.containsKey(dev.getId()))
+				devicesById.put(dev.getId(), dev);
 		}
-		return null;
+		indexedDevices = getFogDevices();
+		indexedDeviceCount = getFogDevices().size();
 	}
 
 	public List<FogDevice> getFogDevices() {
@@ -1,16 +1,343 @@
 package org.fog.scheduler;
 
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
 import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.Vm;
 import org.cloudbus.cloudsim.VmSchedulerTimeShared;
 import org.cloudbus.cloudsim.VmSchedulerTimeSharedOverSubscription;
+import org.cloudbus.cloudsim.lists.PeList;
+import org.cloudbus.cloudsim.provisioners.PeProvisioner;
 import org.cloudbus.cloudsim.sdn.overbooking.VmSchedulerTimeSharedOverbookingEnergy;
 
+/**
+ * VM scheduler of fog devices. Modules are either busy, requesting the whole capacity of the host,
+ * or idle, requesting nothing, and busy modules share the capacity as the over-subscription policy
+ * does. Under that policy the share of a busy module only depends on the number of busy modules:
+ * they get their whole request while they fit in the host, and otherwise the same scaled down
+ * share. Once {@link #allocateBusyVms(List, boolean[])} has built the allocation, the scheduler
+ * tracks the modules by ordinal and {@link #setBusy(Vm, boolean)} and {@link #applyBusyStates()}
+ * only touch the maps and the PE provisioning of the modules whose state changes, and of the busy
+ * modules when their common share changes. Any other allocation or deallocation, through which
+ * modules are created, destroyed or migrated in, makes the next call rebuild the allocation from
+ * scratch.
+ */
 public class StreamOperatorScheduler extends VmSchedulerTimeSharedOverbookingEnergy{
 
+	/** Number of VMs of the host the allocation was built for, -1 while the allocation is not tracked */
+	private int tracked = -1;
+	private Vm[] vms;
+	private final Map<Vm, Integer> ordinals = new IdentityHashMap<Vm, Integer>();
+	private boolean[] busy;
+	/** Whether the request stored for each VM is the busy one */
+	private boolean[] busyRequested;
+	private double[] shares;
+
+	/** Ordinals of the busy VMs in any order, and the position of each busy VM in it */
+	private int[] busyOrdinals;
+	private int[] busyPosition;
+	private int busyCount;
+
+	/** VMs whose busy state was set since the last application, and VMs whose share changed */
+	private int[] dirty;
+	private boolean[] isDirty;
+	private int dirtyCount;
+	private int[] reshared;
+	private boolean[] isReshared;
+	private int resharedCount;
+
+	/** Capped request of busy VMs, and the requests stored for busy and idle VMs */
+	private double busyShare;
+	private List<Double> busyRequest;
+	private List<Double> idleRequest;
+
+	/** Total MIPS of the host, and the number of busy VMs getting their whole request */
+	private double totalMips;
+	private int fitting;
+	/** MIPS left after allocating to k busy VMs that fit, and MIPS requested by k busy VMs */
+	private double[] availableAfter;
+	private double[] requiredBy;
+	/** Share of the busy VMs for the current number of busy VMs */
+	private double currentShare;
+
+	private boolean rebuilding;
+
 	public StreamOperatorScheduler(List<? extends Pe> pelist) {
 		super(pelist);
+		// fog devices never read the utilization entries, only their energy integral
+		setUtilizationHistoryKept(false);
+	}
+
+	/**
+	 * Allocates the whole capacity of the host to the busy VMs and nothing to the idle ones, the
+	 * VMs being allocated in the order of the list.
+	 *
+	 * @param vmList the VMs of the host
+	 * @param busyStates busy state of each VM, by position in the list
+	 */
+	public void allocateBusyVms(List<? extends Vm> vmList, boolean[] busyStates) {
+		if (!isTracking(vmList)) {
+			rebuild(vmList, busyStates);
+			return;
+		}
+		for (int i = 0; i < busyStates.length; i++)
+			setBusy(vmList.get(i), busyStates[i]);
+		applyBusyStates();
+	}
+
+	/**
+	 * Makes one VM busy without changing the others, as deallocating the VM and allocating it again
+	 * with the whole capacity of the host does.
+	 *
+	 * @param vmList the VMs of the host
+	 * @param vm the VM, which must be on the host
+	 */
+	public void allocateBusyVm(List<? extends Vm> vmList, Vm vm) {
+		if (!isTracking(vmList)) {
+			deallocatePesForVm(vm);
+			List<Double> request = new ArrayList<Double>(1);
+			request.add((double) PeList.getTotalMips(getPeList()));
+			allocatePesForVm(vm, request);
+			return;
+		}
+		setBusy(vm, true);
+		applyBusyStates();
+	}
+
+	/**
+	 * @return whether the allocation of the VMs is tracked, which {@link #setBusy(Vm, boolean)} needs
+	 */
+	public boolean isTracking(List<? extends Vm> vmList) {
+		return tracked >= 0 && tracked == vmList.size();
+	}
+
+	/**
+	 * Sets the busy state of a tracked VM, applied by the next {@link #applyBusyStates()}.
+	 *
+	 * @param vm a VM of the host
+	 * @param busyState whether the VM is busy
+	 */
+	public void setBusy(Vm vm, boolean busyState) {
+		int ordinal = ordinals.get(vm);
+		if (busy[ordinal] == busyState)
+			return;
+		busy[ordinal] = busyState;
+		if (busyState) {
+			busyPosition[ordinal] = busyCount;
+			busyOrdinals[busyCount++] = ordinal;
+		} else {
+			int last = busyOrdinals[--busyCount];
+			busyOrdinals[busyPosition[ordinal]] = last;
+			busyPosition[last] = busyPosition[ordinal];
+		}
+		if (!isDirty[ordinal]) {
+			isDirty[ordinal] = true;
+			dirty[dirtyCount++] = ordinal;
+		}
+	}
+
+	/**
+	 * @return the tracked VMs that are busy, in no particular order
+	 */
+	public List<Vm> getBusyVms() {
+		List<Vm> result = new ArrayList<Vm>(busyCount);
+		for (int i = 0; i < busyCount; i++)
+			result.add(vms[busyOrdinals[i]]);
+		return result;
+	}
+
+	/**
+	 * @return whether the VM holds a share of the host, without looking up the MIPS map
+	 */
+	public boolean isBusy(Vm vm) {
+		Integer ordinal = tracked < 0 ? null : ordinals.get(vm);
+		if (ordinal == null)
+			return getTotalAllocatedMipsForVm(vm) > 0;
+		return shares[ordinal] > 0;
+	}
+
+	private void rebuild(List<? extends Vm> vmList, boolean[] busyStates) {
+		rebuilding = true;
+		try {
+			deallocatePesForAllVms();
+			busyRequest = new ArrayList<Double>(1);
+			busyRequest.add((double) PeList.getTotalMips(getPeList()));
+			idleRequest = new ArrayList<Double>(1);
+			idleRequest.add(0.0);
+			for (int i = 0; i < vmList.size(); i++) {
+				allocatePesForVm(vmList.get(i), busyStates[i] ? busyRequest : idleRequest);
+			}
+		} finally {
+			rebuilding = false;
+		}
+
+		tracked = -1;
+		ordinals.clear();
+		if (!getVmsMigratingIn().isEmpty() || !getVmsMigratingOut().isEmpty())
+			return;
+		int n = vmList.size();
+		for (int i = 0; i < n; i++) {
+			Vm vm = vmList.get(i);
+			if (vm.isInMigration() || ordinals.containsKey(vm)) {
+				ordinals.clear();
+				return;
+			}
+			ordinals.put(vm, i);
+		}
+		if (getMipsMap().size() != n) {
+			// distinct modules sharing a uid share their map entries as well
+			ordinals.clear();
+			return;
+		}
+		vms = vmList.toArray(new Vm[n]);
+		busy = new boolean[n];
+		busyRequested = new boolean[n];
+		shares = new double[n];
+		busyOrdinals = new int[n];
+		busyPosition = new int[n];
+		busyCount = 0;
+		dirty = new int[n];
+		isDirty = new boolean[n];
+		dirtyCount = 0;
+		reshared = new int[n];
+		isReshared = new boolean[n];
+		resharedCount = 0;
+		for (int i = 0; i < n; i++) {
+			busy[i] = busyStates[i];
+			busyRequested[i] = busy[i];
+			shares[i] = getTotalAllocatedMipsForVm(vms[i]);
+			if (busy[i]) {
+				busyPosition[i] = busyCount;
+				busyOrdinals[busyCount++] = i;
+			}
+		}
+
+		// replays the over-subscription policy: busy VMs take their request while it fits
+		totalMips = PeList.getTotalMips(getPeList());
+		busyShare = Math.min(busyRequest.get(0), getPeCapacity());
+		availableAfter = new double[n + 1];
+		requiredBy = new double[n + 1];
+		availableAfter[0] = totalMips;
+		fitting = 0;
+		while (fitting < n && availableAfter[fitting] >= busyShare) {
+			availableAfter[fitting + 1] = availableAfter[fitting] - busyShare;
+			fitting++;
+		}
+		for (int k = 0; k < n; k++)
+			requiredBy[k + 1] = requiredBy[k] + busyShare;
+		currentShare = shareOfBusyVms(busyCount);
+		for (int i = 0; i < n; i++) {
+			// set right by the next application
+			if (shares[i] != (busy[i] ? currentShare : 0.0)) {
+				isDirty[i] = true;
+				dirty[dirtyCount++] = i;
+			}
+		}
+		tracked = n;
+	}
+
+	/**
+	 * @return the share of every busy VM when the given number of VMs is busy
+	 */
+	private double shareOfBusyVms(int count) {
+		if (count <= fitting)
+			return busyShare;
+		// every busy VM was requested before the last redistribution
+		return Math.floor(busyShare * (totalMips / requiredBy[count]));
+	}
+
+	/**
+	 * Applies the busy states set since the last call, with the outcome of
+	 * {@link VmSchedulerTimeSharedOverSubscription#allocatePesForVm(String, List)} for all VMs of the
+	 * host. Only the VMs whose state was set, and the busy VMs if their share changes, are touched.
+	 */
+	public void applyBusyStates() {
+		double share = shareOfBusyVms(busyCount);
+		if (share != currentShare) {
+			currentShare = share;
+			for (int i = 0; i < busyCount; i++)
+				updateShare(busyOrdinals[i], share);
+		}
+		for (int i = 0; i < dirtyCount; i++) {
+			int ordinal = dirty[i];
+			isDirty[ordinal] = false;
+			if (busy[ordinal] != busyRequested[ordinal]) {
+				busyRequested[ordinal] = busy[ordinal];
+				getMipsMapRequested().put(vms[ordinal].getUid(), busy[ordinal] ? busyRequest : idleRequest);
+			}
+			updateShare(ordinal, busy[ordinal] ? share : 0.0);
+		}
+		dirtyCount = 0;
+
+		double available = busyCount <= fitting ? availableAfter[busyCount] : 0;
+		if (available != getAvailableMips())
+			setAvailableMips(available);
+		if (resharedCount > 0) {
+			if (getPeList().size() == 1)
+				updateSinglePeProvisioning();
+			else
+				updatePeProvisioning();
+		}
+		for (int i = 0; i < resharedCount; i++)
+			isReshared[reshared[i]] = false;
+		resharedCount = 0;
+	}
+
+	private void updateShare(int ordinal, double share) {
+		if (share == shares[ordinal])
+			return;
+		shares[ordinal] = share;
+		String vmUid = vms[ordinal].getUid();
+		List<Double> allocated = new ArrayList<Double>(1);
+		allocated.add(share);
+		getMipsMap().put(vmUid, allocated);
+		List<Pe> pes = new LinkedList<Pe>();
+		if (share >= 0.1 && getPeList().size() == 1)
+			pes.add(getPeList().get(0));
+		getPeMap().put(vmUid, pes);
+		if (!isReshared[ordinal]) {
+			isReshared[ordinal] = true;
+			reshared[resharedCount++] = ordinal;
+		}
+	}
+
+	/**
+	 * Same outcome as {@link VmSchedulerTimeShared#updatePeProvisioning()} with a single PE, only
+	 * provisioning the VMs whose share changed. All of them are released before any is provisioned
+	 * again, so that a growing share never waits for the MIPS of a shrinking one.
+	 */
+	private void updateSinglePeProvisioning() {
+		PeProvisioner provisioner = getPeList().get(0).getPeProvisioner();
+		for (int i = 0; i < resharedCount; i++)
+			provisioner.deallocateMipsForVm(vms[reshared[i]]);
+		for (int i = 0; i < resharedCount; i++) {
+			int ordinal = reshared[i];
+			if (shares[ordinal] >= 0.1)
+				provisioner.allocateMipsForVm(vms[ordinal].getUid(), shares[ordinal]);
+		}
+	}
+
+	@Override
+	public boolean allocatePesForVm(Vm vm, List<Double> mipsShareRequested) {
+		if (!rebuilding)
+			tracked = -1;
+		return super.allocatePesForVm(vm, mipsShareRequested);
+	}
+
+	@Override
+	public void deallocatePesForVm(Vm vm) {
+		tracked = -1;
+		super.deallocatePesForVm(vm);
+	}
+
+	@Override
+	public void deallocatePesForAllVms() {
+		if (!rebuilding)
+			tracked = -1;
+		super.deallocatePesForAllVms();
 	}
 }
@@ -35,6 +35,18 @@ public class TupleScheduler extends CloudletSchedulerTimeShared{
 		/*<<<<<<<<<<<<<<<<<<<<<*/
 	}
 	
+	/**
+	 * Checks whether a tuple in execution has no length left, i.e. would be finished by the next
+	 * processing update.
+	 */
+	public boolean hasCompletedCloudletsInExecution() {
+		for (ResCloudlet rcl : getCloudletExecList()) {
+			if (rcl.getRemainingCloudletLength() == 0)
+				return true;
+		}
+		return false;
+	}
+	
 //	public void cloudletFinish(ResCloudlet rcl) {
 //		rcl.setCloudletStatus(Cloudlet.SUCCESS);
 //		rcl.finalizeCloudlet();
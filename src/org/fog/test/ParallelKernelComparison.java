@@ -0,0 +1,145 @@
+package org.fog.test;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.EntityPartitioning;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.fog.entities.Actuator;
+import org.fog.entities.FogDevice;
+import org.fog.entities.Sensor;
+import org.fog.test.perfeval.DCNSFog;
+import org.fog.utils.SubtreePartitioning;
+
+/**
+ * Checks that the parallel kernel reproduces the results of the sequential kernel. Runs the DCNS
+ * case study with the sequential kernel and with the parallel kernel for each cut depth, each run in
+ * its own JVM as the case study ends it, and compares the printed results except the execution time.
+ * <p>
+ * The sequential kernel lets the children of a device share a tuple sent to several of them, while
+ * the parallel kernel gives each child a copy, so case studies broadcasting tuples to several children,
+ * such as the EEG Beam Tractor Game, give different results with the two kernels.
+ * <p>
+ * Usage: ParallelKernelComparison [cutDepth ...], cut depths 1 and 2 by default. The exit status is 1
+ * if the results differ.
+ */
+public class ParallelKernelComparison {
+
+	private static final int THREADS = 4;
+
+	public static void main(String[] args) throws Exception {
+		if (args.length == 2 && args[0].equals("-run")) {
+			runCaseStudy(Integer.parseInt(args[1]));
+			return;
+		}
+		List<Integer> cutDepths = new ArrayList<Integer>();
+		for (String arg : args)
+			cutDepths.add(Integer.parseInt(arg));
+		if (cutDepths.isEmpty()) {
+			cutDepths.add(1);
+			cutDepths.add(2);
+		}
+
+		List<String> sequential = results(0);
+		boolean same = true;
+		for (int cutDepth : cutDepths) {
+			List<String> parallel = results(cutDepth);
+			String difference = firstDifference(sequential, parallel);
+			if (difference == null) {
+				System.out.println("Cut depth " + cutDepth + " : same results");
+			} else {
+				System.out.println("Cut depth " + cutDepth + " : " + difference);
+				same = false;
+			}
+		}
+		System.exit(same ? 0 : 1);
+	}
+
+	/**
+	 * Runs the case study in this JVM, with the sequential kernel for a cut depth of 0.
+	 */
+	private static void runCaseStudy(final int cutDepth) {
+		if (cutDepth > 0) {
+			// the devices only exist once the case study created them, which is before the kernel asks
+			CloudSim.setParallelExecution(new EntityPartitioning() {
+				private SubtreePartitioning partitioning;
+
+				private SubtreePartitioning partitioning() {
+					if (partitioning == null) {
+						List<FogDevice> fogDevices = new ArrayList<FogDevice>();
+						List<Sensor> sensors = new ArrayList<Sensor>();
+						List<Actuator> actuators = new ArrayList<Actuator>();
+						for (SimEntity entity : CloudSim.getEntityList()) {
+							if (entity instanceof FogDevice)
+								fogDevices.add((FogDevice) entity);
+							else if (entity instanceof Sensor)
+								sensors.add((Sensor) entity);
+							else if (entity instanceof Actuator)
+								actuators.add((Actuator) entity);
+						}
+						partitioning = new SubtreePartitioning(fogDevices, sensors, actuators, cutDepth, 0);
+					}
+					return partitioning;
+				}
+
+				@Override
+				public int getNumberOfPartitions() {
+					return partitioning().getNumberOfPartitions();
+				}
+
+				@Override
+				public int getPartition(SimEntity entity) {
+					return partitioning().getPartition(entity);
+				}
+
+				@Override
+				public double getLookahead() {
+					return partitioning().getLookahead();
+				}
+			}, THREADS);
+		}
+		DCNSFog.main(new String[0]);
+	}
+
+	/**
+	 * @return the lines the case study prints from its results on, without the execution time
+	 */
+	private static List<String> results(int cutDepth) throws IOException, InterruptedException {
+		String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+		ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+				ParallelKernelComparison.class.getName(), "-run", String.valueOf(cutDepth));
+		builder.redirectErrorStream(true);
+		Process process = builder.start();
+		List<String> lines = new ArrayList<String>();
+		BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
+		try {
+			boolean inResults = false;
+			String line;
+			while ((line = reader.readLine()) != null) {
+				inResults |= line.contains("RESULTS");
+				if (inResults && !line.startsWith("EXECUTION TIME"))
+					lines.add(line);
+			}
+		} finally {
+			reader.close();
+		}
+		if (process.waitFor() != 0 || lines.isEmpty())
+			throw new IllegalStateException("The case study failed with cut depth " + cutDepth);
+		return lines;
+	}
+
+	private static String firstDifference(List<String> sequential, List<String> parallel) {
+		for (int i = 0; i < Math.max(sequential.size(), parallel.size()); i++) {
+			String expected = i < sequential.size() ? sequential.get(i) : "";
+			String actual = i < parallel.size() ? parallel.get(i) : "";
+			if (!expected.equals(actual))
+				return "expected \"" + expected + "\" but was \"" + actual + "\"";
+		}
+		return null;
+	}
+}
@@ -0,0 +1,244 @@
+package org.fog.utils;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.Cloudlet;
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.EventTracer;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.fog.entities.Tuple;
+
+/**
+ * Writes every scheduled and processed simulation event to an append-only, memory-mapped binary
+ * file. Recording an event only copies a fixed size record into the mapped region, so tracing can
+ * stay enabled for runs with hundreds of millions of events. The trace is read back by
+ * {@link EventTraceAnalyzer}.
+ * <p>
+ * File layout (big endian):
+ * <pre>
+ * header : int magic, int version
+ * TYPE   : byte 1, short typeId, short length, byte[] name       (payload class, first use only)
+ * SENT   : byte 2, short typeId, double time, double eventTime, int src, int dst, int tag,
+ *          int payloadSize, int flowId, int tupleId, int queueDepth (-1)
+ * PROC   : byte 3, same fields as SENT, queueDepth = events left in the queues
+ * ENTITY : byte 4, int id, short length, byte[] name               (written on close)
+ * END    : byte 0
+ * </pre>
+ * The payload size is the file size of cloudlets and tuples and -1 otherwise. The flow id is the
+ * actual tuple id of tuples emitted on an application loop, so all events belonging to one
+ * end-to-end flow share it; it is -1 for other tuples and payloads. The tuple id is the id of the
+ * tuple itself, -1 for other payloads.
+ * <p>
+ * Usage: <tt>BinaryEventTracer.start("run.trace");</tt> before {@link CloudSim#startSimulation()};
+ * the trace is closed when the simulation finishes.
+ */
+public class BinaryEventTracer implements EventTracer {
+
+	static final int MAGIC = 0x46455654;
+	static final int VERSION = 2;
+
+	static final byte RECORD_END = 0;
+	static final byte RECORD_TYPE = 1;
+	static final byte RECORD_SENT = 2;
+	static final byte RECORD_PROCESSED = 3;
+	static final byte RECORD_ENTITY = 4;
+
+	static final int EVENT_RECORD_SIZE = 1 + 2 + 8 + 8 + 7 * 4;
+
+	private static final int NO_PAYLOAD = 0;
+	private static final long DEFAULT_REGION_SIZE = 64L << 20;
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final long regionSize;
+	private MappedByteBuffer region;
+	private long regionStart;
+
+	private final Map<Class<?>, Short> typeIds = new HashMap<Class<?>, Short>();
+	private Class<?> lastType;
+	private short lastTypeId = NO_PAYLOAD;
+
+	private long eventsWritten;
+	private boolean closed;
+
+	/**
+	 * Closes the trace if the JVM exits before the simulation finishes
+	 */
+	private final Thread shutdownHook;
+
+	public BinaryEventTracer(String fileName) throws IOException {
+		this(fileName, DEFAULT_REGION_SIZE);
+	}
+
+	/**
+	 * @param regionSize size of the mapped regions the file grows by
+	 */
+	public BinaryEventTracer(String fileName, long regionSize) throws IOException {
+		if (regionSize < 1024)
+			throw new IllegalArgumentException("Trace region size must be at least 1024 bytes");
+		this.file = new RandomAccessFile(fileName, "rw");
+		this.file.setLength(0);
+		this.channel = file.getChannel();
+		this.regionSize = regionSize;
+		map(0);
+		region.putInt(MAGIC);
+		region.putInt(VERSION);
+		// controllers end simulations with System.exit, finish the trace in that case as well
+		shutdownHook = new Thread() {
+			@Override
+			public void run() {
+				close();
+			}
+		};
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+	}
+
+	/**
+	 * Creates a tracer writing to the given file and installs it in {@link CloudSim}.
+	 */
+	public static BinaryEventTracer start(String fileName) throws IOException {
+		BinaryEventTracer tracer = new BinaryEventTracer(fileName);
+		CloudSim.setEventTracer(tracer);
+		return tracer;
+	}
+
+	@Override
+	public void eventScheduled(double clock, SimEvent e) {
+		write(RECORD_SENT, clock, e, -1);
+	}
+
+	@Override
+	public void eventProcessed(SimEvent e, int queueDepth) {
+		write(RECORD_PROCESSED, e.eventTime(), e, queueDepth);
+	}
+
+	private void write(byte kind, double time, SimEvent e, int queueDepth) {
+		if (closed)
+			return;
+		Object data = e.getData();
+		short typeId = typeId(data);
+		int payloadSize = -1;
+		int flowId = -1;
+		int tupleId = -1;
+		if (data instanceof Cloudlet) {
+			payloadSize = (int) ((Cloudlet) data).getCloudletFileSize();
+			if (data instanceof Tuple) {
+				Tuple tuple = (Tuple) data;
+				// actual tuple ids start at 1, tuples outside of loops keep the default 0
+				if (tuple.getActualTupleId() > 0)
+					flowId = tuple.getActualTupleId();
+				tupleId = tuple.getCloudletId();
+			}
+		}
+		ensureCapacity(EVENT_RECORD_SIZE);
+		region.put(kind);
+		region.putShort(typeId);
+		region.putDouble(time);
+		region.putDouble(e.eventTime());
+		region.putInt(e.getSource());
+		region.putInt(e.getDestination());
+		region.putInt(e.getTag());
+		region.putInt(payloadSize);
+		region.putInt(flowId);
+		region.putInt(tupleId);
+		region.putInt(queueDepth);
+		eventsWritten++;
+	}
+
+	private short typeId(Object data) {
+		if (data == null)
+			return NO_PAYLOAD;
+		Class<?> type = data.getClass();
+		if (type == lastType)
+			return lastTypeId;
+		Short id = typeIds.get(type);
+		if (id == null) {
+			if (typeIds.size() == Short.MAX_VALUE - 1)
+				throw new IllegalStateException("Too many payload types in trace");
+			id = (short) (typeIds.size() + 1);
+			typeIds.put(type, id);
+			writeName(RECORD_TYPE, id, type.getName());
+		}
+		lastType = type;
+		lastTypeId = id;
+		return id;
+	}
+
+	private void writeName(byte kind, int id, String name) {
+		byte[] bytes = name.getBytes(StandardCharsets.UTF_8);
+		int length = Math.min(bytes.length, Short.MAX_VALUE);
+		ensureCapacity(1 + 4 + 2 + length);
+		region.put(kind);
+		if (kind == RECORD_TYPE)
+			region.putShort((short) id);
+		else
+			region.putInt(id);
+		region.putShort((short) length);
+		region.put(bytes, 0, length);
+	}
+
+	private void ensureCapacity(int bytes) {
+		if (region.remaining() < bytes)
+			map(regionStart + region.position());
+	}
+
+	private void map(long position) {
+		try {
+			region = channel.map(FileChannel.MapMode.READ_WRITE, position, regionSize);
+			regionStart = position;
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * @return number of event records written so far
+	 */
+	public long getEventsWritten() {
+		return eventsWritten;
+	}
+
+	/**
+	 * Writes the entity names and the end marker, and trims the file to the written length.
+	 */
+	@Override
+	public synchronized void close() {
+		if (closed)
+			return;
+		closed = true;
+		try {
+			Runtime.getRuntime().removeShutdownHook(shutdownHook);
+		} catch (IllegalStateException e) {
+			// closed by the hook itself, the JVM is shutting down
+		}
+		// empty once the simulation has been torn down, the entity names are then not available
+		for (SimEntity entity : CloudSim.getEntityList())
+			writeName(RECORD_ENTITY, entity.getId(), entity.getName());
+		ensureCapacity(1);
+		region.put(RECORD_END);
+		long length = regionStart + region.position();
+		region.force();
+		region = null;
+		try {
+			try {
+				channel.truncate(length);
+			} catch (IOException e) {
+				// some platforms refuse to truncate mapped files; readers stop at the end marker
+			}
+			file.close();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		if (CloudSim.getEventTracer() == this)
+			CloudSim.setEventTracer(null);
+	}
+
+}
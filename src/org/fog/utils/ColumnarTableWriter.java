@@ -0,0 +1,367 @@
+package org.fog.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes a table of results row by row to a CSV file or to a compact binary columnar file. Rows are
+ * buffered in primitive columns and written in batches, so a table can receive one row per tuple or
+ * loop instance without growing the heap.
+ * <p>
+ * Binary layout (big endian):
+ * <pre>
+ * header : int magic, int version, short columnCount, columnCount x (byte type, UTF name)
+ * block  : int rowCount, int newStrings, newStrings x UTF string,
+ *          then each column as rowCount values: double, long or int string id
+ * end    : int 0
+ * </pre>
+ * String values are numbered in order of first use, and each block lists the strings it uses for
+ * the first time. {@link #toCsv(String, String)} converts a binary table to CSV.
+ * <p>
+ * Usage: declare the columns, then call the <tt>put</tt> methods in column order and
+ * {@link #endRow()} for each row.
+ */
+public class ColumnarTableWriter {
+
+	public enum Format {
+		CSV, BINARY
+	}
+
+	public enum ColumnType {
+		DOUBLE, LONG, STRING
+	}
+
+	static final int MAGIC = 0x46524553;
+	static final int VERSION = 1;
+
+	private static final int DEFAULT_BATCH_SIZE = 4096;
+
+	private final Format format;
+	private final String[] names;
+	private final ColumnType[] types;
+	private final int batchSize;
+
+	private final double[][] doubles;
+	private final long[][] longs;
+	private final int[][] strings;
+	private int rows;
+	private int column;
+
+	private final Map<String, Integer> stringIds = new HashMap<String, Integer>();
+	private final List<String> newStrings = new ArrayList<String>();
+
+	private DataOutputStream binaryOut;
+	private Writer csvOut;
+	private boolean closed;
+
+	public ColumnarTableWriter(String fileName, Format format, String[] names, ColumnType[] types) {
+		this(fileName, format, names, types, DEFAULT_BATCH_SIZE);
+	}
+
+	/**
+	 * @param fileName the file, overwritten
+	 * @param names names of the columns
+	 * @param types types of the columns
+	 * @param batchSize number of rows buffered before they are written
+	 */
+	public ColumnarTableWriter(String fileName, Format format, String[] names, ColumnType[] types, int batchSize) {
+		if (names.length != types.length)
+			throw new IllegalArgumentException("Every column needs a name and a type");
+		if (batchSize < 1)
+			throw new IllegalArgumentException("Batch size must be positive");
+		this.format = format;
+		this.names = names.clone();
+		this.types = types.clone();
+		this.batchSize = batchSize;
+		this.doubles = new double[types.length][];
+		this.longs = new long[types.length][];
+		this.strings = new int[types.length][];
+		for (int i = 0; i < types.length; i++) {
+			switch (types[i]) {
+			case DOUBLE:
+				doubles[i] = new double[batchSize];
+				break;
+			case LONG:
+				longs[i] = new long[batchSize];
+				break;
+			case STRING:
+				strings[i] = new int[batchSize];
+				break;
+			}
+		}
+		try {
+			if (format == Format.BINARY) {
+				binaryOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16));
+				binaryOut.writeInt(MAGIC);
+				binaryOut.writeInt(VERSION);
+				binaryOut.writeShort(names.length);
+				for (int i = 0; i < names.length; i++) {
+					binaryOut.writeByte(types[i].ordinal());
+					binaryOut.writeUTF(names[i]);
+				}
+			} else {
+				csvOut = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(fileName), StandardCharsets.UTF_8), 1 << 16);
+				writeCsvRow(csvOut, names);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public void putDouble(double value) {
+		checkColumn(ColumnType.DOUBLE);
+		doubles[column++][rows] = value;
+	}
+
+	public void putLong(long value) {
+		checkColumn(ColumnType.LONG);
+		longs[column++][rows] = value;
+	}
+
+	/**
+	 * @param value the value, null being written as an empty string
+	 */
+	public void putString(String value) {
+		checkColumn(ColumnType.STRING);
+		if (value == null)
+			value = "";
+		Integer id = stringIds.get(value);
+		if (id == null) {
+			id = stringIds.size();
+			stringIds.put(value, id);
+			newStrings.add(value);
+		}
+		strings[column++][rows] = id;
+	}
+
+	private void checkColumn(ColumnType type) {
+		if (closed)
+			throw new IllegalStateException("The table is closed");
+		if (column >= types.length || types[column] != type)
+			throw new IllegalStateException("Column " + column + " of the row does not hold a " + type);
+	}
+
+	/**
+	 * Ends the current row, writing the buffered rows if the batch is full.
+	 */
+	public void endRow() {
+		if (column != types.length)
+			throw new IllegalStateException("The row has " + column + " values instead of " + types.length);
+		column = 0;
+		rows++;
+		if (rows == batchSize)
+			writeBatch();
+	}
+
+	private void writeBatch() {
+		if (rows == 0)
+			return;
+		try {
+			if (format == Format.BINARY)
+				writeBinaryBatch();
+			else
+				writeCsvBatch();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		rows = 0;
+		newStrings.clear();
+	}
+
+	private void writeBinaryBatch() throws IOException {
+		binaryOut.writeInt(rows);
+		binaryOut.writeInt(newStrings.size());
+		for (String s : newStrings)
+			binaryOut.writeUTF(s);
+		for (int c = 0; c < types.length; c++) {
+			for (int r = 0; r < rows; r++) {
+				switch (types[c]) {
+				case DOUBLE:
+					binaryOut.writeDouble(doubles[c][r]);
+					break;
+				case LONG:
+					binaryOut.writeLong(longs[c][r]);
+					break;
+				case STRING:
+					binaryOut.writeInt(strings[c][r]);
+					break;
+				}
+			}
+		}
+	}
+
+	private void writeCsvBatch() throws IOException {
+		String[] dictionary = null;
+		StringBuilder line = new StringBuilder();
+		for (int r = 0; r < rows; r++) {
+			line.setLength(0);
+			for (int c = 0; c < types.length; c++) {
+				if (c > 0)
+					line.append(',');
+				switch (types[c]) {
+				case DOUBLE:
+					line.append(doubles[c][r]);
+					break;
+				case LONG:
+					line.append(longs[c][r]);
+					break;
+				case STRING:
+					if (dictionary == null)
+						dictionary = getDictionary();
+					appendCsvField(line, dictionary[strings[c][r]]);
+					break;
+				}
+			}
+			line.append('\n');
+			csvOut.append(line);
+		}
+	}
+
+	private String[] getDictionary() {
+		String[] dictionary = new String[stringIds.size()];
+		for (Map.Entry<String, Integer> entry : stringIds.entrySet())
+			dictionary[entry.getValue()] = entry.getKey();
+		return dictionary;
+	}
+
+	/**
+	 * Writes the buffered rows.
+	 */
+	public void flush() {
+		if (closed)
+			return;
+		writeBatch();
+		try {
+			if (format == Format.BINARY)
+				binaryOut.flush();
+			else
+				csvOut.flush();
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * Writes the buffered rows and closes the file. A row left incomplete is dropped.
+	 */
+	public void close() {
+		if (closed)
+			return;
+		column = 0;
+		writeBatch();
+		closed = true;
+		try {
+			if (format == Format.BINARY) {
+				binaryOut.writeInt(0);
+				binaryOut.close();
+			} else {
+				csvOut.close();
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	public String[] getColumnNames() {
+		return names.clone();
+	}
+
+	/**
+	 * Converts a table written in {@link Format#BINARY} to CSV.
+	 */
+	public static void toCsv(String binaryFileName, String csvFileName) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(binaryFileName), 1 << 16));
+		Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(csvFileName), StandardCharsets.UTF_8), 1 << 16);
+		try {
+			if (in.readInt() != MAGIC)
+				throw new IOException(binaryFileName + " is not a results table");
+			if (in.readInt() != VERSION)
+				throw new IOException("Unsupported results table version in " + binaryFileName);
+			int columns = in.readShort();
+			ColumnType[] types = new ColumnType[columns];
+			String[] names = new String[columns];
+			for (int c = 0; c < columns; c++) {
+				types[c] = ColumnType.values()[in.readByte()];
+				names[c] = in.readUTF();
+			}
+			writeCsvRow(out, names);
+			List<String> dictionary = new ArrayList<String>();
+			String[][] block = new String[columns][];
+			int rows;
+			while ((rows = in.readInt()) > 0) {
+				int added = in.readInt();
+				for (int i = 0; i < added; i++)
+					dictionary.add(in.readUTF());
+				for (int c = 0; c < columns; c++) {
+					if (block[c] == null || block[c].length < rows)
+						block[c] = new String[rows];
+					for (int r = 0; r < rows; r++) {
+						switch (types[c]) {
+						case DOUBLE:
+							block[c][r] = String.valueOf(in.readDouble());
+							break;
+						case LONG:
+							block[c][r] = String.valueOf(in.readLong());
+							break;
+						case STRING:
+							block[c][r] = dictionary.get(in.readInt());
+							break;
+						}
+					}
+				}
+				String[] row = new String[columns];
+				for (int r = 0; r < rows; r++) {
+					for (int c = 0; c < columns; c++)
+						row[c] = block[c][r];
+					writeCsvRow(out, row);
+				}
+			}
+		} catch (EOFException e) {
+			throw new IOException(binaryFileName + " is truncated", e);
+		} finally {
+			in.close();
+			out.close();
+		}
+	}
+
+	private static void writeCsvRow(Writer out, String[] values) throws IOException {
+		StringBuilder line = new StringBuilder();
+		for (int i = 0; i < values.length; i++) {
+			if (i > 0)
+				line.append(',');
+			appendCsvField(line, values[i]);
+		}
+		line.append('\n');
+		out.append(line);
+	}
+
+	private static void appendCsvField(StringBuilder line, String value) {
+		if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+			line.append(value);
+			return;
+		}
+		line.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char ch = value.charAt(i);
+			if (ch == '"')
+				line.append('"');
+			line.append(ch);
+		}
+		line.append('"');
+	}
+}
@@ -0,0 +1,392 @@
+package org.fog.utils;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.core.CloudSimTags;
+
+/**
+ * Offline analysis of a trace written by {@link BinaryEventTracer}. The trace is streamed twice:
+ * the first pass counts events per entity, tag and payload type and measures the span of every
+ * tuple flow, the second pass samples the queue depth over time and collects the hops of the
+ * slowest tuple flows. A flow is the events of the tuples sharing an actual tuple id, which are
+ * the tuples of one pass through an application loop, or the events of a single tuple outside
+ * of loops.
+ * <p>
+ * Usage: <tt>java org.fog.utils.EventTraceAnalyzer trace-file [timeBuckets] [criticalPaths]</tt>
+ */
+public class EventTraceAnalyzer {
+
+	private static class TupleSpan {
+		long flow;
+		double start = Double.MAX_VALUE;
+		double end = -1;
+		int events;
+	}
+
+	/**
+	 * One processed event of a critical path
+	 */
+	private static class Hop {
+		double time;
+		int src;
+		int dst;
+		int tag;
+
+		Hop(double time, int src, int dst, int tag) {
+			this.time = time;
+			this.src = src;
+			this.dst = dst;
+			this.tag = tag;
+		}
+	}
+
+	/**
+	 * Fields of one event record, reused while streaming
+	 */
+	private static class EventRecord {
+		byte kind;
+		short typeId;
+		double time;
+		double eventTime;
+		int src;
+		int dst;
+		int tag;
+		int payloadSize;
+		int flowId;
+		int tupleId;
+		int queueDepth;
+	}
+
+	private static final long NO_FLOW = 0;
+
+	private final String fileName;
+	private final int timeBuckets;
+	private final int criticalPaths;
+
+	private final Map<Integer, String> entityNames = new HashMap<Integer, String>();
+	private final Map<Integer, String> typeNames = new HashMap<Integer, String>();
+	private final Map<Integer, String> tagNames = tagNames();
+
+	private long sentEvents;
+	private long processedEvents;
+	private double firstTime = Double.MAX_VALUE;
+	private double lastTime;
+	private long[] sentByEntity = new long[16];
+	private long[] processedByEntity = new long[16];
+	private long[] bytesByEntity = new long[16];
+	private final Map<Integer, long[]> processedByTag = new HashMap<Integer, long[]>();
+	private final Map<Integer, long[]> processedByType = new HashMap<Integer, long[]>();
+	private final Map<Long, TupleSpan> tupleSpans = new HashMap<Long, TupleSpan>();
+
+	private double[] maxDepth;
+	private double[] sumDepth;
+	private long[] depthSamples;
+	private List<TupleSpan> slowestTuples = new ArrayList<TupleSpan>();
+	private final Map<Long, List<Hop>> paths = new HashMap<Long, List<Hop>>();
+
+	public EventTraceAnalyzer(String fileName, int timeBuckets, int criticalPaths) {
+		if (timeBuckets < 1)
+			throw new IllegalArgumentException("At least one time bucket is needed");
+		this.fileName = fileName;
+		this.timeBuckets = timeBuckets;
+		this.criticalPaths = criticalPaths;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 1) {
+			System.err.println("Usage: EventTraceAnalyzer trace-file [timeBuckets] [criticalPaths]");
+			System.exit(1);
+		}
+		int buckets = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+		int paths = args.length > 2 ? Integer.parseInt(args[2]) : 5;
+		EventTraceAnalyzer analyzer = new EventTraceAnalyzer(args[0], buckets, paths);
+		analyzer.analyze();
+		analyzer.printReport(System.out);
+	}
+
+	public void analyze() throws IOException {
+		readTrace(true);
+		maxDepth = new double[timeBuckets];
+		sumDepth = new double[timeBuckets];
+		depthSamples = new long[timeBuckets];
+		slowestTuples = new ArrayList<TupleSpan>(tupleSpans.values());
+		Collections.sort(slowestTuples, new Comparator<TupleSpan>() {
+			@Override
+			public int compare(TupleSpan a, TupleSpan b) {
+				return Double.compare(b.end - b.start, a.end - a.start);
+			}
+		});
+		if (slowestTuples.size() > criticalPaths)
+			slowestTuples = new ArrayList<TupleSpan>(slowestTuples.subList(0, criticalPaths));
+		for (TupleSpan span : slowestTuples)
+			paths.put(span.flow, new ArrayList<Hop>());
+		readTrace(false);
+	}
+
+	private void readTrace(boolean firstPass) throws IOException {
+		DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName), 1 << 16));
+		try {
+			if (in.readInt() != BinaryEventTracer.MAGIC)
+				throw new IOException(fileName + " is not an event trace");
+			int version = in.readInt();
+			if (version != BinaryEventTracer.VERSION)
+				throw new IOException("Unsupported event trace version " + version);
+			EventRecord record = new EventRecord();
+			while (true) {
+				byte kind;
+				try {
+					kind = in.readByte();
+				} catch (EOFException e) {
+					return; // trace of a run that did not finish
+				}
+				switch (kind) {
+				case BinaryEventTracer.RECORD_END:
+					return;
+				case BinaryEventTracer.RECORD_TYPE:
+					int typeId = in.readShort();
+					typeNames.put(typeId, readName(in));
+					break;
+				case BinaryEventTracer.RECORD_ENTITY:
+					int entityId = in.readInt();
+					entityNames.put(entityId, readName(in));
+					break;
+				case BinaryEventTracer.RECORD_SENT:
+				case BinaryEventTracer.RECORD_PROCESSED:
+					record.kind = kind;
+					record.typeId = in.readShort();
+					record.time = in.readDouble();
+					record.eventTime = in.readDouble();
+					record.src = in.readInt();
+					record.dst = in.readInt();
+					record.tag = in.readInt();
+					record.payloadSize = in.readInt();
+					record.flowId = in.readInt();
+					record.tupleId = in.readInt();
+					record.queueDepth = in.readInt();
+					if (firstPass)
+						count(record);
+					else
+						sample(record);
+					break;
+				default:
+					throw new IOException("Corrupt event trace, unknown record type " + kind);
+				}
+			}
+		} finally {
+			in.close();
+		}
+	}
+
+	private static String readName(DataInputStream in) throws IOException {
+		byte[] bytes = new byte[in.readShort()];
+		in.readFully(bytes);
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+
+	private void count(EventRecord r) {
+		firstTime = Math.min(firstTime, r.time);
+		lastTime = Math.max(lastTime, r.time);
+		if (r.kind == BinaryEventTracer.RECORD_SENT) {
+			sentEvents++;
+			if (r.src >= 0) {
+				ensureEntity(r.src);
+				sentByEntity[r.src]++;
+				if (r.payloadSize > 0)
+					bytesByEntity[r.src] += r.payloadSize;
+			}
+		} else {
+			processedEvents++;
+			if (r.dst >= 0) {
+				ensureEntity(r.dst);
+				processedByEntity[r.dst]++;
+			}
+			increment(processedByTag, r.tag);
+			increment(processedByType, r.typeId);
+		}
+		long flow = flow(r);
+		if (flow != NO_FLOW) {
+			TupleSpan span = tupleSpans.get(flow);
+			if (span == null) {
+				span = new TupleSpan();
+				span.flow = flow;
+				tupleSpans.put(flow, span);
+			}
+			span.start = Math.min(span.start, r.time);
+			span.end = Math.max(span.end, r.eventTime);
+			span.events++;
+		}
+	}
+
+	private void sample(EventRecord r) {
+		if (r.kind != BinaryEventTracer.RECORD_PROCESSED)
+			return;
+		int bucket = bucket(r.time);
+		maxDepth[bucket] = Math.max(maxDepth[bucket], r.queueDepth);
+		sumDepth[bucket] += r.queueDepth;
+		depthSamples[bucket]++;
+		long flow = flow(r);
+		if (flow != NO_FLOW) {
+			List<Hop> path = paths.get(flow);
+			if (path != null)
+				path.add(new Hop(r.time, r.src, r.dst, r.tag));
+		}
+	}
+
+	/**
+	 * Key of the flow of an event: the actual tuple id of a loop flow, or the tuple id, above the
+	 * 32 bits of ids, of a tuple outside of loops. Ids are positive, 0 and -1 mean none.
+	 */
+	private static long flow(EventRecord r) {
+		if (r.flowId > 0)
+			return r.flowId;
+		if (r.tupleId > 0)
+			return (long) r.tupleId << 32;
+		return NO_FLOW;
+	}
+
+	private static String flowName(long flow) {
+		return flow >= 1L << 32 ? "tuple " + (flow >>> 32) : "flow " + flow;
+	}
+
+	private int bucket(double time) {
+		double span = lastTime - firstTime;
+		if (span <= 0)
+			return 0;
+		return (int) Math.min(timeBuckets - 1, (time - firstTime) / span * timeBuckets);
+	}
+
+	private void ensureEntity(int id) {
+		if (id >= sentByEntity.length) {
+			int length = Math.max(id + 1, sentByEntity.length * 2);
+			sentByEntity = Arrays.copyOf(sentByEntity, length);
+			processedByEntity = Arrays.copyOf(processedByEntity, length);
+			bytesByEntity = Arrays.copyOf(bytesByEntity, length);
+		}
+	}
+
+	private static void increment(Map<Integer, long[]> counts, int key) {
+		long[] count = counts.get(key);
+		if (count == null) {
+			count = new long[1];
+			counts.put(key, count);
+		}
+		count[0]++;
+	}
+
+	public void printReport(PrintStream out) {
+		double span = lastTime - firstTime;
+		out.println("=========================================");
+		out.println("============ EVENT TRACE ================");
+		out.println("=========================================");
+		out.println("Events sent = " + sentEvents + ", processed = " + processedEvents);
+		out.println("Simulated time = " + firstTime + " to " + lastTime);
+
+		out.println();
+		out.println("Per entity (processed, sent, sent payload bytes, processed per time unit) :");
+		Integer[] entities = new Integer[processedByEntity.length];
+		for (int i = 0; i < entities.length; i++)
+			entities[i] = i;
+		Arrays.sort(entities, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer a, Integer b) {
+				return Long.compare(processedByEntity[b] + sentByEntity[b], processedByEntity[a] + sentByEntity[a]);
+			}
+		});
+		for (int id : entities) {
+			if (processedByEntity[id] == 0 && sentByEntity[id] == 0)
+				break;
+			out.println("\t" + entityName(id) + " : " + processedByEntity[id] + ", " + sentByEntity[id] + ", "
+					+ bytesByEntity[id] + ", " + (span > 0 ? processedByEntity[id] / span : processedByEntity[id]));
+		}
+
+		out.println();
+		out.println("Processed events per tag :");
+		for (Map.Entry<Integer, long[]> entry : sortByCount(processedByTag))
+			out.println("\t" + tagName(entry.getKey()) + " : " + entry.getValue()[0]);
+
+		out.println();
+		out.println("Processed events per payload type :");
+		for (Map.Entry<Integer, long[]> entry : sortByCount(processedByType)) {
+			String type = entry.getKey() == 0 ? "none" : typeNames.get(entry.getKey());
+			out.println("\t" + type + " : " + entry.getValue()[0]);
+		}
+
+		out.println();
+		out.println("Queue depth over time (from, max, mean) :");
+		for (int b = 0; b < timeBuckets; b++) {
+			if (depthSamples[b] == 0)
+				continue;
+			out.println("\t" + (firstTime + span * b / timeBuckets) + " : " + (long) maxDepth[b] + ", "
+					+ sumDepth[b] / depthSamples[b]);
+		}
+
+		out.println();
+		out.println("Slowest tuple flows (actual tuple id or tuple id, start, end, events) :");
+		for (TupleSpan tuple : slowestTuples) {
+			out.println("\t" + flowName(tuple.flow) + " : " + tuple.start + ", " + tuple.end + ", " + tuple.events);
+			for (Hop hop : paths.get(tuple.flow))
+				out.println("\t\t" + hop.time + " " + entityName(hop.src) + " -> " + entityName(hop.dst) + " "
+						+ tagName(hop.tag));
+		}
+	}
+
+	private static List<Map.Entry<Integer, long[]>> sortByCount(Map<Integer, long[]> counts) {
+		List<Map.Entry<Integer, long[]>> entries = new ArrayList<Map.Entry<Integer, long[]>>(counts.entrySet());
+		Collections.sort(entries, new Comparator<Map.Entry<Integer, long[]>>() {
+			@Override
+			public int compare(Map.Entry<Integer, long[]> a, Map.Entry<Integer, long[]> b) {
+				return Long.compare(b.getValue()[0], a.getValue()[0]);
+			}
+		});
+		return entries;
+	}
+
+	private String entityName(int id) {
+		String name = entityNames.get(id);
+		return name != null ? name : String.valueOf(id);
+	}
+
+	private String tagName(int tag) {
+		String name = tagNames.get(tag);
+		return name != null ? name + "(" + tag + ")" : String.valueOf(tag);
+	}
+
+	/**
+	 * Names of the event tags declared in {@link FogEvents} and {@link CloudSimTags}. Fog events take
+	 * precedence where both declare the same value.
+	 */
+	private static Map<Integer, String> tagNames() {
+		Map<Integer, String> names = new HashMap<Integer, String>();
+		for (Class<?> tags : new Class<?>[] { FogEvents.class, CloudSimTags.class }) {
+			for (Field field : tags.getDeclaredFields()) {
+				int modifiers = field.getModifiers();
+				if (!Modifier.isPublic(modifiers) || !Modifier.isStatic(modifiers) || field.getType() != int.class)
+					continue;
+				try {
+					int value = field.getInt(null);
+					if (!names.containsKey(value))
+						names.put(value, field.getName());
+				} catch (IllegalAccessException e) {
+					// not a tag
+				}
+			}
+		}
+		return names;
+	}
+
+}
@@ -0,0 +1,163 @@
+package org.fog.utils;
+
+import java.util.ArrayList;
+import java.util.LinkedList;
+import java.util.List;
+
+import org.cloudbus.cloudsim.Host;
+import org.cloudbus.cloudsim.Pe;
+import org.cloudbus.cloudsim.Storage;
+import org.cloudbus.cloudsim.power.PowerHost;
+import org.cloudbus.cloudsim.power.models.PowerModel;
+import org.cloudbus.cloudsim.power.models.PowerModelLinear;
+import org.cloudbus.cloudsim.provisioners.RamProvisionerSimple;
+import org.cloudbus.cloudsim.sdn.overbooking.BwProvisionerOverbooking;
+import org.cloudbus.cloudsim.sdn.overbooking.PeProvisionerOverbooking;
+import org.fog.entities.FogDevice;
+import org.fog.entities.FogDeviceCharacteristics;
+import org.fog.policy.AppModuleAllocationPolicy;
+import org.fog.scheduler.StreamOperatorScheduler;
+
+/**
+ * Immutable hardware profile of a fog device. Every device built from the same profile shares
+ * the profile's power model instead of allocating its own; only the per-device state (PE, host,
+ * characteristics) is created for each device.
+ */
+public final class FogDeviceProfile {
+
+	/** Power model used by topologies loaded from file (same as {@link JsonToTopology}). */
+	public static final PowerModel DEFAULT_POWER_MODEL = new PowerModelLinear(107.339, 83.4333);
+
+	private final long mips;
+	private final int ram;
+	private final long upBw;
+	private final long downBw;
+	private final int level;
+	private final double ratePerMips;
+	private final PowerModel powerModel;
+
+	public FogDeviceProfile(long mips, int ram, long upBw, long downBw, int level, double ratePerMips, PowerModel powerModel) {
+		this.mips = mips;
+		this.ram = ram;
+		this.upBw = upBw;
+		this.downBw = downBw;
+		this.level = level;
+		this.ratePerMips = ratePerMips;
+		this.powerModel = powerModel;
+	}
+
+	/**
+	 * Creates a profile with a {@link FogLinearPowerModel} for the given busy and idle power.
+	 */
+	public FogDeviceProfile(long mips, int ram, long upBw, long downBw, int level, double ratePerMips, double busyPower, double idlePower) {
+		this(mips, ram, upBw, downBw, level, ratePerMips, new FogLinearPowerModel(busyPower, idlePower));
+	}
+
+	/**
+	 * Creates a profile with the power model used by {@link JsonToTopology}.
+	 */
+	public FogDeviceProfile(long mips, int ram, long upBw, long downBw, int level, double ratePerMips) {
+		this(mips, ram, upBw, downBw, level, ratePerMips, DEFAULT_POWER_MODEL);
+	}
+
+	/**
+	 * Creates a new fog device with this profile.
+	 * @param name name of the device to be used in simulation
+	 * @return the fog device
+	 * @throws IllegalStateException if the device can't be created
+	 */
+	public FogDevice createFogDevice(String name) {
+		List<Pe> peList = new ArrayList<Pe>();
+		peList.add(new Pe(0, new PeProvisionerOverbooking(mips)));
+
+		int hostId = FogUtils.generateEntityId();
+		long storage = 1000000; // host storage
+		int bw = 10000;
+
+		PowerHost host = new PowerHost(
+				hostId,
+				new RamProvisionerSimple(ram),
+				new BwProvisionerOverbooking(bw),
+				storage,
+				peList,
+				new StreamOperatorScheduler(peList),
+				powerModel
+			);
+
+		List<Host> hostList = new ArrayList<Host>();
+		hostList.add(host);
+
+		FogDeviceCharacteristics characteristics = new FogDeviceCharacteristics(
+				Config.FOG_DEVICE_ARCH, Config.FOG_DEVICE_OS, Config.FOG_DEVICE_VMM, host, Config.FOG_DEVICE_TIMEZONE,
+				Config.FOG_DEVICE_COST, Config.FOG_DEVICE_COST_PER_MEMORY,
+				Config.FOG_DEVICE_COST_PER_STORAGE, Config.FOG_DEVICE_COST_PER_BW);
+
+		FogDevice fogdevice = null;
+		try {
+			fogdevice = new FogDevice(name, characteristics,
+					new AppModuleAllocationPolicy(hostList), new LinkedList<Storage>(), 10, upBw, downBw, 0, ratePerMips);
+		} catch (Exception e) {
+			throw new IllegalStateException("Can't create fog device " + name, e);
+		}
+
+		fogdevice.setLevel(level);
+		fogdevice.setParentId(-1);
+		return fogdevice;
+	}
+
+	public long getMips() {
+		return mips;
+	}
+
+	public int getRam() {
+		return ram;
+	}
+
+	public long getUpBw() {
+		return upBw;
+	}
+
+	public long getDownBw() {
+		return downBw;
+	}
+
+	public int getLevel() {
+		return level;
+	}
+
+	public double getRatePerMips() {
+		return ratePerMips;
+	}
+
+	public PowerModel getPowerModel() {
+		return powerModel;
+	}
+
+	/**
+	 * Two profiles are equal when their hardware parameters are equal; the power model is
+	 * compared by identity so that profiles can be de-duplicated by loaders.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof FogDeviceProfile))
+			return false;
+		FogDeviceProfile other = (FogDeviceProfile) obj;
+		return mips == other.mips && ram == other.ram && upBw == other.upBw && downBw == other.downBw
+				&& level == other.level && Double.compare(ratePerMips, other.ratePerMips) == 0
+				&& powerModel == other.powerModel;
+	}
+
+	@Override
+	public int hashCode() {
+		int result = (int) (mips ^ (mips >>> 32));
+		result = 31 * result + ram;
+		result = 31 * result + (int) (upBw ^ (upBw >>> 32));
+		result = 31 * result + (int) (downBw ^ (downBw >>> 32));
+		result = 31 * result + level;
+		long rate = Double.doubleToLongBits(ratePerMips);
+		result = 31 * result + (int) (rate ^ (rate >>> 32));
+		return 31 * result + System.identityHashCode(powerModel);
+	}
+}
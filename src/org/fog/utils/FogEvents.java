@@ -45,5 +45,7 @@ public class FogEvents {
     public static final int UPDATE_RESOURCE_INFO = BASE + 37;
     //---------------------------------------------
     public static final int START_DYNAMIC_CLUSTERING = BASE + 38;
+    public static final int RESULTS_SNAPSHOT = BASE + 39;
+    public static final int METRICS_SAMPLE = BASE + 40;
 
 }
@@ -1,5 +1,7 @@
 package org.fog.utils;
 
+import java.util.Arrays;
+
 import org.cloudbus.cloudsim.power.models.PowerModel;
 
 /**
@@ -29,6 +31,9 @@ public class FogLinearPowerModel implements PowerModel {
 	/** The static power. */
 	private double staticPower;
 
+	/** Power at each whole percent of utilization, NaN until computed. */
+	private final double[] powerAtPercent = new double[101];
+
 	/**
 	 * Instantiates a new linear power model.
 	 * 
@@ -50,6 +55,17 @@ public class FogLinearPowerModel implements PowerModel {
 		if (utilization < 0 || utilization > 1) {
 			throw new IllegalArgumentException("Utilization value must be between 0 and 1");
 		}
+		// devices mostly run at a few utilization levels, the power of whole percents is kept
+		double percent = utilization * 100;
+		int level = (int) percent;
+		if (level == percent) {
+			double power = powerAtPercent[level];
+			if (Double.isNaN(power)) {
+				power = getStaticPower() + getConstant() * utilization * 100;
+				powerAtPercent[level] = power;
+			}
+			return power;
+		}
 		return getStaticPower() + getConstant() * utilization * 100;
 	}
 
@@ -69,6 +85,7 @@ public class FogLinearPowerModel implements PowerModel {
 	 */
 	protected void setMaxPower(double maxPower) {
 		this.maxPower = maxPower;
+		Arrays.fill(powerAtPercent, Double.NaN);
 	}
 
 	/**
@@ -87,6 +104,7 @@ public class FogLinearPowerModel implements PowerModel {
 	 */
 	protected void setConstant(double constant) {
 		this.constant = constant;
+		Arrays.fill(powerAtPercent, Double.NaN);
 	}
 
 	/**
@@ -105,6 +123,7 @@ public class FogLinearPowerModel implements PowerModel {
 	 */
 	protected void setStaticPower(double staticPower) {
 		this.staticPower = staticPower;
+		Arrays.fill(powerAtPercent, Double.NaN);
 	}
 
 }
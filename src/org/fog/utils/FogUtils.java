@@ -3,13 +3,16 @@ package org.fog.utils;
 import java.util.HashMap;
 import java.util.Map;
 
+import org.cloudbus.cloudsim.core.IdSequence;
+
 public class FogUtils {
-	private static int TUPLE_ID = 1;
-	private static int ENTITY_ID = 1;
-	private static int ACTUAL_TUPLE_ID = 1;
+	// id sequences, so that the parallel kernel hands out the same ids whatever the interleaving of its partitions
+	private static final IdSequence TUPLE_ID = new IdSequence(1);
+	private static final IdSequence ENTITY_ID = new IdSequence(1);
+	private static final IdSequence ACTUAL_TUPLE_ID = new IdSequence(1);
 	
 	public static int generateTupleId(){
-		return TUPLE_ID++;
+		return TUPLE_ID.next();
 	}
 	
 	public static String getSensorTypeFromSensorName(String sensorName){
@@ -17,11 +20,11 @@ public class FogUtils {
 	}
 	
 	public static int generateEntityId(){
-		return ENTITY_ID++;
+		return ENTITY_ID.next();
 	}
 	
 	public static int generateActualTupleId(){
-		return ACTUAL_TUPLE_ID++;
+		return ACTUAL_TUPLE_ID.next();
 	}
 	
 	public static int USER_ID = 1;
@@ -0,0 +1,175 @@
+package org.fog.utils;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.fog.entities.PhysicalTopology;
+import org.fog.utils.distribution.Distribution;
+
+/**
+ * Generates tree-shaped fog hierarchies (cloud, proxies, gateways, end devices, ...) tier by tier.
+ * Every device of a tier is built from the tier's {@link FogDeviceProfile}, so a million devices
+ * share a handful of profiles. Sensors and actuators can be attached to every device of the last
+ * tier.
+ * <p>
+ * Device names are the tier prefix followed by the path of child indices, e.g. a gateway
+ * <tt>gw-0-3</tt> is the fourth gateway under proxy <tt>proxy-0</tt>.
+ */
+public class HierarchicalTopologyGenerator {
+
+	private static class Tier {
+		String prefix;
+		FogDeviceProfile profile;
+		int fanOut;
+		double uplinkLatency;
+	}
+
+	private static class Endpoint {
+		String prefix;
+		String type;
+		int count;
+		int distributionType;
+		double param1;
+		double param2;
+		double latency;
+	}
+
+	private final String cloudName;
+	private final FogDeviceProfile cloudProfile;
+	private final List<Tier> tiers = new ArrayList<Tier>();
+	private final List<Endpoint> sensors = new ArrayList<Endpoint>();
+	private final List<Endpoint> actuators = new ArrayList<Endpoint>();
+
+	public HierarchicalTopologyGenerator(String cloudName, FogDeviceProfile cloudProfile) {
+		this.cloudName = cloudName;
+		this.cloudProfile = cloudProfile;
+	}
+
+	/**
+	 * Adds a tier below the previously added one.
+	 * @param prefix name prefix of the devices of the tier
+	 * @param profile profile shared by every device of the tier; its level must be greater than the
+	 *            level of the tier above
+	 * @param fanOut number of devices of this tier under each device of the tier above
+	 * @param uplinkLatency latency of the link to the parent device
+	 */
+	public HierarchicalTopologyGenerator addTier(String prefix, FogDeviceProfile profile, int fanOut, double uplinkLatency) {
+		if (fanOut < 1)
+			throw new IllegalArgumentException("Fan-out of tier " + prefix + " must be positive");
+		FogDeviceProfile above = tiers.isEmpty() ? cloudProfile : tiers.get(tiers.size() - 1).profile;
+		if (profile.getLevel() <= above.getLevel())
+			throw new IllegalArgumentException("Level of tier " + prefix + " must be greater than " + above.getLevel());
+		Tier tier = new Tier();
+		tier.prefix = prefix;
+		tier.profile = profile;
+		tier.fanOut = fanOut;
+		tier.uplinkLatency = uplinkLatency;
+		tiers.add(tier);
+		return this;
+	}
+
+	/**
+	 * Attaches <tt>count</tt> sensors of the given type to every device of the last tier.
+	 * @param distributionType inter-transmission time distribution, as in {@link TopologyRecordHandler#sensor}
+	 */
+	public HierarchicalTopologyGenerator addSensors(String prefix, String sensorType, int count,
+			int distributionType, double param1, double param2, double latency) {
+		Endpoint sensor = new Endpoint();
+		sensor.prefix = prefix;
+		sensor.type = sensorType;
+		sensor.count = count;
+		sensor.distributionType = distributionType;
+		sensor.param1 = param1;
+		sensor.param2 = param2;
+		sensor.latency = latency;
+		sensors.add(sensor);
+		return this;
+	}
+
+	/**
+	 * Attaches one deterministic sensor of the given type to every device of the last tier.
+	 */
+	public HierarchicalTopologyGenerator addSensors(String prefix, String sensorType, double transmitInterval, double latency) {
+		return addSensors(prefix, sensorType, 1, Distribution.DETERMINISTIC, transmitInterval, 0, latency);
+	}
+
+	/**
+	 * Attaches <tt>count</tt> actuators of the given type to every device of the last tier.
+	 */
+	public HierarchicalTopologyGenerator addActuators(String prefix, String actuatorType, int count, double latency) {
+		Endpoint actuator = new Endpoint();
+		actuator.prefix = prefix;
+		actuator.type = actuatorType;
+		actuator.count = count;
+		actuator.latency = latency;
+		actuators.add(actuator);
+		return this;
+	}
+
+	/**
+	 * @return total number of fog devices the generator will produce, including the cloud
+	 */
+	public long getNumberOfDevices() {
+		long total = 1;
+		long tierSize = 1;
+		for (Tier tier : tiers) {
+			tierSize *= tier.fanOut;
+			total += tierSize;
+		}
+		return total;
+	}
+
+	/**
+	 * Creates the simulation entities of the generated topology.
+	 */
+	public PhysicalTopology generate(int userId, String appId) {
+		StreamingTopologyLoader.TopologyBuilder builder = new StreamingTopologyLoader.TopologyBuilder(userId, appId);
+		generate(builder);
+		return builder.getPhysicalTopology();
+	}
+
+	/**
+	 * Streams the generated topology to a handler, parents before children, so that every link
+	 * refers to entities that have already been emitted.
+	 */
+	public void generate(TopologyRecordHandler handler) {
+		handler.fogDevice(cloudName, cloudProfile);
+		if (tiers.isEmpty()) {
+			addEndpoints(handler, cloudName, "");
+			return;
+		}
+		generateChildren(handler, cloudName, "", 0);
+	}
+
+	private void generateChildren(TopologyRecordHandler handler, String parentName, String path, int tierIndex) {
+		Tier tier = tiers.get(tierIndex);
+		boolean lastTier = tierIndex == tiers.size() - 1;
+		for (int i = 0; i < tier.fanOut; i++) {
+			String childPath = path + "-" + i;
+			String name = tier.prefix + childPath;
+			handler.fogDevice(name, tier.profile);
+			handler.link(name, parentName, tier.uplinkLatency);
+			if (lastTier)
+				addEndpoints(handler, name, childPath);
+			else
+				generateChildren(handler, name, childPath, tierIndex + 1);
+		}
+	}
+
+	private void addEndpoints(TopologyRecordHandler handler, String deviceName, String path) {
+		for (Endpoint sensor : sensors) {
+			for (int k = 0; k < sensor.count; k++) {
+				String name = sensor.prefix + path + "-" + k;
+				handler.sensor(name, sensor.type, sensor.distributionType, sensor.param1, sensor.param2);
+				handler.link(deviceName, name, sensor.latency);
+			}
+		}
+		for (Endpoint actuator : actuators) {
+			for (int k = 0; k < actuator.count; k++) {
+				String name = actuator.prefix + path + "-" + k;
+				handler.actuator(name, actuator.type);
+				handler.link(deviceName, name, actuator.latency);
+			}
+		}
+	}
+}
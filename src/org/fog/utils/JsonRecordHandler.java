@@ -0,0 +1,18 @@
+package org.fog.utils;
+
+import java.util.Map;
+
+import org.json.simple.parser.ParseException;
+
+/**
+ * Receiver of the objects of the <tt>nodes</tt> and <tt>links</tt> arrays of a JSON topology, one
+ * object at a time (see {@link StreamingTopologyLoader#parseJsonRecords}). The fields are the
+ * primitive values of the object as json-simple parses them; the map is reused for the next object.
+ */
+public interface JsonRecordHandler {
+
+	void node(Map<String, Object> fields) throws ParseException;
+
+	void link(Map<String, Object> fields) throws ParseException;
+
+}
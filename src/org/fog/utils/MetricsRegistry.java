@@ -0,0 +1,232 @@
+package org.fog.utils;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Named counters, gauges and histograms describing a running simulation. Counters and histograms
+ * are updated by the code being measured; gauges read the state of the simulation and are only
+ * evaluated by {@link #sample(double)}, on the simulation thread, usually by a {@link MetricsSampler}.
+ * Other threads read the registry through {@link #snapshot()}, which returns the last sampled gauge
+ * values, so a run can be watched and aborted while it progresses.
+ * <p>
+ * Nothing is measured unless metrics are registered, so the registry costs nothing when sampling
+ * is off.
+ */
+public class MetricsRegistry {
+
+	private static final MetricsRegistry instance = new MetricsRegistry();
+
+	/** Reads a value of the simulation when the registry is sampled. */
+	public interface Gauge {
+		double value();
+	}
+
+	/** Monotonic count of occurrences. */
+	public static class Counter {
+		private final AtomicLong count = new AtomicLong();
+
+		public void increment() {
+			count.incrementAndGet();
+		}
+
+		public void add(long delta) {
+			count.addAndGet(delta);
+		}
+
+		public long get() {
+			return count.get();
+		}
+	}
+
+	/**
+	 * Distribution of non-negative values, kept in buckets of about 12% width: each power of two is
+	 * split in {@value #SUB_BUCKETS} buckets, so quantiles are estimated within that precision.
+	 * Negative values are counted as 0.
+	 */
+	public static class Histogram {
+		private static final int SUB_BUCKETS = 8;
+		private static final int MIN_EXPONENT = -32;
+		private static final int MAX_EXPONENT = 63;
+
+		private final long[] buckets = new long[1 + (MAX_EXPONENT - MIN_EXPONENT + 1) * SUB_BUCKETS];
+		private long count;
+		private double sum;
+		private double min = Double.POSITIVE_INFINITY;
+		private double max = Double.NEGATIVE_INFINITY;
+
+		public synchronized void record(double value) {
+			if (!(value > 0))
+				value = 0;
+			buckets[bucket(value)]++;
+			count++;
+			sum += value;
+			min = Math.min(min, value);
+			max = Math.max(max, value);
+		}
+
+		private static int bucket(double value) {
+			if (value == 0)
+				return 0;
+			int exponent = Math.getExponent(value);
+			if (exponent < MIN_EXPONENT)
+				return 0;
+			if (exponent > MAX_EXPONENT)
+				return (MAX_EXPONENT - MIN_EXPONENT + 1) * SUB_BUCKETS;
+			int sub = (int) ((value / Math.scalb(1.0, exponent) - 1) * SUB_BUCKETS);
+			return 1 + (exponent - MIN_EXPONENT) * SUB_BUCKETS + sub;
+		}
+
+		/** Middle of a bucket other than the zero bucket */
+		private static double bucketValue(int bucket) {
+			int exponent = (bucket - 1) / SUB_BUCKETS + MIN_EXPONENT;
+			int sub = (bucket - 1) % SUB_BUCKETS;
+			return Math.scalb(1 + (sub + 0.5) / SUB_BUCKETS, exponent);
+		}
+
+		public synchronized long getCount() {
+			return count;
+		}
+
+		public synchronized double getMean() {
+			return count == 0 ? Double.NaN : sum / count;
+		}
+
+		public synchronized double getMin() {
+			return count == 0 ? Double.NaN : min;
+		}
+
+		public synchronized double getMax() {
+			return count == 0 ? Double.NaN : max;
+		}
+
+		/**
+		 * @param quantile the quantile, between 0 and 1
+		 * @return estimate of the value at the quantile, NaN if nothing was recorded
+		 */
+		public synchronized double getQuantile(double quantile) {
+			if (count == 0)
+				return Double.NaN;
+			long rank = (long) Math.ceil(quantile * count);
+			long seen = 0;
+			for (int bucket = 0; bucket < buckets.length; bucket++) {
+				seen += buckets[bucket];
+				if (seen >= rank && buckets[bucket] > 0) {
+					double value = bucket == 0 ? 0 : bucketValue(bucket);
+					return Math.max(min, Math.min(max, value));
+				}
+			}
+			return max;
+		}
+	}
+
+	private final ConcurrentMap<String, Counter> counters = new ConcurrentHashMap<String, Counter>();
+	private final Map<String, Gauge> gauges = new ConcurrentHashMap<String, Gauge>();
+	private final ConcurrentMap<String, Histogram> histograms = new ConcurrentHashMap<String, Histogram>();
+	private final Map<String, Double> sampledGauges = new ConcurrentHashMap<String, Double>();
+	private volatile double sampleTime = Double.NaN;
+
+	public static MetricsRegistry getInstance() {
+		return instance;
+	}
+
+	/**
+	 * @return the counter of the given name, created if needed
+	 */
+	public Counter counter(String name) {
+		Counter counter = counters.get(name);
+		if (counter == null) {
+			Counter created = new Counter();
+			counter = counters.putIfAbsent(name, created);
+			if (counter == null)
+				counter = created;
+		}
+		return counter;
+	}
+
+	/**
+	 * @return the histogram of the given name, created if needed
+	 */
+	public Histogram histogram(String name) {
+		Histogram histogram = histograms.get(name);
+		if (histogram == null) {
+			Histogram created = new Histogram();
+			histogram = histograms.putIfAbsent(name, created);
+			if (histogram == null)
+				histogram = created;
+		}
+		return histogram;
+	}
+
+	/**
+	 * Registers a gauge, replacing any gauge of the same name.
+	 */
+	public void gauge(String name, Gauge gauge) {
+		gauges.put(name, gauge);
+	}
+
+	/**
+	 * Evaluates every gauge. Must be called from the simulation thread.
+	 *
+	 * @param time the simulated time of the sample
+	 */
+	public void sample(double time) {
+		for (Map.Entry<String, Gauge> entry : gauges.entrySet())
+			sampledGauges.put(entry.getKey(), entry.getValue().value());
+		sampleTime = time;
+	}
+
+	/**
+	 * @return simulated time of the last sample, NaN before the first one
+	 */
+	public double getSampleTime() {
+		return sampleTime;
+	}
+
+	/**
+	 * @return value of a gauge at the last sample, or of a counter, or null if there is no such metric
+	 */
+	public Double getValue(String name) {
+		Double value = sampledGauges.get(name);
+		if (value != null)
+			return value;
+		Counter counter = counters.get(name);
+		return counter == null ? null : Double.valueOf(counter.get());
+	}
+
+	/**
+	 * Returns every metric by name: counters, gauges as of the last sample, and the count, mean,
+	 * p50, p99 and max of each histogram under the histogram name followed by <tt>.count</tt>,
+	 * <tt>.mean</tt>, <tt>.p50</tt>, <tt>.p99</tt> and <tt>.max</tt>. Can be called from any thread.
+	 */
+	public SortedMap<String, Double> snapshot() {
+		SortedMap<String, Double> values = new TreeMap<String, Double>(sampledGauges);
+		for (Map.Entry<String, Counter> entry : counters.entrySet())
+			values.put(entry.getKey(), (double) entry.getValue().get());
+		for (Map.Entry<String, Histogram> entry : histograms.entrySet()) {
+			Histogram histogram = entry.getValue();
+			String name = entry.getKey();
+			values.put(name + ".count", (double) histogram.getCount());
+			values.put(name + ".mean", histogram.getMean());
+			values.put(name + ".p50", histogram.getQuantile(0.5));
+			values.put(name + ".p99", histogram.getQuantile(0.99));
+			values.put(name + ".max", histogram.getMax());
+		}
+		return values;
+	}
+
+	/**
+	 * Removes every metric, for instance between two simulations.
+	 */
+	public void clear() {
+		counters.clear();
+		gauges.clear();
+		histograms.clear();
+		sampledGauges.clear();
+		sampleTime = Double.NaN;
+	}
+}
@@ -0,0 +1,260 @@
+package org.fog.utils;
+
+import java.util.Map;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.fog.entities.FogDevice;
+import org.fog.utils.ColumnarTableWriter.ColumnType;
+import org.fog.utils.ColumnarTableWriter.Format;
+
+/**
+ * Samples the {@link MetricsRegistry} every interval of simulated time and appends the samples to a
+ * table of <tt>time, wallTime, metric, value</tt> rows written with {@link ColumnarTableWriter}.
+ * It registers the following gauges when the simulation starts:
+ * <ul>
+ * <li><tt>kernel.futureQueue</tt>, <tt>kernel.deferredQueue</tt> : events waiting in the queues</li>
+ * <li><tt>kernel.eventsPerSecond</tt> : events processed per second of wall time since the last sample</li>
+ * <li><tt>jvm.heapUsed</tt> : bytes of heap in use</li>
+ * <li><tt>device.&lt;name&gt;.northQueue</tt>, <tt>.southQueue</tt>, <tt>.clusterQueue</tt> : tuples
+ * waiting for a link of each fog device</li>
+ * <li><tt>device.&lt;name&gt;.northLinkBusy</tt>, <tt>.southLinkBusy</tt>, <tt>.clusterLinkBusy</tt> :
+ * fraction of the last interval each link was busy</li>
+ * <li><tt>device.&lt;name&gt;.cpuUtilization</tt> : last utilization of the host</li>
+ * </ul>
+ * and records the queue lengths and utilizations of all devices in the <tt>devices.*</tt> histograms.
+ * <p>
+ * Usage: <tt>MetricsSampler.start(100, "metrics.csv", Format.CSV);</tt> after {@link CloudSim#init}
+ * and before {@link CloudSim#startSimulation()}. An abort condition stops the simulation at the first
+ * sample satisfying it.
+ */
+public class MetricsSampler extends SimEntity {
+
+	/** Decides from the sampled metrics whether the run should be aborted. */
+	public interface AbortCondition {
+		boolean shouldAbort(MetricsRegistry registry);
+	}
+
+	private final double interval;
+	private final MetricsRegistry registry;
+	private final ColumnarTableWriter table;
+	private AbortCondition abortCondition;
+
+	private boolean closed;
+
+	/** Closes the table if the JVM exits before the simulation finishes, null without a table */
+	private final Thread shutdownHook;
+
+	private long lastEventCount;
+	private long lastWallTime;
+
+	/**
+	 * @param interval simulated time between samples
+	 * @param fileName file the samples are appended to, or null to keep them in the registry only
+	 */
+	public MetricsSampler(double interval, String fileName, Format format) {
+		super("metrics-sampler");
+		if (!(interval > 0))
+			throw new IllegalArgumentException("Sampling interval must be positive");
+		this.interval = interval;
+		this.registry = MetricsRegistry.getInstance();
+		this.table = fileName == null ? null : new ColumnarTableWriter(fileName, format,
+				new String[] { "time", "wallTime", "metric", "value" },
+				new ColumnType[] { ColumnType.DOUBLE, ColumnType.LONG, ColumnType.STRING, ColumnType.DOUBLE });
+		if (table != null) {
+			// controllers end simulations with System.exit, finish the table in that case as well
+			shutdownHook = new Thread() {
+				@Override
+				public void run() {
+					close();
+				}
+			};
+			Runtime.getRuntime().addShutdownHook(shutdownHook);
+		} else {
+			shutdownHook = null;
+		}
+	}
+
+	/**
+	 * Creates a sampler, which starts with the simulation.
+	 */
+	public static MetricsSampler start(double interval, String fileName, Format format) {
+		return new MetricsSampler(interval, fileName, format);
+	}
+
+	public void setAbortCondition(AbortCondition abortCondition) {
+		this.abortCondition = abortCondition;
+	}
+
+	@Override
+	public void startEntity() {
+		registerKernelGauges();
+		for (SimEntity entity : CloudSim.getEntityList()) {
+			if (entity instanceof FogDevice)
+				registerDeviceGauges((FogDevice) entity);
+		}
+		lastWallTime = System.nanoTime();
+		send(getId(), interval, FogEvents.METRICS_SAMPLE);
+	}
+
+	private void registerKernelGauges() {
+		registry.gauge("kernel.futureQueue", new MetricsRegistry.Gauge() {
+			@Override
+			public double value() {
+				return CloudSim.getFutureQueueSize();
+			}
+		});
+		registry.gauge("kernel.deferredQueue", new MetricsRegistry.Gauge() {
+			@Override
+			public double value() {
+				return CloudSim.getDeferredQueueSize();
+			}
+		});
+		registry.gauge("kernel.eventsPerSecond", new MetricsRegistry.Gauge() {
+			@Override
+			public double value() {
+				long events = CloudSim.getProcessedEventCount();
+				long wallTime = System.nanoTime();
+				double rate = (events - lastEventCount) / ((wallTime - lastWallTime) / 1e9);
+				lastEventCount = events;
+				lastWallTime = wallTime;
+				return rate;
+			}
+		});
+		registry.gauge("jvm.heapUsed", new MetricsRegistry.Gauge() {
+			@Override
+			public double value() {
+				Runtime runtime = Runtime.getRuntime();
+				return runtime.totalMemory() - runtime.freeMemory();
+			}
+		});
+	}
+
+	private void registerDeviceGauges(final FogDevice device) {
+		String prefix = "device." + device.getName() + ".";
+		final MetricsRegistry.Histogram northQueues = registry.histogram("devices.northQueue");
+		final MetricsRegistry.Histogram southQueues = registry.histogram("devices.southQueue");
+		final MetricsRegistry.Histogram utilizations = registry.histogram("devices.cpuUtilization");
+		registry.gauge(prefix + "northQueue", new MetricsRegistry.Gauge() {
+			@Override
+			public double value() {
+				int size = device.getNorthTupleQueue().size();
+				northQueues.record(size);
+				return size;
+			}
+		});
+		registry.gauge(prefix + "southQueue", new MetricsRegistry.Gauge() {
+			@Override
+			public double value() {
+				int size = device.getSouthTupleQueue().size();
+				southQueues.record(size);
+				return size;
+			}
+		});
+		registry.gauge(prefix + "clusterQueue", new MetricsRegistry.Gauge() {
+			@Override
+			public double value() {
+				return device.getClusterTupleQueue().size();
+			}
+		});
+		registry.gauge(prefix + "northLinkBusy", new BusyFraction() {
+			@Override
+			double busyTime() {
+				return device.getNorthLinkBusyTime();
+			}
+		});
+		registry.gauge(prefix + "southLinkBusy", new BusyFraction() {
+			@Override
+			double busyTime() {
+				return device.getSouthLinkBusyTime();
+			}
+		});
+		registry.gauge(prefix + "clusterLinkBusy", new BusyFraction() {
+			@Override
+			double busyTime() {
+				return device.getClusterLinkBusyTime();
+			}
+		});
+		registry.gauge(prefix + "cpuUtilization", new MetricsRegistry.Gauge() {
+			@Override
+			public double value() {
+				double utilization = device.getLastUtilization();
+				utilizations.record(utilization);
+				return utilization;
+			}
+		});
+	}
+
+	/** Fraction of the simulated time since the previous sample a link was busy */
+	private static abstract class BusyFraction implements MetricsRegistry.Gauge {
+		private double lastBusyTime;
+		private double lastTime;
+
+		abstract double busyTime();
+
+		@Override
+		public double value() {
+			double busyTime = busyTime();
+			double time = CloudSim.clock();
+			double fraction = time > lastTime ? (busyTime - lastBusyTime) / (time - lastTime) : 0;
+			lastBusyTime = busyTime;
+			lastTime = time;
+			return fraction;
+		}
+	}
+
+	@Override
+	public void processEvent(SimEvent ev) {
+		switch (ev.getTag()) {
+		case FogEvents.METRICS_SAMPLE:
+			sample();
+			if (abortCondition != null && abortCondition.shouldAbort(registry)) {
+				Logger.error(getName(), "Simulation aborted by the metrics abort condition");
+				CloudSim.abruptallyTerminate();
+				break;
+			}
+			// no sample past the end of the run, it would keep the simulation going
+			if (CloudSim.clock() + interval <= Config.MAX_SIMULATION_TIME)
+				send(getId(), interval, FogEvents.METRICS_SAMPLE);
+			break;
+		}
+	}
+
+	private void sample() {
+		double time = CloudSim.clock();
+		registry.sample(time);
+		long wallTime = System.currentTimeMillis();
+		synchronized (this) {
+			if (table == null || closed)
+				return;
+			for (Map.Entry<String, Double> entry : registry.snapshot().entrySet()) {
+				table.putDouble(time);
+				table.putLong(wallTime);
+				table.putString(entry.getKey());
+				table.putDouble(entry.getValue());
+				table.endRow();
+			}
+			table.flush();
+		}
+	}
+
+	@Override
+	public void shutdownEntity() {
+		close();
+	}
+
+	private synchronized void close() {
+		if (closed)
+			return;
+		closed = true;
+		if (table != null) {
+			table.close();
+			try {
+				Runtime.getRuntime().removeShutdownHook(shutdownHook);
+			} catch (IllegalStateException e) {
+				// closed by the hook itself, the JVM is shutting down
+			}
+		}
+	}
+}
@@ -1,5 +1,7 @@
 package org.fog.utils;
 
+import org.cloudbus.cloudsim.core.CloudSim;
+
 public class MigrationDelayMonitor {
 	
 	private static double migrationDelay = 0.0;
@@ -8,7 +10,15 @@ public class MigrationDelayMonitor {
 		return migrationDelay;
 	}
 
-	public static void setMigrationDelay(double migrationDelayReceived) {
-		migrationDelay += migrationDelayReceived;
+	public static void setMigrationDelay(final double migrationDelayReceived) {
+		CloudSim.updateShared(new Runnable() {
+			@Override
+			public void run() {
+				migrationDelay += migrationDelayReceived;
+				ResultsWriter resultsWriter = ResultsWriter.getInstance();
+				if(resultsWriter != null)
+					resultsWriter.moduleMigrated(migrationDelayReceived);
+			}
+		});
 	}
 }
@@ -1,15 +1,27 @@
 package org.fog.utils;
 
+import org.cloudbus.cloudsim.core.CloudSim;
+
 public class NetworkUsageMonitor {
 
 	private static double networkUsage = 0.0;
 	
-	public static void sendingTuple(double latency, double tupleNwSize){
-		networkUsage += latency*tupleNwSize;
+	public static void sendingTuple(final double latency, final double tupleNwSize){
+		CloudSim.updateShared(new Runnable() {
+			@Override
+			public void run() {
+				networkUsage += latency*tupleNwSize;
+			}
+		});
 	}
 	
-	public static void sendingModule(double latency, long moduleSize){
-		networkUsage += latency*moduleSize;
+	public static void sendingModule(final double latency, final long moduleSize){
+		CloudSim.updateShared(new Runnable() {
+			@Override
+			public void run() {
+				networkUsage += latency*moduleSize;
+			}
+		});
 	}
 	
 	public static double getNetworkUsage(){
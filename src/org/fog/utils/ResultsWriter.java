@@ -0,0 +1,273 @@
+package org.fog.utils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.cloudbus.cloudsim.core.SimEvent;
+import org.fog.application.AppLoop;
+import org.fog.application.Application;
+import org.fog.entities.FogDevice;
+import org.fog.utils.ColumnarTableWriter.ColumnType;
+import org.fog.utils.ColumnarTableWriter.Format;
+
+/**
+ * Writes the results that controllers print at the end of a run to tables in a directory, with a
+ * snapshot every interval of simulated time as well as at the end:
+ * <ul>
+ * <li><tt>devices</tt> : time, device, energy, cost</li>
+ * <li><tt>loops</tt> : time, loop, completed, averageDelay, qosSatisfied</li>
+ * <li><tt>loop_delays</tt> : time, loop, tupleId, delay, one row per completed loop instance</li>
+ * <li><tt>tuple_cpu</tt> : time, tupleType, averageCpuTime</li>
+ * <li><tt>network</tt> : time, networkUsage, migrationDelay</li>
+ * <li><tt>migrations</tt> : time, delay, one row per module migration</li>
+ * <li><tt>loop_names</tt> : loop, application, modules, written at the end</li>
+ * </ul>
+ * The tables are written with {@link ColumnarTableWriter}, as <tt>.csv</tt> or <tt>.col</tt> files.
+ * <p>
+ * Usage: <tt>ResultsWriter.start("results/run", Format.CSV, 100);</tt> after {@link CloudSim#init}
+ * and before {@link CloudSim#startSimulation()}. Controllers write the final snapshot when they stop
+ * the simulation; the tables are also closed if the run ends otherwise.
+ */
+public class ResultsWriter extends SimEntity {
+
+	private static ResultsWriter instance;
+
+	private final double snapshotInterval;
+	private final ColumnarTableWriter devices;
+	private final ColumnarTableWriter loops;
+	private final ColumnarTableWriter loopDelays;
+	private final ColumnarTableWriter tupleCpu;
+	private final ColumnarTableWriter network;
+	private final ColumnarTableWriter migrations;
+	private final ColumnarTableWriter loopNames;
+	private final List<ColumnarTableWriter> tables = new ArrayList<ColumnarTableWriter>();
+
+	private final List<FogDevice> fogDevices = new ArrayList<FogDevice>();
+	private double lastSnapshotTime = -1;
+	private boolean closed;
+
+	/**
+	 * Closes the tables if the JVM exits before the simulation finishes
+	 */
+	private final Thread shutdownHook;
+
+	/**
+	 * @param directory directory of the tables, created if needed
+	 * @param format format of the tables
+	 * @param snapshotInterval simulated time between snapshots, 0 for the final snapshot only
+	 */
+	public ResultsWriter(String directory, Format format, double snapshotInterval) {
+		super("results-writer");
+		if (snapshotInterval < 0)
+			throw new IllegalArgumentException("Snapshot interval must not be negative");
+		this.snapshotInterval = snapshotInterval;
+		File dir = new File(directory);
+		dir.mkdirs();
+		String extension = format == Format.CSV ? ".csv" : ".col";
+		devices = table(dir, "devices" + extension, format,
+				new String[] { "time", "device", "energy", "cost" },
+				new ColumnType[] { ColumnType.DOUBLE, ColumnType.STRING, ColumnType.DOUBLE, ColumnType.DOUBLE });
+		loops = table(dir, "loops" + extension, format,
+				new String[] { "time", "loop", "completed", "averageDelay", "qosSatisfied" },
+				new ColumnType[] { ColumnType.DOUBLE, ColumnType.LONG, ColumnType.LONG, ColumnType.DOUBLE, ColumnType.LONG });
+		loopDelays = table(dir, "loop_delays" + extension, format,
+				new String[] { "time", "loop", "tupleId", "delay" },
+				new ColumnType[] { ColumnType.DOUBLE, ColumnType.LONG, ColumnType.LONG, ColumnType.DOUBLE });
+		tupleCpu = table(dir, "tuple_cpu" + extension, format,
+				new String[] { "time", "tupleType", "averageCpuTime" },
+				new ColumnType[] { ColumnType.DOUBLE, ColumnType.STRING, ColumnType.DOUBLE });
+		network = table(dir, "network" + extension, format,
+				new String[] { "time", "networkUsage", "migrationDelay" },
+				new ColumnType[] { ColumnType.DOUBLE, ColumnType.DOUBLE, ColumnType.DOUBLE });
+		migrations = table(dir, "migrations" + extension, format,
+				new String[] { "time", "delay" },
+				new ColumnType[] { ColumnType.DOUBLE, ColumnType.DOUBLE });
+		loopNames = table(dir, "loop_names" + extension, format,
+				new String[] { "loop", "application", "modules" },
+				new ColumnType[] { ColumnType.LONG, ColumnType.STRING, ColumnType.STRING });
+		// controllers end simulations with System.exit, finish the tables in that case as well
+		shutdownHook = new Thread() {
+			@Override
+			public void run() {
+				close();
+			}
+		};
+		Runtime.getRuntime().addShutdownHook(shutdownHook);
+	}
+
+	/**
+	 * Creates a writer and makes it the one the simulation reports to. A writer left open by an
+	 * earlier run is closed first.
+	 */
+	public static ResultsWriter start(String directory, Format format, double snapshotInterval) {
+		ResultsWriter previous = instance;
+		if (previous != null)
+			previous.close();
+		instance = new ResultsWriter(directory, format, snapshotInterval);
+		return instance;
+	}
+
+	/**
+	 * @return the writer the simulation reports to, or null if results are not written
+	 */
+	public static ResultsWriter getInstance() {
+		return instance;
+	}
+
+	private ColumnarTableWriter table(File dir, String name, Format format, String[] names, ColumnType[] types) {
+		ColumnarTableWriter table = new ColumnarTableWriter(new File(dir, name).getPath(), format, names, types);
+		tables.add(table);
+		return table;
+	}
+
+	@Override
+	public void startEntity() {
+		for (SimEntity entity : CloudSim.getEntityList()) {
+			if (entity instanceof FogDevice)
+				fogDevices.add((FogDevice) entity);
+		}
+		if (snapshotInterval > 0)
+			send(getId(), snapshotInterval, FogEvents.RESULTS_SNAPSHOT);
+	}
+
+	@Override
+	public void processEvent(SimEvent ev) {
+		switch (ev.getTag()) {
+		case FogEvents.RESULTS_SNAPSHOT:
+			writeSnapshot();
+			// no snapshot past the end of the run, it would keep the simulation going
+			if (CloudSim.clock() + snapshotInterval <= Config.MAX_SIMULATION_TIME)
+				send(getId(), snapshotInterval, FogEvents.RESULTS_SNAPSHOT);
+			break;
+		}
+	}
+
+	@Override
+	public void shutdownEntity() {
+		close();
+	}
+
+	/**
+	 * Records a completed loop instance, called by {@link TimeKeeper}.
+	 */
+	public void loopCompleted(int loopId, int tupleId, double delay) {
+		if (closed)
+			return;
+		loopDelays.putDouble(CloudSim.clock());
+		loopDelays.putLong(loopId);
+		loopDelays.putLong(tupleId);
+		loopDelays.putDouble(delay);
+		loopDelays.endRow();
+	}
+
+	/**
+	 * Records a module migration, called by {@link MigrationDelayMonitor}.
+	 */
+	public void moduleMigrated(double delay) {
+		if (closed)
+			return;
+		migrations.putDouble(CloudSim.clock());
+		migrations.putDouble(delay);
+		migrations.endRow();
+	}
+
+	/**
+	 * Writes the results at the current simulated time and flushes the tables.
+	 */
+	public void writeSnapshot() {
+		if (closed)
+			return;
+		double time = CloudSim.clock();
+		if (time == lastSnapshotTime)
+			return;
+		lastSnapshotTime = time;
+
+		for (FogDevice fogDevice : fogDevices) {
+			devices.putDouble(time);
+			devices.putString(fogDevice.getName());
+			devices.putDouble(fogDevice.getEnergyConsumption());
+			devices.putDouble(fogDevice.getTotalCost());
+			devices.endRow();
+		}
+
+		TimeKeeper timeKeeper = TimeKeeper.getInstance();
+		Map<Integer, Integer> qosSatisfied = timeKeeper.getLoopIdToLatencyQoSSuccessCount();
+		for (Integer loopId : timeKeeper.getLoopIdToTupleIds().keySet()) {
+			Integer completed = timeKeeper.getLoopIdToCurrentNum().get(loopId);
+			Double average = timeKeeper.getLoopIdToCurrentAverage().get(loopId);
+			Integer satisfied = qosSatisfied.get(loopId);
+			loops.putDouble(time);
+			loops.putLong(loopId);
+			loops.putLong(completed == null ? 0 : completed);
+			loops.putDouble(average == null ? Double.NaN : average);
+			loops.putLong(satisfied == null ? 0 : satisfied);
+			loops.endRow();
+		}
+
+		for (Map.Entry<String, Double> entry : timeKeeper.getTupleTypeToAverageCpuTime().entrySet()) {
+			tupleCpu.putDouble(time);
+			tupleCpu.putString(entry.getKey());
+			tupleCpu.putDouble(entry.getValue());
+			tupleCpu.endRow();
+		}
+
+		network.putDouble(time);
+		network.putDouble(NetworkUsageMonitor.getNetworkUsage());
+		network.putDouble(MigrationDelayMonitor.getMigrationDelay());
+		network.endRow();
+
+		for (ColumnarTableWriter table : tables)
+			table.flush();
+	}
+
+	/**
+	 * Writes the final snapshot and the loop names of the applications, then closes the tables.
+	 * Does nothing if results are not written.
+	 *
+	 * @param applications the applications of the run
+	 */
+	public static void finish(Collection<Application> applications) {
+		if (instance == null)
+			return;
+		instance.writeLoopNames(applications);
+		instance.close();
+	}
+
+	private void writeLoopNames(Collection<Application> applications) {
+		if (closed)
+			return;
+		for (Application application : applications) {
+			for (AppLoop loop : application.getLoops()) {
+				loopNames.putLong(loop.getLoopId());
+				loopNames.putString(application.getAppId());
+				loopNames.putString(loop.getModules().toString());
+				loopNames.endRow();
+			}
+		}
+	}
+
+	/**
+	 * Writes the final snapshot and closes the tables. The next run reports to no writer unless it
+	 * starts one.
+	 */
+	public synchronized void close() {
+		if (closed)
+			return;
+		writeSnapshot();
+		closed = true;
+		for (ColumnarTableWriter table : tables)
+			table.close();
+		try {
+			Runtime.getRuntime().removeShutdownHook(shutdownHook);
+		} catch (IllegalStateException e) {
+			// closed by the hook itself, the JVM is shutting down
+		}
+		if (instance == this)
+			instance = null;
+	}
+}
@@ -0,0 +1,496 @@
+package org.fog.utils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import org.fog.entities.Actuator;
+import org.fog.entities.FogDevice;
+import org.fog.entities.PhysicalTopology;
+import org.fog.entities.Sensor;
+import org.fog.utils.distribution.DeterministicDistribution;
+import org.fog.utils.distribution.Distribution;
+import org.fog.utils.distribution.NormalDistribution;
+import org.fog.utils.distribution.UniformDistribution;
+import org.json.simple.parser.ContentHandler;
+import org.json.simple.parser.JSONParser;
+import org.json.simple.parser.ParseException;
+
+/**
+ * Loads physical topologies without materialising the whole file. Three formats are supported:
+ * <ul>
+ * <li>the JSON format of the files under <tt>topologies/</tt>, parsed node by node;</li>
+ * <li>a CSV format with one record per line (see {@link TopologyFileWriter});</li>
+ * <li>a compact binary format written by {@link TopologyFileWriter#binary(String)}.</li>
+ * </ul>
+ * Entities are resolved through name indexes and devices with identical hardware parameters share
+ * one {@link FogDeviceProfile}. Like the JSON format, the CSV and binary formats do not carry power
+ * models; devices loaded from file use {@link FogDeviceProfile#DEFAULT_POWER_MODEL}.
+ */
+public class StreamingTopologyLoader {
+
+	public static final String FOG_DEVICE = "FOG_DEVICE";
+	public static final String SENSOR = "SENSOR";
+	public static final String ACTUATOR = "ACTUATOR";
+	public static final String LINK = "LINK";
+
+	/** Magic number at the start of binary topology files ("FTOP"). */
+	static final int BINARY_MAGIC = 0x46544f50;
+	static final int BINARY_VERSION = 1;
+
+	static final byte RECORD_END = 0;
+	static final byte RECORD_PROFILE = 1;
+	static final byte RECORD_FOG_DEVICE = 2;
+	static final byte RECORD_SENSOR = 3;
+	static final byte RECORD_ACTUATOR = 4;
+	static final byte RECORD_LINK = 5;
+
+	/**
+	 * Loads a topology file, choosing the format from the file extension: <tt>.csv</tt> for CSV,
+	 * <tt>.bin</tt> for binary and JSON otherwise.
+	 */
+	public static PhysicalTopology load(int userId, String appId, String fileName) throws IOException {
+		String lower = fileName.toLowerCase(Locale.ROOT);
+		if (lower.endsWith(".csv"))
+			return loadCsv(userId, appId, fileName);
+		if (lower.endsWith(".bin"))
+			return loadBinary(userId, appId, fileName);
+		return loadJson(userId, appId, fileName);
+	}
+
+	public static PhysicalTopology loadJson(int userId, String appId, String fileName) throws IOException {
+		return loadJson(userId, appId, fileName, true);
+	}
+
+	/**
+	 * Loads a JSON topology, skipping the links which can't be resolved unless <tt>strictLinks</tt> is set,
+	 * as {@link JsonToTopology} always did.
+	 */
+	static PhysicalTopology loadJson(int userId, String appId, String fileName, boolean strictLinks) throws IOException {
+		TopologyBuilder builder = new TopologyBuilder(userId, appId, strictLinks);
+		try (Reader reader = new BufferedReader(new FileReader(fileName))) {
+			parseJson(reader, builder);
+		}
+		return builder.getPhysicalTopology();
+	}
+
+	public static PhysicalTopology loadCsv(int userId, String appId, String fileName) throws IOException {
+		TopologyBuilder builder = new TopologyBuilder(userId, appId);
+		try (BufferedReader reader = new BufferedReader(new FileReader(fileName))) {
+			parseCsv(reader, builder);
+		}
+		return builder.getPhysicalTopology();
+	}
+
+	public static PhysicalTopology loadBinary(int userId, String appId, String fileName) throws IOException {
+		TopologyBuilder builder = new TopologyBuilder(userId, appId);
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(fileName), 1 << 16))) {
+			parseBinary(in, builder);
+		}
+		return builder.getPhysicalTopology();
+	}
+
+	/**
+	 * Streams the records of a JSON topology to the handler.
+	 */
+	public static void parseJson(Reader reader, TopologyRecordHandler handler) throws IOException {
+		parseJsonRecords(reader, new JsonTopologyHandler(handler));
+	}
+
+	/**
+	 * Streams the node and link objects of a JSON topology to the handler, such as the topologies
+	 * of the GUI whose nodes are not fog devices.
+	 */
+	public static void parseJsonRecords(Reader reader, JsonRecordHandler handler) throws IOException {
+		try {
+			new JSONParser().parse(reader, new JsonRecordReader(handler));
+		} catch (ParseException e) {
+			throw new IOException("Malformed topology : " + e, e);
+		}
+	}
+
+	/**
+	 * Streams the records of a CSV topology to the handler. Empty lines and lines starting with
+	 * <tt>#</tt> are ignored.
+	 */
+	public static void parseCsv(BufferedReader reader, TopologyRecordHandler handler) throws IOException {
+		String line;
+		String[] fields = new String[8];
+		int lineNumber = 0;
+		while ((line = reader.readLine()) != null) {
+			lineNumber++;
+			if (line.isEmpty() || line.charAt(0) == '#')
+				continue;
+			int count = split(line, fields);
+			String type = fields[0];
+			try {
+				if (type.equalsIgnoreCase(FOG_DEVICE)) {
+					handler.fogDevice(fields[1], new FogDeviceProfile(Long.parseLong(fields[2]), Integer.parseInt(fields[3]),
+							Long.parseLong(fields[4]), Long.parseLong(fields[5]), Integer.parseInt(fields[6]),
+							Double.parseDouble(fields[7])));
+				} else if (type.equalsIgnoreCase(SENSOR)) {
+					handler.sensor(fields[1], fields[2], Integer.parseInt(fields[3]), Double.parseDouble(fields[4]),
+							count > 5 ? Double.parseDouble(fields[5]) : 0);
+				} else if (type.equalsIgnoreCase(ACTUATOR)) {
+					handler.actuator(fields[1], fields[2]);
+				} else if (type.equalsIgnoreCase(LINK)) {
+					handler.link(fields[1], fields[2], Double.parseDouble(fields[3]));
+				} else {
+					throw new IOException("Unknown record type " + type + " at line " + lineNumber);
+				}
+			} catch (NumberFormatException | ArrayIndexOutOfBoundsException | NullPointerException e) {
+				throw new IOException("Malformed record at line " + lineNumber + " : " + line, e);
+			}
+		}
+	}
+
+	/**
+	 * Streams the records of a binary topology to the handler.
+	 */
+	public static void parseBinary(DataInputStream in, TopologyRecordHandler handler) throws IOException {
+		if (in.readInt() != BINARY_MAGIC)
+			throw new IOException("Not a binary topology file");
+		int version = in.readInt();
+		if (version != BINARY_VERSION)
+			throw new IOException("Unsupported binary topology version " + version);
+		List<FogDeviceProfile> profiles = new ArrayList<FogDeviceProfile>();
+		try {
+			while (true) {
+				byte record = in.readByte();
+				switch (record) {
+				case RECORD_END:
+					return;
+				case RECORD_PROFILE:
+					profiles.add(new FogDeviceProfile(in.readLong(), in.readInt(), in.readLong(), in.readLong(),
+							in.readInt(), in.readDouble()));
+					break;
+				case RECORD_FOG_DEVICE:
+					String name = in.readUTF();
+					handler.fogDevice(name, profiles.get(in.readInt()));
+					break;
+				case RECORD_SENSOR:
+					handler.sensor(in.readUTF(), in.readUTF(), in.readInt(), in.readDouble(), in.readDouble());
+					break;
+				case RECORD_ACTUATOR:
+					handler.actuator(in.readUTF(), in.readUTF());
+					break;
+				case RECORD_LINK:
+					handler.link(in.readUTF(), in.readUTF(), in.readDouble());
+					break;
+				default:
+					throw new IOException("Unknown record type " + record);
+				}
+			}
+		} catch (EOFException e) {
+			throw new IOException("Truncated binary topology file", e);
+		}
+	}
+
+	public static Distribution createDistribution(int distributionType, double param1, double param2) {
+		if (distributionType == Distribution.DETERMINISTIC)
+			return new DeterministicDistribution(param1);
+		else if (distributionType == Distribution.NORMAL)
+			return new NormalDistribution(param1, param2);
+		else if (distributionType == Distribution.UNIFORM)
+			return new UniformDistribution(param1, param2);
+		return null;
+	}
+
+	/**
+	 * Splits a CSV line on commas into the given array without regular expressions.
+	 * @return number of fields found
+	 */
+	private static int split(String line, String[] fields) {
+		int count = 0;
+		int start = 0;
+		while (count < fields.length) {
+			int end = line.indexOf(',', start);
+			if (end < 0) {
+				fields[count++] = line.substring(start).trim();
+				break;
+			}
+			fields[count++] = line.substring(start, end).trim();
+			start = end + 1;
+		}
+		for (int i = count; i < fields.length; i++)
+			fields[i] = null;
+		return count;
+	}
+
+	/**
+	 * Adapts json-simple's SAX-style callbacks to node and link objects. Only one node or link
+	 * object is held in memory at a time.
+	 */
+	private static class JsonRecordReader implements ContentHandler {
+
+		private final JsonRecordHandler handler;
+		private final Map<String, Object> fields = new HashMap<String, Object>();
+		private int depth = 0;
+		private String section;
+		private String key;
+
+		JsonRecordReader(JsonRecordHandler handler) {
+			this.handler = handler;
+		}
+
+		@Override
+		public void startJSON() {
+		}
+
+		@Override
+		public void endJSON() {
+		}
+
+		@Override
+		public boolean startObject() {
+			depth++;
+			if (depth == 2)
+				fields.clear();
+			return true;
+		}
+
+		@Override
+		public boolean endObject() throws ParseException {
+			if (depth == 2 && section != null) {
+				if (section.equals("nodes"))
+					handler.node(fields);
+				else if (section.equals("links"))
+					handler.link(fields);
+			}
+			depth--;
+			return true;
+		}
+
+		@Override
+		public boolean startObjectEntry(String key) {
+			if (depth == 1)
+				section = key;
+			this.key = key;
+			return true;
+		}
+
+		@Override
+		public boolean endObjectEntry() {
+			return true;
+		}
+
+		@Override
+		public boolean startArray() {
+			return true;
+		}
+
+		@Override
+		public boolean endArray() {
+			return true;
+		}
+
+		@Override
+		public boolean primitive(Object value) {
+			if (depth == 2)
+				fields.put(key, value);
+			return true;
+		}
+	}
+
+	/**
+	 * Turns node and link objects into topology records.
+	 */
+	private static class JsonTopologyHandler implements JsonRecordHandler {
+
+		private final TopologyRecordHandler handler;
+		private Map<String, Object> fields;
+
+		JsonTopologyHandler(TopologyRecordHandler handler) {
+			this.handler = handler;
+		}
+
+		@Override
+		public void node(Map<String, Object> fields) throws ParseException {
+			this.fields = fields;
+			String nodeType = (String) fields.get("type");
+			String nodeName = (String) fields.get("name");
+			if (nodeType == null)
+				return;
+			if (nodeType.equalsIgnoreCase(FOG_DEVICE)) {
+				handler.fogDevice(nodeName, new FogDeviceProfile(longValue("mips"), (int) longValue("ram"),
+						longValue("upBw"), longValue("downBw"), (int) longValue("level"), doubleValue("ratePerMips")));
+			} else if (nodeType.equals(SENSOR)) {
+				int distType = (int) longValue("distribution");
+				if (distType == Distribution.DETERMINISTIC)
+					handler.sensor(nodeName, fields.get("sensorType").toString(), distType, doubleValue("value"), 0);
+				else if (distType == Distribution.NORMAL)
+					handler.sensor(nodeName, fields.get("sensorType").toString(), distType, doubleValue("mean"), doubleValue("stdDev"));
+				else if (distType == Distribution.UNIFORM)
+					handler.sensor(nodeName, fields.get("sensorType").toString(), distType, doubleValue("min"), doubleValue("max"));
+				else
+					handler.sensor(nodeName, fields.get("sensorType").toString(), distType, 0, 0);
+			} else if (nodeType.equals(ACTUATOR)) {
+				handler.actuator(nodeName, fields.get("actuatorType").toString());
+			}
+		}
+
+		@Override
+		public void link(Map<String, Object> fields) throws ParseException {
+			this.fields = fields;
+			handler.link((String) fields.get("source"), (String) fields.get("destination"), doubleValue("latency"));
+		}
+
+		private long longValue(String name) throws ParseException {
+			return number(name).longValue();
+		}
+
+		private double doubleValue(String name) throws ParseException {
+			return number(name).doubleValue();
+		}
+
+		private Number number(String name) throws ParseException {
+			Object value = fields.get(name);
+			if (!(value instanceof Number))
+				throw new ParseException(ParseException.ERROR_UNEXPECTED_TOKEN, value);
+			return (Number) value;
+		}
+	}
+
+	/**
+	 * Builds simulation entities from topology records, resolving links through name indexes.
+	 * Links whose endpoints are not known yet are kept until the end of the stream. Links which still
+	 * can't be resolved then are rejected, or skipped with a log message if the links aren't strict.
+	 */
+	public static class TopologyBuilder implements TopologyRecordHandler {
+
+		private final int userId;
+		private final String appId;
+
+		private final List<FogDevice> fogDevices = new ArrayList<FogDevice>();
+		private final List<Sensor> sensors = new ArrayList<Sensor>();
+		private final List<Actuator> actuators = new ArrayList<Actuator>();
+
+		private final Map<String, FogDevice> fogDevicesByName = new HashMap<String, FogDevice>();
+		private final Map<String, Sensor> sensorsByName = new HashMap<String, Sensor>();
+		private final Map<String, Actuator> actuatorsByName = new HashMap<String, Actuator>();
+		private final Map<FogDeviceProfile, FogDeviceProfile> profiles = new HashMap<FogDeviceProfile, FogDeviceProfile>();
+
+		private final List<Object[]> pendingLinks = new ArrayList<Object[]>();
+		private final boolean strictLinks;
+
+		public TopologyBuilder(int userId, String appId) {
+			this(userId, appId, true);
+		}
+
+		public TopologyBuilder(int userId, String appId, boolean strictLinks) {
+			this.userId = userId;
+			this.appId = appId;
+			this.strictLinks = strictLinks;
+		}
+
+		@Override
+		public void fogDevice(String name, FogDeviceProfile profile) {
+			FogDeviceProfile shared = profiles.get(profile);
+			if (shared == null) {
+				shared = profile;
+				profiles.put(profile, profile);
+			}
+			FogDevice fogDevice = shared.createFogDevice(name);
+			fogDevices.add(fogDevice);
+			fogDevicesByName.put(key(name), fogDevice);
+		}
+
+		@Override
+		public void sensor(String name, String sensorType, int distributionType, double param1, double param2) {
+			Sensor sensor = new Sensor(name, sensorType, userId, appId, createDistribution(distributionType, param1, param2));
+			sensors.add(sensor);
+			sensorsByName.put(key(name), sensor);
+		}
+
+		@Override
+		public void actuator(String name, String actuatorType) {
+			Actuator actuator = new Actuator(name, userId, appId, actuatorType);
+			actuators.add(actuator);
+			actuatorsByName.put(key(name), actuator);
+		}
+
+		@Override
+		public void link(String source, String destination, double latency) {
+			if (!connect(source, destination, latency))
+				pendingLinks.add(new Object[]{source, destination, latency});
+		}
+
+		/**
+		 * Connects two entities the same way {@link JsonToTopology} does.
+		 * @return false if one of the endpoints has not been seen yet
+		 */
+		private boolean connect(String src, String dst, double lat) {
+			String srcKey = key(src);
+			String dstKey = key(dst);
+			FogDevice srcDev = fogDevicesByName.get(srcKey);
+			FogDevice dstDev = fogDevicesByName.get(dstKey);
+			if (srcDev != null && dstDev != null) {
+				FogDevice southernDev = (srcDev.getLevel() > dstDev.getLevel()) ? srcDev : dstDev;
+				FogDevice northernDev = (srcDev.getLevel() > dstDev.getLevel()) ? dstDev : srcDev;
+				southernDev.setUplinkLatency(lat);
+				southernDev.setParentId(northernDev.getId());
+				return true;
+			}
+			FogDevice device = (srcDev != null) ? srcDev : dstDev;
+			String otherKey = (srcDev != null) ? dstKey : srcKey;
+			if (device == null)
+				return false;
+			Sensor sensor = sensorsByName.get(otherKey);
+			if (sensor != null) {
+				sensor.setLatency(lat);
+				sensor.setGatewayDeviceId(device.getId());
+				return true;
+			}
+			Actuator actuator = actuatorsByName.get(otherKey);
+			if (actuator != null) {
+				actuator.setLatency(lat);
+				actuator.setGatewayDeviceId(device.getId());
+				return true;
+			}
+			return false;
+		}
+
+		private boolean isKnown(String name) {
+			String key = key(name);
+			return fogDevicesByName.containsKey(key) || sensorsByName.containsKey(key) || actuatorsByName.containsKey(key);
+		}
+
+		private static String key(String name) {
+			return name.toLowerCase(Locale.ROOT);
+		}
+
+		/**
+		 * @return the topology, with the links to entities read after them resolved
+		 * @throws IllegalArgumentException if the links are strict and a link has an endpoint which is
+		 * not a known entity, or links two entities none of which is a fog device
+		 */
+		public PhysicalTopology getPhysicalTopology() {
+			for (Object[] link : pendingLinks) {
+				if (connect((String) link[0], (String) link[1], (Double) link[2]))
+					continue;
+				String message = "Bad link between " + link[0] + " and " + link[1] + " : "
+						+ (isKnown((String) link[0]) ? (isKnown((String) link[1]) ? "no fog device endpoint"
+								: "unknown entity " + link[1]) : "unknown entity " + link[0]);
+				if (strictLinks)
+					throw new IllegalArgumentException(message);
+				Logger.error("StreamingTopologyLoader", "Ignoring " + message);
+			}
+			pendingLinks.clear();
+			PhysicalTopology physicalTopology = new PhysicalTopology();
+			physicalTopology.setFogDevices(fogDevices);
+			physicalTopology.setActuators(actuators);
+			physicalTopology.setSensors(sensors);
+			return physicalTopology;
+		}
+	}
+}
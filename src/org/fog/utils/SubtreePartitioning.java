@@ -0,0 +1,129 @@
+package org.fog.utils;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.EntityPartitioning;
+import org.cloudbus.cloudsim.core.SimEntity;
+import org.fog.entities.Actuator;
+import org.fog.entities.FogDevice;
+import org.fog.entities.Sensor;
+
+/**
+ * Partitions a fog hierarchy for the parallel kernel of CloudSim. Every subtree rooted at the cut
+ * depth forms a logical process together with the sensors and actuators attached to it, the devices
+ * above the cut depth form one more logical process, and controllers, brokers and all other entities
+ * stay in the synchronous partition.
+ * <p>
+ * Usage, after the topology and the controller have been created:
+ * <pre>
+ * CloudSim.setParallelExecution(new SubtreePartitioning(fogDevices, sensors, actuators, 2, 0), 4);
+ * </pre>
+ * The lookahead is the lowest latency of a link crossing two partitions, bounded by the minimum time
+ * between events used for tuple acknowledgements. Cluster members in different partitions count as
+ * crossing links.
+ */
+public class SubtreePartitioning implements EntityPartitioning {
+
+	/** Partition of the devices above the cut depth */
+	public static final int UPPER = 1;
+
+	private final Map<Integer, Integer> entityToPartition = new HashMap<Integer, Integer>();
+	private final int numberOfPartitions;
+	private final double lookahead;
+
+	/**
+	 * @param fogDevices all fog devices of the topology
+	 * @param sensors sensors, placed with their gateway device
+	 * @param actuators actuators, placed with their gateway device
+	 * @param cutDepth depth of the subtree roots, the cloud having depth 0
+	 * @param maxPartitions upper bound on the number of partitions, subtrees are grouped round robin
+	 *        to respect it; 0 for one partition per subtree
+	 */
+	public SubtreePartitioning(List<FogDevice> fogDevices, List<Sensor> sensors, List<Actuator> actuators,
+			int cutDepth, int maxPartitions) {
+		if (cutDepth < 1)
+			throw new IllegalArgumentException("Cut depth must be at least 1");
+		if (maxPartitions != 0 && maxPartitions < 3)
+			throw new IllegalArgumentException("At least 3 partitions are needed to run subtrees in parallel");
+
+		Map<Integer, FogDevice> deviceById = new HashMap<Integer, FogDevice>();
+		for (FogDevice device : fogDevices)
+			deviceById.put(device.getId(), device);
+
+		Map<Integer, Integer> subtreeToPartition = new HashMap<Integer, Integer>();
+		int subtrees = 0;
+		for (FogDevice device : fogDevices) {
+			FogDevice root = subtreeRoot(device, cutDepth, deviceById);
+			int partition;
+			if (root == null) {
+				partition = UPPER;
+			} else if (subtreeToPartition.containsKey(root.getId())) {
+				partition = subtreeToPartition.get(root.getId());
+			} else {
+				partition = maxPartitions == 0 ? UPPER + 1 + subtrees : UPPER + 1 + subtrees % (maxPartitions - 2);
+				subtreeToPartition.put(root.getId(), partition);
+				subtrees++;
+			}
+			entityToPartition.put(device.getId(), partition);
+		}
+		for (Sensor sensor : sensors)
+			entityToPartition.put(sensor.getId(), entityToPartition.get(sensor.getGatewayDeviceId()));
+		for (Actuator actuator : actuators)
+			entityToPartition.put(actuator.getId(), entityToPartition.get(actuator.getGatewayDeviceId()));
+
+		int used = UPPER + 1 + subtrees;
+		numberOfPartitions = maxPartitions == 0 ? used : Math.min(used, maxPartitions);
+
+		double minLatency = CloudSim.getMinTimeBetweenEvents();
+		for (FogDevice device : fogDevices) {
+			int partition = entityToPartition.get(device.getId());
+			Integer parentPartition = entityToPartition.get(device.getParentId());
+			if (parentPartition != null && parentPartition != partition) {
+				minLatency = Math.min(minLatency, device.getUplinkLatency());
+				Double downLatency = deviceById.get(device.getParentId()).getChildToLatencyMap().get(device.getId());
+				if (downLatency != null)
+					minLatency = Math.min(minLatency, downLatency);
+			}
+			if (device.getClusterMembersToLatencyMap() != null) {
+				for (Map.Entry<Integer, Double> member : device.getClusterMembersToLatencyMap().entrySet()) {
+					Integer memberPartition = entityToPartition.get(member.getKey());
+					if (memberPartition != null && memberPartition != partition)
+						minLatency = Math.min(minLatency, member.getValue());
+				}
+			}
+		}
+		lookahead = minLatency;
+	}
+
+	private static FogDevice subtreeRoot(FogDevice device, int cutDepth, Map<Integer, FogDevice> deviceById) {
+		int depth = 0;
+		for (FogDevice d = deviceById.get(device.getParentId()); d != null; d = deviceById.get(d.getParentId()))
+			depth++;
+		if (depth < cutDepth)
+			return null;
+		FogDevice root = device;
+		for (; depth > cutDepth; depth--)
+			root = deviceById.get(root.getParentId());
+		return root;
+	}
+
+	@Override
+	public int getNumberOfPartitions() {
+		return numberOfPartitions;
+	}
+
+	@Override
+	public int getPartition(SimEntity entity) {
+		Integer partition = entityToPartition.get(entity.getId());
+		return partition == null ? SYNCHRONOUS : partition;
+	}
+
+	@Override
+	public double getLookahead() {
+		return lookahead;
+	}
+
+}
@@ -1,11 +1,13 @@
 package org.fog.utils;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
 import org.apache.commons.math3.util.Pair;
 import org.cloudbus.cloudsim.core.CloudSim;
+import org.cloudbus.cloudsim.core.IdSequence;
 import org.fog.entities.Tuple;
 
 public class TimeKeeper {
@@ -13,7 +15,7 @@ public class TimeKeeper {
 	private static TimeKeeper instance;
 	
 	private long simulationStartTime;
-	private int count; 
+	private final IdSequence ids = new IdSequence(1);
 	private Map<Integer, Double> emitTimes;
 	private Map<Integer, Double> endTimes;
 	private Map<Integer, List<Integer>> loopIdToTupleIds;
@@ -31,21 +33,86 @@ public class TimeKeeper {
 	// last execution time
 	private Map<Integer, Double> tupleIdToExecutionTime = new HashMap<>();
 	
-	public static TimeKeeper getInstance(){
+	public static synchronized TimeKeeper getInstance(){
 		if(instance == null)
 			instance = new TimeKeeper();
 		return instance;
 	}
 	
 	public int getUniqueId(){
-		return count++;
+		return ids.next();
 	}
 	
-	public void tupleStartedExecution(Tuple tuple){
-		tupleIdToCpuStartTime.put(tuple.getCloudletId(), CloudSim.clock());
+	/**
+	 * Records the emission of a tuple starting an application loop.
+	 * @param loopId id of the loop
+	 * @return unique id of the loop instance, to be set as actual tuple id
+	 */
+	public int loopStarted(final int loopId){
+		final int tupleId = getUniqueId();
+		CloudSim.updateShared(new Runnable() {
+			@Override
+			public void run() {
+				if(!loopIdToTupleIds.containsKey(loopId))
+					loopIdToTupleIds.put(loopId, new ArrayList<Integer>());
+				loopIdToTupleIds.get(loopId).add(tupleId);
+				emitTimes.put(tupleId, CloudSim.clock());
+			}
+		});
+		return tupleId;
 	}
 	
-	public void tupleEndedExecution(Tuple tuple){
+	/**
+	 * Records the arrival of a tuple at the end module of a loop and updates the average loop delay.
+	 * @param loopId id of the loop
+	 * @param actualTupleId unique id of the loop instance
+	 */
+	public void loopCompleted(final int loopId, final int actualTupleId){
+		CloudSim.updateShared(new Runnable() {
+			@Override
+			public void run() {
+				updateLoopDelay(loopId, actualTupleId);
+			}
+		});
+	}
+	
+	private void updateLoopDelay(int loopId, int actualTupleId){
+		Double startTime = emitTimes.remove(actualTupleId);
+		if(startTime == null)
+			return;
+		if(!loopIdToCurrentAverage.containsKey(loopId)){
+			loopIdToCurrentAverage.put(loopId, 0.0);
+			loopIdToCurrentNum.put(loopId, 0);
+		}
+		double currentAverage = loopIdToCurrentAverage.get(loopId);
+		int currentCount = loopIdToCurrentNum.get(loopId);
+		double delay = CloudSim.clock() - startTime;
+		loopIdToCurrentAverage.put(loopId, (currentAverage*currentCount + delay)/(currentCount+1));
+		loopIdToCurrentNum.put(loopId, currentCount+1);
+		ResultsWriter resultsWriter = ResultsWriter.getInstance();
+		if(resultsWriter != null)
+			resultsWriter.loopCompleted(loopId, actualTupleId, delay);
+	}
+	
+	public void tupleStartedExecution(final Tuple tuple){
+		CloudSim.updateShared(new Runnable() {
+			@Override
+			public void run() {
+				tupleIdToCpuStartTime.put(tuple.getCloudletId(), CloudSim.clock());
+			}
+		});
+	}
+	
+	public void tupleEndedExecution(final Tuple tuple){
+		CloudSim.updateShared(new Runnable() {
+			@Override
+			public void run() {
+				updateCpuTime(tuple);
+			}
+		});
+	}
+	
+	private void updateCpuTime(Tuple tuple){
 		if(!tupleIdToCpuStartTime.containsKey(tuple.getCloudletId()))
 			return;
 		double executionTime = CloudSim.clock() - tupleIdToCpuStartTime.get(tuple.getCloudletId());
@@ -64,7 +131,6 @@ public class TimeKeeper {
 	}
 	
 	private TimeKeeper(){
-		count = 1;
 		setEmitTimes(new HashMap<Integer, Double>());
 		setEndTimes(new HashMap<Integer, Double>());
 		setLoopIdToTupleIds(new HashMap<Integer, List<Integer>>());
@@ -76,11 +142,11 @@ public class TimeKeeper {
 	}
 	
 	public int getCount() {
-		return count;
+		return ids.peek();
 	}
 
 	public void setCount(int count) {
-		this.count = count;
+		ids.reset(count);
 	}
 
 	public Map<Integer, Double> getEmitTimes() {
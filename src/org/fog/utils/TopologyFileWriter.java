@@ -0,0 +1,146 @@
+package org.fog.utils;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes topology records in the CSV or binary format read by {@link StreamingTopologyLoader}.
+ * Records are written as they arrive, so a {@link HierarchicalTopologyGenerator} can emit very
+ * large topologies to disk without creating any simulation entity.
+ * <p>
+ * CSV records (names must not contain commas):
+ * <pre>
+ * FOG_DEVICE,name,mips,ram,upBw,downBw,level,ratePerMips
+ * SENSOR,name,sensorType,distribution,param1,param2
+ * ACTUATOR,name,actuatorType
+ * LINK,source,destination,latency
+ * </pre>
+ * The binary format stores each distinct {@link FogDeviceProfile} once and refers to it by index
+ * from the device records.
+ */
+public class TopologyFileWriter implements TopologyRecordHandler, Closeable {
+
+	private final BufferedWriter csv;
+	private final DataOutputStream binary;
+	private final Map<FogDeviceProfile, Integer> profileIndex = new HashMap<FogDeviceProfile, Integer>();
+
+	private TopologyFileWriter(BufferedWriter csv, DataOutputStream binary) {
+		this.csv = csv;
+		this.binary = binary;
+	}
+
+	public static TopologyFileWriter csv(String fileName) throws IOException {
+		BufferedWriter writer = new BufferedWriter(new FileWriter(fileName), 1 << 16);
+		writer.write("# type,name,...");
+		writer.newLine();
+		return new TopologyFileWriter(writer, null);
+	}
+
+	public static TopologyFileWriter binary(String fileName) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(fileName), 1 << 16));
+		out.writeInt(StreamingTopologyLoader.BINARY_MAGIC);
+		out.writeInt(StreamingTopologyLoader.BINARY_VERSION);
+		return new TopologyFileWriter(null, out);
+	}
+
+	@Override
+	public void fogDevice(String name, FogDeviceProfile profile) {
+		try {
+			if (csv != null) {
+				csv.write(StreamingTopologyLoader.FOG_DEVICE + "," + name + "," + profile.getMips() + "," + profile.getRam()
+						+ "," + profile.getUpBw() + "," + profile.getDownBw() + "," + profile.getLevel() + ","
+						+ profile.getRatePerMips());
+				csv.newLine();
+			} else {
+				Integer index = profileIndex.get(profile);
+				if (index == null) {
+					index = profileIndex.size();
+					profileIndex.put(profile, index);
+					binary.writeByte(StreamingTopologyLoader.RECORD_PROFILE);
+					binary.writeLong(profile.getMips());
+					binary.writeInt(profile.getRam());
+					binary.writeLong(profile.getUpBw());
+					binary.writeLong(profile.getDownBw());
+					binary.writeInt(profile.getLevel());
+					binary.writeDouble(profile.getRatePerMips());
+				}
+				binary.writeByte(StreamingTopologyLoader.RECORD_FOG_DEVICE);
+				binary.writeUTF(name);
+				binary.writeInt(index);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void sensor(String name, String sensorType, int distributionType, double param1, double param2) {
+		try {
+			if (csv != null) {
+				csv.write(StreamingTopologyLoader.SENSOR + "," + name + "," + sensorType + "," + distributionType + ","
+						+ param1 + "," + param2);
+				csv.newLine();
+			} else {
+				binary.writeByte(StreamingTopologyLoader.RECORD_SENSOR);
+				binary.writeUTF(name);
+				binary.writeUTF(sensorType);
+				binary.writeInt(distributionType);
+				binary.writeDouble(param1);
+				binary.writeDouble(param2);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void actuator(String name, String actuatorType) {
+		try {
+			if (csv != null) {
+				csv.write(StreamingTopologyLoader.ACTUATOR + "," + name + "," + actuatorType);
+				csv.newLine();
+			} else {
+				binary.writeByte(StreamingTopologyLoader.RECORD_ACTUATOR);
+				binary.writeUTF(name);
+				binary.writeUTF(actuatorType);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void link(String source, String destination, double latency) {
+		try {
+			if (csv != null) {
+				csv.write(StreamingTopologyLoader.LINK + "," + source + "," + destination + "," + latency);
+				csv.newLine();
+			} else {
+				binary.writeByte(StreamingTopologyLoader.RECORD_LINK);
+				binary.writeUTF(source);
+				binary.writeUTF(destination);
+				binary.writeDouble(latency);
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (csv != null) {
+			csv.close();
+		} else {
+			binary.writeByte(StreamingTopologyLoader.RECORD_END);
+			binary.close();
+		}
+	}
+}
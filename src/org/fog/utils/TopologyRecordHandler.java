@@ -0,0 +1,24 @@
+package org.fog.utils;
+
+/**
+ * Receiver of topology records, one record at a time. Topology loaders, the
+ * {@link HierarchicalTopologyGenerator} and the {@link TopologyFileWriter} communicate through
+ * this interface so that no stage needs the whole topology in memory as an intermediate tree.
+ */
+public interface TopologyRecordHandler {
+
+	void fogDevice(String name, FogDeviceProfile profile);
+
+	/**
+	 * @param distributionType one of {@link org.fog.utils.distribution.Distribution#NORMAL},
+	 * {@code DETERMINISTIC} or {@code UNIFORM}
+	 * @param param1 value, mean or min depending on the distribution type
+	 * @param param2 standard deviation or max depending on the distribution type, 0 otherwise
+	 */
+	void sensor(String name, String sensorType, int distributionType, double param1, double param2);
+
+	void actuator(String name, String actuatorType);
+
+	void link(String source, String destination, double latency);
+
+}